@@ -1,28 +1,38 @@
 package com.howellsmith.oss.nfcpipass.config;
 
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
 
 /**
- * Create a configurable thread pool task executor and make it the default for the application @async methods.
+ * Create the executor for the application @async methods and the reader event listeners. Nearly all of that work
+ * blocks on I/O, so with {@code async.mode=virtual} every task runs on a virtual thread of its own; on a JDK without
+ * virtual threads, or with {@code async.mode=platform}, it runs on a configurable platform thread pool.
  */
+@Log4j2
 @EnableAsync
 @Configuration
 public class AsyncConfig {
 
+    private static final String MODE_VIRTUAL = "virtual";
+
+    private final String asyncMode;
     private final int asyncCorePoolSize;
     private final int asyncMaxPoolSize;
     private final String asyncThreadNamePrefix;
 
     public AsyncConfig(
+            @Value("${async.mode:platform}") String asyncMode,
             @Value("${async.core_pool_size:10}") int asyncCorePoolSize,
             @Value("${async.max_pool_size:10}") int asyncMaxPoolSize,
             @Value("${async.thread_name_prefix:pipass_async_}") String asyncThreadNamePrefix) {
+        this.asyncMode = asyncMode;
         this.asyncCorePoolSize = asyncCorePoolSize;
         this.asyncMaxPoolSize = asyncMaxPoolSize;
         this.asyncThreadNamePrefix = asyncThreadNamePrefix;
@@ -31,6 +41,14 @@ public class AsyncConfig {
     @Bean("ThreadPoolTaskExecutor")
     public Executor taskExecutor() {
 
+        if (MODE_VIRTUAL.equalsIgnoreCase(asyncMode)) {
+            if (VirtualThreads.isAvailable()) {
+                return new TaskExecutorAdapter(VirtualThreads.newThreadPerTaskExecutor(asyncThreadNamePrefix));
+            }
+            log.warn("Virtual threads need Java 21 or later, running on Java {}; falling back to the thread pool",
+                    Runtime.version().feature());
+        }
+
         var executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(asyncCorePoolSize);
         executor.setMaxPoolSize(asyncMaxPoolSize);
@@ -40,4 +58,16 @@ public class AsyncConfig {
 
         return executor;
     }
+
+    /**
+     * Runs the loads of the tag caches. With virtual threads each load gets a thread of its own, so a caller waiting on
+     * it unmounts instead of pinning its carrier inside the cache; otherwise loads run on the caller.
+     */
+    @Bean("LookupExecutor")
+    public Executor lookupExecutor() {
+        if (MODE_VIRTUAL.equalsIgnoreCase(asyncMode) && VirtualThreads.isAvailable()) {
+            return VirtualThreads.newThreadPerTaskExecutor(asyncThreadNamePrefix + "lookup_");
+        }
+        return Runnable::run;
+    }
 }
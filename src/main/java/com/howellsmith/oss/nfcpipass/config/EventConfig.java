@@ -1,29 +1,33 @@
 package com.howellsmith.oss.nfcpipass.config;
 
+import com.howellsmith.oss.nfcpipass.service.ReaderEventBus;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.event.ApplicationEventMulticaster;
-import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.context.support.AbstractApplicationContext;
 
 import java.util.concurrent.Executor;
 
 /**
- * Eventing configuration that enables async operations.
+ * Eventing configuration: reader events are delivered through bounded rings, see {@link ReaderEventBus}, and their
+ * listeners run on the executor configured by {@link AsyncConfig}.
  */
 @Configuration
 public class EventConfig {
 
+    private final int ringSize;
     private final Executor taskExecutor;
 
-    public EventConfig(@Qualifier("ThreadPoolTaskExecutor") Executor taskExecutor) {
+    public EventConfig(
+            @Value("${events.ring_size:1024}") int ringSize,
+            @Qualifier("ThreadPoolTaskExecutor") Executor taskExecutor) {
+        this.ringSize = ringSize;
         this.taskExecutor = taskExecutor;
     }
 
-    @Bean
-    public ApplicationEventMulticaster multicaster() {
-        var multicaster = new SimpleApplicationEventMulticaster();
-        multicaster.setTaskExecutor(taskExecutor);
-        return multicaster;
+    @Bean(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME)
+    public ReaderEventBus multicaster() {
+        return new ReaderEventBus(ringSize, taskExecutor);
     }
 }
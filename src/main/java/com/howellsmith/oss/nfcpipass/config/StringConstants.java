@@ -18,6 +18,9 @@ public class StringConstants {
 
     public static final String DEVICE_STATUS = "deviceStatus";
     public static final String DEVICE_ID = "deviceId";
+    public static final String READER_SERIAL = "readerSerial";
+    public static final String RECOVERY_MILLIS = "recoveryMillis";
+    public static final String TAG_ID = "tagId";
 
     public static final String MARKER_CRITICAL_INFORMATION = "CRITICAL_INFORMATION_MARKER";
     public static final String MARKER_ILLEGAL_ARGUMENT_NULL = "ILLEGAL_ARGUMENT_NULL_MARKER";
@@ -29,9 +32,21 @@ public class StringConstants {
     public static final String MESSAGE_NFC_GET_READER_TYPE_FAILURE = "Failed to get the device reader type information.";
     public static final String MESSAGE_NFC_READER_CONNECT_SUCCESS = "Successfully connected the uFR NFC reader.";
     public static final String MESSAGE_NFC_READER_CONNECT_FAILURE = "Unable to connect to the uFR NFC reader.";
-    public static final String MESSAGE_SLEEP_INTERRUPTED_DURING_RESET = "Thread sleep interrupted during device reset waiting period.";
+    public static final String MESSAGE_NFC_READER_CALL_TIMEOUT = "A call to the uFR NFC reader timed out, recycling the reader.";
     public static final String MESSAGE_NFC_READER_READ_NDEF_FAIL = "Failed to read the NDEF Text record from tag or no NDEF Text record was present.";
+    public static final String MESSAGE_NFC_READER_MALFORMED_NDEF = "The NDEF message read from tag was malformed or truncated.";
     public static final String MESSAGE_UNEXPECTED_READER_STATUS = "The status code obtained from the reader was not expected.";
+    public static final String MESSAGE_POLL_CYCLE_FAILURE = "Unexpected exception during the tag polling cycle.";
+    public static final String MESSAGE_TAG_CACHE_WARM_UP_FAILURE = "Failed to preload the registered tags into the lookup cache.";
+    public static final String MESSAGE_READER_LIST_UPDATE_FAILURE = "Failed to update the list of attached uFR readers.";
+    public static final String MESSAGE_READER_LIST_UNAVAILABLE = "The uFR library does not support the reader list, only the default reader is polled.";
+    public static final String MESSAGE_READER_DISCOVERY_FAILURE = "Unexpected exception while discovering the attached uFR readers.";
+    public static final String MESSAGE_HOTPLUG_WATCH_FAILURE = "Unable to watch for USB devices, readers are only probed on their backoff schedule.";
+    public static final String MESSAGE_PROVISIONING_FAILURE = "Failed to provision the tag, its job was returned to the queue.";
+    public static final String MESSAGE_PROVISIONING_DUPLICATE = "The tag is already registered and was not provisioned.";
+    public static final String MESSAGE_PROVISIONING_FLUSH_FAILURE = "Failed to register the provisioned tags, they are retried with the next batch.";
+    public static final String MESSAGE_TAP_TO_TYPE_FAILURE = "Failed to type the sensitive data of the tag.";
+    public static final String MESSAGE_STATE_FEED_FAILURE = "Failed to serialize the reader state for the live feed.";
 
 
 }
@@ -0,0 +1,26 @@
+package com.howellsmith.oss.nfcpipass.config;
+
+import com.howellsmith.oss.nfcpipass.service.StateFeed;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Serve the live reader state feed to the web UI at /ws/state, to pages of the same origin only.
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final StateFeed stateFeed;
+
+    public WebSocketConfig(StateFeed stateFeed) {
+        this.stateFeed = stateFeed;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(stateFeed, "/ws/state");
+    }
+}
@@ -0,0 +1,55 @@
+package com.howellsmith.oss.nfcpipass.controller;
+
+import com.howellsmith.oss.nfcpipass.model.provisioning.ProvisioningJob;
+import com.howellsmith.oss.nfcpipass.model.provisioning.ProvisioningStatus;
+import com.howellsmith.oss.nfcpipass.service.ProvisioningService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Queues provisioning jobs and reports progress, so an operator can enrol a batch of tags by tapping them one after
+ * the other.
+ */
+@RestController
+@RequestMapping("/api/provisioning")
+public class ProvisioningController {
+
+    private final ProvisioningService provisioning;
+
+    public ProvisioningController(ProvisioningService provisioning) {
+        this.provisioning = provisioning;
+    }
+
+    @PostMapping("/jobs")
+    public ProvisioningStatus enqueue(@RequestBody List<ProvisioningJob> jobs) {
+        for (var job : jobs) {
+            if (job == null || job.getUser() == null || job.getNdefText() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every job needs a user and NDEF text");
+            }
+        }
+        provisioning.enqueue(jobs);
+        return provisioning.getStatus();
+    }
+
+    @GetMapping
+    public ProvisioningStatus getStatus() {
+        return provisioning.getStatus();
+    }
+
+    /**
+     * Drop the queued jobs, e.g. when the operator runs out of tags.
+     */
+    @DeleteMapping("/jobs")
+    public ProvisioningStatus cancel() {
+        provisioning.cancel();
+        return provisioning.getStatus();
+    }
+}
@@ -0,0 +1,36 @@
+package com.howellsmith.oss.nfcpipass.controller;
+
+import com.howellsmith.oss.nfcpipass.model.state.ReaderState;
+import com.howellsmith.oss.nfcpipass.service.ReaderRegistry;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Exposes the current reader state so the web UI can query it instead of following the event stream.
+ */
+@RestController
+@RequestMapping("/api/reader")
+public class ReaderStateController {
+
+    private final ReaderRegistry readers;
+
+    public ReaderStateController(ReaderRegistry readers) {
+        this.readers = readers;
+    }
+
+    @GetMapping("/state")
+    public ReaderState getState() {
+        return readers.getState();
+    }
+
+    /**
+     * @return Returns the state of every attached reader, keyed by reader serial.
+     */
+    @GetMapping("/states")
+    public Map<String, ReaderState> getStates() {
+        return readers.getStates();
+    }
+}
@@ -4,6 +4,8 @@ import com.howellsmith.oss.nfcpipass.model.domain.SensitiveData;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Simple SensitiveData Data Access Object
  */
@@ -12,4 +14,6 @@ public interface SensitiveDataRepository extends MongoRepository<SensitiveData,
 
     SensitiveData findByTagId(String tagId);
 
+    List<SensitiveData> findAllByTagId(String tagId);
+
 }
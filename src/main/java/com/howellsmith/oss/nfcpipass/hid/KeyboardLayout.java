@@ -0,0 +1,156 @@
+package com.howellsmith.oss.nfcpipass.hid;
+
+import java.util.Arrays;
+
+/**
+ * The keyboard layouts the host may be set to, each a table from character to the keystroke that types it on that
+ * layout. Tables are built once, so encoding text is an array lookup per character. Characters behind a dead key, e.g.
+ * ^ on the German layout, are typed as the dead key followed by a space.
+ * <p>
+ * Keystrokes are encoded as boot keyboard reports of the HID specification, 8 bytes each: the modifier bits, a reserved
+ * byte and up to 6 usage ids, of which only the first is used.
+ */
+public enum KeyboardLayout {
+
+    US {
+        @Override
+        void define(int[] table) {
+            row(table, "`1234567890-=", 0x35, 0x1E, 0x1F, 0x20, 0x21, 0x22, 0x23, 0x24, 0x25, 0x26, 0x27, 0x2D, 0x2E);
+            row(table, SHIFT, "~!@#$%^&*()_+", 0x35, 0x1E, 0x1F, 0x20, 0x21, 0x22, 0x23, 0x24, 0x25, 0x26, 0x27,
+                    0x2D, 0x2E);
+            row(table, "[]\\;',./", 0x2F, 0x30, 0x31, 0x33, 0x34, 0x36, 0x37, 0x38);
+            row(table, SHIFT, "{}|:\"<>?", 0x2F, 0x30, 0x31, 0x33, 0x34, 0x36, 0x37, 0x38);
+        }
+    },
+
+    UK {
+        @Override
+        void define(int[] table) {
+            row(table, "`1234567890-=", 0x35, 0x1E, 0x1F, 0x20, 0x21, 0x22, 0x23, 0x24, 0x25, 0x26, 0x27, 0x2D, 0x2E);
+            row(table, SHIFT, "¬!\"£$%^&*()_+", 0x35, 0x1E, 0x1F, 0x20, 0x21, 0x22, 0x23, 0x24, 0x25, 0x26, 0x27,
+                    0x2D, 0x2E);
+            row(table, "[]#;',./\\", 0x2F, 0x30, 0x32, 0x33, 0x34, 0x36, 0x37, 0x38, 0x64);
+            row(table, SHIFT, "{}~:@<>?|", 0x2F, 0x30, 0x32, 0x33, 0x34, 0x36, 0x37, 0x38, 0x64);
+        }
+    },
+
+    DE {
+        @Override
+        void define(int[] table) {
+            table['y'] = 0x1D;
+            table['z'] = 0x1C;
+            table['Y'] = SHIFT << 8 | 0x1D;
+            table['Z'] = SHIFT << 8 | 0x1C;
+            row(table, "1234567890ß", 0x1E, 0x1F, 0x20, 0x21, 0x22, 0x23, 0x24, 0x25, 0x26, 0x27, 0x2D);
+            row(table, SHIFT, "!\"§$%&/()=?", 0x1E, 0x1F, 0x20, 0x21, 0x22, 0x23, 0x24, 0x25, 0x26, 0x27, 0x2D);
+            row(table, ALT_GR, "²³{[]}\\", 0x1F, 0x20, 0x24, 0x25, 0x26, 0x27, 0x2D);
+            row(table, "ü+#öä,.-<", 0x2F, 0x30, 0x32, 0x33, 0x34, 0x36, 0x37, 0x38, 0x64);
+            row(table, SHIFT, "Ü*'ÖÄ;:_>°", 0x2F, 0x30, 0x32, 0x33, 0x34, 0x36, 0x37, 0x38, 0x64, 0x35);
+            row(table, ALT_GR, "~|@µ", 0x30, 0x64, 0x14, 0x10);
+            table['^'] = DEAD | 0x35;
+            table['´'] = DEAD | 0x2E;
+            table['`'] = DEAD | SHIFT << 8 | 0x2E;
+        }
+    };
+
+    public static final int REPORT_LENGTH = 8;
+
+    static final int SHIFT = 0x02;
+    static final int ALT_GR = 0x40;
+
+    // a table entry is the usage id in its low byte, the modifier bits above it and whether it is a dead key
+    static final int DEAD = 1 << 16;
+    static final int UNMAPPED = -1;
+    static final int SPACE = 0x2C;
+
+    private final int[] table;
+
+    KeyboardLayout() {
+        table = new int[0x100];
+        Arrays.fill(table, UNMAPPED);
+        for (char c = 'a'; c <= 'z'; c++) {
+            table[c] = 0x04 + c - 'a';
+            table[Character.toUpperCase(c)] = SHIFT << 8 | 0x04 + c - 'a';
+        }
+        table['\n'] = 0x28;
+        table['\t'] = 0x2B;
+        table[' '] = SPACE;
+        define(table);
+    }
+
+    abstract void define(int[] table);
+
+    static void row(int[] table, String chars, int... usages) {
+        row(table, 0, chars, usages);
+    }
+
+    static void row(int[] table, int modifiers, String chars, int... usages) {
+        for (int i = 0; i < chars.length(); i++) table[chars.charAt(i)] = modifiers << 8 | usages[i];
+    }
+
+    /**
+     * @return True if every character of the text can be typed on this layout.
+     */
+    public boolean canType(char[] text, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) if (stroke(text[i]) == UNMAPPED) return false;
+        return true;
+    }
+
+    /**
+     * Encode text as the reports that type it. A key is released between two characters only when the next one needs
+     * the same key or other modifiers, otherwise the next key replaces it in a single report.
+     *
+     * @param text   The characters to type.
+     * @param offset The first character.
+     * @param length The number of characters.
+     * @return Returns the reports, {@link #REPORT_LENGTH} bytes each, ending with every key released.
+     * @throws IllegalArgumentException if a character cannot be typed on this layout, before anything is encoded. The
+     *                                  message gives its position only, as the text is usually a password.
+     */
+    public byte[] reports(char[] text, int offset, int length) {
+
+        var count = 0;
+        var previous = UNMAPPED;
+        for (int i = offset; i < offset + length; i++) {
+            var stroke = stroke(text[i]);
+            if (stroke == UNMAPPED) {
+                throw new IllegalArgumentException("Character at " + (i - offset) + " has no key on layout " + this);
+            }
+            if (previous != UNMAPPED && !replaces(previous, stroke)) count++;
+            count += (stroke & DEAD) != 0 ? 3 : 1;
+            previous = (stroke & DEAD) != 0 ? SPACE : stroke;
+        }
+        if (previous != UNMAPPED) count++;
+
+        var reports = new byte[count * REPORT_LENGTH];
+        var at = 0;
+        previous = UNMAPPED;
+        for (int i = offset; i < offset + length; i++) {
+            var stroke = stroke(text[i]);
+            if (previous != UNMAPPED && !replaces(previous, stroke)) at += REPORT_LENGTH;
+            at = press(reports, at, stroke);
+            if ((stroke & DEAD) != 0) {
+                at = press(reports, at + REPORT_LENGTH, SPACE);
+                previous = SPACE;
+            } else {
+                previous = stroke;
+            }
+        }
+        return reports;
+    }
+
+    private int stroke(char c) {
+        return c < table.length ? table[c] : UNMAPPED;
+    }
+
+    private static boolean replaces(int previous, int next) {
+        return (previous & 0xFF) != (next & 0xFF) && (previous & 0xFF00) == (next & 0xFF00);
+    }
+
+    // a released report is all zeros, so skipping past one leaves it in place
+    private static int press(byte[] reports, int at, int stroke) {
+        reports[at] = (byte) (stroke >> 8);
+        reports[at + 2] = (byte) stroke;
+        return at + REPORT_LENGTH;
+    }
+}
@@ -10,7 +10,7 @@ import org.springframework.data.annotation.Id;
  * The SensitiveData object holds things like passwords, notes or other data that is to be encrypted.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class SensitiveData {
@@ -26,7 +26,29 @@ public class SensitiveData {
     private String tagId;
 
     /**
-     * The data property is an encrypted string that can hold whatever data the user intends to have typed.
+     * The data property is an encrypted string that can hold whatever data the user intends to have typed. It is the
+     * Base64 of the AES-GCM nonce followed by the ciphertext, under the data key of this record.
      */
     private String data;
+
+    /**
+     * The GridFS id of content too large for {@link #data}, sealed a segment at a time under the data key of this
+     * record. Null if the record holds its data inline.
+     */
+    private String contentId;
+
+    /**
+     * The data key of this record, Base64 and wrapped (AES Key Wrap) with the key derived from the tag's password.
+     */
+    private String wrappedKey;
+
+    /**
+     * The Base64 PBKDF2 salt of the tag key. Records of a tag share it, so one derivation unwraps all of them.
+     */
+    private String salt;
+
+    /**
+     * The PBKDF2 iteration count the tag key was derived with.
+     */
+    private Integer iterations;
 }
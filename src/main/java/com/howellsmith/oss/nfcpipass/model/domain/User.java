@@ -12,7 +12,7 @@ import java.util.List;
  * The User representation.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
@@ -0,0 +1,51 @@
+package com.howellsmith.oss.nfcpipass.model.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+
+/**
+ * Published when the NDEF message read from the tag in the field differs from the last known value. The NDEF message
+ * holds the tag's password, so it is never serialized.
+ */
+public class NdefChangedEvent extends ReaderEvent {
+
+    private final Long uid;
+    private final String tagId;
+    private final String ndef;
+    private final NdefMessage ndefMessage;
+
+    public NdefChangedEvent(Object source, String readerSerial, Long uid, String tagId,
+                            NdefMessage ndefMessage) {
+        super(source, readerSerial);
+        this.uid = uid;
+        this.tagId = tagId;
+        this.ndef = ndefMessage == null ? null : ndefMessage.getText();
+        this.ndefMessage = ndefMessage;
+    }
+
+    public Long getUid() {
+        return this.uid;
+    }
+
+    public String getTagId() {
+        return this.tagId;
+    }
+
+    @JsonIgnore
+    public String getNdef() {
+        return this.ndef;
+    }
+
+    @JsonIgnore
+    public NdefMessage getNdefMessage() {
+        return this.ndefMessage;
+    }
+
+    /**
+     * @return Returns the reader and tag, only the latest pending change of a tag's NDEF message is delivered.
+     */
+    @Override
+    public Object coalesceKey() {
+        return getReaderSerial() + ":" + tagId;
+    }
+}
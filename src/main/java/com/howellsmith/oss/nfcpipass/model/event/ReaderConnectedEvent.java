@@ -0,0 +1,21 @@
+package com.howellsmith.oss.nfcpipass.model.event;
+
+/**
+ * Published once when the NFC reader becomes available.
+ */
+public class ReaderConnectedEvent extends ReaderEvent {
+
+    private final String deviceId;
+
+    public ReaderConnectedEvent(Object source, String readerSerial, String deviceId) {
+        super(source, readerSerial);
+        this.deviceId = deviceId;
+    }
+
+    /**
+     * @return Returns the reader type reported by the device, formatted as hex.
+     */
+    public String getDeviceId() {
+        return this.deviceId;
+    }
+}
@@ -0,0 +1,32 @@
+package com.howellsmith.oss.nfcpipass.model.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * An event observed by a reader. Reader events are delivered through the reader event bus instead of on the thread that
+ * polls the reader, see {@link com.howellsmith.oss.nfcpipass.service.ReaderEventBus}.
+ */
+public abstract class ReaderEvent extends ApplicationEvent {
+
+    private final String readerSerial;
+
+    protected ReaderEvent(Object source, String readerSerial) {
+        super(source);
+        this.readerSerial = readerSerial;
+    }
+
+    /**
+     * @return Returns the serial number of the reader that observed this, formatted as hex.
+     */
+    public String getReaderSerial() {
+        return this.readerSerial;
+    }
+
+    /**
+     * @return Returns the key under which a pending event of the same type is superseded by this one, or null if every
+     * event must be delivered.
+     */
+    public Object coalesceKey() {
+        return null;
+    }
+}
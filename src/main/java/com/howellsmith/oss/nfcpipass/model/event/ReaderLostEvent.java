@@ -0,0 +1,27 @@
+package com.howellsmith.oss.nfcpipass.model.event;
+
+/**
+ * Published once when a previously connected NFC reader stops responding.
+ */
+public class ReaderLostEvent extends ReaderEvent {
+
+    private final String deviceId;
+    private final String status;
+
+    public ReaderLostEvent(Object source, String readerSerial, String deviceId, String status) {
+        super(source, readerSerial);
+        this.deviceId = deviceId;
+        this.status = status;
+    }
+
+    public String getDeviceId() {
+        return this.deviceId;
+    }
+
+    /**
+     * @return Returns the status code that revealed the loss, formatted as hex.
+     */
+    public String getStatus() {
+        return this.status;
+    }
+}
@@ -0,0 +1,53 @@
+package com.howellsmith.oss.nfcpipass.model.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+
+/**
+ * Published once when an NFC tag enters the field of the reader. The NDEF message holds the tag's password, so it is
+ * never serialized, e.g. by the event log.
+ */
+public class TagArrivedEvent extends ReaderEvent {
+
+    private final Long uid;
+    private final String tagId;
+    private final String ndef;
+    private final NdefMessage ndefMessage;
+
+    public TagArrivedEvent(Object source, String readerSerial, Long uid, String tagId,
+                           NdefMessage ndefMessage) {
+        super(source, readerSerial);
+        this.uid = uid;
+        this.tagId = tagId;
+        this.ndef = ndefMessage == null ? null : ndefMessage.getText();
+        this.ndefMessage = ndefMessage;
+    }
+
+    public Long getUid() {
+        return this.uid;
+    }
+
+    /**
+     * @return Returns the full uid of the tag as hex, in the byte order reported by the reader.
+     */
+    public String getTagId() {
+        return this.tagId;
+    }
+
+    /**
+     * @return Returns the text of the first NDEF Text record read on arrival, or null when there is none or the tag
+     * could not be read.
+     */
+    @JsonIgnore
+    public String getNdef() {
+        return this.ndef;
+    }
+
+    /**
+     * @return Returns every record of the NDEF message read on arrival, or null when it could not be read.
+     */
+    @JsonIgnore
+    public NdefMessage getNdefMessage() {
+        return this.ndefMessage;
+    }
+}
@@ -0,0 +1,24 @@
+package com.howellsmith.oss.nfcpipass.model.event;
+
+/**
+ * Published once when the NFC tag that was in the field of the reader leaves it.
+ */
+public class TagDepartedEvent extends ReaderEvent {
+
+    private final Long uid;
+    private final String tagId;
+
+    public TagDepartedEvent(Object source, String readerSerial, Long uid, String tagId) {
+        super(source, readerSerial);
+        this.uid = uid;
+        this.tagId = tagId;
+    }
+
+    public Long getUid() {
+        return this.uid;
+    }
+
+    public String getTagId() {
+        return this.tagId;
+    }
+}
@@ -0,0 +1,29 @@
+package com.howellsmith.oss.nfcpipass.model.event;
+
+/**
+ * Published as soon as GetCardIdEx reports a tag that was not in the field, before its NDEF area is read, so work keyed
+ * by the uid alone, e.g. looking up what the tag unlocks, overlaps the read. A {@link TagArrivedEvent} with the NDEF
+ * message follows at the end of the same poll cycle.
+ */
+public class TagDetectedEvent extends ReaderEvent {
+
+    private final Long uid;
+    private final String tagId;
+
+    public TagDetectedEvent(Object source, String readerSerial, Long uid, String tagId) {
+        super(source, readerSerial);
+        this.uid = uid;
+        this.tagId = tagId;
+    }
+
+    public Long getUid() {
+        return this.uid;
+    }
+
+    /**
+     * @return Returns the full uid of the tag as hex, in the byte order reported by the reader.
+     */
+    public String getTagId() {
+        return this.tagId;
+    }
+}
@@ -0,0 +1,9 @@
+package com.howellsmith.oss.nfcpipass.model.log;
+
+/**
+ * A log message that carries a marker. The marker lets the logging service decide how much context to capture.
+ */
+public interface MarkedLog {
+
+    String getMarker();
+}
@@ -1,6 +1,7 @@
 package com.howellsmith.oss.nfcpipass.model.log.error;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.howellsmith.oss.nfcpipass.model.log.MarkedLog;
 import lombok.Builder;
 import lombok.Data;
 
@@ -14,7 +15,7 @@ import static com.howellsmith.oss.nfcpipass.config.StringConstants.LOG_MSG_KEY;
 
 @Builder
 @Data
-public class ExceptionalErrorLog {
+public class ExceptionalErrorLog implements MarkedLog {
 
     @JsonProperty(LOG_MARKER_KEY)
     private String marker;
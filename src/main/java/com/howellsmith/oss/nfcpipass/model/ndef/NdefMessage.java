@@ -0,0 +1,235 @@
+package com.howellsmith.oss.nfcpipass.model.ndef;
+
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefRecord.Tnf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Immutable NDEF message as read from a tag: every record, whatever its type. The message owns a single copy of its
+ * bytes and its records are views on it, so a multi record tag, e.g. an id record and an encrypted key record, is one
+ * bulk read and one copy instead of a native call per record.
+ * <p>
+ * Short and long records, ids and chunked records are supported. Chunks are reassembled into a single record, which is
+ * the only case that copies payload bytes.
+ */
+public final class NdefMessage {
+
+    public static final NdefMessage EMPTY = new NdefMessage(new byte[0], List.of());
+
+    private static final int MB = 0x80;
+    private static final int ME = 0x40;
+    private static final int CF = 0x20;
+    private static final int SR = 0x10;
+    private static final int IL = 0x08;
+    private static final int TNF_MASK = 0x07;
+
+    private static final int TLV_NULL = 0x00;
+    private static final int TLV_NDEF_MESSAGE = 0x03;
+    private static final int TLV_TERMINATOR = 0xFE;
+    private static final int TLV_LONG_LENGTH = 0xFF;
+
+    private final byte[] data;
+    private final List<NdefRecord> records;
+
+    private NdefMessage(byte[] data, List<NdefRecord> records) {
+        this.data = data;
+        this.records = records;
+    }
+
+    /**
+     * Find the NDEF Message TLV in the user memory of an NFC Forum Type 2 tag (Ultralight, NTAG) and parse it.
+     *
+     * @param memory The user memory, read in bulk from its first byte.
+     * @param length The number of bytes that were read.
+     * @return Returns the message, or null if the memory holds no NDEF message.
+     * @throws IllegalArgumentException if the TLVs or the message are malformed or truncated.
+     */
+    public static NdefMessage fromType2Memory(byte[] memory, int length) {
+
+        var offset = 0;
+        while (offset < length) {
+
+            var tag = memory[offset] & 0xFF;
+            if (tag == TLV_NULL) {
+                offset++;
+                continue;
+            }
+            if (tag == TLV_TERMINATOR) return null;
+
+            require(offset + 2 <= length, "truncated TLV");
+            var valueLength = memory[offset + 1] & 0xFF;
+            var header = 2;
+            if (valueLength == TLV_LONG_LENGTH) {
+                require(offset + 4 <= length, "truncated TLV length");
+                valueLength = (memory[offset + 2] & 0xFF) << 8 | memory[offset + 3] & 0xFF;
+                header = 4;
+            }
+            require(offset + header + valueLength <= length, "truncated TLV value");
+
+            if (tag == TLV_NDEF_MESSAGE) return parse(memory, offset + header, valueLength);
+            offset += header + valueLength;
+        }
+        return null;
+    }
+
+    /**
+     * Parse an NDEF message, copying its bytes once.
+     *
+     * @throws IllegalArgumentException if the message is malformed or truncated.
+     */
+    public static NdefMessage parse(byte[] source, int offset, int length) {
+
+        if (length == 0) return EMPTY;
+
+        var data = Arrays.copyOfRange(source, offset, offset + length);
+        var records = new ArrayList<NdefRecord>();
+        var chunks = (ByteArrayOutputStream) null;
+        var chunkTnf = Tnf.EMPTY;
+        var chunkType = (byte[]) null;
+        var chunkId = (byte[]) null;
+
+        var position = 0;
+        var last = false;
+        while (!last) {
+
+            require(position + 3 <= data.length, "truncated record header");
+            var header = data[position] & 0xFF;
+            require(position > 0 || (header & MB) != 0, "first record does not begin the message");
+            last = (header & ME) != 0;
+            var tnf = Tnf.values()[header & TNF_MASK];
+            var typeLength = data[position + 1] & 0xFF;
+            position += 2;
+
+            long payloadLength;
+            if ((header & SR) != 0) {
+                payloadLength = data[position++] & 0xFF;
+            } else {
+                require(position + 4 <= data.length, "truncated payload length");
+                payloadLength = (data[position] & 0xFFL) << 24 | (data[position + 1] & 0xFF) << 16
+                        | (data[position + 2] & 0xFF) << 8 | data[position + 3] & 0xFF;
+                position += 4;
+            }
+            var idLength = 0;
+            if ((header & IL) != 0) {
+                require(position + 1 <= data.length, "truncated id length");
+                idLength = data[position++] & 0xFF;
+            }
+            require(position + typeLength + idLength + payloadLength <= data.length, "truncated record");
+
+            var typeOffset = position;
+            var idOffset = typeOffset + typeLength;
+            var payloadOffset = idOffset + idLength;
+            position = payloadOffset + (int) payloadLength;
+
+            if (chunks == null && (header & CF) == 0) {
+                require(tnf != Tnf.UNCHANGED, "unchanged type outside a chunked record");
+                records.add(new NdefRecord(tnf, data, typeOffset, typeLength, idOffset, idLength, payloadOffset,
+                        (int) payloadLength));
+            } else if (chunks == null) {
+                chunks = new ByteArrayOutputStream();
+                chunkTnf = tnf;
+                chunkType = Arrays.copyOfRange(data, typeOffset, idOffset);
+                chunkId = Arrays.copyOfRange(data, idOffset, payloadOffset);
+                chunks.write(data, payloadOffset, (int) payloadLength);
+            } else {
+                require(tnf == Tnf.UNCHANGED && typeLength == 0, "chunk with a type");
+                chunks.write(data, payloadOffset, (int) payloadLength);
+                if ((header & CF) == 0) {
+                    records.add(chunked(chunkTnf, chunkType, chunkId, chunks.toByteArray()));
+                    chunks = null;
+                }
+            }
+            require(!last || chunks == null, "message ends inside a chunked record");
+        }
+        return new NdefMessage(data, Collections.unmodifiableList(records));
+    }
+
+    /**
+     * @return Returns a message with a single well known Text record, e.g. for text read through the Text only call.
+     */
+    public static NdefMessage ofText(String text, String language) {
+        var lang = language.getBytes(US_ASCII);
+        var body = text.getBytes(UTF_8);
+        var payload = new byte[1 + lang.length + body.length];
+        payload[0] = (byte) lang.length;
+        System.arraycopy(lang, 0, payload, 1, lang.length);
+        System.arraycopy(body, 0, payload, 1 + lang.length, body.length);
+        var record = record(MB | ME, Tnf.WELL_KNOWN, NdefRecord.TYPE_TEXT.getBytes(US_ASCII), new byte[0], payload);
+        return parse(record, 0, record.length);
+    }
+
+    /**
+     * Encode a single record, short when the payload allows it.
+     */
+    static byte[] record(int flags, Tnf tnf, byte[] type, byte[] id, byte[] payload) {
+        var out = new ByteArrayOutputStream();
+        var shortRecord = payload.length < 256;
+        out.write(flags | (shortRecord ? SR : 0) | (id.length > 0 ? IL : 0) | tnf.ordinal());
+        out.write(type.length);
+        if (shortRecord) {
+            out.write(payload.length);
+        } else {
+            out.write(payload.length >>> 24);
+            out.write(payload.length >>> 16);
+            out.write(payload.length >>> 8);
+            out.write(payload.length);
+        }
+        if (id.length > 0) out.write(id.length);
+        out.writeBytes(type);
+        out.writeBytes(id);
+        out.writeBytes(payload);
+        return out.toByteArray();
+    }
+
+    private static NdefRecord chunked(Tnf tnf, byte[] type, byte[] id, byte[] payload) {
+        var merged = new byte[type.length + id.length + payload.length];
+        System.arraycopy(type, 0, merged, 0, type.length);
+        System.arraycopy(id, 0, merged, type.length, id.length);
+        System.arraycopy(payload, 0, merged, type.length + id.length, payload.length);
+        return new NdefRecord(tnf, merged, 0, type.length, type.length, id.length, type.length + id.length,
+                payload.length);
+    }
+
+    private static void require(boolean condition, String reason) {
+        if (!condition) throw new IllegalArgumentException("Malformed NDEF message: " + reason);
+    }
+
+    public List<NdefRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return Returns the text of the first well known Text record, or null if there is none.
+     */
+    public String getText() {
+        for (var record : records) {
+            var text = record.getText();
+            if (text != null) return text;
+        }
+        return null;
+    }
+
+    /**
+     * @return Returns the size of the encoded message in bytes.
+     */
+    public int getLength() {
+        return data.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof NdefMessage && Arrays.equals(data, ((NdefMessage) o).data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(data);
+    }
+}
@@ -0,0 +1,135 @@
+package com.howellsmith.oss.nfcpipass.model.ndef;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A single record of an {@link NdefMessage}. The record is a view on the bytes of its message, so parsing a message
+ * copies nothing per record; type, id and payload are only decoded when asked for.
+ */
+public final class NdefRecord {
+
+    /**
+     * Type Name Format of a record, in the order of its 3 bit code.
+     */
+    public enum Tnf {
+        EMPTY,
+        WELL_KNOWN,
+        MIME_MEDIA,
+        ABSOLUTE_URI,
+        EXTERNAL,
+        UNKNOWN,
+        UNCHANGED,
+        RESERVED
+    }
+
+    static final String TYPE_TEXT = "T";
+    static final String TYPE_URI = "U";
+
+    private static final int TEXT_UTF_16 = 0x80;
+    private static final int TEXT_LANGUAGE_LENGTH = 0x3F;
+
+    // abbreviations of the URI record type definition, indexed by the identifier code
+    private static final String[] URI_PREFIXES = {
+            "", "http://www.", "https://www.", "http://", "https://", "tel:", "mailto:", "ftp://anonymous:anonymous@",
+            "ftp://ftp.", "ftps://", "sftp://", "smb://", "nfs://", "ftp://", "dav://", "news:", "telnet://", "imap:",
+            "rtsp://", "urn:", "pop:", "sip:", "sips:", "tftp:", "btspp://", "btl2cap://", "btgoep://", "tcpobex://",
+            "irdaobex://", "file://", "urn:epc:id:", "urn:epc:tag:", "urn:epc:pat:", "urn:epc:raw:", "urn:epc:",
+            "urn:nfc:"
+    };
+
+    private final Tnf tnf;
+    private final byte[] data;
+    private final int typeOffset;
+    private final int typeLength;
+    private final int idOffset;
+    private final int idLength;
+    private final int payloadOffset;
+    private final int payloadLength;
+
+    NdefRecord(Tnf tnf, byte[] data, int typeOffset, int typeLength, int idOffset, int idLength, int payloadOffset,
+               int payloadLength) {
+        this.tnf = tnf;
+        this.data = data;
+        this.typeOffset = typeOffset;
+        this.typeLength = typeLength;
+        this.idOffset = idOffset;
+        this.idLength = idLength;
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = payloadLength;
+    }
+
+    public Tnf getTnf() {
+        return tnf;
+    }
+
+    /**
+     * @return Returns the type, e.g. "T" for a well known Text record, the media type of a MIME record or the domain
+     * and type of an external record.
+     */
+    public String getType() {
+        return new String(data, typeOffset, typeLength, US_ASCII);
+    }
+
+    /**
+     * @return Returns the record id, or null if the record has none.
+     */
+    public String getId() {
+        return idLength == 0 ? null : new String(data, idOffset, idLength, UTF_8);
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * @return Returns a read-only view of the payload, without copying it.
+     */
+    public ByteBuffer payload() {
+        return ByteBuffer.wrap(data, payloadOffset, payloadLength).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return True if the record has the given type name format and type.
+     */
+    public boolean is(Tnf tnf, String type) {
+        if (this.tnf != tnf || typeLength != type.length()) return false;
+        for (int i = 0; i < typeLength; i++) if (data[typeOffset + i] != type.charAt(i)) return false;
+        return true;
+    }
+
+    /**
+     * @return Returns the text of a well known Text record, or null for any other record.
+     */
+    public String getText() {
+        if (!is(Tnf.WELL_KNOWN, TYPE_TEXT) || payloadLength == 0) return null;
+        var status = data[payloadOffset];
+        var skip = 1 + (status & TEXT_LANGUAGE_LENGTH);
+        if (skip > payloadLength) return null;
+        var charset = (status & TEXT_UTF_16) != 0 ? UTF_16 : UTF_8;
+        return new String(data, payloadOffset + skip, payloadLength - skip, charset);
+    }
+
+    /**
+     * @return Returns the language code of a well known Text record, or null for any other record.
+     */
+    public String getLanguage() {
+        if (!is(Tnf.WELL_KNOWN, TYPE_TEXT) || payloadLength == 0) return null;
+        var length = Math.min(data[payloadOffset] & TEXT_LANGUAGE_LENGTH, payloadLength - 1);
+        return new String(data, payloadOffset + 1, length, US_ASCII);
+    }
+
+    /**
+     * @return Returns the URI of a well known URI record or an absolute URI record, or null for any other record.
+     */
+    public String getUri() {
+        if (tnf == Tnf.ABSOLUTE_URI) return getType();
+        if (!is(Tnf.WELL_KNOWN, TYPE_URI) || payloadLength == 0) return null;
+        var code = data[payloadOffset] & 0xFF;
+        var prefix = code < URI_PREFIXES.length ? URI_PREFIXES[code] : "";
+        return prefix + new String(data, payloadOffset + 1, payloadLength - 1, UTF_8);
+    }
+}
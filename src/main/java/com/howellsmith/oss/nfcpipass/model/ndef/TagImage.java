@@ -0,0 +1,122 @@
+package com.howellsmith.oss.nfcpipass.model.ndef;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Immutable image of the user memory of a Type 2 tag, as read in bulk, together with the NDEF message parsed from it.
+ * Each image records which 4 byte pages differ from the previous image of the same tag, so a tag that is tapped again
+ * unchanged reuses the parsed message, and one that was rewritten shows what was rewritten.
+ */
+public final class TagImage {
+
+    public static final int PAGE_SIZE = 4;
+
+    private final String tagId;
+    private final byte dlogicCardType;
+    private final byte[] memory;
+    private final BitSet changedPages;
+    private final NdefMessage ndefMessage;
+    private final boolean ndefMalformed;
+
+    private TagImage(String tagId, byte dlogicCardType, byte[] memory, BitSet changedPages, NdefMessage ndefMessage,
+                     boolean ndefMalformed) {
+        this.tagId = tagId;
+        this.dlogicCardType = dlogicCardType;
+        this.memory = memory;
+        this.changedPages = changedPages;
+        this.ndefMessage = ndefMessage;
+        this.ndefMalformed = ndefMalformed;
+    }
+
+    /**
+     * Take an image of the memory just read, diffed against the previous image of the tag. Only a changed image copies
+     * the memory and parses it again.
+     *
+     * @param tagId          The full uid of the tag as hex.
+     * @param dlogicCardType The card type reported by GetDlogicCardType.
+     * @param buffer         The memory read, from its first byte.
+     * @param length         The number of bytes read.
+     * @param previous       The previous image of the tag, or null.
+     * @return Returns the image.
+     */
+    public static TagImage of(String tagId, byte dlogicCardType, byte[] buffer, int length, TagImage previous) {
+
+        if (previous == null || previous.dlogicCardType != dlogicCardType || previous.memory.length != length) {
+            var changed = new BitSet();
+            changed.set(0, pages(length));
+            return parsed(tagId, dlogicCardType, Arrays.copyOf(buffer, length), changed);
+        }
+
+        var changed = new BitSet();
+        for (int page = 0, pages = pages(length); page < pages; page++) {
+            var from = page * PAGE_SIZE;
+            var to = Math.min(from + PAGE_SIZE, length);
+            if (!Arrays.equals(previous.memory, from, to, buffer, from, to)) changed.set(page);
+        }
+        if (changed.isEmpty()) {
+            return new TagImage(tagId, dlogicCardType, previous.memory, changed, previous.ndefMessage,
+                    previous.ndefMalformed);
+        }
+        return parsed(tagId, dlogicCardType, Arrays.copyOf(buffer, length), changed);
+    }
+
+    private static TagImage parsed(String tagId, byte dlogicCardType, byte[] memory, BitSet changed) {
+        try {
+            var message = NdefMessage.fromType2Memory(memory, memory.length);
+            return new TagImage(tagId, dlogicCardType, memory, changed, message == null ? NdefMessage.EMPTY : message,
+                    false);
+        } catch (IllegalArgumentException e) {
+            return new TagImage(tagId, dlogicCardType, memory, changed, null, true);
+        }
+    }
+
+    private static int pages(int length) {
+        return (length + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    public String getTagId() {
+        return tagId;
+    }
+
+    public byte getDlogicCardType() {
+        return dlogicCardType;
+    }
+
+    public int getLength() {
+        return memory.length;
+    }
+
+    /**
+     * @return Returns a read-only view of the memory, without copying it.
+     */
+    public ByteBuffer memory() {
+        return ByteBuffer.wrap(memory).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return Returns the pages that differ from the previous image of the tag, all of them for the first image.
+     */
+    public BitSet getChangedPages() {
+        return (BitSet) changedPages.clone();
+    }
+
+    /**
+     * @return True if nothing changed since the previous image of the tag.
+     */
+    public boolean isUnchanged() {
+        return changedPages.isEmpty();
+    }
+
+    /**
+     * @return Returns the NDEF message in the memory, empty if there is none, or null if it is malformed.
+     */
+    public NdefMessage getNdefMessage() {
+        return ndefMessage;
+    }
+
+    public boolean isNdefMalformed() {
+        return ndefMalformed;
+    }
+}
@@ -0,0 +1,21 @@
+package com.howellsmith.oss.nfcpipass.model.provisioning;
+
+import com.howellsmith.oss.nfcpipass.model.domain.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One tag to enrol: the NDEF text to write to it and the user to register it to. A user without an id is inserted as a
+ * new user holding the tag, otherwise the tag is added to the existing user.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProvisioningJob {
+
+    private User user;
+    private String ndefText;
+}
@@ -0,0 +1,31 @@
+package com.howellsmith.oss.nfcpipass.model.provisioning;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Snapshot of the provisioning pipeline.
+ */
+@Value
+@Builder
+public class ProvisioningStatus {
+
+    /**
+     * Jobs waiting for a tap.
+     */
+    int queued;
+    /**
+     * Tags being written, or written and waiting to be registered.
+     */
+    int inFlight;
+    /**
+     * Registrations waiting for the next batch insert.
+     */
+    int pendingRegistrations;
+    long enrolled;
+    long failed;
+    /**
+     * Tags enrolled over the last minute.
+     */
+    int tagsPerMinute;
+}
@@ -0,0 +1,40 @@
+package com.howellsmith.oss.nfcpipass.model.state;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Immutable snapshot of the reader and the tag currently in its field. A new snapshot is produced on every transition.
+ */
+@Value
+@Builder(toBuilder = true)
+public class ReaderState {
+
+    public static final ReaderState INITIAL = ReaderState.builder().build();
+    public static final ReaderState INITIALIZING = ReaderState.builder().initializing(true).build();
+
+    /**
+     * True while the native library is loading and no reader has been started yet.
+     */
+    boolean initializing;
+    /**
+     * Serial number of the reader formatted as hex, once known.
+     */
+    String readerSerial;
+    boolean connected;
+    String deviceId;
+    boolean tagInField;
+    Long uid;
+    String tagId;
+    /**
+     * NDEF text of the tag in the field. It holds the tag's password, so it is never serialized.
+     */
+    @JsonIgnore
+    String ndef;
+
+    /**
+     * Epoch millis of the transition that produced this snapshot.
+     */
+    long changedAt;
+}
@@ -0,0 +1,328 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.domain.SensitiveData;
+import com.howellsmith.oss.nfcpipass.model.event.TagDepartedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Seals and unlocks {@link SensitiveData}. The password a tag holds is stretched with PBKDF2 into the tag key, which
+ * only wraps the random data key of each record; the data itself is encrypted with AES-GCM under the data key, bound
+ * to the tag id, in one piece or, for content of any size, a segment at a time. Every record of a tag is sealed with
+ * the salt of the tag's first record, so unlocking them costs one derivation however many records it has, and the derived key is kept in a {@link DerivedKeyCache} until the tag
+ * departs or {@code crypto.key_ttl_seconds} pass, whichever comes first, then zeroized.
+ * <p>
+ * Derivations are published as the crypto.kdf timer and the use of cached keys as crypto.key_cache.
+ */
+@Service
+public class CryptoService {
+
+    static final String KDF = "PBKDF2WithHmacSHA256";
+
+    private static final String AES = "AES";
+    private static final String KEY_WRAP = "AESWrap";
+    private static final String DATA_CIPHER = "AES/GCM/NoPadding";
+    private static final int KEY_BITS = 256;
+    private static final int SALT_BYTES = 16;
+    private static final int NONCE_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecureRandom random = new SecureRandom();
+    private final DerivedKeyCache keys;
+    private final int iterations;
+    private final int segmentSize;
+    private final Timer kdf;
+    private final Counter hits;
+    private final Counter misses;
+
+    public CryptoService(
+            MeterRegistry registry,
+            @Value("${crypto.kdf_iterations:310000}") int iterations,
+            @Value("${crypto.key_ttl_seconds:30}") long keyTtlSeconds,
+            @Value("${crypto.segment_size:65536}") int segmentSize) {
+        this.iterations = iterations;
+        this.segmentSize = segmentSize;
+        this.keys = new DerivedKeyCache(TimeUnit.SECONDS.toMillis(keyTtlSeconds));
+
+        kdf = Timer.builder("crypto.kdf")
+                .description("Time to derive a tag key from its password")
+                .register(registry);
+        hits = Counter.builder("crypto.key_cache").tag("result", "hit")
+                .description("Tag keys served from the derived key cache").register(registry);
+        misses = Counter.builder("crypto.key_cache").tag("result", "miss")
+                .description("Tag keys served from the derived key cache").register(registry);
+        Gauge.builder("crypto.key_cache.size", keys, DerivedKeyCache::size)
+                .description("Derived tag keys held in memory")
+                .register(registry);
+    }
+
+    /**
+     * Encrypt data for a tag. The record shares the salt of the records the tag already has, so the records of a tag
+     * unlock with one derivation.
+     *
+     * @param tagId     The tag the record is unlocked by.
+     * @param password  The password the tag holds.
+     * @param plaintext The data to encrypt.
+     * @param existing  The records the tag already unlocks, see {@link TagLookupService#findSensitiveData}.
+     * @return Returns a new record, without an id.
+     */
+    public SensitiveData seal(String tagId, char[] password, byte[] plaintext, List<SensitiveData> existing)
+            throws GeneralSecurityException {
+        var dataKey = newDataKey();
+        return record(tagId, password, dataKey, existing)
+                .data(Base64.getEncoder().encodeToString(encrypt(tagId, dataKey, plaintext)))
+                .build();
+    }
+
+    /**
+     * Encrypt content of any size for a tag, a segment at a time, see {@link SegmentedCipher}. Nothing is read from the
+     * plaintext until the sealed stream is, e.g. by storing it in GridFS.
+     *
+     * @param tagId     The tag the content is unlocked by.
+     * @param password  The password the tag holds.
+     * @param plaintext The content to encrypt.
+     * @param existing  The records the tag already unlocks, see {@link TagLookupService#findSensitiveData}.
+     * @return Returns the record, without its content, and the sealed stream.
+     */
+    public SealedStream sealStream(String tagId, char[] password, InputStream plaintext, List<SensitiveData> existing)
+            throws GeneralSecurityException {
+        var dataKey = newDataKey();
+        var record = record(tagId, password, dataKey, existing).build();
+        return new SealedStream(record,
+                SegmentedCipher.sealing(dataKey, tagId.getBytes(UTF_8), segmentSize, random, plaintext));
+    }
+
+    /**
+     * Decrypt content sealed with {@link #sealStream}, a segment at a time.
+     *
+     * @param sealed The sealed stream, e.g. from GridFS.
+     * @return Returns the plaintext stream. Reading it throws an {@link java.io.IOException} if the content was
+     * altered or truncated.
+     * @throws GeneralSecurityException if the password is wrong, or the record was not sealed for the tag.
+     */
+    public InputStream unlockStream(String tagId, char[] password, SensitiveData record, InputStream sealed)
+            throws GeneralSecurityException {
+        requireSealed(record);
+        var tagKey = tagKey(tagId, password, record.getSalt(), record.getIterations());
+        try {
+            return SegmentedCipher.unlocking(unwrap(tagKey, record), tagId.getBytes(UTF_8), sealed);
+        } catch (GeneralSecurityException e) {
+            keys.remove(tagId);
+            throw e;
+        } finally {
+            Arrays.fill(tagKey, (byte) 0);
+        }
+    }
+
+    /**
+     * Decrypt the data of a record.
+     *
+     * @param tagId    The tag that was tapped.
+     * @param password The password the tag holds.
+     * @return Returns the plaintext, which the caller should zeroize once used.
+     * @throws GeneralSecurityException if the password is wrong, or the record was not sealed for the tag or was
+     *                                  altered.
+     */
+    public byte[] unlock(String tagId, char[] password, SensitiveData record) throws GeneralSecurityException {
+        return unlockAll(tagId, password, List.of(record)).get(0);
+    }
+
+    /**
+     * Decrypt the data of every record, deriving the tag key once per salt rather than once per record.
+     *
+     * @return Returns the plaintexts in the order of the records.
+     * @throws GeneralSecurityException if any record cannot be decrypted, see {@link #unlock}.
+     */
+    public List<byte[]> unlockAll(String tagId, char[] password, List<SensitiveData> records)
+            throws GeneralSecurityException {
+
+        var plaintexts = new ArrayList<byte[]>(records.size());
+        byte[] tagKey = null;
+        String keySalt = null;
+        int keyIterations = 0;
+        try {
+            for (var record : records) {
+                requireSealed(record);
+                if (tagKey == null || keyIterations != record.getIterations() || !keySalt.equals(record.getSalt())) {
+                    if (tagKey != null) Arrays.fill(tagKey, (byte) 0);
+                    keySalt = record.getSalt();
+                    keyIterations = record.getIterations();
+                    tagKey = tagKey(tagId, password, keySalt, keyIterations);
+                }
+                plaintexts.add(decrypt(tagId, tagKey, record));
+            }
+            return plaintexts;
+        } catch (GeneralSecurityException e) {
+            // a key that unwraps nothing is not kept, the next tap derives again
+            keys.remove(tagId);
+            plaintexts.forEach(p -> Arrays.fill(p, (byte) 0));
+            throw e;
+        } finally {
+            if (tagKey != null) Arrays.fill(tagKey, (byte) 0);
+        }
+    }
+
+    /**
+     * Zeroize the key of a tag that left the field.
+     */
+    @EventListener
+    public void onTagDeparted(TagDepartedEvent event) {
+        forget(event.getTagId());
+    }
+
+    /**
+     * Zeroize the key derived for a tag, if any.
+     */
+    public void forget(String tagId) {
+        if (tagId != null) keys.remove(tagId);
+    }
+
+    @PreDestroy
+    public void close() {
+        keys.close();
+    }
+
+    /**
+     * @return Returns a copy of the tag key, from the cache or derived and cached.
+     */
+    private byte[] tagKey(String tagId, char[] password, String salt, int iterations) throws GeneralSecurityException {
+
+        var passwordBytes = bytes(password);
+        try {
+            var key = keys.get(tagId, salt, iterations, passwordBytes);
+            if (key != null) {
+                hits.increment();
+                return key;
+            }
+            misses.increment();
+
+            var start = System.nanoTime();
+            var spec = new PBEKeySpec(password, Base64.getDecoder().decode(salt), iterations, KEY_BITS);
+            try {
+                key = SecretKeyFactory.getInstance(KDF).generateSecret(spec).getEncoded();
+            } finally {
+                spec.clearPassword();
+                kdf.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            keys.put(tagId, salt, iterations, passwordBytes, key);
+            return key;
+        } finally {
+            Arrays.fill(passwordBytes, (byte) 0);
+        }
+    }
+
+    private SecretKey newDataKey() throws GeneralSecurityException {
+        var generator = KeyGenerator.getInstance(AES);
+        generator.init(KEY_BITS, random);
+        return generator.generateKey();
+    }
+
+    /**
+     * @return Returns a record for the tag with the data key wrapped. The record shares the salt of the first sealed
+     * record the tag has, a tag without one gets a new salt.
+     */
+    private SensitiveData.SensitiveDataBuilder record(String tagId, char[] password, SecretKey dataKey,
+                                                      List<SensitiveData> existing) throws GeneralSecurityException {
+
+        String salt = null;
+        for (var record : existing) {
+            if (record.getSalt() == null) continue;
+            salt = record.getSalt();
+            break;
+        }
+        if (salt == null) {
+            var bytes = new byte[SALT_BYTES];
+            random.nextBytes(bytes);
+            salt = Base64.getEncoder().encodeToString(bytes);
+        }
+
+        var tagKey = tagKey(tagId, password, salt, iterations);
+        try {
+            var wrap = Cipher.getInstance(KEY_WRAP);
+            wrap.init(Cipher.WRAP_MODE, new SecretKeySpec(tagKey, AES));
+            return SensitiveData.builder()
+                    .tagId(tagId)
+                    .wrappedKey(Base64.getEncoder().encodeToString(wrap.wrap(dataKey)))
+                    .salt(salt)
+                    .iterations(iterations);
+        } finally {
+            Arrays.fill(tagKey, (byte) 0);
+        }
+    }
+
+    private static SecretKey unwrap(byte[] tagKey, SensitiveData record) throws GeneralSecurityException {
+        var unwrap = Cipher.getInstance(KEY_WRAP);
+        unwrap.init(Cipher.UNWRAP_MODE, new SecretKeySpec(tagKey, AES));
+        return (SecretKey) unwrap.unwrap(Base64.getDecoder().decode(record.getWrappedKey()), AES, Cipher.SECRET_KEY);
+    }
+
+    private static void requireSealed(SensitiveData record) throws GeneralSecurityException {
+        if (record.getSalt() == null || record.getIterations() == null || record.getWrappedKey() == null) {
+            throw new GeneralSecurityException("Record " + record.getId() + " is not sealed");
+        }
+    }
+
+    private byte[] encrypt(String tagId, SecretKey dataKey, byte[] plaintext) throws GeneralSecurityException {
+        var nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        var cipher = Cipher.getInstance(DATA_CIPHER);
+        cipher.init(Cipher.ENCRYPT_MODE, dataKey, new GCMParameterSpec(TAG_BITS, nonce));
+        cipher.updateAAD(tagId.getBytes(UTF_8));
+        var sealed = ByteBuffer.allocate(NONCE_BYTES + cipher.getOutputSize(plaintext.length));
+        sealed.put(nonce);
+        cipher.doFinal(ByteBuffer.wrap(plaintext), sealed);
+        return sealed.array();
+    }
+
+    private static byte[] decrypt(String tagId, byte[] tagKey, SensitiveData record) throws GeneralSecurityException {
+        var dataKey = unwrap(tagKey, record);
+        var sealed = Base64.getDecoder().decode(record.getData());
+        if (sealed.length < NONCE_BYTES) throw new GeneralSecurityException("Record " + record.getId() + " is truncated");
+        var cipher = Cipher.getInstance(DATA_CIPHER);
+        cipher.init(Cipher.DECRYPT_MODE, dataKey, new GCMParameterSpec(TAG_BITS, sealed, 0, NONCE_BYTES));
+        cipher.updateAAD(tagId.getBytes(UTF_8));
+        return cipher.doFinal(sealed, NONCE_BYTES, sealed.length - NONCE_BYTES);
+    }
+
+    /**
+     * A record sealed by {@link #sealStream}, without its content, and the stream of its sealed content.
+     */
+    @lombok.Value
+    public static class SealedStream {
+        SensitiveData record;
+        InputStream content;
+    }
+
+    private static byte[] bytes(char[] password) {
+        var encoded = UTF_8.encode(CharBuffer.wrap(password));
+        var bytes = Arrays.copyOfRange(encoded.array(), encoded.position(), encoded.limit());
+        Arrays.fill(encoded.array(), (byte) 0);
+        return bytes;
+    }
+}
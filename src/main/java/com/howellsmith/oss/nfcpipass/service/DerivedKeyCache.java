@@ -0,0 +1,114 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keys derived from tag passwords, kept for a short while so that unlocking the records of a tag derives its key once.
+ * A key is zeroized when it is removed, expires or is replaced. Callers get copies, which they zeroize after use, so a
+ * key zeroized while it is in use never corrupts an unlock in progress.
+ * <p>
+ * A key is only handed out for the password it was derived from: the cache keeps an HMAC of the password under the key
+ * and checks the presented password against it, which takes the key to verify.
+ */
+final class DerivedKeyCache {
+
+    private static final String VERIFIER = "HmacSHA256";
+
+    private final Map<String, Entry> keys = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService expiry;
+    private final long ttlMillis;
+
+    DerivedKeyCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.expiry = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "pipass_key_expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return Returns a copy of the key derived for the tag with the salt, iterations and password, or null if there is
+     * none.
+     */
+    byte[] get(String tagId, String salt, int iterations, byte[] password) throws GeneralSecurityException {
+        var entry = keys.get(tagId);
+        if (entry == null || entry.iterations != iterations || !entry.salt.equals(salt)) return null;
+        var key = entry.key.clone();
+        // zeroized while copying
+        if (!entry.live || !MessageDigest.isEqual(entry.verifier, verifier(key, password))) {
+            Arrays.fill(key, (byte) 0);
+            return null;
+        }
+        return key;
+    }
+
+    /**
+     * Keep a copy of a key until it expires, replacing the key the tag had.
+     */
+    void put(String tagId, String salt, int iterations, byte[] password, byte[] key) throws GeneralSecurityException {
+        var entry = new Entry(salt, iterations, key.clone(), verifier(key, password));
+        zeroize(keys.put(tagId, entry));
+        expiry.schedule(() -> remove(tagId, entry), ttlMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Zeroize and forget the key of a tag.
+     */
+    void remove(String tagId) {
+        zeroize(keys.remove(tagId));
+    }
+
+    private void remove(String tagId, Entry entry) {
+        if (keys.remove(tagId, entry)) zeroize(entry);
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    /**
+     * Zeroize every key and stop expiring them.
+     */
+    void close() {
+        expiry.shutdownNow();
+        keys.keySet().forEach(this::remove);
+    }
+
+    private static byte[] verifier(byte[] key, byte[] password) throws GeneralSecurityException {
+        var mac = Mac.getInstance(VERIFIER);
+        mac.init(new SecretKeySpec(key, VERIFIER));
+        return mac.doFinal(password);
+    }
+
+    private static void zeroize(Entry entry) {
+        if (entry == null) return;
+        entry.live = false;
+        Arrays.fill(entry.key, (byte) 0);
+    }
+
+    private static final class Entry {
+
+        private final String salt;
+        private final int iterations;
+        private final byte[] key;
+        private final byte[] verifier;
+        private volatile boolean live = true;
+
+        private Entry(String salt, int iterations, byte[] key, byte[] verifier) {
+            this.salt = salt;
+            this.iterations = iterations;
+            this.key = key;
+            this.verifier = verifier;
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.howellsmith.oss.nfcpipass.service;
 
-import com.howellsmith.oss.nfcpipass.model.event.DeviceConnectionStatusEvent;
-import com.howellsmith.oss.nfcpipass.model.event.TagInFieldEvent;
-import org.springframework.context.event.EventListener;
+import com.howellsmith.oss.nfcpipass.model.event.ReaderEvent;
 import org.springframework.stereotype.Service;
 
+/**
+ * Logs every reader event. Events are delivered as telemetry, so a slow log sink drops the oldest events instead of
+ * delaying taps.
+ */
 @Service
-public class EventLogger {
+public class EventLogger implements TelemetryListener<ReaderEvent> {
 
     private final UnifiedLoggingService log;
 
@@ -14,13 +16,8 @@ public class EventLogger {
         this.log = log;
     }
 
-    @EventListener
-    public void logDeviceConnectionStatusEvent(DeviceConnectionStatusEvent event) {
-        log.info(event);
-    }
-
-    @EventListener
-    public void logTagInFieldEvent(TagInFieldEvent event) {
+    @Override
+    public void onApplicationEvent(ReaderEvent event) {
         log.info(event);
     }
 }
@@ -0,0 +1,248 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.event.ReaderEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static org.apache.commons.lang3.exception.ExceptionUtils.getStackTrace;
+
+/**
+ * Bounded ring of the pending events of a single reader, drained in batches and in order by a thread of its own.
+ * Publishing never blocks: a pending event with the same {@link ReaderEvent#coalesceKey()} is replaced in place, as
+ * long as no other event was published after it, and a full ring either drops its oldest event or, for events that
+ * must be delivered, spills into an overflow queue that keeps their order. The overflow queue holds as many events as
+ * the ring; beyond that, events are dropped, counted and logged.
+ */
+@Log4j2
+final class EventRing {
+
+    enum Overflow {
+        DROP_OLDEST,
+        SPILL
+    }
+
+    private final String reader;
+    private final String policy;
+    private final Overflow overflow;
+    private final Consumer<ReaderEvent> dispatcher;
+    private final ReaderEvent[] slots;
+    private final int mask;
+    private final Map<Object, Long> pendingKeys = new HashMap<>();
+    private final ArrayDeque<ReaderEvent> spill = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Thread consumer;
+
+    private long head;
+    private long tail;
+    private boolean closed;
+    private volatile long delivered;
+    private volatile long dropped;
+    private volatile long coalesced;
+    private volatile long spilled;
+    private volatile long overflowed;
+
+    /**
+     * @param reader     The serial of the reader whose events the ring holds, for metrics and the thread name.
+     * @param policy     The name of the listeners the ring delivers to, for metrics and the thread name.
+     * @param capacity   The number of pending events, rounded up to a power of two.
+     * @param overflow   What to do with an event that does not fit.
+     * @param dispatcher Delivers an event to the listeners, on the thread of the ring.
+     */
+    EventRing(String reader, String policy, int capacity, Overflow overflow, Consumer<ReaderEvent> dispatcher) {
+        this.reader = reader;
+        this.policy = policy;
+        this.overflow = overflow;
+        this.dispatcher = dispatcher;
+        var size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.slots = new ReaderEvent[size];
+        this.mask = size - 1;
+        this.consumer = new Thread(this::run, "pipass_events_" + reader + "_" + policy);
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Queue an event without blocking.
+     */
+    void publish(ReaderEvent event) {
+        lock.lock();
+        try {
+            if (closed) return;
+
+            var key = event.coalesceKey();
+            if (key == null) {
+                // a pending event may not be replaced by one published after this event
+                pendingKeys.clear();
+            } else {
+                var sequence = pendingKeys.get(key);
+                if (sequence != null) {
+                    slots[(int) (sequence & mask)] = event;
+                    coalesced++;
+                    return;
+                }
+            }
+
+            if (!spill.isEmpty() || tail - head == slots.length) {
+                if (overflow == Overflow.SPILL) {
+                    if (spill.size() == slots.length) {
+                        overflowed++;
+                        log.warn("Event ring of reader {} is full, dropping {}", reader,
+                                event.getClass().getSimpleName());
+                        return;
+                    }
+                    pendingKeys.clear();
+                    spill.addLast(event);
+                    spilled++;
+                    notEmpty.signal();
+                    return;
+                }
+                forget(slots[(int) (head & mask)], head);
+                slots[(int) (head++ & mask)] = null;
+                dropped++;
+            }
+
+            if (key != null) pendingKeys.put(key, tail);
+            slots[(int) (tail++ & mask)] = event;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Returns the number of events waiting to be delivered.
+     */
+    int depth() {
+        lock.lock();
+        try {
+            return (int) (tail - head) + spill.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getDelivered() {
+        return delivered;
+    }
+
+    long getDropped() {
+        return dropped;
+    }
+
+    long getCoalesced() {
+        return coalesced;
+    }
+
+    long getSpilled() {
+        return spilled;
+    }
+
+    long getOverflowed() {
+        return overflowed;
+    }
+
+    void bindTo(MeterRegistry registry) {
+        var tags = Tags.of("reader", reader, "policy", policy);
+        Gauge.builder("events.ring.depth", this, EventRing::depth)
+                .description("Reader events waiting to be delivered")
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder("events.ring.delivered", this, EventRing::getDelivered)
+                .description("Reader events delivered to the listeners")
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder("events.ring.dropped", this, EventRing::getDropped)
+                .description("Reader events dropped as the listeners fell behind")
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder("events.ring.coalesced", this, EventRing::getCoalesced)
+                .description("Pending reader events superseded by a newer one")
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder("events.ring.spilled", this, EventRing::getSpilled)
+                .description("Reader events that must be delivered queued beyond the ring")
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder("events.ring.overflow", this, EventRing::getOverflowed)
+                .description("Reader events that must be delivered dropped as the overflow queue was full")
+                .tags(tags)
+                .register(registry);
+    }
+
+    /**
+     * Stop accepting events, deliver the pending ones and stop the thread.
+     */
+    void close(long timeoutMillis) {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            consumer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        var batch = new ArrayList<ReaderEvent>(slots.length);
+        while (take(batch)) {
+            for (var event : batch) {
+                try {
+                    dispatcher.accept(event);
+                } catch (RuntimeException e) {
+                    log.error("Event listener failed on {}: {}", event.getClass().getSimpleName(), getStackTrace(e));
+                }
+                delivered++;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Move every pending event into the batch, waiting for one if there are none.
+     *
+     * @return False once the ring is closed and empty.
+     */
+    private boolean take(List<ReaderEvent> batch) {
+        lock.lock();
+        try {
+            while (tail == head && spill.isEmpty()) {
+                if (closed) return false;
+                notEmpty.awaitUninterruptibly();
+            }
+            while (head != tail) {
+                var index = (int) (head & mask);
+                forget(slots[index], head++);
+                batch.add(slots[index]);
+                slots[index] = null;
+            }
+            batch.addAll(spill);
+            spill.clear();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void forget(ReaderEvent event, long sequence) {
+        var key = event.coalesceKey();
+        if (key != null) pendingKeys.remove(key, sequence);
+    }
+}
@@ -1,199 +1,523 @@
 package com.howellsmith.oss.nfcpipass.service;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.howellsmith.oss.nfcpipass.model.event.DeviceConnectionStatusEvent;
-import com.howellsmith.oss.nfcpipass.model.event.TagInFieldEvent;
-import com.howellsmith.oss.nfcpipass.model.log.error.ExceptionalErrorLog;
+import com.howellsmith.oss.nfcpipass.model.event.TagDetectedEvent;
+import com.howellsmith.oss.nfcpipass.model.log.MarkedLog;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import com.howellsmith.oss.nfcpipass.model.state.ReaderState;
+import com.howellsmith.oss.nfcpipass.service.NdefCache.TagKey;
+import com.howellsmith.oss.nfcpipass.ufr.DefaultUfrReader;
+import com.howellsmith.oss.nfcpipass.ufr.UfrCallExecutor;
+import com.howellsmith.oss.nfcpipass.ufr.UfrCallExecutor.Command;
 import com.howellsmith.oss.nfcpipass.ufr.UfrDevice;
+import com.howellsmith.oss.nfcpipass.ufr.UfrReader;
 import com.sun.jna.ptr.ByteByReference;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.stereotype.Service;
 
-import java.math.BigInteger;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
 
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.DEVICE_ID;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.DEVICE_STATUS;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.LOG_MARKER_KEY;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.LOG_MSG_KEY;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_CRITICAL_INFORMATION;
-import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_EXCEPTION;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_READER_STATUS;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NFC_GET_READER_TYPE_FAILURE;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NFC_READER_CALL_TIMEOUT;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NFC_READER_CONNECT_FAILURE;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NFC_READER_CONNECT_SUCCESS;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NFC_READER_MALFORMED_NDEF;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NFC_READER_READ_NDEF_FAIL;
-import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_SLEEP_INTERRUPTED_DURING_RESET;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_UNEXPECTED_READER_STATUS;
-import static com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService.getStackMap;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.READER_SERIAL;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.RECOVERY_MILLIS;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.GET_CARD_ID_EX;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.GET_READER_TYPE;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.READER_CLOSE;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.READER_OPEN;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.READER_RESET;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.READ_NDEF_RECORD_TEXT;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.WRITE_NDEF_RECORD_TEXT;
+import static com.howellsmith.oss.nfcpipass.ufr.CardTypes.MAX_USER_MEMORY;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.CALL_BUSY;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.CALL_TIMEOUT;
 import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
 import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.NO_CARD;
-import static org.apache.commons.lang3.exception.ExceptionUtils.getMessage;
+import static com.howellsmith.oss.nfcpipass.ufr.Utilities.toHex;
+import static com.howellsmith.oss.nfcpipass.ufr.Utilities.toPaddedHex;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
- * The hardware management service is responsible for maintaining the connection to the usb nfc hardware, reading
- * the available data from the tags in field and broadcasting the results to the rest of the application.
+ * The hardware management service is responsible for maintaining the connection to one usb nfc reader, reading
+ * the available data from the tags in its field and broadcasting the results to the rest of the application. Polling
+ * is driven by a {@link TagPollingEngine} and only transitions are broadcast, see {@link ReaderStateTracker}.
+ * <p>
+ * Every reader gets its own instance, with its own buffers and connection state, from the {@link ReaderRegistry}. All
+ * calls to the reader go through its {@link UfrCallExecutor}; a call that hangs is timed out and the reader recycled
+ * like one that stopped responding, once the call has returned.
  */
-@Service
 public class HardwareManagementService {
 
-    private static final String TO_8CHAR_PADDED_HEX = "0x%08X";
-    private static final int UFR_NANO_ONLINE = 0xD1390222;
-    private static final long UFR_NANO_ONLINE_RESET_TIME = 20000L;
-    private static final int UFR_NANO = 0xD1380022;
-    private static final long UFR_NANO_RESET_TIME = 5000L;
-    private static final long UFR_GENERIC_DEVICE = 10000L;
+    private static final byte NDEF_STORAGE_CARD = 1;
+    private static final int MAX_UID_LENGTH = 10;
+    private static final int NDEF_TEXT_BUFFER_SIZE = 1000;
+    // language of the Text record rebuilt from a Text only read, which does not report it
+    private static final String NDEF_TEXT_LANGUAGE = "";
+    // opening scans the serial ports and is allowed longer than other calls
+    private static final int OPEN_TIMEOUT_FACTOR = 5;
 
     private final UnifiedLoggingService log;
-    private final UfrDevice device;
-    private final ApplicationEventPublisher publisher;
+    private final UfrCallExecutor calls;
+    private final UfrReader reader;
+    private final ReaderMetrics metrics;
+    private final ReaderStateTracker tracker;
+    private final ReaderConnection connection;
+    private final LongSupplier clock;
+    private final NdefCache ndefCache = new NdefCache();
+    private final TagMemoryReader tagMemory;
 
     private final int[] workingDeviceType = new int[2];
     private final ByteByReference cardId = new ByteByReference();
     private final ByteByReference uidSize = new ByteByReference();
-    private final byte[] uid = new byte[8];
+    private final byte[] uid = new byte[MAX_UID_LENGTH];
+    private final byte[] ndefBuffer = new byte[NDEF_TEXT_BUFFER_SIZE];
+    private final Command<Integer> getReaderType = r -> r.getReaderType(workingDeviceType);
+    private final Command<Integer> readTag = this::readTag;
 
-    private final AtomicBoolean connected = new AtomicBoolean(false);
+    // advanced on the owner thread by every write, so reads that raced a write are not cached
+    private volatile long tagWrites;
+    // advanced under the lock when a cycle gives up on its read, so a read that hung and returns late publishes nothing
+    private final Object readLock = new Object();
+    private volatile long readGeneration;
+    private long ndefReadWrites;
+    private boolean ndefRead;
+    private boolean memoryRead;
+    private int ndefStatus;
+    private TagKey tagInField;
+    private long uidInField;
+    private String tagIdInField;
 
-    public HardwareManagementService(UnifiedLoggingService log, UfrDevice device, ApplicationEventPublisher publisher) {
+    /**
+     * @param calls         The executor owning the reader.
+     * @param replugs       Supplies a counter that advances whenever a USB device appears, see
+     *                      {@link UsbHotplugMonitor}.
+     * @param images        The memory images of Type 2 tags, shared by every reader.
+     * @param maxChunkBytes The most bytes to read from a tag per LinearRead call.
+     */
+    public HardwareManagementService(
+            UnifiedLoggingService log,
+            UfrCallExecutor calls,
+            ReaderMetrics metrics,
+            ApplicationEventPublisher publisher,
+            LongSupplier replugs,
+            TagImageCache images,
+            int maxChunkBytes) {
+        this(log, calls, metrics, publisher, replugs, images, maxChunkBytes, System::nanoTime);
+    }
+
+    /**
+     * @param clock Supplies the current time in nanoseconds for the connection state, as {@link System#nanoTime()}
+     *              does; tests drive it to step through an outage.
+     */
+    HardwareManagementService(
+            UnifiedLoggingService log,
+            UfrCallExecutor calls,
+            ReaderMetrics metrics,
+            ApplicationEventPublisher publisher,
+            LongSupplier replugs,
+            TagImageCache images,
+            int maxChunkBytes,
+            LongSupplier clock) {
         this.log = log;
-        this.device = device;
-        this.publisher = publisher;
+        this.calls = calls;
+        this.reader = calls.getReader();
+        this.metrics = metrics;
+        this.tracker = new ReaderStateTracker(this, publisher);
+        this.clock = clock;
+        this.connection = new ReaderConnection(replugs, clock);
+        this.tagMemory = new TagMemoryReader(metrics, images, maxChunkBytes);
+    }
+
+    /**
+     * Manage the reader the uFR library opens by default.
+     */
+    public HardwareManagementService(
+            UnifiedLoggingService log,
+            UfrDevice device,
+            ReaderMetrics metrics,
+            ApplicationEventPublisher publisher) {
+        this(log, new UfrCallExecutor(new DefaultUfrReader(device)), metrics, publisher, () -> 0L,
+                new TagImageCache(TagImageCache.DEFAULT_MAX_SIZE), MAX_USER_MEMORY);
+    }
+
+    /**
+     * Stop accepting calls to the reader.
+     */
+    public void close() {
+        calls.close();
+    }
+
+    /**
+     * @return Returns the serial number of the reader formatted as hex, or null while it is not known.
+     */
+    public String getReaderSerial() {
+        return reader.getSerial();
+    }
+
+    /**
+     * @return Returns the metrics of this reader, for calls made to it from elsewhere, e.g. provisioning.
+     */
+    public ReaderMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return Returns a snapshot of the reader and the tag currently in its field.
+     */
+    public ReaderState getState() {
+        return tracker.getState();
+    }
+
+    /**
+     * @return Returns the number of poll cycles served from the NDEF cache instead of reading the tag.
+     */
+    public long getNdefCacheHits() {
+        return ndefCache.getHits();
+    }
+
+    /**
+     * @return Returns the number of poll cycles that had to read the NDEF message from the tag.
+     */
+    public long getNdefCacheMisses() {
+        return ndefCache.getMisses();
     }
 
-    @Scheduled(fixedDelay = 1000L)
-    private void poll() throws InterruptedException {
+    /**
+     * Write an NDEF Text record to the tag currently in the field. The cached NDEF message for the tag is invalidated
+     * so the next poll cycle reads the new value back.
+     *
+     * @param text The text to write.
+     * @return Returns the status code reported by the reader, or CALL_TIMEOUT if the reader did not respond.
+     */
+    public synchronized int writeNdefText(String text) {
+        var workingStatus = metrics.record(WRITE_NDEF_RECORD_TEXT, System.nanoTime(),
+                calls.call(r -> r.writeNdefText(NDEF_STORAGE_CARD, text)));
+        ndefCache.invalidate(tagInField);
+        return workingStatus;
+    }
 
-        if (!confirmDeviceConnection()) return;
+    /**
+     * Queue a command on the reader, to run between poll cycles. A command that makes several calls runs them as one
+     * unit. Commands that write to the tag should use {@link #submitWrite(Command)} instead.
+     *
+     * @param command The calls to make.
+     * @return Returns a future completed with the result of the command, see {@link UfrCallExecutor#submit(Command)}.
+     */
+    public <T> CompletableFuture<T> submit(Command<T> command) {
+        return calls.submit(command);
+    }
+
+    /**
+     * Queue a command that writes to the tag in the field. Once it has run the cached NDEF message is dropped, and a
+     * read the poll cycle made before the write is not cached, so the next cycle reads the new content back.
+     *
+     * @param command The calls to make.
+     * @return Returns a future completed with the result of the command, see {@link UfrCallExecutor#submit(Command)}.
+     */
+    public <T> CompletableFuture<T> submitWrite(Command<T> command) {
+        return calls.submit(r -> {
+            try {
+                return command.execute(r);
+            } finally {
+                tagWrites++;
+                ndefCache.clear();
+            }
+        });
+    }
+
+    /**
+     * Execute a single poll cycle against the reader. While the same tag stays in the field its NDEF message is served
+     * from the {@link NdefCache}, so the cycle costs a single uid read. The uid and NDEF reads are queued as one
+     * command, see {@link #readTag(UfrReader)}. The cycle works on preallocated buffers and only allocates when a tag
+     * arrives or its NDEF message has to be read, besides the command handoff.
+     *
+     * @return True when the cycle observed a transition of the reader or the tag in its field, False otherwise.
+     */
+    synchronized boolean poll() {
+
+        var wasConnected = connection.isConnected();
+        if (!confirmDeviceConnection()) return leaveField() || wasConnected;
+        var changed = !wasConnected;
 
         int workingStatus;
-        switch (workingStatus = device.GetCardIdEx(cardId, uid, uidSize)) {
+        var start = System.nanoTime();
+        switch (workingStatus = calls.call(readTag)) {
             case NO_CARD:
-                publisher.publishEvent(new TagInFieldEvent(this, false, null, null));
-                break;
+                return leaveField() || changed;
             case DL_OK:
-                var data = new byte[1000];
-                if ((workingStatus = device.ReadNdefRecord_Text(data)) == DL_OK) {
-                    publisher.publishEvent(new TagInFieldEvent(this, true, uidToLong(uid), new String(data).trim()));
-                } else {
-                    publisher.publishEvent(new TagInFieldEvent(this, true, uidToLong(uid), null));
-                    log.error(DeviceStatusLogWrapper.builder()
-                            .marker(MARKER_UNEXPECTED_READER_STATUS)
-                            .message(MESSAGE_NFC_READER_READ_NDEF_FAIL)
-                            .deviceId(String.format(TO_8CHAR_PADDED_HEX, workingDeviceType[0]))
-                            .status(String.format(TO_8CHAR_PADDED_HEX, workingStatus))
-                            .build());
+                var length = uidLength();
+                if (!isInField(cardId.getValue(), length)) enterField(cardId.getValue(), length);
+                var message = ndefCache.get(tagInField);
+                if (message == null) message = decodeNdef();
+                return tracker.tagPresent(uidInField, tagIdInField, message) || changed;
+            case CALL_TIMEOUT:
+                synchronized (readLock) {
+                    readGeneration++;
                 }
-                break;
+                metrics.record(GET_CARD_ID_EX, start, workingStatus);
+                recycle(MESSAGE_NFC_READER_CALL_TIMEOUT, workingStatus);
+                leaveField();
+                return true;
+            case CALL_BUSY:
+                // the reader is working through a slower command, e.g. a write; skip the cycle and keep the tag
+                synchronized (readLock) {
+                    readGeneration++;
+                }
+                metrics.record(GET_CARD_ID_EX, start, workingStatus);
+                return changed;
             default:
-                publisher.publishEvent(new TagInFieldEvent(this, false, null, null));
                 log.error(DeviceStatusLogWrapper.builder()
                         .marker(MARKER_UNEXPECTED_READER_STATUS)
                         .message(MESSAGE_UNEXPECTED_READER_STATUS)
-                        .deviceId(String.format(TO_8CHAR_PADDED_HEX, workingDeviceType[0]))
-                        .status(String.format(TO_8CHAR_PADDED_HEX, workingStatus))
+                        .readerSerial(reader.getSerial())
+                        .deviceId(toPaddedHex(workingDeviceType[0]))
+                        .status(toPaddedHex(workingStatus))
                         .build());
+                return leaveField() || changed;
+        }
+    }
+
+    /**
+     * Read the uid of the tag in the field and, when the tag is new or its NDEF message is not cached, the NDEF area.
+     * A new tag is announced with a {@link TagDetectedEvent} in between, so lookups by its uid overlap the NDEF read.
+     * Type 2 tags have their whole user memory read by the {@link TagMemoryReader}, whatever the number and type of
+     * records; other cards fall back to reading the Text record. Runs on the owner thread of the
+     * reader as one command, the poll cycle decodes the results. A read the cycle gave up on as hung stops when the uid
+     * read returns, without looking at the tag in the field the cycle has since left.
+     *
+     * @return Returns the status of the uid read.
+     */
+    private int readTag(UfrReader reader) {
+
+        var generation = readGeneration;
+        ndefRead = false;
+        memoryRead = false;
+        int workingStatus;
+        if ((workingStatus = metrics.record(GET_CARD_ID_EX, System.nanoTime(),
+                reader.getCardIdEx(cardId, uid, uidSize))) != DL_OK) return workingStatus;
+        synchronized (readLock) {
+            if (generation != readGeneration) return CALL_TIMEOUT;
+            var inField = isInField(cardId.getValue(), uidLength());
+            if (inField && ndefCache.contains(tagInField)) return workingStatus;
+            if (!inField) tracker.tagDetected(uidToLong(uid, uidLength()), toHex(uid, uidLength()));
+        }
+
+        ndefRead = true;
+        ndefReadWrites = tagWrites;
+        ndefStatus = tagMemory.read(reader);
+        if (memoryRead = tagMemory.isType2()) return workingStatus;
+
+        Arrays.fill(ndefBuffer, (byte) 0);
+        ndefStatus = metrics.record(READ_NDEF_RECORD_TEXT, System.nanoTime(), reader.readNdefText(ndefBuffer));
+        return workingStatus;
+    }
+
+    private int uidLength() {
+        return Math.min(uidSize.getValue() & 0xFF, MAX_UID_LENGTH);
+    }
+
+    /**
+     * Compare the uid buffer with the tag in the field without allocating.
+     *
+     * @param cardType The card type reported for the current cycle.
+     * @param length   The uid length reported for the current cycle.
+     * @return True if the same tag is still in the field, False otherwise.
+     */
+    private boolean isInField(byte cardType, int length) {
+        return tagInField != null
+                && tagInField.getCardType() == cardType
+                && Arrays.equals(tagInField.getUid(), 0, tagInField.getUid().length, uid, 0, length);
+    }
+
+    /**
+     * Record a new tag in the field, dropping the cached NDEF message of the tag it replaced.
+     *
+     * @param cardType The card type reported for the current cycle.
+     * @param length   The uid length reported for the current cycle.
+     */
+    private void enterField(byte cardType, int length) {
+        ndefCache.invalidate(tagInField);
+        tagInField = new TagKey(cardType, Arrays.copyOf(uid, length));
+        uidInField = uidToLong(uid, length);
+        tagIdInField = toHex(uid, length);
+    }
+
+    /**
+     * Record an empty field, dropping the cached NDEF message of the tag that left it.
+     *
+     * @return True if a tag departed, False otherwise.
+     */
+    private boolean leaveField() {
+        ndefCache.invalidate(tagInField);
+        tagInField = null;
+        return tracker.tagAbsent();
+    }
+
+    /**
+     * Parse the NDEF area the cycle read into the reusable buffers and cache the result. A Type 2 tag is imaged first,
+     * so one tapped again unchanged is not parsed again, and one without an NDEF message yields an empty message.
+     *
+     * @return Returns the message, or null if it could not be read.
+     */
+    private NdefMessage decodeNdef() {
+
+        if (!ndefRead) return null;
+
+        int workingStatus;
+        if ((workingStatus = ndefStatus) == DL_OK) {
+            var message = memoryRead ? tagMemory.image(tagIdInField).getNdefMessage()
+                    : NdefMessage.ofText(decodeNdefText(), NDEF_TEXT_LANGUAGE);
+            if (message == null) {
+                logNdefFailure(MESSAGE_NFC_READER_MALFORMED_NDEF, workingStatus);
+                return null;
+            }
+            if (ndefReadWrites == tagWrites) ndefCache.put(tagInField, message);
+            return message;
         }
+
+        logNdefFailure(MESSAGE_NFC_READER_READ_NDEF_FAIL, workingStatus);
+        return null;
+    }
+
+    private String decodeNdefText() {
+        var length = 0;
+        while (length < ndefBuffer.length && ndefBuffer[length] != 0) length++;
+        return new String(ndefBuffer, 0, length, UTF_8);
+    }
+
+    private void logNdefFailure(String message, int status) {
+        log.error(DeviceStatusLogWrapper.builder()
+                .marker(MARKER_UNEXPECTED_READER_STATUS)
+                .message(message)
+                .readerSerial(reader.getSerial())
+                .deviceId(toPaddedHex(workingDeviceType[0]))
+                .status(toPaddedHex(status))
+                .build());
     }
 
     /**
      * The uFR nfc hardware may be connected or disconnected at any time regardless of stored state. Method confirms
-     * that the hardware is in fact connected at the time of execution.
+     * that the hardware is in fact connected at the time of execution, and drives the {@link ReaderConnection} while
+     * it is not: a lost reader is reset and closed, then probed once it has settled. Nothing here waits on the reader.
      *
      * @return True for connected, False otherwise.
      */
-    private boolean confirmDeviceConnection() throws InterruptedException {
+    private boolean confirmDeviceConnection() {
 
         var workingStatus = 0;
-        if (connected.get()) {
-            if ((workingStatus = device.GetReaderType(workingDeviceType)) == DL_OK) {
-                publisher.publishEvent(new DeviceConnectionStatusEvent(this, true));
+        if (connection.isConnected()) {
+            if ((workingStatus = metrics.record(GET_READER_TYPE, System.nanoTime(),
+                    calls.call(getReaderType))) == DL_OK) {
+                return true;
+            } else if (workingStatus == CALL_BUSY) {
+                // a reader busy with a slower command is still connected
                 return true;
             } else {
-
-                log.error(DeviceStatusLogWrapper.builder()
-                        .marker(MARKER_CRITICAL_INFORMATION)
-                        .message(MESSAGE_NFC_GET_READER_TYPE_FAILURE)
-                        .deviceId(String.format(TO_8CHAR_PADDED_HEX, workingDeviceType[0]))
-                        .status(String.format(TO_8CHAR_PADDED_HEX, workingStatus))
-                        .build());
-
-                connected.set(false);
-                device.ReaderReset();
-                device.ReaderClose();
-
-                publisher.publishEvent(new DeviceConnectionStatusEvent(this, false));
-
-                waitForReset();
+                recycle(workingStatus == CALL_TIMEOUT ? MESSAGE_NFC_READER_CALL_TIMEOUT
+                        : MESSAGE_NFC_GET_READER_TYPE_FAILURE, workingStatus);
                 return false;
             }
+        } else if (connection.getState() == ReaderConnection.State.LOST) {
+            // the reset of a reader whose call hung waits for the call to return
+            if (!calls.isHung()) reset();
+            return false;
+        } else if (!connection.isProbeDue(clock.getAsLong())) {
+            return false;
         } else {
-            if ((workingStatus = device.ReaderOpen()) == DL_OK) {
+            if ((workingStatus = metrics.record(READER_OPEN, System.nanoTime(),
+                    calls.call(UfrReader::open, calls.getTimeoutNanos() * OPEN_TIMEOUT_FACTOR))) == DL_OK) {
+
+                var recoveryNanos = connection.connected(clock.getAsLong());
+                if (recoveryNanos >= 0) metrics.readerRecovered(recoveryNanos);
 
                 log.info(DeviceStatusLogWrapper.builder()
                         .marker(MARKER_CRITICAL_INFORMATION)
                         .message(MESSAGE_NFC_READER_CONNECT_SUCCESS)
-                        .status(String.format(TO_8CHAR_PADDED_HEX, workingStatus))
+                        .readerSerial(reader.getSerial())
+                        .status(toPaddedHex(workingStatus))
+                        .recoveryMillis(recoveryNanos >= 0 ? NANOSECONDS.toMillis(recoveryNanos) : null)
                         .build());
 
-                connected.set(true);
-                publisher.publishEvent(new DeviceConnectionStatusEvent(this, true));
+                metrics.record(GET_READER_TYPE, System.nanoTime(), calls.call(getReaderType));
+                tracker.readerConnected(reader.getSerial(), toPaddedHex(workingDeviceType[0]));
 
                 return true;
             } else {
 
-                log.error(DeviceStatusLogWrapper.builder()
-                        .marker(MARKER_CRITICAL_INFORMATION)
-                        .message(MESSAGE_NFC_READER_CONNECT_FAILURE)
-                        .status(String.format(TO_8CHAR_PADDED_HEX, workingStatus))
-                        .build());
+                // one entry per outage, not one per probe
+                if (connection.getFailedProbes() == 0) {
+                    log.error(DeviceStatusLogWrapper.builder()
+                            .marker(MARKER_CRITICAL_INFORMATION)
+                            .message(MESSAGE_NFC_READER_CONNECT_FAILURE)
+                            .readerSerial(reader.getSerial())
+                            .status(toPaddedHex(workingStatus))
+                            .build());
+                }
 
-                publisher.publishEvent(new DeviceConnectionStatusEvent(this, false));
-                waitForReset();
+                connection.probeFailed(clock.getAsLong());
                 return false;
             }
         }
     }
 
     /**
-     * Extracted method to wait on the device to initialize/reset.
+     * Reset and close a reader that stopped responding, or whose call hung, so it can be probed again once it has
+     * settled. While the library is still inside a hung call the reader is not touched, the reset is issued by the
+     * first cycle after the call returned.
+     *
+     * @param message The reason to log.
+     * @param status  The status of the failed call.
      */
-    private void waitForReset() throws InterruptedException {
-        try {
-            switch (workingDeviceType[0]) {
-                case UFR_NANO:
-                    Thread.sleep(UFR_NANO_RESET_TIME);
-                    break;
-                case UFR_NANO_ONLINE:
-                    Thread.sleep(UFR_NANO_ONLINE_RESET_TIME);
-                    break;
-                default:
-                    Thread.sleep(UFR_GENERIC_DEVICE);
-            }
-        } catch (InterruptedException e) {
-            log.error(ExceptionalErrorLog.builder()
-                    .marker(MARKER_UNEXPECTED_EXCEPTION)
-                    .message(MESSAGE_SLEEP_INTERRUPTED_DURING_RESET)
-                    .exceptionMessage(getMessage(e))
-                    .stackTrace(getStackMap(e))
-                    .build());
-
-            Thread.currentThread().interrupt();
-        }
+    private void recycle(String message, int status) {
+
+        log.error(DeviceStatusLogWrapper.builder()
+                .marker(MARKER_CRITICAL_INFORMATION)
+                .message(message)
+                .readerSerial(reader.getSerial())
+                .deviceId(toPaddedHex(workingDeviceType[0]))
+                .status(toPaddedHex(status))
+                .build());
+
+        connection.lost(clock.getAsLong(), workingDeviceType[0]);
+        if (!calls.isHung()) reset();
+
+        tracker.readerLost(toPaddedHex(status));
+    }
+
+    private void reset() {
+        metrics.record(READER_RESET, System.nanoTime(), calls.call(UfrReader::reset));
+        metrics.record(READER_CLOSE, System.nanoTime(), calls.call(UfrReader::close));
+        connection.resetIssued(clock.getAsLong());
     }
 
     /**
-     * UIDs read from the hardware are read in little endian. This corrects that and converts to long.
+     * UIDs read from the hardware are read in little endian. This corrects that and converts to long, honouring the
+     * uid length reported by the reader. Triple size (10 byte) uids do not fit a long and keep their first 8 bytes
+     * only, the tag id carries the full uid.
      *
-     * @param uid The nfc media uid as read from the nfc device.
+     * @param uid    The nfc media uid as read from the nfc device.
+     * @param length The uid length reported by the reader.
      * @return Returns a long.
      */
-    private long uidToLong(byte[] uid) {
-        return new BigInteger(new byte[]{uid[7], uid[6], uid[5], uid[4], uid[3], uid[2], uid[1], uid[0]})
-                .longValueExact();
+    static long uidToLong(byte[] uid, int length) {
+        var value = 0L;
+        for (int i = Math.min(length, Long.BYTES) - 1; i >= 0; i--) value = (value << 8) | (uid[i] & 0xFFL);
+        return value;
     }
 
     /**
@@ -201,7 +525,7 @@ public class HardwareManagementService {
      */
     @Builder
     @Data
-    static class DeviceStatusLogWrapper {
+    static class DeviceStatusLogWrapper implements MarkedLog {
 
         @JsonProperty(LOG_MARKER_KEY)
         private String marker;
@@ -209,10 +533,16 @@ public class HardwareManagementService {
         @JsonProperty(LOG_MSG_KEY)
         private String message;
 
+        @JsonProperty(READER_SERIAL)
+        private String readerSerial;
+
         @JsonProperty(DEVICE_ID)
         private String deviceId;
 
         @JsonProperty(DEVICE_STATUS)
         private String status;
+
+        @JsonProperty(RECOVERY_MILLIS)
+        private Long recoveryMillis;
     }
 }
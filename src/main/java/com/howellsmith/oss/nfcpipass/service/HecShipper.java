@@ -0,0 +1,407 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.status.StatusLogger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Ships newline delimited log events to a Splunk HTTP Event Collector in gzipped batches from its own thread.
+ * <p>
+ * Events are queued in memory up to a fixed number of bytes; {@link #offer(byte[])} never blocks and drops the event
+ * when the queue is full. A batch is sent once it reaches the batch size or its first event has waited for the linger
+ * time. When the collector cannot be reached the batch is appended to a spill file, and from then on every event goes
+ * through that file until it has been replayed, in order, to the collector. The replay position is kept next to the
+ * spill file, so events spilled before a restart are shipped afterwards.
+ */
+class HecShipper {
+
+    private static final Logger LOGGER = StatusLogger.getLogger();
+
+    private static final long IDLE_POLL_MILLIS = 100L;
+    private static final int MAX_REPLAY_BYTES = 1024 * 1024;
+
+    private final URI uri;
+    private final String authorization;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long bufferBytes;
+    private final long retryMillis;
+    private final Duration timeout;
+    private final SpillFile spill;
+    private final HttpClient client;
+    private final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong buffered = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile Thread thread;
+    private boolean reachable = true;
+
+    HecShipper(URI uri, String token, int batchSize, long lingerMillis, long bufferBytes, Path spillFile,
+               long maxSpillBytes, long retryMillis, long timeoutMillis) {
+        this.uri = uri;
+        this.authorization = "Splunk " + token;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.bufferBytes = bufferBytes;
+        this.retryMillis = retryMillis;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.spill = new SpillFile(spillFile, maxSpillBytes);
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this::run, "pipass_hec");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop shipping. Batches still in memory get one last attempt and are spilled if it fails.
+     */
+    void stop(long timeout, TimeUnit unit) {
+
+        running = false;
+        var shipping = thread;
+        if (shipping == null) return;
+
+        try {
+            shipping.join(unit.toMillis(timeout));
+            if (shipping.isAlive()) {
+                shipping.interrupt();
+                shipping.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue an event for shipping without blocking.
+     *
+     * @param event The encoded event, normally ending with a newline.
+     * @return True if the event was queued, False if the buffer is full and the event was dropped.
+     */
+    boolean offer(byte[] event) {
+
+        if (buffered.addAndGet(event.length) > bufferBytes) {
+            buffered.addAndGet(-event.length);
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        queue.add(event);
+        return true;
+    }
+
+    long getSent() {
+        return sent.get();
+    }
+
+    long getSpilled() {
+        return spilled.get();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    private void run() {
+
+        try {
+            while (running) {
+                if (spill.hasPending()) {
+                    spill(drain(Integer.MAX_VALUE));
+                    if (!replay()) pause();
+                } else {
+                    var batch = collect();
+                    if (!batch.isEmpty() && !send(batch)) spill(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            flush();
+        }
+    }
+
+    /**
+     * Wait for a batch to fill up or for its first event to linger long enough.
+     */
+    private List<byte[]> collect() throws InterruptedException {
+
+        var batch = new ArrayList<byte[]>(batchSize);
+        var first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) return batch;
+        taken(first, batch);
+
+        var deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize && running) {
+            var remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            taken(next, batch);
+        }
+        return batch;
+    }
+
+    private List<byte[]> drain(int max) {
+        var batch = new ArrayList<byte[]>();
+        byte[] next;
+        while (batch.size() < max && (next = queue.poll()) != null) taken(next, batch);
+        return batch;
+    }
+
+    private void taken(byte[] event, List<byte[]> batch) {
+        buffered.addAndGet(-event.length);
+        batch.add(event);
+    }
+
+    /**
+     * Ship whatever is left in memory before the thread ends, keeping it behind anything already spilled.
+     */
+    private void flush() {
+        List<byte[]> batch;
+        while (!(batch = drain(batchSize)).isEmpty()) {
+            if (spill.hasPending() || Thread.currentThread().isInterrupted() || !send(batch)) spill(batch);
+        }
+    }
+
+    private boolean send(List<byte[]> batch) {
+        var body = new ByteArrayOutputStream();
+        for (var event : batch) {
+            body.writeBytes(event);
+            if (event.length == 0 || event[event.length - 1] != '\n') body.write('\n');
+        }
+        return send(body.toByteArray(), batch.size());
+    }
+
+    private boolean replay() {
+        var chunk = spill.read(batchSize);
+        if (chunk.events == 0) return true;
+        if (!send(chunk.bytes, chunk.events)) return false;
+        spill.commit(chunk.end);
+        return true;
+    }
+
+    /**
+     * Post a gzipped body to the collector.
+     *
+     * @return True if the collector took the events or rejected them as malformed, False if they should be retried.
+     */
+    private boolean send(byte[] events, int count) {
+
+        try {
+            var response = client.send(HttpRequest.newBuilder(uri)
+                    .timeout(timeout)
+                    .header("Authorization", authorization)
+                    .header("Content-Encoding", "gzip")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(gzip(events)))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+
+            var status = response.statusCode();
+            if (status / 100 == 2) {
+                sent.addAndGet(count);
+                reachable(true, status);
+                return true;
+            }
+            if (status == 400 || status == 413) {
+                // retrying a request the collector cannot parse would hold up everything behind it
+                LOGGER.error("Splunk HEC rejected {} events with status {}, dropping them", count, status);
+                dropped.addAndGet(count);
+                return true;
+            }
+            reachable(false, status);
+            return false;
+        } catch (IOException e) {
+            reachable(false, e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reachable(boolean now, Object detail) {
+        if (now == reachable) return;
+        reachable = now;
+        if (now) LOGGER.warn("Splunk HEC reachable again, replaying spilled events");
+        else LOGGER.warn("Splunk HEC unreachable ({}), spilling events to {}", detail, spill.path);
+    }
+
+    private void spill(List<byte[]> batch) {
+        if (batch.isEmpty()) return;
+        var written = spill.append(batch);
+        spilled.addAndGet(written);
+        dropped.addAndGet(batch.size() - written);
+    }
+
+    private void pause() throws InterruptedException {
+        var deadline = System.currentTimeMillis() + retryMillis;
+        while (running && System.currentTimeMillis() < deadline) Thread.sleep(Math.min(IDLE_POLL_MILLIS, retryMillis));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        var out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * An append only file of newline delimited events, with the position replayed so far kept in a sidecar file.
+     * Once everything has been replayed both files are truncated.
+     */
+    static class SpillFile {
+
+        private final Path path;
+        private final Path offsetPath;
+        private final long maxBytes;
+
+        private long size;
+        private long offset;
+
+        SpillFile(Path path, long maxBytes) {
+            this.path = path;
+            this.offsetPath = path.resolveSibling(path.getFileName() + ".offset");
+            this.maxBytes = maxBytes;
+            try {
+                size = Files.exists(path) ? Files.size(path) : 0L;
+                offset = Files.exists(offsetPath) ? Long.parseLong(Files.readString(offsetPath).trim()) : 0L;
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.error("Could not read the spill position {}, replaying from the start", offsetPath, e);
+                offset = 0L;
+            }
+            if (offset > size) offset = 0L;
+        }
+
+        boolean hasPending() {
+            return offset < size;
+        }
+
+        /**
+         * @return Returns the number of events written; events that would grow the file past its limit are dropped.
+         */
+        int append(List<byte[]> batch) {
+
+            var written = 0;
+            try {
+                if (path.getParent() != null) Files.createDirectories(path.getParent());
+                try (var channel = FileChannel.open(path, CREATE, WRITE, APPEND)) {
+                    for (var event : batch) {
+                        var newline = event.length == 0 || event[event.length - 1] != '\n';
+                        var length = event.length + (newline ? 1 : 0);
+                        if (size + length > maxBytes) break;
+                        channel.write(ByteBuffer.wrap(event));
+                        if (newline) channel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+                        size += length;
+                        written++;
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Could not spill events to {}", path, e);
+            }
+            return written;
+        }
+
+        /**
+         * Read up to the given number of events from the replay position. A trailing partial line, left by an
+         * interrupted write, is read as an event of its own once it is all that remains.
+         */
+        Chunk read(int maxEvents) {
+
+            try (var channel = FileChannel.open(path, READ)) {
+                channel.position(offset);
+                var in = new BufferedInputStream(Channels.newInputStream(channel));
+                var out = new ByteArrayOutputStream();
+                var events = 0;
+                var complete = 0;
+                int b;
+                while (events < maxEvents && complete < MAX_REPLAY_BYTES && (b = in.read()) != -1) {
+                    out.write(b);
+                    if (b == '\n') {
+                        events++;
+                        complete = out.size();
+                    }
+                }
+
+                if (events == 0 && out.size() > 0) {
+                    var end = offset + out.size();
+                    out.write('\n');
+                    return new Chunk(out.toByteArray(), 1, end);
+                }
+                return new Chunk(Arrays.copyOf(out.toByteArray(), complete), events, offset + complete);
+            } catch (IOException e) {
+                LOGGER.error("Could not replay spilled events from {}, discarding them", path, e);
+                size = 0L;
+                offset = 0L;
+                return new Chunk(new byte[0], 0, 0L);
+            }
+        }
+
+        void commit(long end) {
+            try {
+                if (end >= size) {
+                    Files.write(path, new byte[0], TRUNCATE_EXISTING, CREATE);
+                    Files.deleteIfExists(offsetPath);
+                    size = 0L;
+                    offset = 0L;
+                } else {
+                    Files.writeString(offsetPath, Long.toString(end), StandardCharsets.US_ASCII);
+                    offset = end;
+                }
+            } catch (IOException e) {
+                LOGGER.error("Could not record the spill position in {}", offsetPath, e);
+                offset = end;
+            }
+        }
+    }
+
+    /**
+     * A run of complete events read from the spill file.
+     */
+    static class Chunk {
+
+        final byte[] bytes;
+        final int events;
+        final long end;
+
+        Chunk(byte[] bytes, int events, long end) {
+            this.bytes = bytes;
+            this.events = events;
+            this.end = end;
+        }
+    }
+}
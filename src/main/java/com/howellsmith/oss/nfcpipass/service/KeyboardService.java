@@ -0,0 +1,252 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.hid.KeyboardLayout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.MalformedInputException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.howellsmith.oss.nfcpipass.hid.KeyboardLayout.REPORT_LENGTH;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Types text on the host through the USB HID keyboard gadget, {@code keyboard.device}, set up as described in the
+ * README. Any file or pipe will do in its place, e.g. for tests. The text is encoded up front from the table of
+ * {@code keyboard.layout}, so typing is only writing reports, {@code keyboard.reports_per_write} at a time, at least
+ * {@code keyboard.report_gap_us} apart per report.
+ * <p>
+ * The f_hid gadget takes one report per write, it truncates longer ones, and a write blocks while the host has not yet
+ * fetched the previous report. With {@code keyboard.adaptive} the gap follows how fast the host actually fetches
+ * reports, measured from those blocked writes, and otherwise shrinks towards {@code keyboard.min_report_gap_us}.
+ * <p>
+ * Typing is published as the keyboard.type timer, the reports written as keyboard.reports and the current gap as
+ * keyboard.report_gap.
+ */
+@Service
+public class KeyboardService {
+
+    // how long a write has to block before the host is taken to be the slower side
+    private static final long BLOCKED_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final String device;
+    private final KeyboardLayout layout;
+    private final int reportsPerWrite;
+    private final boolean adaptive;
+    private final long minGapNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Timer typing;
+    private final Counter reports;
+
+    private volatile long gapNanos;
+    private OutputStream out;
+
+    public KeyboardService(
+            MeterRegistry registry,
+            @Value("${keyboard.device:/dev/hidg0}") String device,
+            @Value("${keyboard.layout:US}") KeyboardLayout layout,
+            @Value("${keyboard.reports_per_write:1}") int reportsPerWrite,
+            @Value("${keyboard.report_gap_us:1000}") long gapMicros,
+            @Value("${keyboard.min_report_gap_us:125}") long minGapMicros,
+            @Value("${keyboard.adaptive:false}") boolean adaptive) {
+
+        if (reportsPerWrite < 1) throw new IllegalArgumentException("keyboard.reports_per_write must be at least 1");
+        this.device = device;
+        this.layout = layout;
+        this.reportsPerWrite = reportsPerWrite;
+        this.adaptive = adaptive;
+        this.minGapNanos = TimeUnit.MICROSECONDS.toNanos(minGapMicros);
+        this.gapNanos = Math.max(TimeUnit.MICROSECONDS.toNanos(gapMicros), adaptive ? minGapNanos : 0);
+
+        typing = Timer.builder("keyboard.type").register(registry);
+        reports = Counter.builder("keyboard.reports").register(registry);
+        Gauge.builder("keyboard.report_gap", this, k -> k.gapNanos / 1e9).baseUnit("seconds").register(registry);
+    }
+
+    /**
+     * Type the text. Text typed from several threads is typed one text at a time, never interleaved, and waits for an
+     * open {@link #typing()} stream of another thread to be closed.
+     *
+     * @param text   The characters to type, e.g. a password.
+     * @param offset The first character.
+     * @param length The number of characters.
+     * @throws IllegalArgumentException if a character cannot be typed on the layout, before anything is typed.
+     * @throws IOException              if the device cannot be written. Keys pressed before are released if possible.
+     */
+    public void type(char[] text, int offset, int length) throws IOException {
+
+        var encoded = layout.reports(text, offset, length);
+        var start = System.nanoTime();
+        lock.lock();
+        try {
+            write(encoded);
+        } finally {
+            lock.unlock();
+            Arrays.fill(encoded, (byte) 0);
+            typing.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void type(char[] text) throws IOException {
+        type(text, 0, text.length);
+    }
+
+    /**
+     * @return Returns a stream that types the UTF-8 text written to it as it is written, e.g. content as it is
+     * decrypted. A character split across writes is typed once it is complete. The stream has the keyboard to itself
+     * until it is closed, so text from other threads waits for it; it must be closed by the thread that opened it.
+     */
+    public OutputStream typing() {
+        lock.lock();
+        return new TypingStream();
+    }
+
+    public KeyboardLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return Returns the current gap between reports in microseconds.
+     */
+    public long getReportGapMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(gapNanos);
+    }
+
+    private void write(byte[] encoded) throws IOException {
+
+        var stream = open();
+        var batch = reportsPerWrite * REPORT_LENGTH;
+        var last = System.nanoTime();
+        try {
+            for (int at = 0; at < encoded.length; at += batch) {
+                var length = Math.min(batch, encoded.length - at);
+                var gap = gapNanos * (length / REPORT_LENGTH);
+                if (at > 0) pause(last + gap);
+
+                var written = System.nanoTime();
+                stream.write(encoded, at, length);
+                var now = System.nanoTime();
+                reports.increment(length / (double) REPORT_LENGTH);
+
+                if (adaptive && at > 0) adapt(now - last, now - written, length / REPORT_LENGTH);
+                last = now;
+            }
+            stream.flush();
+        } catch (IOException e) {
+            release(stream);
+            throw e;
+        }
+    }
+
+    /**
+     * Follow the interval at which the host fetched the last reports if the write had to wait for it, otherwise
+     * shrink the gap by an eighth.
+     */
+    private void adapt(long interval, long blocked, int count) {
+        long gap;
+        if (blocked > BLOCKED_NANOS) {
+            gap = gapNanos + (interval / count - gapNanos) / 4;
+        } else {
+            gap = gapNanos - gapNanos / 8;
+        }
+        gapNanos = Math.max(gap, minGapNanos);
+    }
+
+    private static void pause(long until) {
+        for (long left; (left = until - System.nanoTime()) > 0; ) LockSupport.parkNanos(left);
+    }
+
+    private OutputStream open() throws IOException {
+        if (out == null) out = new FileOutputStream(device);
+        return out;
+    }
+
+    // never leave a key held down on the host, and reopen the device on the next text
+    private void release(OutputStream failed) {
+        try {
+            failed.write(new byte[REPORT_LENGTH]);
+        } catch (IOException ignored) {
+            // the device is gone, and with it any held key
+        }
+        close();
+    }
+
+    private final class TypingStream extends OutputStream {
+
+        private final CharsetDecoder decoder = UTF_8.newDecoder();
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+        private CharBuffer chars = CharBuffer.allocate(0);
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+
+            if (closed) throw new IOException("Typing stream closed");
+            var in = ByteBuffer.allocate(pending.remaining() + len).put(pending).put(b, off, len).flip();
+            clear(pending);
+            if (chars.capacity() < in.remaining()) {
+                clear(chars);
+                chars = CharBuffer.allocate(in.remaining());
+            }
+            var result = decoder.decode(in, chars.clear(), false);
+            if (result.isError()) result.throwException();
+            pending = in;
+
+            try {
+                type(chars.array(), 0, chars.position());
+            } finally {
+                clear(chars);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            var remaining = pending.hasRemaining();
+            clear(pending);
+            lock.unlock();
+            if (remaining) throw new MalformedInputException(0);
+        }
+
+        private void clear(ByteBuffer buffer) {
+            Arrays.fill(buffer.array(), (byte) 0);
+        }
+
+        private void clear(CharBuffer buffer) {
+            Arrays.fill(buffer.array(), '\0');
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            if (out != null) out.close();
+        } catch (IOException ignored) {
+            // nothing more to release
+        } finally {
+            out = null;
+            lock.unlock();
+        }
+    }
+}
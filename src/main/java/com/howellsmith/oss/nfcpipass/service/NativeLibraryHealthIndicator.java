@@ -0,0 +1,47 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.ufr.NativeLibrary;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NATIVE_LIBRARY_LOAD_FAILURE;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Reports the native layer under {@code /actuator/health}: unknown while the library loads, up once it has loaded and
+ * down if it could not be. The readers themselves come and go and are reported through {@link ReaderRegistry}.
+ */
+@Component
+public class NativeLibraryHealthIndicator implements HealthIndicator {
+
+    private final NativeLibrary library;
+
+    public NativeLibraryHealthIndicator(NativeLibrary library) {
+        this.library = library;
+    }
+
+    @Override
+    public Health health() {
+        switch (library.getStatus()) {
+            case READY:
+                return Health.up()
+                        .withDetail("path", library.getPath())
+                        .withDetail("loadMillis", NANOSECONDS.toMillis(library.getLoadNanos()))
+                        .withDetail("directBinding", library.getDirect().isAvailable())
+                        .withDetail("directHandles", library.getDirect().isHandlesAvailable())
+                        .build();
+            case FAILED:
+                return Health.down()
+                        .withDetail("path", library.getPath())
+                        .withDetail("message", MESSAGE_NATIVE_LIBRARY_LOAD_FAILURE)
+                        .withDetail("error", String.valueOf(library.getFailure()))
+                        .build();
+            default:
+                return Health.unknown()
+                        .withDetail("path", library.getPath())
+                        .withDetail("status", "initializing")
+                        .build();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import lombok.Value;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the NDEF message read from tags, keyed by the card type and uid reported by the reader, so that a tag resting
+ * on the reader is only read once. Entries are invalidated when the tag leaves the field or is written to.
+ */
+class NdefCache {
+
+    private final Map<TagKey, NdefMessage> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param key The tag to look up.
+     * @return Returns the cached NDEF message, or null on a miss.
+     */
+    NdefMessage get(TagKey key) {
+        var ndef = entries.get(key);
+        (ndef == null ? misses : hits).incrementAndGet();
+        return ndef;
+    }
+
+    /**
+     * @param key The tag to look up.
+     * @return True if the NDEF message of the tag is cached, without counting a hit or a miss.
+     */
+    boolean contains(TagKey key) {
+        return key != null && entries.containsKey(key);
+    }
+
+    void put(TagKey key, NdefMessage ndef) {
+        entries.put(key, ndef);
+    }
+
+    void invalidate(TagKey key) {
+        if (key != null) entries.remove(key);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Identity of a tag as reported by GetCardIdEx.
+     */
+    @Value
+    static class TagKey {
+        byte cardType;
+        byte[] uid;
+    }
+}
@@ -0,0 +1,435 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.howellsmith.oss.nfcpipass.model.domain.User;
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.log.MarkedLog;
+import com.howellsmith.oss.nfcpipass.model.log.error.ExceptionalErrorLog;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import com.howellsmith.oss.nfcpipass.model.provisioning.ProvisioningJob;
+import com.howellsmith.oss.nfcpipass.model.provisioning.ProvisioningStatus;
+import com.howellsmith.oss.nfcpipass.ufr.UfrReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Builder;
+import lombok.Data;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.DEVICE_STATUS;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.LOG_MARKER_KEY;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.LOG_MSG_KEY;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_EXCEPTION;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_READER_STATUS;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_PROVISIONING_DUPLICATE;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_PROVISIONING_FAILURE;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_PROVISIONING_FLUSH_FAILURE;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.READER_SERIAL;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.TAG_ID;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.ERASE_ALL_NDEF_RECORDS;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.NDEF_CARD_INITIALIZATION;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.READER_UI_SIGNAL;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.READ_NDEF_RECORD_TEXT;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.WRITE_NDEF_RECORD_TEXT;
+import static com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService.getStackMap;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.WRITE_VERIFICATION_ERROR;
+import static com.howellsmith.oss.nfcpipass.ufr.Utilities.toPaddedHex;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getMessage;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Enrols tags by the box-load. Jobs are queued up front and every tag that enters the field of any reader while jobs
+ * are queued takes the next one: the tag is formatted or erased, written, read back and verified as a single command
+ * on the reader, and the reader flashes green or red so the operator can move straight on to the next tag. A failed
+ * tag puts its job back at the head of the queue.
+ * <p>
+ * Registrations of the verified tags are written to MongoDB in unordered bulk batches, once
+ * {@code provisioning.batch_size} are pending or {@code provisioning.flush_interval_ms} after the first, and evicted from
+ * the {@link TagLookupService} directly, as bulk writes raise no mapping events. A new user is given its id when its
+ * jobs are queued and upserted, so its tags all register to one user, and a registration that failed is retried on its
+ * own without creating the user twice.
+ */
+@Service
+public class ProvisioningService {
+
+    // ReaderUISignal modes: long green light and a short beep, long red light and a double short beep
+    static final int LIGHT_SUCCESS = 1;
+    static final int SOUND_SUCCESS = 1;
+    static final int LIGHT_FAILURE = 2;
+    static final int SOUND_FAILURE = 3;
+
+    private static final byte NDEF_STORAGE_CARD = 1;
+    private static final int NDEF_TEXT_BUFFER_SIZE = 1000;
+    private static final String ID = "_id";
+    private static final String REGISTERED_TAG = "registeredTag";
+    private static final String RESULT = "result";
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final MongoTemplate mongo;
+    private final TagLookupService tags;
+    private final UnifiedLoggingService log;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    private final BlockingDeque<ProvisioningJob> jobs = new LinkedBlockingDeque<>();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // ids given to new users, until one of their registrations is written
+    private final Set<String> newUsers = ConcurrentHashMap.newKeySet();
+    private final List<Registration> pending = new ArrayList<>();
+    private final ArrayDeque<Long> enrolledAt = new ArrayDeque<>();
+    private final ScheduledExecutorService flusher;
+    private final Counter enrolled;
+    private final Counter failed;
+    private final Counter duplicates;
+    private final Timer tagTimer;
+    private final Timer flushTimer;
+
+    private boolean flushScheduled;
+
+    public ProvisioningService(
+            MongoTemplate mongo,
+            TagLookupService tags,
+            UnifiedLoggingService log,
+            MeterRegistry registry,
+            @Value("${provisioning.batch_size:50}") int batchSize,
+            @Value("${provisioning.flush_interval_ms:1000}") long flushIntervalMillis) {
+        this.mongo = mongo;
+        this.tags = tags;
+        this.log = log;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "pipass_provisioning");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        enrolled = Counter.builder("provisioning.tags").tag(RESULT, "enrolled")
+                .description("Tags provisioned, by result").register(registry);
+        failed = Counter.builder("provisioning.tags").tag(RESULT, "failed")
+                .description("Tags provisioned, by result").register(registry);
+        duplicates = Counter.builder("provisioning.tags").tag(RESULT, "duplicate")
+                .description("Tags provisioned, by result").register(registry);
+        tagTimer = Timer.builder("provisioning.tag")
+                .description("Time from a tap to the tag being written and verified")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        flushTimer = Timer.builder("provisioning.flush")
+                .description("Duration of the bulk registration writes")
+                .register(registry);
+    }
+
+    /**
+     * Queue jobs behind the ones already queued. Jobs naming the same new user, field for field, register their tags to
+     * one user.
+     */
+    public void enqueue(List<ProvisioningJob> newJobs) {
+        var ids = new HashMap<User, String>();
+        for (var job : newJobs) {
+            var user = job.getUser();
+            if (user.getId() != null) {
+                jobs.add(job);
+                continue;
+            }
+            var id = ids.computeIfAbsent(user, u -> new ObjectId().toHexString());
+            newUsers.add(id);
+            jobs.add(job.toBuilder().user(user.toBuilder().id(id).build()).build());
+        }
+    }
+
+    /**
+     * Drop every queued job. Tags already being written are still registered.
+     *
+     * @return Returns the number of jobs dropped.
+     */
+    public int cancel() {
+        var dropped = new ArrayList<ProvisioningJob>();
+        jobs.drainTo(dropped);
+        return dropped.size();
+    }
+
+    /**
+     * @return True while jobs are queued, when every tag tapped is taken for the next one.
+     */
+    public boolean isProvisioning() {
+        return !jobs.isEmpty();
+    }
+
+    public ProvisioningStatus getStatus() {
+        int pendingRegistrations;
+        int perMinute;
+        synchronized (this) {
+            pendingRegistrations = pending.size();
+            perMinute = trimEnrolled(System.nanoTime());
+        }
+        return ProvisioningStatus.builder()
+                .queued(jobs.size())
+                .inFlight(inFlight.size())
+                .pendingRegistrations(pendingRegistrations)
+                .enrolled((long) enrolled.count())
+                .failed((long) failed.count())
+                .tagsPerMinute(perMinute)
+                .build();
+    }
+
+    /**
+     * Provision a tag that entered the field while jobs are queued. Tags already registered, or already being
+     * provisioned, are left alone; the former are signalled as failures so the operator sets them aside.
+     */
+    @EventListener
+    public void onTagArrived(TagArrivedEvent event) {
+
+        if (jobs.isEmpty() || !(event.getSource() instanceof HardwareManagementService)) return;
+        var hardware = (HardwareManagementService) event.getSource();
+        var tagId = event.getTagId();
+        if (!inFlight.add(tagId)) return;
+
+        if (tags.findUser(tagId).isPresent()) {
+            inFlight.remove(tagId);
+            duplicates.increment();
+            logFailure(MESSAGE_PROVISIONING_DUPLICATE, hardware, tagId, null);
+            hardware.submit(r -> signal(r, hardware.getMetrics(), false));
+            return;
+        }
+
+        var job = jobs.pollFirst();
+        if (job == null) {
+            inFlight.remove(tagId);
+            return;
+        }
+
+        var start = System.nanoTime();
+        hardware.submitWrite(r -> provision(r, hardware.getMetrics(), job.getNdefText(), event.getNdefMessage()))
+                .whenComplete((status, e) -> {
+                    if (e == null && status == DL_OK) {
+                        tagTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        enrolled(new Registration(tagId, job.getUser()));
+                    } else {
+                        jobs.offerFirst(job);
+                        inFlight.remove(tagId);
+                        failed.increment();
+                        logFailure(MESSAGE_PROVISIONING_FAILURE, hardware, tagId, status);
+                    }
+                });
+    }
+
+    /**
+     * Format or erase, write, read back and signal, on the owner thread of the reader.
+     *
+     * @param metrics The metrics of the reader.
+     * @param message The NDEF message read on arrival, null if the tag could not be read, e.g. as it is not formatted.
+     * @return Returns DL_OK once the text has been verified, the status of the step that failed otherwise.
+     */
+    private int provision(UfrReader reader, ReaderMetrics metrics, String text, NdefMessage message) {
+
+        var status = DL_OK;
+        if (message == null) {
+            status = metrics.record(NDEF_CARD_INITIALIZATION, System.nanoTime(), reader.initializeNdef());
+            // a formatted tag that could not be read is erased instead
+            if (status != DL_OK) status = metrics.record(ERASE_ALL_NDEF_RECORDS, System.nanoTime(), reader.eraseNdef());
+        } else if (!message.getRecords().isEmpty()) {
+            status = metrics.record(ERASE_ALL_NDEF_RECORDS, System.nanoTime(), reader.eraseNdef());
+        }
+
+        if (status == DL_OK) {
+            status = metrics.record(WRITE_NDEF_RECORD_TEXT, System.nanoTime(),
+                    reader.writeNdefText(NDEF_STORAGE_CARD, text));
+        }
+        if (status == DL_OK) {
+            var buffer = new byte[NDEF_TEXT_BUFFER_SIZE];
+            status = metrics.record(READ_NDEF_RECORD_TEXT, System.nanoTime(), reader.readNdefText(buffer));
+            if (status == DL_OK && !Arrays.equals(buffer, 0, length(buffer), text.getBytes(UTF_8), 0,
+                    text.getBytes(UTF_8).length)) status = WRITE_VERIFICATION_ERROR;
+        }
+
+        signal(reader, metrics, status == DL_OK);
+        return status;
+    }
+
+    private int signal(UfrReader reader, ReaderMetrics metrics, boolean success) {
+        return metrics.record(READER_UI_SIGNAL, System.nanoTime(), success
+                ? reader.uiSignal(LIGHT_SUCCESS, SOUND_SUCCESS)
+                : reader.uiSignal(LIGHT_FAILURE, SOUND_FAILURE));
+    }
+
+    private static int length(byte[] text) {
+        var length = 0;
+        while (length < text.length && text[length] != 0) length++;
+        return length;
+    }
+
+    private synchronized void enrolled(Registration registration) {
+        enrolled.increment();
+        enrolledAt.addLast(System.nanoTime());
+        trimEnrolled(System.nanoTime());
+        pending.add(registration);
+        if (pending.size() >= batchSize) {
+            flusher.execute(this::flush);
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            flusher.schedule(this::flush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private int trimEnrolled(long now) {
+        while (!enrolledAt.isEmpty() && now - enrolledAt.peekFirst() > MINUTE_NANOS) enrolledAt.pollFirst();
+        return enrolledAt.size();
+    }
+
+    /**
+     * Write the pending registrations as one unordered bulk operation. The registrations that failed are put back and
+     * retried with the next batch, all of them when the write failed as a whole; as every write is an upsert or
+     * {@code $addToSet}, writing a registration again is harmless.
+     */
+    void flush() {
+
+        List<Registration> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty()) return;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        var start = System.nanoTime();
+        var failed = new BitSet(batch.size());
+        try {
+            var bulk = mongo.bulkOps(BulkMode.UNORDERED, User.class);
+            for (var registration : batch) {
+                var user = registration.getUser();
+                if (newUsers.contains(user.getId())) {
+                    bulk.upsert(query(where(ID).is(user.getId())), insertOrRegister(user, registration.getTagId()));
+                } else {
+                    bulk.updateOne(query(where(ID).is(user.getId())),
+                            new Update().addToSet(REGISTERED_TAG, registration.getTagId()));
+                }
+            }
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (var error : e.getErrors()) failed.set(error.getIndex());
+            logFlushFailure(e);
+        } catch (RuntimeException e) {
+            failed.set(0, batch.size());
+            logFlushFailure(e);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        var retry = new ArrayList<Registration>();
+        for (int i = 0; i < batch.size(); i++) {
+            var registration = batch.get(i);
+            if (failed.get(i)) {
+                retry.add(registration);
+                continue;
+            }
+            newUsers.remove(registration.getUser().getId());
+            tags.evict(registration.getUser().toBuilder().registeredTag(List.of(registration.getTagId())).build());
+            inFlight.remove(registration.getTagId());
+        }
+        if (retry.isEmpty()) return;
+
+        synchronized (this) {
+            pending.addAll(0, retry);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                flusher.schedule(this::flush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * @return Returns the upsert of a new user: the user as it was queued when it is inserted, and the tag either way.
+     */
+    private Update insertOrRegister(User user, String tagId) {
+        var document = new Document();
+        mongo.getConverter().write(user, document);
+        var update = new Update();
+        document.forEach((key, value) -> {
+            if (!ID.equals(key) && !REGISTERED_TAG.equals(key)) update.setOnInsert(key, value);
+        });
+        return update.addToSet(REGISTERED_TAG, tagId);
+    }
+
+    private void logFlushFailure(RuntimeException e) {
+        log.error(ExceptionalErrorLog.builder()
+                .marker(MARKER_UNEXPECTED_EXCEPTION)
+                .message(MESSAGE_PROVISIONING_FLUSH_FAILURE)
+                .exceptionMessage(getMessage(e))
+                .stackTrace(getStackMap(e))
+                .build());
+    }
+
+    /**
+     * Register what is pending before shutting down.
+     */
+    @PreDestroy
+    public void close() {
+        flusher.shutdown();
+        flush();
+    }
+
+    private void logFailure(String message, HardwareManagementService hardware, String tagId, Integer status) {
+        log.error(ProvisioningLogWrapper.builder()
+                .marker(MARKER_UNEXPECTED_READER_STATUS)
+                .message(message)
+                .readerSerial(hardware.getReaderSerial())
+                .tagId(tagId)
+                .status(status == null ? null : toPaddedHex(status))
+                .build());
+    }
+
+    /**
+     * A verified tag waiting to be registered to its user.
+     */
+    @lombok.Value
+    static class Registration {
+        String tagId;
+        User user;
+    }
+
+    @Data
+    @Builder
+    static class ProvisioningLogWrapper implements MarkedLog {
+
+        @JsonProperty(LOG_MARKER_KEY)
+        private String marker;
+
+        @JsonProperty(LOG_MSG_KEY)
+        private String message;
+
+        @JsonProperty(READER_SERIAL)
+        private String readerSerial;
+
+        @JsonProperty(TAG_ID)
+        private String tagId;
+
+        @JsonProperty(DEVICE_STATUS)
+        private String status;
+    }
+}
@@ -0,0 +1,173 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Connection state machine of a reader: CONNECTED, then LOST when it stops responding, RESETTING while it settles
+ * after the reset, and PROBING until it opens again, back to CONNECTED. Transitions are driven by the poll cycles of
+ * the reader, which ask {@link #isProbeDue(long)} instead of sleeping, so no thread is parked while the reader is away.
+ * <p>
+ * Timing derives from the reset time of the model. The reader settles for a tenth of it, after which the delay between
+ * probes doubles from the settle time up to the full reset time, with jitter so readers on one hub do not probe in
+ * lockstep. A USB device appearing, see {@link UsbHotplugMonitor}, makes the next probe due at once.
+ * <p>
+ * Observations are expected from the polling thread of the reader only. Times are taken from the clock the connection
+ * is given, {@link System#nanoTime()} unless a test drives it.
+ */
+class ReaderConnection {
+
+    enum State {
+        CONNECTED,
+        LOST,
+        RESETTING,
+        PROBING
+    }
+
+    static final int UFR_NANO_ONLINE = 0xD1390222;
+    static final long UFR_NANO_ONLINE_RESET_TIME = 20000L;
+    static final int UFR_NANO = 0xD1380022;
+    static final long UFR_NANO_RESET_TIME = 5000L;
+    static final long UFR_GENERIC_DEVICE = 10000L;
+    private static final int SETTLE_FRACTION = 10;
+    private static final int MAX_DOUBLINGS = 10;
+
+    private final LongSupplier replugs;
+
+    private State state = State.PROBING;
+    private long resetTimeNanos = MILLISECONDS.toNanos(UFR_GENERIC_DEVICE);
+    private long nextProbeNanos;
+    private long replugGeneration;
+    private long lostAtNanos;
+    private boolean recovering;
+    private int failedProbes;
+
+    /**
+     * @param replugs Supplies a counter that advances whenever a USB device appears.
+     */
+    ReaderConnection(LongSupplier replugs) {
+        this(replugs, System::nanoTime);
+    }
+
+    /**
+     * @param replugs Supplies a counter that advances whenever a USB device appears.
+     * @param clock   Supplies the current time in nanoseconds, as {@link System#nanoTime()} does.
+     */
+    ReaderConnection(LongSupplier replugs, LongSupplier clock) {
+        this.replugs = replugs;
+        this.replugGeneration = replugs.getAsLong();
+        this.nextProbeNanos = clock.getAsLong();
+    }
+
+    State getState() {
+        return state;
+    }
+
+    boolean isConnected() {
+        return state == State.CONNECTED;
+    }
+
+    /**
+     * @return Returns the number of probes that failed since the reader was lost or last connected.
+     */
+    int getFailedProbes() {
+        return failedProbes;
+    }
+
+    /**
+     * Observe that a connected reader stopped responding.
+     *
+     * @param nowNanos   The current {@link System#nanoTime()}.
+     * @param readerType The reader type reported while it was connected, which selects the timing.
+     */
+    void lost(long nowNanos, int readerType) {
+        state = State.LOST;
+        lostAtNanos = nowNanos;
+        recovering = true;
+        resetTimeNanos = MILLISECONDS.toNanos(resetTime(readerType));
+    }
+
+    /**
+     * Observe that the lost reader was reset and closed. Probing starts once it has settled.
+     *
+     * @param nowNanos The current {@link System#nanoTime()}.
+     */
+    void resetIssued(long nowNanos) {
+        state = State.RESETTING;
+        failedProbes = 0;
+        nextProbeNanos = nowNanos + resetTimeNanos / SETTLE_FRACTION;
+        replugGeneration = replugs.getAsLong();
+    }
+
+    /**
+     * @param nowNanos The current {@link System#nanoTime()}.
+     * @return True if the reader should be opened this cycle, False while it is connected, settling or backing off.
+     */
+    boolean isProbeDue(long nowNanos) {
+
+        if (state == State.CONNECTED || state == State.LOST) return false;
+
+        var generation = replugs.getAsLong();
+        if (generation != replugGeneration) {
+            replugGeneration = generation;
+            failedProbes = 0;
+        } else if (nowNanos - nextProbeNanos < 0) {
+            return false;
+        }
+
+        state = State.PROBING;
+        return true;
+    }
+
+    /**
+     * Observe that the reader could not be opened, and back off before the next probe.
+     *
+     * @param nowNanos The current {@link System#nanoTime()}.
+     */
+    void probeFailed(long nowNanos) {
+        nextProbeNanos = nowNanos + backoff(failedProbes++);
+    }
+
+    /**
+     * Observe that the reader was opened.
+     *
+     * @param nowNanos The current {@link System#nanoTime()}.
+     * @return Returns the nanoseconds since the reader was lost, or -1 if it had not been connected before.
+     */
+    long connected(long nowNanos) {
+        state = State.CONNECTED;
+        failedProbes = 0;
+        var recoveryNanos = recovering ? nowNanos - lostAtNanos : -1L;
+        recovering = false;
+        return recoveryNanos;
+    }
+
+    /**
+     * Exponential backoff with equal jitter: the delay doubles from the settle time up to the reset time, and half of
+     * it is randomised.
+     *
+     * @param failedProbes The number of probes that failed before this one.
+     * @return Returns the delay before the next probe in nanoseconds.
+     */
+    long backoff(int failedProbes) {
+        var delay = Math.min(resetTimeNanos, (resetTimeNanos / SETTLE_FRACTION) << Math.min(failedProbes, MAX_DOUBLINGS));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * @param readerType The reader type reported by the device.
+     * @return Returns the time the model takes to come back from a reset, in milliseconds.
+     */
+    static long resetTime(int readerType) {
+        switch (readerType) {
+            case UFR_NANO:
+                return UFR_NANO_RESET_TIME;
+            case UFR_NANO_ONLINE:
+                return UFR_NANO_ONLINE_RESET_TIME;
+            default:
+                return UFR_GENERIC_DEVICE;
+        }
+    }
+}
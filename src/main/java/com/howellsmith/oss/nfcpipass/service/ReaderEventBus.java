@@ -0,0 +1,206 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.event.ReaderEvent;
+import com.howellsmith.oss.nfcpipass.service.EventRing.Overflow;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.core.ResolvableType;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.apache.commons.lang3.exception.ExceptionUtils.getStackTrace;
+
+/**
+ * Event multicaster that hands reader events to bounded rings instead of running their listeners on the thread that
+ * polls the reader. Each reader has a ring for the listeners that act on its events, which never drops an event while
+ * its overflow queue has room, and one for {@link TelemetryListener}s, which drops its oldest events when they fall
+ * behind, so a slow log sink can neither block nor reject a tap. Every event of a reader goes through the same ring
+ * whatever its type, so a tag is detected, arrives and departs in that order for every listener. Pending state events
+ * that a newer one supersedes are coalesced, see {@link ReaderEvent#coalesceKey()}.
+ * <p>
+ * The ring threads only hand events on, to a lane per reader: the events of a reader are delivered to the listeners
+ * that act on them one at a time, in order, by a task of the listener executor. A listener blocked on Mongo holds up
+ * the reader whose tap it handles, but neither the other readers nor the telemetry. A lane holds as many events as a
+ * ring; a full lane holds up its ring thread, which leaves further events in the ring. An event the executor rejects is
+ * delivered on the ring thread instead. Telemetry is delivered on its ring thread, in order.
+ * <p>
+ * Every other event, e.g. the context and mapping events, is delivered on the publishing thread.
+ */
+@Log4j2
+public class ReaderEventBus extends SimpleApplicationEventMulticaster implements MeterBinder {
+
+    static final String DELIVER = "deliver";
+    static final String TELEMETRY = "telemetry";
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000L;
+    // the ring and lane of events without a reader serial
+    private static final String NO_READER = "none";
+
+    private final int ringSize;
+    private final Executor listenerExecutor;
+    private final Map<String, EventRing> rings = new ConcurrentHashMap<>();
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder full = new LongAdder();
+
+    private volatile MeterRegistry registry;
+
+    /**
+     * @param ringSize         The number of pending events per reader and policy, and per lane.
+     * @param listenerExecutor Drains the lanes of the listeners that act on reader events, or null to run them on the
+     *                         ring threads.
+     */
+    public ReaderEventBus(int ringSize, Executor listenerExecutor) {
+        this.ringSize = ringSize;
+        this.listenerExecutor = listenerExecutor;
+    }
+
+    @Override
+    public void multicastEvent(ApplicationEvent event, ResolvableType eventType) {
+
+        if (!(event instanceof ReaderEvent)) {
+            super.multicastEvent(event, eventType);
+            return;
+        }
+
+        var type = eventType != null ? eventType : ResolvableType.forInstance(event);
+        var deliver = false;
+        var telemetry = false;
+        for (var listener : getApplicationListeners(event, type)) {
+            if (listener instanceof TelemetryListener) telemetry = true;
+            else deliver = true;
+        }
+        var readerEvent = (ReaderEvent) event;
+        if (deliver) ring(readerEvent, DELIVER).publish(readerEvent);
+        if (telemetry) ring(readerEvent, TELEMETRY).publish(readerEvent);
+    }
+
+    private EventRing ring(ReaderEvent event, String policy) {
+        var reader = reader(event);
+        return rings.computeIfAbsent(reader + "/" + policy, key -> {
+            var ring = new EventRing(reader, policy, ringSize,
+                    TELEMETRY.equals(policy) ? Overflow.DROP_OLDEST : Overflow.SPILL,
+                    TELEMETRY.equals(policy) ? e -> dispatch(e, true) : this::deliver);
+            var current = registry;
+            if (current != null) ring.bindTo(current);
+            return ring;
+        });
+    }
+
+    private void deliver(ReaderEvent event) {
+        if (listenerExecutor == null) {
+            dispatch(event, false);
+            return;
+        }
+        lanes.computeIfAbsent(reader(event), key -> new Lane()).offer(event);
+    }
+
+    private static String reader(ReaderEvent event) {
+        return event.getReaderSerial() == null ? NO_READER : event.getReaderSerial();
+    }
+
+    private void dispatch(ReaderEvent event, boolean telemetry) {
+        for (ApplicationListener<?> listener : getApplicationListeners(event, ResolvableType.forInstance(event))) {
+            if (listener instanceof TelemetryListener == telemetry) invokeListener(listener, event);
+        }
+    }
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        FunctionCounter.builder("events.listener.rejected", rejected, LongAdder::sum)
+                .description("Reader events the listener executor rejected, delivered on the ring thread instead")
+                .register(registry);
+        FunctionCounter.builder("events.lane.full", full, LongAdder::sum)
+                .description("Reader events that waited for room in the lane of their reader")
+                .register(registry);
+        rings.values().forEach(ring -> ring.bindTo(registry));
+    }
+
+    /**
+     * Deliver the pending reader events and stop the ring threads.
+     */
+    public void close() {
+        rings.values().forEach(ring -> ring.close(CLOSE_TIMEOUT_MILLIS));
+    }
+
+    /**
+     * The must-deliver events of one reader, delivered in order by at most one task at a time. A task delivers one event
+     * and queues the next behind the other readers', so a reader tapped again and again does not keep a thread. Only the
+     * ring thread of the reader offers events, and it waits while the lane is full.
+     */
+    private final class Lane implements Runnable {
+
+        private final Queue<ReaderEvent> pending = new ArrayDeque<>();
+        private boolean draining;
+
+        void offer(ReaderEvent event) {
+            synchronized (this) {
+                if (pending.size() >= ringSize) {
+                    full.increment();
+                    while (pending.size() >= ringSize) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                }
+                pending.add(event);
+                if (draining) return;
+                draining = true;
+            }
+            schedule();
+        }
+
+        @Override
+        public void run() {
+            if (deliverNext()) schedule();
+        }
+
+        private void schedule() {
+            while (true) {
+                try {
+                    listenerExecutor.execute(this);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    rejected.increment();
+                    if (!deliverNext()) return;
+                }
+            }
+        }
+
+        /**
+         * @return True while more events are pending, False once the lane is drained.
+         */
+        private boolean deliverNext() {
+            ReaderEvent event;
+            synchronized (this) {
+                event = pending.poll();
+                notifyAll();
+            }
+            try {
+                dispatch(event, false);
+            } catch (RuntimeException e) {
+                log.error("Event listener failed on {}: {}", event.getClass().getSimpleName(), getStackTrace(e));
+            }
+            synchronized (this) {
+                if (!pending.isEmpty()) return true;
+                draining = false;
+                return false;
+            }
+        }
+    }
+}
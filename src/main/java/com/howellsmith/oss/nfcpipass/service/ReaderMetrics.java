@@ -0,0 +1,163 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.ufr.ErrorCodes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Micrometer instrumentation of the reader. Every native call made by {@link HardwareManagementService} is timed into
+ * a latency histogram (ufr.call) and counted by the status it returned (ufr.call.status), alongside reconnects, the
+ * time readers took to recover and the duration of whole poll cycles.
+ * <p>
+ * Every reader records into its own instance, see {@link #forReader(String)}, whose meters are tagged with the serial
+ * of the reader ({@code reader}), so a slow or flaky reader can be told from the others on its hub. The bean itself
+ * records for the default reader. Meters are registered up front, or once per call and status, so recording on the
+ * poll path does not allocate.
+ */
+@Component
+public class ReaderMetrics {
+
+    /**
+     * The native calls that are instrumented, named as in the uFR library.
+     */
+    public enum Call {
+        READER_OPEN("ReaderOpen"),
+        READER_CLOSE("ReaderClose"),
+        READER_RESET("ReaderReset"),
+        GET_READER_TYPE("GetReaderType"),
+        GET_CARD_ID_EX("GetCardIdEx"),
+        READ_NDEF_RECORD_TEXT("ReadNdefRecord_Text"),
+        GET_DLOGIC_CARD_TYPE("GetDlogicCardType"),
+        LINEAR_READ("LinearRead"),
+        WRITE_NDEF_RECORD_TEXT("WriteNdefRecord_Text"),
+        NDEF_CARD_INITIALIZATION("ndef_card_initialization"),
+        ERASE_ALL_NDEF_RECORDS("erase_all_ndef_records"),
+        READER_UI_SIGNAL("ReaderUISignal");
+
+        private final String function;
+
+        Call(String function) {
+            this.function = function;
+        }
+    }
+
+    private static final String CALL = "call";
+    private static final String READER = "reader";
+    private static final String DEFAULT_READER = "default";
+    private static final int STATUSES = 256;
+
+    private final MeterRegistry registry;
+    private final String reader;
+    private final Timer[] callTimers = new Timer[Call.values().length];
+    private final Counter[][] statusCounters = new Counter[Call.values().length][STATUSES];
+    private final Counter reconnects;
+    private final Timer recovery;
+    private final Timer pollCycle;
+    private final Timer libraryLoad;
+
+    public ReaderMetrics(MeterRegistry registry) {
+        this(registry, DEFAULT_READER);
+    }
+
+    private ReaderMetrics(MeterRegistry registry, String reader) {
+        this.registry = registry;
+        this.reader = reader;
+
+        for (var call : Call.values()) {
+            callTimers[call.ordinal()] = Timer.builder("ufr.call")
+                    .description("Latency of native uFR calls")
+                    .tag(CALL, call.function)
+                    .tag(READER, reader)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.of(100, ChronoUnit.MICROS))
+                    .maximumExpectedValue(Duration.ofSeconds(5))
+                    .register(registry);
+        }
+
+        reconnects = Counter.builder("ufr.reader.reconnects")
+                .description("Connections to a reader after it was lost")
+                .tag(READER, reader)
+                .register(registry);
+        recovery = Timer.builder("ufr.reader.recovery")
+                .description("Time from losing a reader to opening it again")
+                .tag(READER, reader)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        pollCycle = Timer.builder("ufr.poll.cycle")
+                .description("Duration of a complete poll cycle")
+                .tag(READER, reader)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.of(100, ChronoUnit.MICROS))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+        libraryLoad = Timer.builder("ufr.library.load")
+                .description("Time it took to load the native uFR library in the background")
+                .register(registry);
+    }
+
+    /**
+     * @param reader The serial of the reader, or "default" for the default reader.
+     * @return Returns the metrics of that reader, recording into the same registry.
+     */
+    public ReaderMetrics forReader(String reader) {
+        return reader.equals(this.reader) ? this : new ReaderMetrics(registry, reader);
+    }
+
+    /**
+     * Record a native call. Arguments are evaluated left to right, so the call can be made inline:
+     * {@code status = metrics.record(GET_CARD_ID_EX, System.nanoTime(), device.GetCardIdEx(...))}.
+     *
+     * @param call       The call that was made.
+     * @param startNanos The {@link System#nanoTime()} taken right before the call.
+     * @param status     The status code the call returned.
+     * @return Returns the status code, unchanged.
+     */
+    public int record(Call call, long startNanos, int status) {
+        callTimers[call.ordinal()].record(System.nanoTime() - startNanos, NANOSECONDS);
+        statusCounter(call, status).increment();
+        return status;
+    }
+
+    /**
+     * Record that a reader was opened again after it had been lost.
+     *
+     * @param recoveryNanos The time since the reader was lost.
+     */
+    public void readerRecovered(long recoveryNanos) {
+        reconnects.increment();
+        recovery.record(recoveryNanos, NANOSECONDS);
+    }
+
+    public void libraryLoaded(long loadNanos) {
+        libraryLoad.record(loadNanos, NANOSECONDS);
+    }
+
+    public void recordPollCycle(long nanos) {
+        pollCycle.record(nanos, NANOSECONDS);
+    }
+
+    private Counter statusCounter(Call call, int status) {
+
+        if (status < 0 || status >= STATUSES) return register(call, status);
+
+        var counter = statusCounters[call.ordinal()][status];
+        if (counter == null) statusCounters[call.ordinal()][status] = counter = register(call, status);
+        return counter;
+    }
+
+    private Counter register(Call call, int status) {
+        return Counter.builder("ufr.call.status")
+                .description("Status codes returned by native uFR calls")
+                .tag(CALL, call.function)
+                .tag(READER, reader)
+                .tag("status", ErrorCodes.name(status))
+                .register(registry);
+    }
+}
@@ -0,0 +1,296 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.log.error.ExceptionalErrorLog;
+import com.howellsmith.oss.nfcpipass.model.state.ReaderState;
+import com.howellsmith.oss.nfcpipass.service.HardwareManagementService.DeviceStatusLogWrapper;
+import com.howellsmith.oss.nfcpipass.ufr.HandleUfrReader;
+import com.howellsmith.oss.nfcpipass.ufr.NativeLibrary;
+import com.howellsmith.oss.nfcpipass.ufr.UfrCallExecutor;
+import com.howellsmith.oss.nfcpipass.ufr.UfrDevice;
+import com.howellsmith.oss.nfcpipass.ufr.UfrDirect;
+import com.howellsmith.oss.nfcpipass.ufr.UfrReader;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_CRITICAL_INFORMATION;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_EXCEPTION;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NFC_READER_CONNECT_FAILURE;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_READER_DISCOVERY_FAILURE;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_READER_LIST_UNAVAILABLE;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_READER_LIST_UPDATE_FAILURE;
+import static com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService.getStackMap;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.COMMAND_NOT_SUPPORTED;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static com.howellsmith.oss.nfcpipass.ufr.Utilities.toPaddedHex;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getMessage;
+
+/**
+ * The reader registry discovers the uFR readers attached to the host through the reader list of the uFR library and
+ * gives each its own {@link HardwareManagementService} and {@link TagPollingEngine}, so every reader is polled on its
+ * own thread with its own buffers and backoff. The calls to each reader are made by its own {@link UfrCallExecutor}. Discovery is repeated on an interval, and as soon as a USB device
+ * appears; readers that are plugged in later are added, and readers that were lost are opened again and handed back to
+ * their worker.
+ * <p>
+ * Only the discovery thread touches the reader list. When discovery is disabled, or the library does not support the
+ * reader list, the default reader is polled on its own as before. Readers are started once the {@link NativeLibrary}
+ * has loaded; until then the state reports the reader as initializing.
+ */
+@Service
+public class ReaderRegistry implements SmartLifecycle {
+
+    static final String DEFAULT_READER = "default";
+    private static final long HOTPLUG_CHECK_MILLIS = 250L;
+
+    private final UnifiedLoggingService log;
+    private final NativeLibrary library;
+    private final ReaderMetrics metrics;
+    private final ApplicationEventPublisher publisher;
+    private final UsbHotplugMonitor hotplug;
+    private final TagImageCache images;
+    private final boolean discovery;
+    private final long discoveryIntervalNanos;
+    private final int callQueueCapacity;
+    private final long callTimeoutMillis;
+    private final int maxChunkBytes;
+    private final long fastIntervalMillis;
+    private final long idleIntervalMillis;
+    private final long fastWindowMillis;
+    private final double backoffFactor;
+    private final String threadName;
+
+    private final Map<String, Worker> workers = new ConcurrentSkipListMap<>();
+    private final IntByReference readerCount = new IntByReference();
+    private final IntByReference readerSerial = new IntByReference();
+    private final PointerByReference readerHandle = new PointerByReference();
+
+    private volatile ScheduledExecutorService executor;
+    private volatile boolean running;
+    private UfrDevice device;
+    private UfrDirect direct;
+    private long lastDiscoveryNanos;
+    private long lastGeneration;
+
+    public ReaderRegistry(
+            UnifiedLoggingService log,
+            NativeLibrary library,
+            ReaderMetrics metrics,
+            ApplicationEventPublisher publisher,
+            UsbHotplugMonitor hotplug,
+            TagImageCache images,
+            @Value("${readers.discovery:true}") boolean discovery,
+            @Value("${readers.discovery_interval_ms:5000}") long discoveryIntervalMillis,
+            @Value("${readers.call_queue_capacity:16}") int callQueueCapacity,
+            @Value("${readers.call_timeout_ms:1000}") long callTimeoutMillis,
+            @Value("${tag_memory.max_chunk_bytes:888}") int maxChunkBytes,
+            @Value("${poll.fast_interval_ms:20}") long fastIntervalMillis,
+            @Value("${poll.idle_interval_ms:80}") long idleIntervalMillis,
+            @Value("${poll.fast_window_ms:2000}") long fastWindowMillis,
+            @Value("${poll.backoff_factor:1.5}") double backoffFactor,
+            @Value("${poll.thread_name:pipass_poll}") String threadName) {
+        this.log = log;
+        this.library = library;
+        this.metrics = metrics;
+        this.publisher = publisher;
+        this.hotplug = hotplug;
+        this.images = images;
+        this.discovery = discovery;
+        this.discoveryIntervalNanos = MILLISECONDS.toNanos(discoveryIntervalMillis);
+        this.callQueueCapacity = callQueueCapacity;
+        this.callTimeoutMillis = callTimeoutMillis;
+        this.maxChunkBytes = maxChunkBytes;
+        this.fastIntervalMillis = fastIntervalMillis;
+        this.idleIntervalMillis = idleIntervalMillis;
+        this.fastWindowMillis = fastWindowMillis;
+        this.backoffFactor = backoffFactor;
+        this.threadName = threadName;
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        library.whenReady(this::startReaders);
+    }
+
+    /**
+     * Start polling the readers once the library has loaded, unless the registry was stopped in the meantime.
+     */
+    private synchronized void startReaders(NativeLibrary loaded) {
+
+        if (!running) return;
+        device = loaded.getDevice();
+        direct = loaded.getDirect();
+        metrics.libraryLoaded(loaded.getLoadNanos());
+
+        if (!discovery) {
+            register(DEFAULT_READER, direct.defaultReader(device));
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, threadName + "_discovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lastGeneration = hotplug.getGeneration();
+        executor.execute(this::discover);
+        executor.scheduleWithFixedDelay(this::discoverIfDue, HOTPLUG_CHECK_MILLIS, HOTPLUG_CHECK_MILLIS, MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (executor != null) executor.shutdownNow();
+        workers.values().forEach(worker -> {
+            worker.getEngine().stop();
+            worker.getHardware().close();
+        });
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return Returns a snapshot of the first registered reader, ordered by serial number, and the tag in its field,
+     * or an initializing state while the library loads.
+     */
+    public ReaderState getState() {
+        return workers.values().stream()
+                .findFirst()
+                .map(worker -> worker.getHardware().getState())
+                .orElse(library.getStatus() == NativeLibrary.Status.INITIALIZING
+                        ? ReaderState.INITIALIZING
+                        : ReaderState.INITIAL);
+    }
+
+    /**
+     * @return Returns a snapshot of every registered reader keyed by its serial number, or by "default" for the default
+     * reader.
+     */
+    public Map<String, ReaderState> getStates() {
+        var states = new LinkedHashMap<String, ReaderState>();
+        workers.forEach((key, worker) -> states.put(key, worker.getHardware().getState()));
+        return states;
+    }
+
+    /**
+     * Discover once the interval has passed, or right away when a USB device appeared so a re-plugged reader is back
+     * without waiting out the interval.
+     */
+    private void discoverIfDue() {
+        var generation = hotplug.getGeneration();
+        if (generation == lastGeneration && System.nanoTime() - lastDiscoveryNanos < discoveryIntervalNanos) return;
+        lastGeneration = generation;
+        discover();
+    }
+
+    /**
+     * Walk the reader list and open every reader that is not open yet. New readers get a worker, readers that were
+     * lost get their new handle.
+     */
+    void discover() {
+        lastDiscoveryNanos = System.nanoTime();
+        try {
+            int workingStatus;
+            if ((workingStatus = device.ReaderList_UpdateAndGetCount(readerCount)) != DL_OK) {
+                if (workingStatus == COMMAND_NOT_SUPPORTED && workers.isEmpty()) {
+                    fallBack(null);
+                } else {
+                    log.error(DeviceStatusLogWrapper.builder()
+                            .marker(MARKER_CRITICAL_INFORMATION)
+                            .message(MESSAGE_READER_LIST_UPDATE_FAILURE)
+                            .status(toPaddedHex(workingStatus))
+                            .build());
+                }
+                return;
+            }
+
+            for (int i = 0; i < readerCount.getValue(); i++) {
+
+                if (device.ReaderList_GetSerialByIndex(i, readerSerial) != DL_OK) continue;
+                var serial = toPaddedHex(readerSerial.getValue());
+                var worker = workers.get(serial);
+                if (worker != null && ((HandleUfrReader) worker.getReader()).isAttached()) continue;
+
+                if ((workingStatus = device.ReaderList_OpenByIndex(i, readerHandle)) != DL_OK) {
+                    log.error(DeviceStatusLogWrapper.builder()
+                            .marker(MARKER_CRITICAL_INFORMATION)
+                            .message(MESSAGE_NFC_READER_CONNECT_FAILURE)
+                            .readerSerial(serial)
+                            .status(toPaddedHex(workingStatus))
+                            .build());
+                    continue;
+                }
+
+                var reader = worker != null ? (HandleUfrReader) worker.getReader() : direct.handleReader(device, serial);
+                reader.attach(readerHandle.getValue());
+                if (worker == null) register(serial, reader);
+            }
+        } catch (UnsatisfiedLinkError e) {
+            if (workers.isEmpty()) fallBack(e);
+        } catch (RuntimeException e) {
+            log.error(ExceptionalErrorLog.builder()
+                    .marker(MARKER_UNEXPECTED_EXCEPTION)
+                    .message(MESSAGE_READER_DISCOVERY_FAILURE)
+                    .exceptionMessage(getMessage(e))
+                    .stackTrace(getStackMap(e))
+                    .build());
+        }
+    }
+
+    /**
+     * Stop discovering and poll the default reader instead.
+     *
+     * @param e The error raised by the missing reader list functions, if any.
+     */
+    private void fallBack(Throwable e) {
+
+        log.error(ExceptionalErrorLog.builder()
+                .marker(MARKER_CRITICAL_INFORMATION)
+                .message(MESSAGE_READER_LIST_UNAVAILABLE)
+                .exceptionMessage(e == null ? null : getMessage(e))
+                .build());
+
+        executor.shutdown();
+        register(DEFAULT_READER, direct.defaultReader(device));
+    }
+
+    /**
+     * Give a reader its own worker and start polling it.
+     */
+    private void register(String key, UfrReader reader) {
+
+        var name = DEFAULT_READER.equals(key) ? threadName : threadName + "_" + key;
+        var calls = new UfrCallExecutor(reader, callQueueCapacity, callTimeoutMillis, name + "_calls");
+        var readerMetrics = metrics.forReader(key);
+        var hardware = new HardwareManagementService(log, calls, readerMetrics, publisher, hotplug::getGeneration,
+                images, maxChunkBytes);
+        var engine = new TagPollingEngine(hardware, log, readerMetrics, fastIntervalMillis, idleIntervalMillis,
+                fastWindowMillis, backoffFactor, name);
+
+        workers.put(key, new Worker(reader, hardware, engine));
+        if (running) engine.start();
+    }
+
+    /**
+     * A reader and the service and engine polling it.
+     */
+    @lombok.Value
+    static class Worker {
+        UfrReader reader;
+        HardwareManagementService hardware;
+        TagPollingEngine engine;
+    }
+}
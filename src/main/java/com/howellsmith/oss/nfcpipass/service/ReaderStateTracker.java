@@ -0,0 +1,151 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.event.NdefChangedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.ReaderConnectedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.ReaderLostEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagDepartedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagDetectedEvent;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import com.howellsmith.oss.nfcpipass.model.state.ReaderState;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Tracks the observed state of a reader and the tag in its field. Observations are reported on every poll cycle but
+ * events are only published on transitions, so a reader sitting idle, or a tag resting on it, produces no events.
+ * <p>
+ * Observations are expected from a single polling thread; the current snapshot may be read from any thread. Every
+ * event carries the serial number of the reader, so readers polled side by side can be told apart.
+ */
+public class ReaderStateTracker {
+
+    private final Object source;
+    private final ApplicationEventPublisher publisher;
+
+    private volatile ReaderState state = ReaderState.INITIAL;
+    private NdefMessage ndefMessage;
+
+    public ReaderStateTracker(Object source, ApplicationEventPublisher publisher) {
+        this.source = source;
+        this.publisher = publisher;
+    }
+
+    /**
+     * @return Returns the most recent snapshot.
+     */
+    public ReaderState getState() {
+        return state;
+    }
+
+    /**
+     * Observe that the reader responded.
+     *
+     * @param readerSerial The serial number of the reader formatted as hex, or null if it could not be read.
+     * @param deviceId     The reader type formatted as hex.
+     * @return True if this is a transition to connected, False otherwise.
+     */
+    public boolean readerConnected(String readerSerial, String deviceId) {
+
+        if (state.isConnected()) return false;
+
+        state = state.toBuilder()
+                .readerSerial(readerSerial)
+                .connected(true)
+                .deviceId(deviceId)
+                .changedAt(System.currentTimeMillis())
+                .build();
+        publisher.publishEvent(new ReaderConnectedEvent(source, readerSerial, deviceId));
+        return true;
+    }
+
+    /**
+     * Observe that the reader stopped responding. A tag in the field is considered to have departed with it.
+     *
+     * @param status The status code that revealed the loss formatted as hex.
+     * @return True if this is a transition to disconnected, False otherwise.
+     */
+    public boolean readerLost(String status) {
+
+        if (!state.isConnected()) return false;
+
+        tagAbsent();
+        var deviceId = state.getDeviceId();
+        state = ReaderState.builder()
+                .readerSerial(state.getReaderSerial())
+                .changedAt(System.currentTimeMillis())
+                .build();
+        publisher.publishEvent(new ReaderLostEvent(source, state.getReaderSerial(), deviceId, status));
+        return true;
+    }
+
+    /**
+     * Observe the uid of a tag that was not in the field, before anything else is read from it. May be called from the
+     * thread that owns the reader while the polling thread waits on it; the state is left to {@link #tagPresent}.
+     *
+     * @param uid   The uid of the tag as a long.
+     * @param tagId The full uid of the tag as hex.
+     */
+    public void tagDetected(long uid, String tagId) {
+        publisher.publishEvent(new TagDetectedEvent(source, state.getReaderSerial(), uid, tagId));
+    }
+
+    /**
+     * Observe a tag in the field.
+     *
+     * @param uid   The uid of the tag as a long.
+     * @param tagId The full uid of the tag as hex, used to tell tags apart.
+     * @param ndef  The NDEF message read from the tag, or null when it could not be read this cycle. A null value never
+     *              replaces a previously read value for the same tag.
+     * @return True if a tag arrived, was swapped or any record of its NDEF message changed, False otherwise.
+     */
+    public boolean tagPresent(long uid, String tagId, NdefMessage ndef) {
+
+        if (state.isTagInField() && tagId.equals(state.getTagId())) {
+
+            if (ndef == null || ndef.equals(ndefMessage)) return false;
+
+            ndefMessage = ndef;
+            state = state.toBuilder()
+                    .ndef(ndef.getText())
+                    .changedAt(System.currentTimeMillis())
+                    .build();
+            publisher.publishEvent(new NdefChangedEvent(source, state.getReaderSerial(), uid, tagId, ndef));
+            return true;
+        }
+
+        tagAbsent();
+        ndefMessage = ndef;
+        state = state.toBuilder()
+                .tagInField(true)
+                .uid(uid)
+                .tagId(tagId)
+                .ndef(ndef == null ? null : ndef.getText())
+                .changedAt(System.currentTimeMillis())
+                .build();
+        publisher.publishEvent(new TagArrivedEvent(source, state.getReaderSerial(), uid, tagId, ndef));
+        return true;
+    }
+
+    /**
+     * Observe an empty field.
+     *
+     * @return True if a tag departed, False otherwise.
+     */
+    public boolean tagAbsent() {
+
+        if (!state.isTagInField()) return false;
+
+        var uid = state.getUid();
+        var tagId = state.getTagId();
+        ndefMessage = null;
+        state = state.toBuilder()
+                .tagInField(false)
+                .uid(null)
+                .tagId(null)
+                .ndef(null)
+                .changedAt(System.currentTimeMillis())
+                .build();
+        publisher.publishEvent(new TagDepartedEvent(source, state.getReaderSerial(), uid, tagId));
+        return true;
+    }
+}
@@ -0,0 +1,213 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Chunked authenticated encryption, so content of any size is encrypted and decrypted one fixed size segment at a time
+ * and memory use stays flat. The sealed form is a header followed by the segments:
+ * <pre>
+ *   header:  "NPS1" | segment size (4) | nonce prefix (8)
+ *   segment: AES-GCM(plaintext segment) | tag (16)
+ * </pre>
+ * Each segment has its own nonce, the random prefix followed by the segment number, and carries whether it is the last
+ * one in its associated data, so segments cannot be reordered, dropped or appended and a truncated stream fails at its
+ * end. Decryption releases a segment only once its tag is verified.
+ * <p>
+ * Both directions are input streams, so sealing reads straight from the plaintext into storage, e.g. GridFS, and
+ * unlocking reads straight from storage into the sink.
+ */
+final class SegmentedCipher {
+
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+
+    private static final byte[] MAGIC = {'N', 'P', 'S', '1'};
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int PREFIX_BYTES = 8;
+    private static final int HEADER_BYTES = MAGIC.length + Integer.BYTES + PREFIX_BYTES;
+    private static final int TAG_BYTES = 16;
+    private static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private SegmentedCipher() {
+    }
+
+    /**
+     * @param key         The data key.
+     * @param aad         Data the content is bound to, e.g. the tag id.
+     * @param segmentSize The plaintext bytes per segment.
+     * @param plaintext   The content to seal, read as the returned stream is.
+     * @return Returns a stream of the sealed form.
+     */
+    static InputStream sealing(SecretKey key, byte[] aad, int segmentSize, SecureRandom random, InputStream plaintext)
+            throws GeneralSecurityException {
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size out of range: " + segmentSize);
+        }
+        var prefix = new byte[PREFIX_BYTES];
+        random.nextBytes(prefix);
+        var header = ByteBuffer.allocate(HEADER_BYTES).put(MAGIC).putInt(segmentSize).put(prefix).array();
+        return new Sealing(key, aad, segmentSize, prefix, header, plaintext);
+    }
+
+    /**
+     * @param key    The data key.
+     * @param aad    The data the content was bound to.
+     * @param sealed The sealed form, read as the returned stream is.
+     * @return Returns a stream of the plaintext. Reading it throws an {@link IOException} caused by a
+     * {@link GeneralSecurityException} if the sealed form was altered or truncated.
+     */
+    static InputStream unlocking(SecretKey key, byte[] aad, InputStream sealed) throws GeneralSecurityException {
+        return new Unlocking(key, aad, sealed);
+    }
+
+    /**
+     * A stream served from one segment buffer, refilled a segment at a time.
+     */
+    private abstract static class SegmentStream extends InputStream {
+
+        final SecretKey key;
+        final byte[] aad;
+        final Cipher cipher;
+        final InputStream source;
+        byte[] prefix;
+        byte[] buffer = new byte[0];
+        int position;
+        int limit;
+        int segment;
+        boolean done;
+
+        SegmentStream(SecretKey key, byte[] aad, InputStream source) throws GeneralSecurityException {
+            this.key = key;
+            this.aad = aad;
+            this.cipher = Cipher.getInstance(CIPHER);
+            this.source = source;
+        }
+
+        /**
+         * Put the next segment in the buffer, setting done after the last one.
+         */
+        abstract void fill() throws IOException, GeneralSecurityException;
+
+        void init(int mode, boolean last) throws GeneralSecurityException {
+            var nonce = ByteBuffer.allocate(PREFIX_BYTES + Integer.BYTES).put(prefix).putInt(segment++).array();
+            cipher.init(mode, key, new GCMParameterSpec(TAG_BYTES * Byte.SIZE, nonce));
+            cipher.updateAAD(aad);
+            cipher.updateAAD(new byte[]{(byte) (last ? 1 : 0)});
+        }
+
+        private boolean available(int wanted) throws IOException {
+            while (position == limit) {
+                if (done) return false;
+                try {
+                    fill();
+                } catch (GeneralSecurityException e) {
+                    throw new IOException("Sealed content failed authentication", e);
+                }
+            }
+            return wanted > 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return available(1) ? buffer[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!available(len)) return -1;
+            var n = Math.min(len, limit - position);
+            System.arraycopy(buffer, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            Arrays.fill(buffer, (byte) 0);
+            source.close();
+        }
+    }
+
+    private static final class Sealing extends SegmentStream {
+
+        private final byte[] plaintext;
+        private int next = -1;
+
+        Sealing(SecretKey key, byte[] aad, int segmentSize, byte[] prefix, byte[] header, InputStream source)
+                throws GeneralSecurityException {
+            super(key, aad, source);
+            this.prefix = prefix;
+            this.plaintext = new byte[segmentSize];
+            this.buffer = new byte[segmentSize + TAG_BYTES];
+            System.arraycopy(header, 0, buffer, 0, HEADER_BYTES);
+            this.limit = HEADER_BYTES;
+        }
+
+        @Override
+        void fill() throws IOException, GeneralSecurityException {
+            // one byte is read ahead, to know the last segment before sealing it
+            var length = 0;
+            if (next >= 0) plaintext[length++] = (byte) next;
+            length += source.readNBytes(plaintext, length, plaintext.length - length);
+            next = source.read();
+            var last = next < 0;
+
+            init(Cipher.ENCRYPT_MODE, last);
+            position = 0;
+            limit = cipher.doFinal(plaintext, 0, length, buffer, 0);
+            Arrays.fill(plaintext, 0, length, (byte) 0);
+            done = last;
+        }
+    }
+
+    private static final class Unlocking extends SegmentStream {
+
+        private byte[] sealed;
+        private int next = -1;
+
+        Unlocking(SecretKey key, byte[] aad, InputStream source) throws GeneralSecurityException {
+            super(key, aad, source);
+        }
+
+        @Override
+        void fill() throws IOException, GeneralSecurityException {
+            if (sealed == null) readHeader();
+
+            var length = 0;
+            if (next >= 0) sealed[length++] = (byte) next;
+            length += source.readNBytes(sealed, length, sealed.length - length);
+            next = source.read();
+            var last = next < 0;
+            if (length < TAG_BYTES) throw new GeneralSecurityException("Truncated segment");
+
+            init(Cipher.DECRYPT_MODE, last);
+            position = 0;
+            limit = cipher.doFinal(sealed, 0, length, buffer, 0);
+            done = last;
+        }
+
+        private void readHeader() throws IOException, GeneralSecurityException {
+            var bytes = source.readNBytes(HEADER_BYTES);
+            if (bytes.length != HEADER_BYTES || !Arrays.equals(bytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+                throw new GeneralSecurityException("Not a segmented sealed stream");
+            }
+            var header = ByteBuffer.wrap(bytes, MAGIC.length, HEADER_BYTES - MAGIC.length);
+            var segmentSize = header.getInt();
+            if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+                throw new GeneralSecurityException("Segment size out of range: " + segmentSize);
+            }
+            prefix = new byte[PREFIX_BYTES];
+            header.get(prefix);
+            sealed = new byte[segmentSize + TAG_BYTES];
+            buffer = new byte[segmentSize];
+        }
+    }
+}
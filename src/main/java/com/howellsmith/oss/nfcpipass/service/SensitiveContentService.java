@@ -0,0 +1,77 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.domain.SensitiveData;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Keeps {@link SensitiveData} content too large for a single document, e.g. files, in GridFS. Content is sealed by
+ * {@link CryptoService#sealStream} a segment at a time as GridFS reads it, and unlocked a segment at a time as the sink
+ * takes it, so neither the plaintext nor the ciphertext is ever held in memory whole.
+ */
+@Service
+public class SensitiveContentService {
+
+    private final GridFsTemplate gridFs;
+    private final CryptoService crypto;
+    private final TagLookupService tags;
+
+    public SensitiveContentService(GridFsTemplate gridFs, CryptoService crypto, TagLookupService tags) {
+        this.gridFs = gridFs;
+        this.crypto = crypto;
+        this.tags = tags;
+    }
+
+    /**
+     * Seal and store content for a tag, with the salt of the records the tag already has.
+     *
+     * @param tagId     The tag the content is unlocked by.
+     * @param password  The password the tag holds.
+     * @param filename  The name to store the content under.
+     * @param plaintext The content.
+     * @return Returns the record of the content, to be saved; its contentId refers to the stored content.
+     */
+    public SensitiveData store(String tagId, char[] password, String filename, InputStream plaintext)
+            throws GeneralSecurityException, IOException {
+
+        var sealed = crypto.sealStream(tagId, password, plaintext, tags.findSensitiveData(tagId));
+        try (var content = sealed.getContent()) {
+            var id = gridFs.store(content, filename);
+            return sealed.getRecord().toBuilder().contentId(id.toHexString()).build();
+        }
+    }
+
+    /**
+     * Unlock the content of a record into a sink, e.g. the keyboard or a response.
+     *
+     * @return Returns the number of plaintext bytes written.
+     * @throws IOException if the content is missing, or was altered or truncated. The sink may have taken the
+     *                     segments before the one that failed, all of which were authentic.
+     */
+    public long unlockTo(String tagId, char[] password, SensitiveData record, OutputStream sink)
+            throws GeneralSecurityException, IOException {
+
+        var file = gridFs.findOne(query(where("_id").is(record.getContentId())));
+        if (file == null) throw new IOException("No content for record " + record.getId());
+
+        try (var sealed = gridFs.getResource(file).getInputStream();
+             var plaintext = crypto.unlockStream(tagId, password, record, sealed)) {
+            return plaintext.transferTo(sink);
+        }
+    }
+
+    /**
+     * Delete the stored content of a record, if it has any.
+     */
+    public void delete(SensitiveData record) {
+        if (record.getContentId() != null) gridFs.delete(query(where("_id").is(record.getContentId())));
+    }
+}
@@ -0,0 +1,78 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends log events to a Splunk HTTP Event Collector through a {@link HecShipper}, which batches, compresses and
+ * spills them to disk when the collector is unreachable. Appending never blocks the logging thread.
+ */
+@Plugin(name = "SplunkHec", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE)
+public final class SplunkHecAppender extends AbstractAppender {
+
+    private final HecShipper shipper;
+
+    private SplunkHecAppender(String name, Filter filter, Layout<? extends Serializable> layout, HecShipper shipper) {
+        super(name, filter, layout, true, Property.EMPTY_ARRAY);
+        this.shipper = shipper;
+    }
+
+    @PluginFactory
+    public static SplunkHecAppender createAppender(
+            @PluginAttribute("name") String name,
+            @PluginAttribute("url") String url,
+            @PluginAttribute("token") String token,
+            @PluginAttribute(value = "batchSize", defaultInt = 100) int batchSize,
+            @PluginAttribute(value = "lingerMs", defaultLong = 1000L) long lingerMillis,
+            @PluginAttribute(value = "bufferBytes", defaultLong = 4L * 1024 * 1024) long bufferBytes,
+            @PluginAttribute("spillFile") String spillFile,
+            @PluginAttribute(value = "maxSpillBytes", defaultLong = 64L * 1024 * 1024) long maxSpillBytes,
+            @PluginAttribute(value = "retryMs", defaultLong = 5000L) long retryMillis,
+            @PluginAttribute(value = "timeoutMs", defaultLong = 5000L) long timeoutMillis,
+            @PluginElement("Layout") Layout<? extends Serializable> layout,
+            @PluginElement("Filter") Filter filter) {
+
+        if (name == null || url == null || spillFile == null || layout == null) {
+            LOGGER.error("SplunkHec appender requires a name, url, spillFile and layout");
+            return null;
+        }
+
+        var shipper = new HecShipper(URI.create(url), token, batchSize, lingerMillis, bufferBytes,
+                Paths.get(spillFile), maxSpillBytes, retryMillis, timeoutMillis);
+        return new SplunkHecAppender(name, filter, layout, shipper);
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        shipper.offer(getLayout().toByteArray(event));
+    }
+
+    @Override
+    public void start() {
+        shipper.start();
+        super.start();
+    }
+
+    @Override
+    public boolean stop(long timeout, TimeUnit timeUnit) {
+        setStopping();
+        var stopped = super.stop(timeout, timeUnit, false);
+        shipper.stop(timeout, timeUnit);
+        setStopped();
+        return stopped;
+    }
+}
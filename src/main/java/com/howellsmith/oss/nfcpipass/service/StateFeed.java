@@ -0,0 +1,241 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.howellsmith.oss.nfcpipass.model.event.ReaderEvent;
+import com.howellsmith.oss.nfcpipass.model.log.error.ExceptionalErrorLog;
+import com.howellsmith.oss.nfcpipass.model.state.ReaderState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_EXCEPTION;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_STATE_FEED_FAILURE;
+import static com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService.getStackMap;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getMessage;
+
+/**
+ * Pushes reader and tag state to the web UI over the WebSocket at /ws/state. A client is sent a snapshot of every
+ * reader when it connects, then the new state of a reader whenever a reader event changes it, as JSON frames of the
+ * form {@code {"type":"snapshot"|"state","states":{serial:state}}}. The NDEF text of a state is never serialized,
+ * as it holds the tag's password.
+ * <p>
+ * Each change is serialized once and the same frame is queued to every client; events that leave the state as it was,
+ * e.g. the {@code TagDetectedEvent} ahead of an arrival, send nothing. A client holds at most one pending frame per
+ * reader, a newer state replacing one not yet sent, so a slow client skips intermediate states instead of buffering
+ * them, and a client still stuck on a send after {@code state_feed.send_time_limit_ms} is disconnected. Frames are sent
+ * from the async executor, one at a time per client.
+ * <p>
+ * Connected clients are published as state_feed.clients, frames sent as state_feed.frames, frames replaced before they
+ * were sent as state_feed.coalesced and disconnected slow clients as state_feed.slow_clients.
+ */
+@Service
+public class StateFeed extends TextWebSocketHandler implements TelemetryListener<ReaderEvent> {
+
+    static final String TYPE_SNAPSHOT = "snapshot";
+    static final String TYPE_STATE = "state";
+
+    // the snapshot is queued ahead of any state under a key no reader has
+    private static final String SNAPSHOT_KEY = "";
+
+    private final ReaderRegistry readers;
+    private final ObjectWriter writer;
+    private final Executor executor;
+    private final UnifiedLoggingService log;
+    private final long sendTimeLimitNanos;
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+    private final Map<String, ReaderState> published = new HashMap<>();
+    private final Counter frames;
+    private final Counter coalesced;
+    private final Counter slowClients;
+
+    public StateFeed(
+            ReaderRegistry readers,
+            ObjectMapper mapper,
+            @Qualifier("ThreadPoolTaskExecutor") Executor executor,
+            UnifiedLoggingService log,
+            MeterRegistry registry,
+            @Value("${state_feed.send_time_limit_ms:1000}") long sendTimeLimitMillis) {
+        this.readers = readers;
+        this.writer = mapper.writer();
+        this.executor = executor;
+        this.log = log;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMillis);
+
+        Gauge.builder("state_feed.clients", clients, Map::size).register(registry);
+        frames = Counter.builder("state_feed.frames").register(registry);
+        coalesced = Counter.builder("state_feed.coalesced").register(registry);
+        slowClients = Counter.builder("state_feed.slow_clients").register(registry);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+
+        var client = new Client(session);
+        synchronized (published) {
+            clients.put(session.getId(), client);
+            var states = new LinkedHashMap<String, ReaderState>();
+            readers.getStates().forEach((key, state) -> states.put(key(state, key), state));
+            var snapshot = frame(TYPE_SNAPSHOT, states, null);
+            if (snapshot != null) client.offer(SNAPSHOT_KEY, snapshot);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        clients.remove(session.getId());
+    }
+
+    /**
+     * Queue the state of the reader that observed the event to every client, unless it was already sent. The state is
+     * read when the event is delivered, so events that queued up behind a slow delivery all send the latest state.
+     * Events of each type are delivered on a thread of their own, so the state is read and queued under a lock, which
+     * keeps an older state from being queued after a newer one.
+     */
+    @Override
+    public void onApplicationEvent(ReaderEvent event) {
+
+        if (clients.isEmpty() || !(event.getSource() instanceof HardwareManagementService)) return;
+
+        var hardware = (HardwareManagementService) event.getSource();
+        var fallback = event.getReaderSerial() == null ? ReaderRegistry.DEFAULT_READER : event.getReaderSerial();
+        synchronized (published) {
+            var state = hardware.getState();
+            var key = key(state, fallback);
+            if (state.equals(published.put(key, state))) return;
+
+            var frame = frame(TYPE_STATE, Map.of(key, state), event.getReaderSerial());
+            if (frame == null) return;
+            for (var client : clients.values()) client.offer(key, frame);
+        }
+    }
+
+    /**
+     * @return Returns the number of connected clients.
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    // a reader is keyed by its serial once known, so the default reader's snapshot and states share a key
+    private static String key(ReaderState state, String fallback) {
+        return state.getReaderSerial() == null ? fallback : state.getReaderSerial();
+    }
+
+    private TextMessage frame(String type, Map<String, ReaderState> states, String reference) {
+        try {
+            return new TextMessage(writer.writeValueAsString(new Frame(type, states)));
+        } catch (JsonProcessingException e) {
+            log.error(ExceptionalErrorLog.builder()
+                    .marker(MARKER_UNEXPECTED_EXCEPTION)
+                    .message(MESSAGE_STATE_FEED_FAILURE)
+                    .exceptionMessage(getMessage(e))
+                    .stackTrace(getStackMap(e))
+                    .reference(reference)
+                    .build());
+            return null;
+        }
+    }
+
+    /**
+     * A connected client and the frames pending for it, at most one per reader.
+     */
+    private final class Client {
+
+        private final WebSocketSession session;
+        private final Map<String, TextMessage> pending = new LinkedHashMap<>();
+        private boolean sending;
+        private long sendingSince;
+
+        Client(WebSocketSession session) {
+            this.session = session;
+        }
+
+        void offer(String key, TextMessage frame) {
+            synchronized (this) {
+                if (pending.put(key, frame) != null) coalesced.increment();
+                if (!sending) {
+                    schedule();
+                    return;
+                }
+                if (System.nanoTime() - sendingSince <= sendTimeLimitNanos) return;
+            }
+            slowClients.increment();
+            drop(CloseStatus.SESSION_NOT_RELIABLE);
+        }
+
+        // called holding the lock
+        private void schedule() {
+            sending = true;
+            sendingSince = System.nanoTime();
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // the executor is saturated, the next offer tries again with the frames still pending
+                sending = false;
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                TextMessage frame;
+                synchronized (this) {
+                    var next = pending.values().iterator();
+                    if (!next.hasNext() || !session.isOpen()) {
+                        sending = false;
+                        return;
+                    }
+                    frame = next.next();
+                    next.remove();
+                    sendingSince = System.nanoTime();
+                }
+                try {
+                    session.sendMessage(frame);
+                    frames.increment();
+                } catch (IOException | RuntimeException e) {
+                    // leave sending set, nothing more is sent to a session that failed
+                    drop(CloseStatus.SERVER_ERROR);
+                    return;
+                }
+            }
+        }
+
+        private void drop(CloseStatus status) {
+            clients.remove(session.getId());
+            synchronized (this) {
+                pending.clear();
+            }
+            try {
+                session.close(status);
+            } catch (IOException ignored) {
+                // the session is gone either way
+            }
+        }
+    }
+
+    /**
+     * A frame as sent to the web UI.
+     */
+    @lombok.Value
+    static class Frame {
+        String type;
+        Map<String, ReaderState> states;
+    }
+}
@@ -0,0 +1,38 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.domain.SensitiveData;
+import com.howellsmith.oss.nfcpipass.model.domain.User;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link TagLookupService} cache in line with repository writes. A save evicts the saved record; a delete
+ * only carries the query that matched, so it clears the whole cache for that type.
+ * <p>
+ * Mapping events are delivered on the thread that wrote, so the eviction is done by the time the save returns. Bulk
+ * writes raise no mapping events; their writers evict through {@link TagLookupService} themselves.
+ */
+@Component
+public class TagCacheInvalidator extends AbstractMongoEventListener<Object> {
+
+    private final TagLookupService tags;
+
+    public TagCacheInvalidator(TagLookupService tags) {
+        this.tags = tags;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        var source = event.getSource();
+        if (source instanceof User) tags.evict((User) source);
+        else if (source instanceof SensitiveData) tags.evict((SensitiveData) source);
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        if (User.class.equals(event.getType())) tags.invalidateUsers();
+        else if (SensitiveData.class.equals(event.getType())) tags.invalidateSensitiveData();
+    }
+}
@@ -0,0 +1,52 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.howellsmith.oss.nfcpipass.model.ndef.TagImage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * The last memory image read from each Type 2 tag, keyed by tag id and shared by every reader, so a tag tapped again,
+ * on any reader, is diffed against what it held before. Images are kept after the tag leaves the field, unlike the
+ * {@link NdefCache}; the least recently read are dropped past the maximum size. Hit and miss counts are published as
+ * the cache.* metrics of tag_images.
+ */
+@Service
+public class TagImageCache {
+
+    static final long DEFAULT_MAX_SIZE = 256;
+
+    private final Cache<String, TagImage> images;
+
+    /**
+     * A cache that is not monitored, e.g. for a single reader outside the application context.
+     */
+    public TagImageCache(long maxSize) {
+        images = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    @Autowired
+    public TagImageCache(MeterRegistry registry, @Value("${tag_memory.cache_size:256}") long maxSize) {
+        this(maxSize);
+        CaffeineCacheMetrics.monitor(registry, images, "tag_images");
+    }
+
+    /**
+     * @param tagId The tag id.
+     * @return Returns the last image read from the tag, or null.
+     */
+    public TagImage get(String tagId) {
+        return images.getIfPresent(tagId);
+    }
+
+    void put(TagImage image) {
+        images.put(image.getTagId(), image);
+    }
+}
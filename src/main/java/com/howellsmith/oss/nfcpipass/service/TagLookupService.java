@@ -0,0 +1,192 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.howellsmith.oss.nfcpipass.dao.SensitiveDataRepository;
+import com.howellsmith.oss.nfcpipass.dao.UserRepository;
+import com.howellsmith.oss.nfcpipass.model.domain.SensitiveData;
+import com.howellsmith.oss.nfcpipass.model.domain.User;
+import com.howellsmith.oss.nfcpipass.model.log.error.ExceptionalErrorLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_EXCEPTION;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_TAG_CACHE_WARM_UP_FAILURE;
+import static com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService.getStackMap;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getMessage;
+
+/**
+ * Read-through cache for the user and sensitive data registered to a tag, in front of MongoDB. Only what is stored is
+ * cached, so sensitive data stays encrypted; callers get copies, so nothing they do to a result reaches the cache.
+ * Unknown tags are cached too, which keeps repeated taps of an unregistered tag off the database. A tag may unlock any
+ * number of sensitive data records, which are kept oldest first.
+ * <p>
+ * Entries expire after the TTL and are evicted when the repositories save or delete, see {@link TagCacheInvalidator}.
+ * Hit, miss and eviction counts are published as the cache.* metrics of tag_users and tag_sensitive_data.
+ * <p>
+ * Misses are loaded on the lookup executor. On virtual threads that keeps the blocking Mongo call out of the cache's
+ * locks, where it would pin the carrier thread of every caller waiting on it; otherwise loads run on the caller.
+ */
+@Service
+public class TagLookupService {
+
+    private final UserRepository users;
+    private final SensitiveDataRepository sensitiveData;
+    private final UnifiedLoggingService log;
+    private final AsyncLoadingCache<String, Optional<User>> usersByTag;
+    private final AsyncLoadingCache<String, List<SensitiveData>> sensitiveDataByTag;
+
+    public TagLookupService(
+            UserRepository users,
+            SensitiveDataRepository sensitiveData,
+            UnifiedLoggingService log,
+            MeterRegistry registry,
+            @Qualifier("LookupExecutor") Executor loads,
+            @Value("${tag_cache.max_size:1000}") long maxSize,
+            @Value("${tag_cache.ttl_minutes:60}") long ttlMinutes) {
+        this.users = users;
+        this.sensitiveData = sensitiveData;
+        this.log = log;
+
+        usersByTag = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .executor(loads)
+                .buildAsync(tag -> Optional.ofNullable(users.findByRegisteredTagContaining(tag)));
+        sensitiveDataByTag = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .executor(loads)
+                .buildAsync(tag -> oldestFirst(sensitiveData.findAllByTagId(tag)));
+
+        CaffeineCacheMetrics.monitor(registry, usersByTag, "tag_users");
+        CaffeineCacheMetrics.monitor(registry, sensitiveDataByTag, "tag_sensitive_data");
+    }
+
+    /**
+     * @param tagId The tag id.
+     * @return Returns the user the tag is registered to, if any.
+     */
+    public Optional<User> findUser(String tagId) {
+        return join(usersByTag.get(tagId)).map(TagLookupService::copy);
+    }
+
+    /**
+     * @param tagId The tag id.
+     * @return Returns the encrypted sensitive data records the tag unlocks, oldest first, empty if none.
+     */
+    public List<SensitiveData> findSensitiveData(String tagId) {
+        return copy(join(sensitiveDataByTag.get(tagId)));
+    }
+
+    /**
+     * Start looking up the sensitive data of a tag without waiting for it, e.g. while the tag is still being read.
+     *
+     * @param tagId The tag id.
+     * @return Returns the encrypted sensitive data records the tag unlocks, oldest first, once loaded.
+     */
+    public CompletableFuture<List<SensitiveData>> lookupSensitiveData(String tagId) {
+        return sensitiveDataByTag.get(tagId).thenApply(TagLookupService::copy);
+    }
+
+    /**
+     * Evict everything cached for a user, under the tags it is registered with now and any it was cached under before.
+     */
+    public void evict(User user) {
+        if (user.getRegisteredTag() != null) usersByTag.synchronous().invalidateAll(user.getRegisteredTag());
+        usersByTag.synchronous().asMap().values().removeIf(cached -> cached.isPresent()
+                && Objects.equals(cached.get().getId(), user.getId()));
+    }
+
+    /**
+     * Evict the records of the tag of a sensitive data record, and of any tag it was cached under before.
+     */
+    public void evict(SensitiveData data) {
+        if (data.getTagId() != null) sensitiveDataByTag.synchronous().invalidate(data.getTagId());
+        sensitiveDataByTag.synchronous().asMap().values().removeIf(cached -> cached.stream()
+                .anyMatch(record -> Objects.equals(record.getId(), data.getId())));
+    }
+
+    public void invalidateUsers() {
+        usersByTag.synchronous().invalidateAll();
+    }
+
+    public void invalidateSensitiveData() {
+        sensitiveDataByTag.synchronous().invalidateAll();
+    }
+
+    /**
+     * Preload every registered tag once the application is up, so the first tap of each is served from memory.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            for (var user : users.findAll()) {
+                if (user.getRegisteredTag() == null) continue;
+                for (var tag : user.getRegisteredTag()) usersByTag.synchronous().put(tag, Optional.of(user));
+            }
+            var records = new HashMap<String, List<SensitiveData>>();
+            for (var data : sensitiveData.findAll()) {
+                if (data.getTagId() == null) continue;
+                records.computeIfAbsent(data.getTagId(), tag -> new ArrayList<>()).add(data);
+            }
+            records.forEach((tag, data) -> sensitiveDataByTag.synchronous().put(tag, oldestFirst(data)));
+        } catch (RuntimeException e) {
+            log.error(ExceptionalErrorLog.builder()
+                    .marker(MARKER_UNEXPECTED_EXCEPTION)
+                    .message(MESSAGE_TAG_CACHE_WARM_UP_FAILURE)
+                    .exceptionMessage(getMessage(e))
+                    .stackTrace(getStackMap(e))
+                    .build());
+        }
+    }
+
+    /**
+     * Wait for a load, rethrowing what it failed with as the synchronous cache did.
+     */
+    private static <T> T join(CompletableFuture<T> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static User copy(User user) {
+        return user.toBuilder()
+                .registeredTag(user.getRegisteredTag() == null ? null : new ArrayList<>(user.getRegisteredTag()))
+                .build();
+    }
+
+    private static List<SensitiveData> copy(List<SensitiveData> records) {
+        var copies = new ArrayList<SensitiveData>(records.size());
+        for (var data : records) copies.add(data.toBuilder().build());
+        return copies;
+    }
+
+    // ObjectIds start with their creation time, so they sort oldest first
+    private static List<SensitiveData> oldestFirst(List<SensitiveData> records) {
+        var sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparing(SensitiveData::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        return List.copyOf(sorted);
+    }
+}
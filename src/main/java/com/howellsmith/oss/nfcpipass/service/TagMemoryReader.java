@@ -0,0 +1,97 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.ndef.TagImage;
+import com.howellsmith.oss.nfcpipass.ufr.UfrReader;
+import com.sun.jna.ptr.ByteByReference;
+import com.sun.jna.ptr.ShortByReference;
+
+import static com.howellsmith.oss.nfcpipass.model.ndef.TagImage.PAGE_SIZE;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.GET_DLOGIC_CARD_TYPE;
+import static com.howellsmith.oss.nfcpipass.service.ReaderMetrics.Call.LINEAR_READ;
+import static com.howellsmith.oss.nfcpipass.ufr.CardTypes.MAX_USER_MEMORY;
+import static com.howellsmith.oss.nfcpipass.ufr.CardTypes.userMemorySize;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.READING_ERROR;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.UNSUPPORTED_CARD_TYPE;
+
+/**
+ * Reads the whole user memory of the Type 2 tag in the field, sized to its card type, in as few LinearRead calls as the
+ * chunk limit allows; with the default limit every supported card type is a single call, where reading it block by
+ * block takes a call per 4 byte page. The memory is read into a buffer allocated once, and only turned into a
+ * {@link TagImage} when it differs from the last image of the tag in the {@link TagImageCache}.
+ * <p>
+ * Every reader has its own instance: {@link #read(UfrReader)} runs on the owner thread of the reader, {@link
+ * #image(String)} on its poll thread once the read has completed.
+ */
+class TagMemoryReader {
+
+    private final ReaderMetrics metrics;
+    private final TagImageCache images;
+    private final int maxChunkBytes;
+
+    private final ByteByReference dlogicCardType = new ByteByReference();
+    private final ShortByReference bytesRead = new ShortByReference();
+    private final byte[] memory = new byte[MAX_USER_MEMORY];
+    private final byte[] chunk;
+
+    private boolean type2;
+    private int length;
+
+    /**
+     * @param maxChunkBytes The most bytes to read per LinearRead call, rounded down to whole pages.
+     */
+    TagMemoryReader(ReaderMetrics metrics, TagImageCache images, int maxChunkBytes) {
+        this.metrics = metrics;
+        this.images = images;
+        this.maxChunkBytes = Math.max(PAGE_SIZE, maxChunkBytes - maxChunkBytes % PAGE_SIZE);
+        this.chunk = this.maxChunkBytes < MAX_USER_MEMORY ? new byte[this.maxChunkBytes] : memory;
+    }
+
+    /**
+     * Read the user memory of the tag in the field.
+     *
+     * @return Returns the status of the first call that failed, UNSUPPORTED_CARD_TYPE if the tag is not a supported
+     * Type 2 tag, or DL_OK.
+     */
+    int read(UfrReader reader) {
+
+        type2 = false;
+        length = 0;
+        int workingStatus;
+        if ((workingStatus = metrics.record(GET_DLOGIC_CARD_TYPE, System.nanoTime(),
+                reader.getDlogicCardType(dlogicCardType))) != DL_OK) return workingStatus;
+        var size = userMemorySize(dlogicCardType.getValue());
+        if (size == 0) return UNSUPPORTED_CARD_TYPE;
+        type2 = true;
+
+        for (var address = 0; address < size; address += maxChunkBytes) {
+            var chunkLength = Math.min(maxChunkBytes, size - address);
+            var target = chunkLength == size ? memory : chunk;
+            if ((workingStatus = metrics.record(LINEAR_READ, System.nanoTime(),
+                    reader.linearRead(target, address, chunkLength, bytesRead))) != DL_OK) return workingStatus;
+            if ((bytesRead.getValue() & 0xFFFF) != chunkLength) return READING_ERROR;
+            if (target != memory) System.arraycopy(target, 0, memory, address, chunkLength);
+        }
+        length = size;
+        return DL_OK;
+    }
+
+    /**
+     * @return True if the last read found a supported Type 2 tag, whether or not its memory could be read.
+     */
+    boolean isType2() {
+        return type2;
+    }
+
+    /**
+     * Image the memory of the last successful read, reusing the previous image of the tag when nothing changed.
+     *
+     * @param tagId The full uid of the tag as hex.
+     * @return Returns the image, now the last image of the tag.
+     */
+    TagImage image(String tagId) {
+        var image = TagImage.of(tagId, dlogicCardType.getValue(), memory, length, images.get(tagId));
+        images.put(image);
+        return image;
+    }
+}
@@ -0,0 +1,134 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.log.error.ExceptionalErrorLog;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_EXCEPTION;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_POLL_CYCLE_FAILURE;
+import static com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService.getStackMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getMessage;
+
+/**
+ * The tag polling engine drives {@link HardwareManagementService#poll()} from its own thread with an adaptive cadence.
+ * Right after a tag enters or leaves the field the reader is polled at the fast interval, and once nothing has changed
+ * for the length of the fast window the delay backs off towards the idle interval.
+ * <p>
+ * The {@link ReaderRegistry} runs one engine per reader, so a reader that is slow or waiting on a reset only holds up
+ * its own thread.
+ */
+public class TagPollingEngine implements SmartLifecycle {
+
+    private final HardwareManagementService hardware;
+    private final UnifiedLoggingService log;
+    private final ReaderMetrics metrics;
+    private final long fastIntervalMillis;
+    private final long idleIntervalMillis;
+    private final long fastWindowNanos;
+    private final double backoffFactor;
+    private final String threadName;
+
+    private volatile ScheduledExecutorService executor;
+    private volatile boolean running;
+    private volatile long currentIntervalMillis;
+    private long lastChangeNanos;
+
+    public TagPollingEngine(
+            HardwareManagementService hardware,
+            UnifiedLoggingService log,
+            ReaderMetrics metrics,
+            long fastIntervalMillis,
+            long idleIntervalMillis,
+            long fastWindowMillis,
+            double backoffFactor,
+            String threadName) {
+        this.hardware = hardware;
+        this.log = log;
+        this.metrics = metrics;
+        this.fastIntervalMillis = fastIntervalMillis;
+        this.idleIntervalMillis = Math.max(fastIntervalMillis, idleIntervalMillis);
+        this.fastWindowNanos = MILLISECONDS.toNanos(fastWindowMillis);
+        this.backoffFactor = Math.max(1.0, backoffFactor);
+        this.threadName = threadName;
+        this.currentIntervalMillis = this.idleIntervalMillis;
+        this.lastChangeNanos = System.nanoTime() - this.fastWindowNanos;
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        executor.execute(this::cycle);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor != null) executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return Returns the delay, in milliseconds, currently applied between poll cycles.
+     */
+    public long getCurrentIntervalMillis() {
+        return currentIntervalMillis;
+    }
+
+    /**
+     * Run one poll cycle and schedule the next one according to the outcome. A cycle that fails, even with an error
+     * such as a native library that cannot be linked, counts as unchanged, so polling carries on and backs off.
+     */
+    private void cycle() {
+
+        var changed = false;
+        var start = System.nanoTime();
+        try {
+            changed = hardware.poll();
+            metrics.recordPollCycle(System.nanoTime() - start);
+        } catch (RuntimeException | Error e) {
+            log.error(ExceptionalErrorLog.builder()
+                    .marker(MARKER_UNEXPECTED_EXCEPTION)
+                    .message(MESSAGE_POLL_CYCLE_FAILURE)
+                    .exceptionMessage(getMessage(e))
+                    .stackTrace(getStackMap(e))
+                    .build());
+        } finally {
+            if (running && !executor.isShutdown())
+                executor.schedule(this::cycle, nextDelay(changed, System.nanoTime()), MILLISECONDS);
+        }
+    }
+
+    /**
+     * Compute the delay before the next poll cycle. A change resets the cadence to the fast interval; otherwise the
+     * fast interval is held for the fast window and then multiplied by the backoff factor up to the idle interval.
+     *
+     * @param changed   Whether the cycle that just completed observed a change in the field.
+     * @param nowNanos  The current {@link System#nanoTime()}.
+     * @return Returns the delay in milliseconds.
+     */
+    long nextDelay(boolean changed, long nowNanos) {
+
+        if (changed) lastChangeNanos = nowNanos;
+
+        if (nowNanos - lastChangeNanos < fastWindowNanos) {
+            currentIntervalMillis = fastIntervalMillis;
+        } else {
+            currentIntervalMillis = Math.min(idleIntervalMillis,
+                    Math.max(fastIntervalMillis, (long) Math.ceil(currentIntervalMillis * backoffFactor)));
+        }
+
+        return currentIntervalMillis;
+    }
+}
@@ -0,0 +1,200 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.domain.SensitiveData;
+import com.howellsmith.oss.nfcpipass.model.event.NdefChangedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.ReaderEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagDepartedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagDetectedEvent;
+import com.howellsmith.oss.nfcpipass.model.log.error.ExceptionalErrorLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_EXCEPTION;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_TAP_TO_TYPE_FAILURE;
+import static com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService.getStackMap;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getMessage;
+
+/**
+ * Types the sensitive data of a tag when it is tapped, the password the tag holds in its NDEF text unlocking it. A tag
+ * with several records has all of them typed one after the other, oldest first, with nothing in between; any separator,
+ * e.g. a tab between a user name and a password, is part of the data. The stages overlap rather than add up:
+ * <ul>
+ * <li>the lookup of the tag's record starts on the {@link TagDetectedEvent}, as soon as GetCardIdEx returns the uid,
+ * and runs while the reader is still reading the NDEF area</li>
+ * <li>the tag key is derived as soon as the {@link TagArrivedEvent} brings the password, as it needs both the password
+ * and the salt of the record; a tag tapped again within the key's lifetime skips it. A tag whose NDEF area could not
+ * be read on arrival is typed on the {@link NdefChangedEvent} that brings it, if it is still in the field</li>
+ * <li>content kept in GridFS is typed a segment at a time as each is decrypted, so the first keys are typed while the
+ * rest is still being read and decrypted</li>
+ * </ul>
+ * Nothing is typed while tags are being provisioned, or with {@code tap_to_type.enabled=false}. The time from the uid
+ * read to the last key typed is published as the tap_to_type timer.
+ */
+@Service
+public class TapToTypeService {
+
+    private final TagLookupService tags;
+    private final CryptoService crypto;
+    private final SensitiveContentService content;
+    private final KeyboardService keyboard;
+    private final ProvisioningService provisioning;
+    private final UnifiedLoggingService log;
+    private final boolean enabled;
+    private final Timer latency;
+    // the taps waiting to be typed, by reader and tag
+    private final Map<String, Lookup> lookups = new ConcurrentHashMap<>();
+
+    public TapToTypeService(
+            TagLookupService tags,
+            CryptoService crypto,
+            SensitiveContentService content,
+            KeyboardService keyboard,
+            ProvisioningService provisioning,
+            UnifiedLoggingService log,
+            MeterRegistry registry,
+            @Value("${tap_to_type.enabled:true}") boolean enabled) {
+        this.tags = tags;
+        this.crypto = crypto;
+        this.content = content;
+        this.keyboard = keyboard;
+        this.provisioning = provisioning;
+        this.log = log;
+        this.enabled = enabled;
+        this.latency = Timer.builder("tap_to_type").register(registry);
+    }
+
+    /**
+     * Start the lookup of the tag's record while its NDEF area is read.
+     */
+    @EventListener
+    public void onTagDetected(TagDetectedEvent event) {
+        if (!enabled) return;
+        lookups.put(key(event, event.getTagId()),
+                new Lookup(System.nanoTime(), tags.lookupSensitiveData(event.getTagId())));
+    }
+
+    /**
+     * Unlock and type the tag's record, if it has one, with the password read from the tag. A tag whose NDEF area could
+     * not be read keeps its lookup until the NDEF message is read.
+     */
+    @EventListener
+    public void onTagArrived(TagArrivedEvent event) {
+
+        if (!enabled) return;
+        var key = key(event, event.getTagId());
+        if (event.getNdef() == null) {
+            lookups.computeIfAbsent(key,
+                    k -> new Lookup(System.nanoTime(), tags.lookupSensitiveData(event.getTagId())));
+            return;
+        }
+        var lookup = lookups.remove(key);
+        if (lookup == null) lookup = new Lookup(System.nanoTime(), tags.lookupSensitiveData(event.getTagId()));
+        type(event.getTagId(), event.getNdef(), lookup);
+    }
+
+    /**
+     * Type the record of a tag still in the field whose NDEF message was read after it arrived. A change to the NDEF
+     * message of a tag that was already typed is ignored.
+     */
+    @EventListener
+    public void onNdefChanged(NdefChangedEvent event) {
+        if (event.getNdef() == null) return;
+        var lookup = lookups.remove(key(event, event.getTagId()));
+        if (lookup != null) type(event.getTagId(), event.getNdef(), lookup);
+    }
+
+    /**
+     * Drop a lookup whose tag left before it was read.
+     */
+    @EventListener
+    public void onTagDeparted(TagDepartedEvent event) {
+        lookups.remove(key(event, event.getTagId()));
+    }
+
+    /**
+     * Type the records the lookup finds, unless tags are being provisioned.
+     */
+    private void type(String tagId, String ndef, Lookup lookup) {
+
+        if (provisioning.isProvisioning()) return;
+
+        var password = ndef.toCharArray();
+        try {
+            var records = join(lookup.getRecords());
+            if (records.isEmpty()) return;
+            type(tagId, password, records);
+            latency.record(System.nanoTime() - lookup.getStarted(), TimeUnit.NANOSECONDS);
+        } catch (GeneralSecurityException | IOException | RuntimeException e) {
+            log.error(ExceptionalErrorLog.builder()
+                    .marker(MARKER_UNEXPECTED_EXCEPTION)
+                    .message(MESSAGE_TAP_TO_TYPE_FAILURE)
+                    .exceptionMessage(getMessage(e))
+                    .stackTrace(getStackMap(e))
+                    .reference(tagId)
+                    .build());
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    /**
+     * Type the records in order, through one stream so that no other tap is typed in between. The records kept in the
+     * document are unlocked together, deriving the tag key once, content kept in GridFS is unlocked as it is typed.
+     */
+    private void type(String tagId, char[] password, List<SensitiveData> records)
+            throws GeneralSecurityException, IOException {
+
+        var inline = new ArrayList<SensitiveData>(records.size());
+        for (var record : records) if (record.getContentId() == null) inline.add(record);
+        var plaintexts = inline.isEmpty() ? List.<byte[]>of() : crypto.unlockAll(tagId, password, inline);
+        try (var sink = keyboard.typing()) {
+            var next = plaintexts.iterator();
+            for (var record : records) {
+                if (record.getContentId() == null) sink.write(next.next());
+                else content.unlockTo(tagId, password, record, sink);
+            }
+        } finally {
+            plaintexts.forEach(plaintext -> Arrays.fill(plaintext, (byte) 0));
+        }
+    }
+
+    private static String key(ReaderEvent event, String tagId) {
+        return event.getReaderSerial() + ":" + tagId;
+    }
+
+    /**
+     * Wait for the lookup, rethrowing what it failed with.
+     */
+    private static <T> T join(CompletableFuture<T> lookup) {
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * A lookup started for a tag, and when the tag was detected.
+     */
+    @lombok.Value
+    static class Lookup {
+        long started;
+        CompletableFuture<List<SensitiveData>> records;
+    }
+}
@@ -0,0 +1,12 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * A listener that only observes reader events, e.g. to log them. The {@link ReaderEventBus} delivers to telemetry
+ * listeners from a ring of their own that drops its oldest events when they fall behind, so they can never hold up the
+ * listeners that act on a tap.
+ */
+public interface TelemetryListener<E extends ApplicationEvent> extends ApplicationListener<E> {
+}
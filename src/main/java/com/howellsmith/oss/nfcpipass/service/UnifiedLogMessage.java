@@ -0,0 +1,165 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.logging.log4j.core.impl.MementoMessage;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ReusableMessage;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import static com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService.CLASS;
+import static com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService.LINE;
+import static com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService.METHOD;
+
+/**
+ * A reusable log message that renders itself as the unified {"_source":{..},"_data":{..}} JSON document straight into
+ * the buffer of the log event. Instances are held per thread by {@link UnifiedLoggingService} and refilled for every
+ * message, and the rendered text is picked up verbatim by {@link UnifiedMessageResolver}.
+ */
+public final class UnifiedLogMessage implements ReusableMessage {
+
+    /**
+     * The format of every unified message. It survives the copy made when the message is handed to an async logger,
+     * which is how the layout tells unified messages apart from plain text.
+     */
+    public static final String FORMAT = UnifiedLogMessage.class.getName();
+
+    private static final String SOURCE = "_source";
+    private static final String DATA = "_data";
+
+    /**
+     * Configured like the mapper behind Log4j's JSONLayout so that _data renders the same as it always has.
+     */
+    private static final ObjectWriter WRITER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .writer();
+
+    private final BuilderWriter writer = new BuilderWriter();
+
+    private Map<String, Object> source;
+    private Object data;
+    boolean reserved;
+
+    UnifiedLogMessage set(Map<String, Object> source, Object data) {
+        this.source = source;
+        this.data = data;
+        return this;
+    }
+
+    void clear() {
+        source = null;
+        data = null;
+        reserved = false;
+    }
+
+    @Override
+    public void formatTo(StringBuilder buffer) {
+
+        buffer.append('{');
+        if (source != null) {
+            buffer.append('"').append(SOURCE).append("\":{\"")
+                    .append(CLASS).append("\":\"").append((String) source.get(CLASS)).append("\",\"")
+                    .append(LINE).append("\":").append((int) (Integer) source.get(LINE)).append(",\"")
+                    .append(METHOD).append("\":\"").append((String) source.get(METHOD)).append("\"},");
+        }
+        buffer.append('"').append(DATA).append("\":");
+
+        var mark = buffer.length();
+        try {
+            WRITER.writeValue(writer.into(buffer), data);
+        } catch (IOException | RuntimeException e) {
+            // fall back to the string form rather than leave a partial document behind
+            buffer.setLength(mark);
+            buffer.append('"');
+            JsonStringEncoder.getInstance().quoteAsString(String.valueOf(data), buffer);
+            buffer.append('"');
+        } finally {
+            writer.into(null);
+        }
+        buffer.append('}');
+    }
+
+    @Override
+    public String getFormattedMessage() {
+        var buffer = new StringBuilder(256);
+        formatTo(buffer);
+        return buffer.toString();
+    }
+
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+
+    @Override
+    public Object[] getParameters() {
+        return null;
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        return null;
+    }
+
+    @Override
+    public Object[] swapParameters(Object[] emptyReplacement) {
+        return emptyReplacement;
+    }
+
+    @Override
+    public short getParameterCount() {
+        return 0;
+    }
+
+    @Override
+    public Message memento() {
+        return new MementoMessage(getFormattedMessage(), FORMAT, null);
+    }
+
+    /**
+     * Lets Jackson write into whichever buffer the message is currently being rendered to.
+     */
+    private static final class BuilderWriter extends Writer {
+
+        private StringBuilder target;
+
+        BuilderWriter into(StringBuilder target) {
+            this.target = target;
+            return this;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            target.append(buffer, offset, length);
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+            target.append(string, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) {
+            target.append((char) c);
+        }
+
+        @Override
+        public void flush() {
+            // nothing buffered
+        }
+
+        @Override
+        public void close() {
+            // the target belongs to the caller
+        }
+    }
+}
@@ -1,22 +1,25 @@
 package com.howellsmith.oss.nfcpipass.service;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.howellsmith.oss.nfcpipass.model.log.MarkedLog;
 import lombok.extern.log4j.Log4j2;
-import org.apache.logging.log4j.message.ObjectMessage;
 import org.apache.logging.log4j.spi.StandardLevel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.lang.StackWalker.StackFrame;
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_ILLEGAL_ARGUMENT_NULL;
+import static java.lang.StackWalker.Option.RETAIN_CLASS_REFERENCE;
 import static org.apache.logging.log4j.spi.StandardLevel.DEBUG;
 import static org.apache.logging.log4j.spi.StandardLevel.ERROR;
 import static org.apache.logging.log4j.spi.StandardLevel.FATAL;
@@ -27,6 +30,10 @@ import static org.apache.logging.log4j.spi.StandardLevel.WARN;
 /**
  * The Unified Logging Service is designed to accept a series of arguments that can be translated into an easy to
  * search JSON log message that seamlessly integrates with log ingestion systems.
+ * <p>
+ * Messages are rendered by a reusable, per thread {@link UnifiedLogMessage} so that logging does not allocate a wrapper
+ * and message per call. Each message records the location it was logged from. The location is looked up with a single
+ * {@link StackWalker} frame and cached per call site, and can be skipped entirely for chosen levels or markers.
  *
  * @author Taylor Howellsmith
  */
@@ -34,9 +41,37 @@ import static org.apache.logging.log4j.spi.StandardLevel.WARN;
 @Service
 public class UnifiedLoggingService {
 
-    private static final String CLASS = "_class";
-    private static final String LINE = "_lineNumber";
-    private static final String METHOD = "_method";
+    static final String CLASS = "_class";
+    static final String LINE = "_lineNumber";
+    static final String METHOD = "_method";
+
+    private static final StackWalker WALKER = StackWalker.getInstance(RETAIN_CLASS_REFERENCE);
+    private static final ThreadLocal<UnifiedLogMessage> MESSAGES = ThreadLocal.withInitial(UnifiedLogMessage::new);
+
+    private final Set<StandardLevel> locationLevels;
+    private final Set<String> locationSkipMarkers;
+    private final Map<CallSite, Map<String, Object>> sources = new ConcurrentHashMap<>();
+
+    /**
+     * Create a logging service that captures the location of every message.
+     */
+    public UnifiedLoggingService() {
+        this(Stream.of(StandardLevel.values()).map(Enum::name).toArray(String[]::new), new String[0]);
+    }
+
+    @Autowired
+    public UnifiedLoggingService(
+            @Value("${log.location_levels:FATAL,ERROR,WARN,INFO,DEBUG,TRACE}") String[] locationLevels,
+            @Value("${log.location_skip_markers:}") String[] locationSkipMarkers) {
+        this.locationLevels = EnumSet.noneOf(StandardLevel.class);
+        for (var level : locationLevels) {
+            if (!level.isBlank()) this.locationLevels.add(StandardLevel.valueOf(level.trim().toUpperCase()));
+        }
+        this.locationSkipMarkers = Stream.of(locationSkipMarkers)
+                .map(String::trim)
+                .filter(marker -> !marker.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
 
     public void info(Object o) {
         writeLog(INFO, o);
@@ -67,42 +102,79 @@ public class UnifiedLoggingService {
         if (Objects.isNull(o))
             throw new IllegalArgumentException(MESSAGE_ILLEGAL_ARGUMENT_NULL);
 
-        var wrapped = MessageWrapper.builder()
-                .stackMap(getSource())
-                .originalData(o)
-                .build();
-
-        switch (level) {
-            case INFO:
-                log.info(new ObjectMessage(wrapped));
-                break;
-            case WARN:
-                log.warn(new ObjectMessage(wrapped));
-                break;
-            case ERROR:
-                log.error(new ObjectMessage(wrapped));
-                break;
-            case DEBUG:
-                log.debug(new ObjectMessage(wrapped));
-                break;
-            case TRACE:
-                log.trace(new ObjectMessage(wrapped));
-                break;
-            case FATAL:
-                log.fatal(new ObjectMessage(wrapped));
+        var message = acquireMessage().set(capturesLocation(level, o) ? getSource() : null, o);
+        try {
+            switch (level) {
+                case INFO:
+                    log.info(message);
+                    break;
+                case WARN:
+                    log.warn(message);
+                    break;
+                case ERROR:
+                    log.error(message);
+                    break;
+                case DEBUG:
+                    log.debug(message);
+                    break;
+                case TRACE:
+                    log.trace(message);
+                    break;
+                case FATAL:
+                    log.fatal(message);
+            }
+        } finally {
+            message.clear();
         }
     }
 
     /**
-     * Pull the source of the original call from the stack and get the class and line number.
+     * Take this thread's message, or a fresh one if it is already in use by a log further up the stack, such as one
+     * written while serializing the data of another.
+     */
+    private static UnifiedLogMessage acquireMessage() {
+        var message = MESSAGES.get();
+        if (message.reserved) message = new UnifiedLogMessage();
+        message.reserved = true;
+        return message;
+    }
+
+    /**
+     * Decide whether the location of a message is worth capturing.
      *
-     * @return Returns a list of Pairs that contain the calling class name and line number.
+     * @param level The level the message is logged at.
+     * @param o     The message.
+     * @return True if the level is configured for location capture and the message marker is not skipped.
      */
-    private Map<String, Object> getSource() {
-        var clazz = Thread.currentThread().getStackTrace()[4].getClassName();
-        var lineNumber = Thread.currentThread().getStackTrace()[4].getLineNumber();
-        var method = Thread.currentThread().getStackTrace()[4].getMethodName();
-        return Map.of(CLASS, clazz, LINE, lineNumber, METHOD, method);
+    private boolean capturesLocation(StandardLevel level, Object o) {
+        if (!locationLevels.contains(level)) return false;
+        return !(o instanceof MarkedLog) || !locationSkipMarkers.contains(((MarkedLog) o).getMarker());
+    }
+
+    /**
+     * Find the first frame outside of this service, which is the original call, and get its class, line number and
+     * method. Only that frame is materialized, and the resulting map is shared by every message logged from the same
+     * call site.
+     *
+     * @return Returns a map that contains the calling class name, line number and method name.
+     */
+    Map<String, Object> getSource() {
+        return WALKER.walk(frames -> frames
+                .dropWhile(frame -> frame.getDeclaringClass() == UnifiedLoggingService.class)
+                .findFirst())
+                .map(this::getSource)
+                .orElse(Map.of());
+    }
+
+    private Map<String, Object> getSource(StackFrame frame) {
+
+        var site = new CallSite(frame.getDeclaringClass(), frame.getMethodName(), frame.getByteCodeIndex());
+        var source = sources.get(site);
+        if (source != null) return source;
+
+        source = Map.of(CLASS, frame.getClassName(), LINE, frame.getLineNumber(), METHOD, frame.getMethodName());
+        var existing = sources.putIfAbsent(site, source);
+        return existing == null ? source : existing;
     }
 
     /**
@@ -121,22 +193,12 @@ public class UnifiedLoggingService {
     }
 
     /**
-     * Simple wrapper class to hold the source information and the passed in object.
+     * Identifies a logging call site. The bytecode index is cheap to obtain from a frame, unlike the line number.
      */
-    @Builder
-    @Data
-    @NoArgsConstructor
-    @AllArgsConstructor
-    private static class MessageWrapper {
-
-        private static final String SOURCE = "_source";
-        private static final String DATA = "_data";
-
-        @JsonProperty(SOURCE)
-        private Map<String, Object> stackMap;
-
-        @JsonProperty(DATA)
-        private Object originalData;
-
+    @lombok.Value
+    private static class CallSite {
+        Class<?> declaringClass;
+        String methodName;
+        int byteCodeIndex;
     }
 }
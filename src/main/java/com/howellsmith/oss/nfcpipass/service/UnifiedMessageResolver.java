@@ -0,0 +1,38 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.layout.template.json.resolver.EventResolver;
+import org.apache.logging.log4j.layout.template.json.util.JsonWriter;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+/**
+ * Resolves the message of a log event for the JSON template layout. Unified messages are already JSON and are copied
+ * into the document as they are; anything else, such as framework logs, is written as a JSON string.
+ */
+public final class UnifiedMessageResolver implements EventResolver {
+
+    static final UnifiedMessageResolver INSTANCE = new UnifiedMessageResolver();
+
+    private UnifiedMessageResolver() {
+    }
+
+    static String getName() {
+        return "unifiedMessage";
+    }
+
+    @Override
+    public void resolve(LogEvent logEvent, JsonWriter jsonWriter) {
+
+        var message = logEvent.getMessage();
+        var formattable = message instanceof StringBuilderFormattable;
+
+        if (UnifiedLogMessage.FORMAT.equals(message.getFormat())) {
+            if (formattable) ((StringBuilderFormattable) message).formatTo(jsonWriter.getStringBuilder());
+            else jsonWriter.writeRawString(message.getFormattedMessage());
+        } else if (formattable) {
+            jsonWriter.writeString((StringBuilderFormattable) message);
+        } else {
+            jsonWriter.writeString(message.getFormattedMessage());
+        }
+    }
+}
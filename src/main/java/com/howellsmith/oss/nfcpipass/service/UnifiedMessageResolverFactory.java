@@ -0,0 +1,35 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.layout.template.json.resolver.EventResolverContext;
+import org.apache.logging.log4j.layout.template.json.resolver.EventResolverFactory;
+import org.apache.logging.log4j.layout.template.json.resolver.TemplateResolverConfig;
+import org.apache.logging.log4j.layout.template.json.resolver.TemplateResolverFactory;
+
+/**
+ * Registers {@link UnifiedMessageResolver} with the JSON template layout as {"$resolver": "unifiedMessage"}.
+ */
+@Plugin(name = "UnifiedMessageResolverFactory", category = TemplateResolverFactory.CATEGORY)
+public final class UnifiedMessageResolverFactory implements EventResolverFactory {
+
+    private static final UnifiedMessageResolverFactory INSTANCE = new UnifiedMessageResolverFactory();
+
+    private UnifiedMessageResolverFactory() {
+    }
+
+    @PluginFactory
+    public static UnifiedMessageResolverFactory getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getName() {
+        return UnifiedMessageResolver.getName();
+    }
+
+    @Override
+    public UnifiedMessageResolver create(EventResolverContext context, TemplateResolverConfig config) {
+        return UnifiedMessageResolver.INSTANCE;
+    }
+}
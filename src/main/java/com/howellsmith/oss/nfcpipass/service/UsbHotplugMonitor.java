@@ -0,0 +1,82 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.log.error.ExceptionalErrorLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.regex.Pattern;
+
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_CRITICAL_INFORMATION;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_HOTPLUG_WATCH_FAILURE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getMessage;
+
+/**
+ * Watches the device directory for USB serial devices appearing, which is how a reader shows up again after it was
+ * re-plugged or its hub lost power. Callers compare {@link #getGeneration()} with the value they saw last, so a check
+ * is a non-blocking poll of the watch and no thread waits on it.
+ */
+@Component
+public class UsbHotplugMonitor {
+
+    private final Pattern devices;
+    private final WatchService watcher;
+
+    private long generation;
+
+    public UsbHotplugMonitor(
+            UnifiedLoggingService log,
+            @Value("${readers.hotplug_dir:/dev}") String directory,
+            @Value("${readers.hotplug_devices:ttyUSB.*|ttyACM.*}") String devices) {
+        this.devices = Pattern.compile(devices);
+        this.watcher = watch(log, Paths.get(directory));
+    }
+
+    /**
+     * @return Returns a counter that advances every time a matching device appears.
+     */
+    public synchronized long getGeneration() {
+
+        if (watcher == null) return generation;
+
+        WatchKey key;
+        while ((key = watcher.poll()) != null) {
+            for (var event : key.pollEvents()) {
+                if (event.kind() == ENTRY_CREATE && devices.matcher(event.context().toString()).matches())
+                    generation++;
+            }
+            key.reset();
+        }
+        return generation;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (watcher != null) watcher.close();
+    }
+
+    /**
+     * @return Returns the watch, or null when the directory cannot be watched, in which case readers are only probed
+     * on their backoff schedule.
+     */
+    private static WatchService watch(UnifiedLoggingService log, Path directory) {
+        try {
+            var watcher = directory.getFileSystem().newWatchService();
+            directory.register(watcher, ENTRY_CREATE);
+            return watcher;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.error(ExceptionalErrorLog.builder()
+                    .marker(MARKER_CRITICAL_INFORMATION)
+                    .message(MESSAGE_HOTPLUG_WATCH_FAILURE)
+                    .exceptionMessage(getMessage(e))
+                    .build());
+            return null;
+        }
+    }
+}
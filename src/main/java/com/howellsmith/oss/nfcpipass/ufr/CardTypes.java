@@ -0,0 +1,58 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+/**
+ * The card types reported by GetDlogicCardType for the NFC Forum Type 2 tags the readers are used with, and the size of
+ * their user memory. LinearRead addresses that memory from its first byte, which on these tags is where the NDEF
+ * Message TLV starts, so the whole NDEF area is a single read.
+ */
+public class CardTypes {
+
+    public static final byte DL_MIFARE_ULTRALIGHT = 0x01;
+    public static final byte DL_MIFARE_ULTRALIGHT_EV1_11 = 0x02;
+    public static final byte DL_MIFARE_ULTRALIGHT_EV1_21 = 0x03;
+    public static final byte DL_MIFARE_ULTRALIGHT_C = 0x04;
+    public static final byte DL_NTAG_203 = 0x05;
+    public static final byte DL_NTAG_210 = 0x06;
+    public static final byte DL_NTAG_212 = 0x07;
+    public static final byte DL_NTAG_213 = 0x08;
+    public static final byte DL_NTAG_215 = 0x09;
+    public static final byte DL_NTAG_216 = 0x0A;
+
+    /**
+     * The largest user memory of the supported card types.
+     */
+    public static final int MAX_USER_MEMORY = 888;
+
+    /**
+     * Authentication mode for LinearRead on tags without password protection.
+     */
+    public static final byte T2T_NO_PWD_AUTH = 0x00;
+
+    private CardTypes() {}
+
+    /**
+     * @param dlogicCardType The card type reported by GetDlogicCardType.
+     * @return Returns the size of the user memory in bytes, or 0 if the card is not a supported Type 2 tag.
+     */
+    public static int userMemorySize(byte dlogicCardType) {
+        switch (dlogicCardType) {
+            case DL_MIFARE_ULTRALIGHT:
+            case DL_MIFARE_ULTRALIGHT_EV1_11:
+            case DL_NTAG_210:
+                return 48;
+            case DL_MIFARE_ULTRALIGHT_EV1_21:
+            case DL_NTAG_212:
+                return 128;
+            case DL_MIFARE_ULTRALIGHT_C:
+            case DL_NTAG_203:
+            case DL_NTAG_213:
+                return 144;
+            case DL_NTAG_215:
+                return 504;
+            case DL_NTAG_216:
+                return MAX_USER_MEMORY;
+            default:
+                return 0;
+        }
+    }
+}
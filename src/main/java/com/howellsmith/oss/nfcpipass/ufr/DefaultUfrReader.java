@@ -0,0 +1,98 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.sun.jna.ptr.ByteByReference;
+import com.sun.jna.ptr.ShortByReference;
+
+import static com.howellsmith.oss.nfcpipass.ufr.CardTypes.T2T_NO_PWD_AUTH;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static com.howellsmith.oss.nfcpipass.ufr.Utilities.toPaddedHex;
+
+/**
+ * The reader the uFR library opens by default, driven through the single reader API. The library keeps one such reader
+ * per process, so this is only suitable when a single reader is attached.
+ */
+public class DefaultUfrReader implements UfrReader {
+
+    // tags hold a single NDEF message
+    static final byte NDEF_MESSAGE = 1;
+
+    private final UfrDevice device;
+    private final int[] serialNumber = new int[1];
+
+    private volatile String serial;
+
+    public DefaultUfrReader(UfrDevice device) {
+        this.device = device;
+    }
+
+    @Override
+    public String getSerial() {
+        return serial;
+    }
+
+    /**
+     * Open the reader and read its serial number, which is only known once it is open.
+     */
+    @Override
+    public int open() {
+        var status = device.ReaderOpen();
+        if (status == DL_OK && device.GetReaderSerialNumber(serialNumber) == DL_OK)
+            serial = toPaddedHex(serialNumber[0]);
+        return status;
+    }
+
+    @Override
+    public int close() {
+        return device.ReaderClose();
+    }
+
+    @Override
+    public int reset() {
+        return device.ReaderReset();
+    }
+
+    @Override
+    public int getReaderType(int[] readerType) {
+        return device.GetReaderType(readerType);
+    }
+
+    @Override
+    public int getCardIdEx(ByteByReference cardType, byte[] uid, ByteByReference uidSize) {
+        return device.GetCardIdEx(cardType, uid, uidSize);
+    }
+
+    @Override
+    public int readNdefText(byte[] text) {
+        return device.ReadNdefRecord_Text(text);
+    }
+
+    @Override
+    public int getDlogicCardType(ByteByReference cardType) {
+        return device.GetDlogicCardType(cardType);
+    }
+
+    @Override
+    public int linearRead(byte[] data, int address, int length, ShortByReference bytesRead) {
+        return device.LinearRead(data, address, length, bytesRead, T2T_NO_PWD_AUTH, (byte) 0);
+    }
+
+    @Override
+    public int writeNdefText(byte ndefStorage, String text) {
+        return device.WriteNdefRecord_Text(ndefStorage, text);
+    }
+
+    @Override
+    public int initializeNdef() {
+        return device.ndef_card_initialization();
+    }
+
+    @Override
+    public int eraseNdef() {
+        return device.erase_all_ndef_records(NDEF_MESSAGE);
+    }
+
+    @Override
+    public int uiSignal(int lightMode, int soundMode) {
+        return device.ReaderUISignal(lightMode, soundMode);
+    }
+}
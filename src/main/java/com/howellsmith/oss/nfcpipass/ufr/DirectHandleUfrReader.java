@@ -0,0 +1,42 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.sun.jna.ptr.ByteByReference;
+
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.READER_PORT_NOT_OPENED;
+
+/**
+ * One of several readers, with the handle based functions on the poll path bound directly, see {@link UfrDirect}.
+ */
+public class DirectHandleUfrReader extends HandleUfrReader {
+
+    private final PollMemory memory = new PollMemory();
+
+    public DirectHandleUfrReader(UfrDevice device, String serial) {
+        super(device, serial);
+    }
+
+    @Override
+    public int getReaderType(int[] readerType) {
+        var current = getHandle();
+        return current != null
+                ? memory.copyReaderType(UfrDirect.Handles.GetReaderTypeM(current, memory.readerType), readerType)
+                : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public int getCardIdEx(ByteByReference cardType, byte[] uid, ByteByReference uidSize) {
+        var current = getHandle();
+        return current != null
+                ? memory.copyCardId(UfrDirect.Handles.GetCardIdExM(current, memory.cardType, memory.uid,
+                memory.uidSize), cardType, uid, uidSize)
+                : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public int readNdefText(byte[] text) {
+        var current = getHandle();
+        return current != null
+                ? memory.copyText(UfrDirect.Handles.ReadNdefRecord_TextM(current, memory.clearText()), text)
+                : READER_PORT_NOT_OPENED;
+    }
+}
@@ -0,0 +1,31 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.sun.jna.ptr.ByteByReference;
+
+/**
+ * The reader the uFR library opens by default, with the poll path bound directly, see {@link UfrDirect}.
+ */
+public class DirectUfrReader extends DefaultUfrReader {
+
+    private final PollMemory memory = new PollMemory();
+
+    public DirectUfrReader(UfrDevice device) {
+        super(device);
+    }
+
+    @Override
+    public int getReaderType(int[] readerType) {
+        return memory.copyReaderType(UfrDirect.GetReaderType(memory.readerType), readerType);
+    }
+
+    @Override
+    public int getCardIdEx(ByteByReference cardType, byte[] uid, ByteByReference uidSize) {
+        return memory.copyCardId(UfrDirect.GetCardIdEx(memory.cardType, memory.uid, memory.uidSize),
+                cardType, uid, uidSize);
+    }
+
+    @Override
+    public int readNdefText(byte[] text) {
+        return memory.copyText(UfrDirect.ReadNdefRecord_Text(memory.clearText()), text);
+    }
+}
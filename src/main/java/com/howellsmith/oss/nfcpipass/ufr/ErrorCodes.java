@@ -1,5 +1,8 @@
 package com.howellsmith.oss.nfcpipass.ufr;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
 public class ErrorCodes {
 
     public static final int DL_OK = 0x00;
@@ -53,5 +56,38 @@ public class ErrorCodes {
     public static final int FT_STATUS_ERROR_8 = 0xA7;
     public static final int FT_STATUS_ERROR_9 = 0xA8;
 
+    // never reported by the library, see UfrCallExecutor
+    public static final int CALL_TIMEOUT = -1;
+    public static final int CALL_REJECTED = -2;
+    public static final int CALL_BUSY = -3;
+
+    private static final String[] NAMES = new String[256];
+    private static final String[] CALL_NAMES = new String[3];
+
+    static {
+        for (Field field : ErrorCodes.class.getFields()) {
+            try {
+                if (!Modifier.isStatic(field.getModifiers()) || field.getType() != int.class) continue;
+                var status = field.getInt(null);
+                if (status < 0) CALL_NAMES[-status - 1] = field.getName();
+                else NAMES[status & 0xFF] = field.getName();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i] == null) NAMES[i] = Utilities.toPaddedHex(i);
+        }
+    }
+
     private ErrorCodes(){}
+
+    /**
+     * @param status A status code returned by the uFR library.
+     * @return Returns the name of the status code, or the code as hex when it has no name.
+     */
+    public static String name(int status) {
+        if (status < 0 && -status <= CALL_NAMES.length) return CALL_NAMES[-status - 1];
+        return status >= 0 && status < NAMES.length ? NAMES[status] : Utilities.toPaddedHex(status);
+    }
 }
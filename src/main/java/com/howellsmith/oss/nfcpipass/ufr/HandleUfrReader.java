@@ -0,0 +1,130 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.ByteByReference;
+import com.sun.jna.ptr.ShortByReference;
+
+import static com.howellsmith.oss.nfcpipass.ufr.CardTypes.T2T_NO_PWD_AUTH;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.READER_PORT_NOT_OPENED;
+
+/**
+ * One of several readers, driven through the handle based (M) functions of the uFR library. Handles are obtained from
+ * the reader list by whoever discovers the readers and {@link #attach(Pointer) attached} here; opening only succeeds
+ * while a handle is attached, and closing releases it so the reader can be discovered again.
+ */
+public class HandleUfrReader implements UfrReader {
+
+    private final UfrDevice device;
+    private final String serial;
+
+    private volatile Pointer handle;
+
+    public HandleUfrReader(UfrDevice device, String serial) {
+        this.device = device;
+        this.serial = serial;
+    }
+
+    @Override
+    public String getSerial() {
+        return serial;
+    }
+
+    /**
+     * @param handle The handle the reader was opened with.
+     */
+    public synchronized void attach(Pointer handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * @return True while a handle is attached, False once it has been closed.
+     */
+    public boolean isAttached() {
+        return handle != null;
+    }
+
+    /**
+     * @return Returns the attached handle, or null.
+     */
+    Pointer getHandle() {
+        return handle;
+    }
+
+    @Override
+    public int open() {
+        return handle != null ? DL_OK : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public synchronized int close() {
+        var current = handle;
+        if (current == null) return DL_OK;
+        handle = null;
+        return device.ReaderCloseM(current);
+    }
+
+    @Override
+    public int reset() {
+        var current = handle;
+        return current != null ? device.ReaderResetM(current) : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public int getReaderType(int[] readerType) {
+        var current = handle;
+        return current != null ? device.GetReaderTypeM(current, readerType) : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public int getCardIdEx(ByteByReference cardType, byte[] uid, ByteByReference uidSize) {
+        var current = handle;
+        return current != null ? device.GetCardIdExM(current, cardType, uid, uidSize) : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public int readNdefText(byte[] text) {
+        var current = handle;
+        return current != null ? device.ReadNdefRecord_TextM(current, text) : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public int getDlogicCardType(ByteByReference cardType) {
+        var current = handle;
+        return current != null ? device.GetDlogicCardTypeM(current, cardType) : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public int linearRead(byte[] data, int address, int length, ShortByReference bytesRead) {
+        var current = handle;
+        return current != null
+                ? device.LinearReadM(current, data, address, length, bytesRead, T2T_NO_PWD_AUTH, (byte) 0)
+                : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public int writeNdefText(byte ndefStorage, String text) {
+        var current = handle;
+        return current != null ? device.WriteNdefRecord_TextM(current, ndefStorage, text) : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public int initializeNdef() {
+        var current = handle;
+        return current != null ? device.ndef_card_initializationM(current) : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public int eraseNdef() {
+        var current = handle;
+        return current != null
+                ? device.erase_all_ndef_recordsM(current, DefaultUfrReader.NDEF_MESSAGE)
+                : READER_PORT_NOT_OPENED;
+    }
+
+    @Override
+    public int uiSignal(int lightMode, int soundMode) {
+        var current = handle;
+        return current != null ? device.ReaderUISignalM(current, lightMode, soundMode) : READER_PORT_NOT_OPENED;
+    }
+}
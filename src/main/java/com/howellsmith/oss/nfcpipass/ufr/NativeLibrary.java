@@ -0,0 +1,136 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.sun.jna.Native;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.apache.commons.lang3.exception.ExceptionUtils.getMessage;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getStackTrace;
+
+/**
+ * The uFR library, loaded off the startup path. Loading a missing or slow library used to fail or stall the context
+ * refresh; now the web and Mongo side come up right away while the library loads on its own thread, and readers are
+ * started once it is {@link Status#READY}.
+ */
+@Log4j2
+public class NativeLibrary {
+
+    public enum Status {
+        INITIALIZING,
+        READY,
+        FAILED
+    }
+
+    private final String path;
+    private final CompletableFuture<NativeLibrary> ready = new CompletableFuture<>();
+
+    private volatile Status status = Status.INITIALIZING;
+    private volatile UfrDevice device;
+    private volatile UfrDirect direct = UfrDirect.UNAVAILABLE;
+    private volatile long loadNanos;
+    private volatile String failure;
+
+    /**
+     * @param path The path of the library, which is not loaded until {@link #load(boolean)}.
+     */
+    public NativeLibrary(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Start loading the library on its own daemon thread.
+     *
+     * @param path          The path of the library.
+     * @param directBinding Whether to bind the poll path directly as well, see {@link UfrDirect}.
+     * @return Returns the library, initializing.
+     */
+    public static NativeLibrary loadInBackground(String path, boolean directBinding) {
+        var library = new NativeLibrary(path);
+        var thread = new Thread(() -> library.load(directBinding), "pipass_native_load");
+        thread.setDaemon(true);
+        thread.start();
+        return library;
+    }
+
+    /**
+     * @return Returns a library that is already loaded, e.g. a simulated device.
+     */
+    public static NativeLibrary loaded(UfrDevice device, UfrDirect direct) {
+        var library = new NativeLibrary(null);
+        library.ready(device, direct, 0L);
+        return library;
+    }
+
+    /**
+     * Load the library, and bind the poll path directly if asked to. Failures are recorded, not thrown.
+     */
+    public void load(boolean directBinding) {
+
+        var start = System.nanoTime();
+        try {
+            log.info("Loading Native Library: {}", path);
+            var loadedDevice = Native.load(path, UfrDevice.class);
+            var loadedDirect = directBinding ? UfrDirect.register(path) : UfrDirect.UNAVAILABLE;
+            ready(loadedDevice, loadedDirect, System.nanoTime() - start);
+            log.info("Loaded Native Library: {} in {}ms, direct binding: {}, handles: {}", path,
+                    loadNanos / 1_000_000L, loadedDirect.isAvailable(), loadedDirect.isHandlesAvailable());
+        } catch (RuntimeException | LinkageError e) {
+            loadNanos = System.nanoTime() - start;
+            failure = getMessage(e);
+            status = Status.FAILED;
+            log.fatal("Failed to load native library: {}, {}; {}", path, failure, getStackTrace(e));
+            ready.completeExceptionally(e);
+        }
+    }
+
+    private void ready(UfrDevice device, UfrDirect direct, long loadNanos) {
+        this.device = device;
+        this.direct = direct;
+        this.loadNanos = loadNanos;
+        this.status = Status.READY;
+        ready.complete(this);
+    }
+
+    /**
+     * Run an action once the library is ready, on the loading thread, or right away if it already is. The action never
+     * runs if loading failed.
+     */
+    public void whenReady(Consumer<NativeLibrary> action) {
+        ready.thenAccept(action);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Returns the proxy binding, or null until the library is ready.
+     */
+    public UfrDevice getDevice() {
+        return device;
+    }
+
+    public UfrDirect getDirect() {
+        return direct;
+    }
+
+    /**
+     * @return Returns the time it took to load, or to fail to load, the library in nanoseconds.
+     */
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * @return Returns the reason loading failed, or null.
+     */
+    public String getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,62 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.ByteByReference;
+
+import java.util.Arrays;
+
+/**
+ * The native buffers a directly bound reader polls into, allocated once as a single block. A reader is only called
+ * from the owner thread of its {@link UfrCallExecutor}, so the buffers are never shared; results are copied into the
+ * caller's buffers after each call.
+ */
+final class PollMemory {
+
+    static final int MAX_UID_LENGTH = 10;
+    static final int TEXT_SIZE = 1024;
+
+    private final Memory block = new Memory(Integer.BYTES + 2 + MAX_UID_LENGTH + TEXT_SIZE);
+
+    final Pointer readerType = block.share(0, Integer.BYTES);
+    final Pointer cardType = block.share(Integer.BYTES, 1);
+    final Pointer uidSize = block.share(Integer.BYTES + 1, 1);
+    final Pointer uid = block.share(Integer.BYTES + 2, MAX_UID_LENGTH);
+    final Pointer text = block.share(Integer.BYTES + 2 + MAX_UID_LENGTH, TEXT_SIZE);
+
+    int copyReaderType(int status, int[] readerType) {
+        if (status == ErrorCodes.DL_OK) readerType[0] = this.readerType.getInt(0);
+        return status;
+    }
+
+    int copyCardId(int status, ByteByReference cardType, byte[] uid, ByteByReference uidSize) {
+        if (status != ErrorCodes.DL_OK) return status;
+        var size = this.uidSize.getByte(0);
+        cardType.setValue(this.cardType.getByte(0));
+        uidSize.setValue(size);
+        this.uid.read(0, uid, 0, Math.min(Math.min(size & 0xFF, MAX_UID_LENGTH), uid.length));
+        return status;
+    }
+
+    /**
+     * Clear the text before a read, the library leaves it untouched when there is nothing to read.
+     */
+    Pointer clearText() {
+        text.setByte(0, (byte) 0);
+        return text;
+    }
+
+    /**
+     * Copy the nul terminated text, leaving the caller's buffer nul terminated when it has room. The terminator is only
+     * looked for within the text area, which ends the block.
+     */
+    int copyText(int status, byte[] text) {
+        if (status != ErrorCodes.DL_OK) return status;
+        var size = Math.min(TEXT_SIZE, text.length);
+        this.text.read(0, text, 0, size);
+        var length = 0;
+        while (length < size && text[length] != 0) length++;
+        Arrays.fill(text, length, Math.min(size + 1, text.length), (byte) 0);
+        return status;
+    }
+}
@@ -0,0 +1,248 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.CALL_BUSY;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.CALL_REJECTED;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.CALL_TIMEOUT;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Serializes every call to one uFR reader onto a single owner thread. The uFR library is not thread safe, so the poll
+ * worker, writes and anything else that drives the reader queue commands here instead of calling the library directly.
+ * Commands run in submission order from a bounded queue, and a command may bundle several calls, e.g. reading the uid,
+ * the NDEF text and signalling the result, which then run as one unit with no other caller's calls in between.
+ * <p>
+ * Every command carries a deadline. When a caller gives up on a command and the command running at that point has
+ * overrun its deadline, the caller gets {@link ErrorCodes#CALL_TIMEOUT} and the reader is marked hung: the commands
+ * queued behind the hung call are failed and new ones rejected, so nobody waits on it, and no other call is made while the library may
+ * still be inside the hung one. Commands are accepted again once the hung call returns, e.g. the reset that recycles
+ * the reader, see {@link #isHung()}. A caller whose command only waited behind a slower one that is still within
+ * its deadline gets {@link ErrorCodes#CALL_BUSY} instead, the reader is working.
+ */
+public class UfrCallExecutor implements AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 1000L;
+
+    private final UfrReader reader;
+    private final BlockingDeque<Task<?>> queue;
+    private final long timeoutNanos;
+    private final String threadName;
+
+    private final Thread owner;
+
+    private volatile boolean closed;
+    private volatile boolean hung;
+    private Task<?> running;
+    private int hungCalls;
+
+    public UfrCallExecutor(UfrReader reader) {
+        this(reader, DEFAULT_QUEUE_CAPACITY, DEFAULT_TIMEOUT_MILLIS, "ufr_calls");
+    }
+
+    /**
+     * @param queueCapacity The number of commands that may wait for the owner thread, further commands are rejected.
+     * @param timeoutMillis The default deadline of a command, measured from its submission.
+     * @param threadName    The name of the owner thread.
+     */
+    public UfrCallExecutor(UfrReader reader, int queueCapacity, long timeoutMillis, String threadName) {
+        this.reader = reader;
+        this.queue = new LinkedBlockingDeque<>(queueCapacity);
+        this.timeoutNanos = MILLISECONDS.toNanos(timeoutMillis);
+        this.threadName = threadName;
+        this.owner = new Thread(this::run, threadName);
+        owner.setDaemon(true);
+        owner.start();
+    }
+
+    /**
+     * @return Returns the reader the commands are run against. Only its serial may be read directly.
+     */
+    public UfrReader getReader() {
+        return reader;
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    /**
+     * @return True while a call that overran its deadline has not returned, and commands are rejected, False otherwise.
+     */
+    public boolean isHung() {
+        return hung;
+    }
+
+    /**
+     * @return Returns the number of calls that hung, overrunning their deadline.
+     */
+    public synchronized int getHungCalls() {
+        return hungCalls;
+    }
+
+    /**
+     * Queue a command with the default deadline.
+     *
+     * @return Returns a future completed with the result of the command, or exceptionally with a
+     * {@link RejectedExecutionException} when the queue is full or the reader is hung, and a {@link TimeoutException}
+     * when the deadline passed before the command was started or the command hung.
+     */
+    public <T> CompletableFuture<T> submit(Command<T> command) {
+        return submit(command, timeoutNanos);
+    }
+
+    /**
+     * @param timeoutNanos The deadline of the command, measured from now.
+     * @see #submit(Command)
+     */
+    public <T> CompletableFuture<T> submit(Command<T> command, long timeoutNanos) {
+        var task = new Task<>(command, System.nanoTime() + timeoutNanos);
+        if (closed || hung || !queue.offer(task))
+            task.future.completeExceptionally(new RejectedExecutionException(threadName + " is not accepting calls"));
+        return task.future;
+    }
+
+    /**
+     * Run a command that returns a status code and wait for it, at most the default timeout.
+     *
+     * @return Returns the status code, {@link ErrorCodes#CALL_TIMEOUT} when the deadline passed and the reader is hung,
+     * {@link ErrorCodes#CALL_BUSY} when it passed while the reader was busy with a slower command, or
+     * {@link ErrorCodes#CALL_REJECTED} when the queue is full or the reader is hung.
+     */
+    public int call(Command<Integer> command) {
+        return call(command, timeoutNanos);
+    }
+
+    /**
+     * @param timeoutNanos The deadline of the command, measured from now.
+     * @see #call(Command)
+     */
+    public int call(Command<Integer> command, long timeoutNanos) {
+
+        var future = submit(command, timeoutNanos);
+        try {
+            return future.get(timeoutNanos, NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            return failIfHung() ? CALL_TIMEOUT : CALL_BUSY;
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            return CALL_REJECTED;
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof RejectedExecutionException) return CALL_REJECTED;
+            if (cause instanceof HungCallException) return CALL_TIMEOUT;
+            if (cause instanceof TimeoutException) return CALL_BUSY;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Stop accepting commands, fail the queued ones and let the owner thread exit.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        owner.interrupt();
+        failQueued(" is closed");
+    }
+
+    /**
+     * Mark the reader hung when the command the owner thread runs has overrun its deadline, and fail the commands
+     * queued behind it. A caller timing out while its command merely waited behind a slower one does not count.
+     *
+     * @return True if the running command was found hung by this call, False otherwise.
+     */
+    private synchronized boolean failIfHung() {
+        if (closed || hung || running == null || System.nanoTime() - running.deadlineNanos < 0) return false;
+        hung = true;
+        hungCalls++;
+        running.future.completeExceptionally(new HungCallException(threadName + " call timed out"));
+        failQueued(" is hung");
+        return true;
+    }
+
+    private void failQueued(String reason) {
+        Task<?> task;
+        while ((task = queue.poll()) != null)
+            task.future.completeExceptionally(new RejectedExecutionException(threadName + reason));
+    }
+
+    private void run() {
+
+        while (!closed) {
+
+            Task<?> task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+
+            synchronized (this) {
+                if (task.future.isDone()) continue;
+                if (System.nanoTime() - task.deadlineNanos >= 0) {
+                    task.future.completeExceptionally(new TimeoutException(threadName + " call expired in the queue"));
+                    continue;
+                }
+                running = task;
+            }
+
+            task.run(reader);
+
+            synchronized (this) {
+                // a hung call that returns leaves the reader to its caller to reset
+                running = null;
+                hung = false;
+            }
+        }
+    }
+
+    /**
+     * One unit of work against the reader, which may make several calls.
+     */
+    @FunctionalInterface
+    public interface Command<T> {
+        T execute(UfrReader reader);
+    }
+
+    /**
+     * Completes a command that overran its deadline inside the library, as opposed to one that expired in the queue.
+     */
+    private static class HungCallException extends TimeoutException {
+
+        private HungCallException(String message) {
+            super(message);
+        }
+    }
+
+    private static class Task<T> {
+
+        private final Command<T> command;
+        private final long deadlineNanos;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Task(Command<T> command, long deadlineNanos) {
+            this.command = command;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        private void run(UfrReader reader) {
+            try {
+                future.complete(command.execute(reader));
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.howellsmith.oss.nfcpipass.ufr;
 
 import com.sun.jna.Library;
+import com.sun.jna.Pointer;
 import com.sun.jna.ptr.ByteByReference;
 import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
 import com.sun.jna.ptr.ShortByReference;
 
 /**
@@ -294,4 +296,36 @@ public interface UfrDevice extends Library {
                               byte block_access_bits1, byte block_access_bits2, byte sector_trailer_access_bits,
                               byte sector_trailer_byte9, byte[] key_b, byte auth_mode, byte[] pk_key);
 
+    int ReaderList_UpdateAndGetCount(IntByReference number_of_devices);
+
+    int ReaderList_GetSerialByIndex(int device_index, IntByReference reader_serial);
+
+    int ReaderList_GetTypeByIndex(int device_index, IntByReference reader_type);
+
+    int ReaderList_OpenByIndex(int device_index, PointerByReference handle);
+
+    int ReaderCloseM(Pointer handle);
+
+    int ReaderResetM(Pointer handle);
+
+    int GetReaderTypeM(Pointer handle, int[] iaReaderType);
+
+    int GetReaderSerialNumberM(Pointer handle, int[] reader_serial);
+
+    int GetCardIdExM(Pointer handle, ByteByReference bCardType, byte[] baCardUID, ByteByReference bUidSize);
+
+    int ReadNdefRecord_TextM(Pointer handle, byte[] text);
+
+    int GetDlogicCardTypeM(Pointer handle, ByteByReference card_type);
+
+    int LinearReadM(Pointer handle, byte[] aucdata, int linear_address, int data_length, ShortByReference bytes_ret,
+                    byte auth_mode, byte key_index);
+
+    int WriteNdefRecord_TextM(Pointer handle, byte ndef_storage, String text);
+
+    int ndef_card_initializationM(Pointer handle);
+
+    int erase_all_ndef_recordsM(Pointer handle, byte message_nr);
+
+    int ReaderUISignalM(Pointer handle, int iLightMode, int iSoundMode);
 }
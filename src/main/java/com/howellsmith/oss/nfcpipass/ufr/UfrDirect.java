@@ -0,0 +1,100 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+/**
+ * Direct mapped binding of the uFR library functions on the poll path. {@link UfrDevice} goes through a reflective
+ * proxy that converts every argument on every call; the natives here are bound once with {@link Native#register} and
+ * take {@link Pointer pointers} to buffers the readers allocate once, see {@link DirectUfrReader} and
+ * {@link DirectHandleUfrReader}. Everything else stays on {@link UfrDevice}.
+ * <p>
+ * Natives are bound per class and per JVM, so the library can only be registered once. The handle based (M) functions
+ * are bound separately, as older libraries do not export them.
+ */
+public final class UfrDirect {
+
+    /**
+     * Readers through the proxy binding only.
+     */
+    public static final UfrDirect UNAVAILABLE = new UfrDirect(false, false);
+
+    private static boolean registered;
+    private static boolean handlesRegistered;
+
+    private final boolean available;
+    private final boolean handlesAvailable;
+
+    private UfrDirect(boolean available, boolean handlesAvailable) {
+        this.available = available;
+        this.handlesAvailable = handlesAvailable;
+    }
+
+    /**
+     * Bind the natives to the library, unless they already are.
+     *
+     * @param library The path of the uFR library.
+     * @return Returns the binding, which falls back to the proxy for the functions that could not be bound.
+     */
+    public static synchronized UfrDirect register(String library) {
+        if (!registered) {
+            try {
+                Native.register(UfrDirect.class, library);
+                registered = true;
+            } catch (UnsatisfiedLinkError | IllegalArgumentException e) {
+                return UNAVAILABLE;
+            }
+        }
+        if (!handlesRegistered) {
+            try {
+                Native.register(Handles.class, library);
+                handlesRegistered = true;
+            } catch (UnsatisfiedLinkError | IllegalArgumentException e) {
+                // the single reader functions are still used
+            }
+        }
+        return new UfrDirect(true, handlesRegistered);
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public boolean isHandlesAvailable() {
+        return handlesAvailable;
+    }
+
+    /**
+     * @return Returns the reader the library opens by default, bound directly if possible.
+     */
+    public UfrReader defaultReader(UfrDevice device) {
+        return available ? new DirectUfrReader(device) : new DefaultUfrReader(device);
+    }
+
+    /**
+     * @return Returns a reader driven through the handle based functions, bound directly if possible.
+     */
+    public HandleUfrReader handleReader(UfrDevice device, String serial) {
+        return handlesAvailable ? new DirectHandleUfrReader(device, serial) : new HandleUfrReader(device, serial);
+    }
+
+    static native int GetReaderType(Pointer readerType);
+
+    static native int GetCardIdEx(Pointer cardType, Pointer uid, Pointer uidSize);
+
+    static native int ReadNdefRecord_Text(Pointer text);
+
+    /**
+     * The handle based (M) functions on the poll path.
+     */
+    static final class Handles {
+
+        private Handles() {}
+
+        static native int GetReaderTypeM(Pointer handle, Pointer readerType);
+
+        static native int GetCardIdExM(Pointer handle, Pointer cardType, Pointer uid, Pointer uidSize);
+
+        static native int ReadNdefRecord_TextM(Pointer handle, Pointer text);
+    }
+}
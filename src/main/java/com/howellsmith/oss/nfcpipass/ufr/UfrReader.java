@@ -0,0 +1,57 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.sun.jna.ptr.ByteByReference;
+import com.sun.jna.ptr.ShortByReference;
+
+/**
+ * A single uFR reader, as used by a poll worker. Every call returns the status code reported by the reader and writes
+ * its results into the buffers it is given, so a worker can poll without allocating.
+ */
+public interface UfrReader {
+
+    /**
+     * @return Returns the serial number of the reader formatted as hex, or null while it is not known.
+     */
+    String getSerial();
+
+    int open();
+
+    int close();
+
+    int reset();
+
+    int getReaderType(int[] readerType);
+
+    int getCardIdEx(ByteByReference cardType, byte[] uid, ByteByReference uidSize);
+
+    int readNdefText(byte[] text);
+
+    int getDlogicCardType(ByteByReference cardType);
+
+    /**
+     * Read the user memory of the tag in the field, without authentication.
+     *
+     * @param data      The buffer to read into, from its first byte.
+     * @param address   The linear address to start at.
+     * @param length    The number of bytes to read.
+     * @param bytesRead Receives the number of bytes actually read.
+     */
+    int linearRead(byte[] data, int address, int length, ShortByReference bytesRead);
+
+    int writeNdefText(byte ndefStorage, String text);
+
+    /**
+     * Format a blank tag for NDEF.
+     */
+    int initializeNdef();
+
+    /**
+     * Erase every record of the NDEF message on the tag.
+     */
+    int eraseNdef();
+
+    /**
+     * Flash the light and sound the beeper of the reader.
+     */
+    int uiSignal(int lightMode, int soundMode);
+}
@@ -60,11 +60,43 @@ public class Utilities {
                             ? LIB_POSTFIX_SEPARATOR + GET_NATIVE_LIBRARY_FILE_NAME_POSTFIX.get()
                             : LIB_PART_BLANK,
                     GET_NATIVE_LIBRARY_FILE_EXTENSION.get());
-    public static final Supplier<String> NATIVE_LIBRARY_ABSOLUTE_PATH = () ->
-            String.join(File.separator, LIB_PREFIX_LIB,
-                    isMac() ? LIB_PATH_MAC : isLinux() ? LIB_PATH_LINUX : isWindows() ? LIB_PATH_WINDOWS : LIB_PART_BLANK,
-                    isARM() ? LIB_PLATFORM_ARM : LIB_PLATFORM_X86 + LIB_PLATFORM_64BIT,
-                    NATIVE_LIBRARY_FILE_NAME.get());
+    // the platform does not change while running, so the path is resolved once
+    private static final String NATIVE_LIBRARY_PATH = String.join(File.separator, LIB_PREFIX_LIB,
+            isMac() ? LIB_PATH_MAC : isLinux() ? LIB_PATH_LINUX : isWindows() ? LIB_PATH_WINDOWS : LIB_PART_BLANK,
+            isARM() ? LIB_PLATFORM_ARM : LIB_PLATFORM_X86 + LIB_PLATFORM_64BIT,
+            NATIVE_LIBRARY_FILE_NAME.get());
+    public static final Supplier<String> NATIVE_LIBRARY_ABSOLUTE_PATH = () -> NATIVE_LIBRARY_PATH;
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
 
+    /**
+     * Format a status code or reader type the way the uFR documentation does, e.g. 0x000000FF. Replaces
+     * String.format("0x%08X", value), which parses the pattern and allocates a formatter on every call.
+     *
+     * @param value The value to format.
+     * @return Returns the zero padded, upper case hex representation.
+     */
+    public static String toPaddedHex(int value) {
+        var chars = new char[10];
+        chars[0] = '0';
+        chars[1] = 'x';
+        for (int i = chars.length - 1; i > 1; i--, value >>>= 4) chars[i] = HEX_DIGITS[value & 0xF];
+        return new String(chars);
+    }
+
+    /**
+     * Format a tag uid as upper case hex, in the byte order reported by the reader.
+     *
+     * @param bytes  The buffer holding the uid.
+     * @param length The number of valid bytes in the buffer.
+     * @return Returns the hex representation, two characters per byte.
+     */
+    public static String toHex(byte[] bytes, int length) {
+        var chars = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
 }
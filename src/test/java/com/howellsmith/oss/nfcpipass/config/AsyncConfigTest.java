@@ -0,0 +1,33 @@
+package com.howellsmith.oss.nfcpipass.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncConfigTest {
+
+    @Test
+    void test_virtual_mode_falls_back_to_the_pool_without_virtual_threads() throws Exception {
+
+        var executor = new AsyncConfig("virtual", 2, 2, "test_async_").taskExecutor();
+        assertEquals(!VirtualThreads.isAvailable(), executor instanceof ThreadPoolTaskExecutor);
+
+        var thread = new CompletableFuture<String>();
+        executor.execute(() -> thread.complete(Thread.currentThread().getName()));
+        assertTrue(thread.get(1, TimeUnit.SECONDS).startsWith("test_async_"));
+
+        if (executor instanceof ThreadPoolTaskExecutor) ((ThreadPoolTaskExecutor) executor).shutdown();
+    }
+
+    @Test
+    void test_platform_mode_uses_the_pool() {
+        var executor = new AsyncConfig("platform", 2, 2, "test_async_").taskExecutor();
+        assertTrue(executor instanceof ThreadPoolTaskExecutor);
+        ((ThreadPoolTaskExecutor) executor).shutdown();
+    }
+}
@@ -0,0 +1,111 @@
+package com.howellsmith.oss.nfcpipass.config;
+
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import com.howellsmith.oss.nfcpipass.service.ReaderEventBus;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationEventMulticaster;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures publishing a tap through the reader event bus configured by {@link EventConfig}, against synchronous dispatch
+ * and against the multicaster it replaced, which handed every listener invocation to the bounded task executor;
+ * rejections are counted rather than failing the benchmark, since that is what the poll thread saw when the queue was
+ * full.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+    private static final int LISTENERS = 5;
+
+    private final LongAdder delivered = new LongAdder();
+
+    private ThreadPoolTaskExecutor executor;
+    private SimpleApplicationEventMulticaster async;
+    private ReaderEventBus bus;
+    private ApplicationEventMulticaster sync;
+    private TagArrivedEvent event;
+
+    @Setup
+    public void setup() {
+
+        executor = (ThreadPoolTaskExecutor) new AsyncConfig("platform", 10, 10, "benchmark_").taskExecutor();
+        async = new SimpleApplicationEventMulticaster();
+        async.setTaskExecutor(executor);
+        bus = new EventConfig(1024, null).multicaster();
+        sync = new SimpleApplicationEventMulticaster();
+
+        for (int i = 0; i < LISTENERS; i++) {
+            ApplicationListener<TagArrivedEvent> listener = e -> delivered.increment();
+            async.addApplicationListener(listener);
+            bus.addApplicationListener(listener);
+            sync.addApplicationListener(listener);
+        }
+
+        event = new TagArrivedEvent(this, "0x0001E240", 0x0706050403020100L, "0001020304050607",
+                NdefMessage.ofText("benchmark", "en"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+        bus.close();
+    }
+
+    @Benchmark
+    public void multicastBus() {
+        bus.multicastEvent(event);
+    }
+
+    @Benchmark
+    public void multicastAsync(Rejections rejections) {
+        try {
+            async.multicastEvent(event);
+        } catch (TaskRejectedException e) {
+            rejections.rejected++;
+        }
+    }
+
+    @Benchmark
+    public void multicastSync() {
+        sync.multicastEvent(event);
+    }
+
+    /**
+     * Counts the events the async multicaster could not hand to the executor.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Rejections {
+
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rejected = 0;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.howellsmith.oss.nfcpipass.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.howellsmith.oss.nfcpipass.model.log.error.ExceptionalErrorLog;
+import com.howellsmith.oss.nfcpipass.model.state.ReaderState;
+import com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_EXCEPTION;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_POLL_CYCLE_FAILURE;
+
+/**
+ * Measures Jackson serialization with the mapper from {@link MapperConfig} for the objects the application writes
+ * most: reader state snapshots and error logs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectMapper mapper;
+    private ReaderState state;
+    private ExceptionalErrorLog errorLog;
+
+    @Setup
+    public void setup() {
+
+        mapper = new MapperConfig().getForgivingMapper();
+
+        state = ReaderState.builder()
+                .connected(true)
+                .deviceId("0xD1380022")
+                .tagInField(true)
+                .uid(0x0706050403020100L)
+                .tagId("0001020304050607")
+                .ndef("benchmark")
+                .changedAt(System.currentTimeMillis())
+                .build();
+
+        var exception = new IllegalStateException("benchmark");
+        errorLog = ExceptionalErrorLog.builder()
+                .marker(MARKER_UNEXPECTED_EXCEPTION)
+                .message(MESSAGE_POLL_CYCLE_FAILURE)
+                .exceptionMessage(exception.getMessage())
+                .stackTrace(UnifiedLoggingService.getStackMap(exception))
+                .build();
+    }
+
+    @Benchmark
+    public byte[] readerState() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(state);
+    }
+
+    @Benchmark
+    public byte[] exceptionalErrorLog() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(errorLog);
+    }
+}
@@ -0,0 +1,100 @@
+package com.howellsmith.oss.nfcpipass.config;
+
+import com.howellsmith.oss.nfcpipass.dao.SensitiveDataRepository;
+import com.howellsmith.oss.nfcpipass.dao.UserRepository;
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import com.howellsmith.oss.nfcpipass.service.ReaderEventBus;
+import com.howellsmith.oss.nfcpipass.service.TagLookupService;
+import com.howellsmith.oss.nfcpipass.service.UnifiedLoggingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Load test of tap handling in each {@link AsyncConfig} mode: a burst of taps on 64 readers, one per thread, as the
+ * events of a reader are handled one at a time. Each tap is published through the reader event bus to a listener that
+ * looks the tag up through {@link TagLookupService}, whose repository is a stub that answers after {@code mongoMillis}.
+ * Sample time reports the percentiles of the time from publishing a tap to its listener returning. Virtual threads need Java 21; on an older JDK the virtual mode falls back to the pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(64)
+public class TapBurstBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"20"})
+    public long mongoMillis;
+
+    private final AtomicLong taps = new AtomicLong();
+    private final Map<String, CountDownLatch> pending = new ConcurrentHashMap<>();
+
+    private Executor executor;
+    private ReaderEventBus bus;
+
+    @Setup
+    public void setup() {
+
+        var users = mock(UserRepository.class);
+        when(users.findByRegisteredTagContaining(anyString())).thenAnswer(i -> {
+            Thread.sleep(mongoMillis);
+            return null;
+        });
+        var config = new AsyncConfig(mode, 10, 10, "burst_");
+        var tags = new TagLookupService(users, mock(SensitiveDataRepository.class), mock(UnifiedLoggingService.class),
+                new SimpleMeterRegistry(), config.lookupExecutor(), 1000, 60);
+
+        executor = config.taskExecutor();
+        bus = new EventConfig(1024, executor).multicaster();
+        bus.addApplicationListener((ApplicationListener<TagArrivedEvent>) e -> {
+            tags.findUser(e.getTagId());
+            pending.remove(e.getTagId()).countDown();
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        bus.close();
+        if (executor instanceof ThreadPoolTaskExecutor) ((ThreadPoolTaskExecutor) executor).shutdown();
+    }
+
+    @Benchmark
+    public void tap() throws InterruptedException {
+        var tagId = Long.toHexString(taps.incrementAndGet());
+        var handled = new CountDownLatch(1);
+        pending.put(tagId, handled);
+        var reader = Long.toHexString(Thread.currentThread().getId());
+        bus.multicastEvent(new TagArrivedEvent(this, reader, 0L, tagId, NdefMessage.EMPTY));
+        handled.await();
+    }
+}
@@ -0,0 +1,163 @@
+package com.howellsmith.oss.nfcpipass.model.ndef;
+
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefRecord.Tnf;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NdefMessageTest {
+
+    private static final int MB = 0x80;
+    private static final int ME = 0x40;
+    private static final int CF = 0x20;
+
+    @Test
+    void test_multi_record_message_from_type_2_memory() {
+
+        var key = new byte[300];
+        Arrays.fill(key, (byte) 0x5A);
+        var message = concat(
+                NdefMessage.record(MB, Tnf.WELL_KNOWN, ascii("T"), new byte[0], text("en", "pipass:0001")),
+                NdefMessage.record(0, Tnf.WELL_KNOWN, ascii("U"), new byte[0], uri(0x04, "example.com/tag")),
+                NdefMessage.record(0, Tnf.MIME_MEDIA, ascii("application/json"), ascii("cfg"), ascii("{}")),
+                NdefMessage.record(ME, Tnf.EXTERNAL, ascii("howellsmith.com:key"), new byte[0], key));
+
+        var parsed = NdefMessage.fromType2Memory(type2(message, 888), 888);
+        var records = parsed.getRecords();
+
+        assertEquals(4, records.size());
+        assertEquals(message.length, parsed.getLength());
+        assertEquals("pipass:0001", parsed.getText());
+        assertEquals("en", records.get(0).getLanguage());
+        assertEquals("https://example.com/tag", records.get(1).getUri());
+        assertTrue(records.get(2).is(Tnf.MIME_MEDIA, "application/json"));
+        assertEquals("cfg", records.get(2).getId());
+        assertEquals("howellsmith.com:key", records.get(3).getType());
+        assertNull(records.get(3).getId());
+        assertEquals(300, records.get(3).getPayloadLength());
+
+        var payload = new byte[300];
+        records.get(3).payload().get(payload);
+        assertArrayEquals(key, payload);
+    }
+
+    @Test
+    void test_chunked_record_is_reassembled() {
+
+        var message = concat(
+                chunk(MB | CF, Tnf.MIME_MEDIA, "text/plain", "hello "),
+                chunk(CF, Tnf.UNCHANGED, "", "chunked "),
+                chunk(ME, Tnf.UNCHANGED, "", "world"));
+
+        var parsed = NdefMessage.parse(message, 0, message.length);
+
+        assertEquals(1, parsed.getRecords().size());
+        var record = parsed.getRecords().get(0);
+        assertTrue(record.is(Tnf.MIME_MEDIA, "text/plain"));
+        assertEquals("hello chunked world", UTF_8.decode(record.payload()).toString());
+    }
+
+    @Test
+    void test_utf_16_text_and_absolute_uri() {
+
+        var body = "pi \u00e9".getBytes(UTF_16BE);
+        var payload = new byte[3 + body.length];
+        payload[0] = (byte) (0x80 | 2);
+        payload[1] = 'f';
+        payload[2] = 'r';
+        System.arraycopy(body, 0, payload, 3, body.length);
+        var message = concat(
+                NdefMessage.record(MB, Tnf.WELL_KNOWN, ascii("T"), new byte[0], payload),
+                NdefMessage.record(ME, Tnf.ABSOLUTE_URI, ascii("urn:nfc:pipass"), new byte[0], new byte[0]));
+
+        var parsed = NdefMessage.parse(message, 0, message.length);
+
+        assertEquals("pi \u00e9", parsed.getText());
+        assertEquals("fr", parsed.getRecords().get(0).getLanguage());
+        assertEquals("urn:nfc:pipass", parsed.getRecords().get(1).getUri());
+        assertNull(parsed.getRecords().get(1).getText());
+    }
+
+    @Test
+    void test_type_2_memory_without_ndef_message() {
+
+        var memory = new byte[48];
+        memory[0] = (byte) 0xFE;
+        assertNull(NdefMessage.fromType2Memory(memory, memory.length));
+
+        // a lock control TLV, then an empty NDEF message
+        memory = new byte[]{0x01, 0x03, (byte) 0xA0, 0x0C, 0x34, 0x03, 0x00, (byte) 0xFE};
+        assertEquals(NdefMessage.EMPTY, NdefMessage.fromType2Memory(memory, memory.length));
+    }
+
+    @Test
+    void test_malformed_messages_are_rejected() {
+
+        var record = NdefMessage.record(MB | ME, Tnf.WELL_KNOWN, ascii("T"), new byte[0], text("en", "truncated"));
+        var memory = type2(record, 48);
+
+        assertThrows(IllegalArgumentException.class, () -> NdefMessage.fromType2Memory(memory, 8));
+        assertThrows(IllegalArgumentException.class, () -> NdefMessage.parse(record, 0, record.length - 1));
+
+        var unterminated = chunk(MB | ME | CF, Tnf.MIME_MEDIA, "text/plain", "never ends");
+        assertThrows(IllegalArgumentException.class, () -> NdefMessage.parse(unterminated, 0, unterminated.length));
+    }
+
+    @Test
+    void test_text_only_read_round_trips() {
+
+        var message = NdefMessage.ofText("pipass:0001", "");
+
+        assertEquals("pipass:0001", message.getText());
+        assertEquals(NdefMessage.ofText("pipass:0001", ""), message);
+    }
+
+    private static byte[] type2(byte[] message, int size) {
+        var memory = new byte[size];
+        memory[0] = 0x03;
+        var offset = 2;
+        if (message.length < 0xFF) {
+            memory[1] = (byte) message.length;
+        } else {
+            memory[1] = (byte) 0xFF;
+            memory[2] = (byte) (message.length >>> 8);
+            memory[3] = (byte) message.length;
+            offset = 4;
+        }
+        System.arraycopy(message, 0, memory, offset, message.length);
+        memory[offset + message.length] = (byte) 0xFE;
+        return memory;
+    }
+
+    private static byte[] chunk(int flags, Tnf tnf, String type, String payload) {
+        return NdefMessage.record(flags, tnf, ascii(type), new byte[0], payload.getBytes(UTF_8));
+    }
+
+    private static byte[] text(String language, String text) {
+        return concat(new byte[]{(byte) language.length()}, ascii(language), text.getBytes(UTF_8));
+    }
+
+    private static byte[] uri(int prefix, String uri) {
+        return concat(new byte[]{(byte) prefix}, uri.getBytes(UTF_8));
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(US_ASCII);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        var out = new ByteArrayOutputStream();
+        for (var part : parts) out.writeBytes(part);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,71 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.domain.SensitiveData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Unlock latency of the records of one tag, at the default PBKDF2 iteration count. The first tap derives the tag key
+ * once and unwraps every record with it; while the tag stays in the field the key is cached. Deriving a key per record
+ * instead would cost {@code records} times the first tap's derivation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoBenchmark {
+
+    private static final String TAG = "0001020304050607";
+    private static final char[] PASSWORD = "correct horse battery staple".toCharArray();
+
+    @Param({"1", "10", "100"})
+    public int records;
+
+    private CryptoService crypto;
+    private List<SensitiveData> sealed;
+
+    @Setup
+    public void setup() throws GeneralSecurityException {
+        crypto = new CryptoService(new SimpleMeterRegistry(), 310_000, 3600, 65536);
+        sealed = new ArrayList<>();
+        for (int i = 0; i < records; i++) {
+            sealed.add(crypto.seal(TAG, PASSWORD, ("password-" + i).getBytes(UTF_8), sealed));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        crypto.close();
+    }
+
+    @Benchmark
+    public List<byte[]> unlockFirstTap() throws GeneralSecurityException {
+        crypto.forget(TAG);
+        return crypto.unlockAll(TAG, PASSWORD, sealed);
+    }
+
+    @Benchmark
+    public List<byte[]> unlockKeyCached() throws GeneralSecurityException {
+        return crypto.unlockAll(TAG, PASSWORD, sealed);
+    }
+}
@@ -0,0 +1,101 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.domain.SensitiveData;
+import com.howellsmith.oss.nfcpipass.model.event.TagDepartedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CryptoServiceTest {
+
+    private static final String TAG = "0001020304050607";
+    private static final char[] PASSWORD = "correct horse battery staple".toCharArray();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CryptoService crypto = new CryptoService(registry, 1000, 30, 64);
+
+    @AfterEach
+    void after_each() {
+        crypto.close();
+    }
+
+    @Test
+    void test_records_of_a_tag_unlock_with_one_derivation() throws GeneralSecurityException {
+
+        var first = crypto.seal(TAG, PASSWORD, "first secret".getBytes(UTF_8), List.of());
+        var second = crypto.seal(TAG, PASSWORD, "second secret".getBytes(UTF_8), List.of(first));
+        assertEquals(first.getSalt(), second.getSalt());
+        assertNotEquals(first.getWrappedKey(), second.getWrappedKey());
+
+        var plaintexts = crypto.unlockAll(TAG, PASSWORD, List.of(first, second));
+        assertArrayEquals("first secret".getBytes(UTF_8), plaintexts.get(0));
+        assertArrayEquals("second secret".getBytes(UTF_8), plaintexts.get(1));
+        assertEquals(1L, registry.get("crypto.kdf").timer().count());
+
+        // the key is zeroized when the tag departs, the next tap derives it again
+        crypto.onTagDeparted(new TagDepartedEvent(this, "reader", 0L, TAG));
+        assertEquals(0.0, registry.get("crypto.key_cache.size").gauge().value());
+        assertArrayEquals("first secret".getBytes(UTF_8), crypto.unlock(TAG, PASSWORD, first));
+        assertEquals(2L, registry.get("crypto.kdf").timer().count());
+    }
+
+    @Test
+    void test_records_sealed_in_separate_sessions_unlock_with_one_derivation() throws GeneralSecurityException {
+
+        var first = crypto.seal(TAG, PASSWORD, "first secret".getBytes(UTF_8), List.of());
+        crypto.forget(TAG);
+        var second = crypto.seal(TAG, PASSWORD, "second secret".getBytes(UTF_8), List.of(first));
+        crypto.forget(TAG);
+        assertEquals(first.getSalt(), second.getSalt());
+        assertEquals(2L, registry.get("crypto.kdf").timer().count());
+
+        var plaintexts = crypto.unlockAll(TAG, PASSWORD, List.of(first, second));
+        assertArrayEquals("first secret".getBytes(UTF_8), plaintexts.get(0));
+        assertArrayEquals("second secret".getBytes(UTF_8), plaintexts.get(1));
+        assertEquals(3L, registry.get("crypto.kdf").timer().count());
+    }
+
+    @Test
+    void test_wrong_password_or_tag_does_not_unlock() throws GeneralSecurityException {
+
+        var record = crypto.seal(TAG, PASSWORD, "secret".getBytes(UTF_8), List.of());
+
+        // the cached key is not handed out for another password
+        assertThrows(GeneralSecurityException.class,
+                () -> crypto.unlock(TAG, "wrong".toCharArray(), record));
+        assertThrows(GeneralSecurityException.class,
+                () -> crypto.unlock("0706050403020100", PASSWORD, record));
+        assertThrows(GeneralSecurityException.class,
+                () -> crypto.unlock(TAG, PASSWORD, SensitiveData.builder().tagId(TAG).data("").build()));
+
+        assertArrayEquals("secret".getBytes(UTF_8), crypto.unlock(TAG, PASSWORD, record));
+    }
+
+    @Test
+    void test_streams_are_sealed_under_the_tag_key() throws Exception {
+
+        var plaintext = new byte[1000];
+        new Random(1).nextBytes(plaintext);
+
+        var sealed = crypto.sealStream(TAG, PASSWORD, new ByteArrayInputStream(plaintext), List.of());
+        var content = sealed.getContent().readAllBytes();
+        assertNull(sealed.getRecord().getData());
+
+        try (var unlocked = crypto.unlockStream(TAG, PASSWORD, sealed.getRecord(), new ByteArrayInputStream(content))) {
+            assertArrayEquals(plaintext, unlocked.readAllBytes());
+        }
+        assertEquals(1L, registry.get("crypto.kdf").timer().count());
+    }
+}
@@ -1,9 +1,18 @@
 package com.howellsmith.oss.nfcpipass.service;
 
-import com.howellsmith.oss.nfcpipass.model.event.DeviceConnectionStatusEvent;
-import com.howellsmith.oss.nfcpipass.model.event.TagInFieldEvent;
+import com.howellsmith.oss.nfcpipass.model.event.NdefChangedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.ReaderConnectedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.ReaderLostEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagDepartedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagDetectedEvent;
+import com.howellsmith.oss.nfcpipass.ufr.CardTypes;
+import com.howellsmith.oss.nfcpipass.ufr.DefaultUfrReader;
+import com.howellsmith.oss.nfcpipass.ufr.SimulatedUfrDevice;
+import com.howellsmith.oss.nfcpipass.ufr.UfrCallExecutor;
 import com.howellsmith.oss.nfcpipass.ufr.UfrDevice;
 import com.sun.jna.ptr.ByteByReference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Order;
@@ -19,24 +28,30 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_CRITICAL_INFORMATION;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_READER_STATUS;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NFC_GET_READER_TYPE_FAILURE;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NFC_READER_CONNECT_FAILURE;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NFC_READER_CONNECT_SUCCESS;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_NFC_READER_READ_NDEF_FAIL;
 import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_UNEXPECTED_READER_STATUS;
 import static com.howellsmith.oss.nfcpipass.service.HardwareManagementService.DeviceStatusLogWrapper;
+import static com.howellsmith.oss.nfcpipass.service.ReaderConnection.UFR_NANO;
 import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
 import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.NO_CARD;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
 import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyByte;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
@@ -52,17 +67,21 @@ class HardwareManagementServiceTest {
     private static UnifiedLoggingService log;
     private static UfrDevice device;
     private static ApplicationEventPublisher publisher;
+    private static SimpleMeterRegistry registry;
+    private static final AtomicLong replugs = new AtomicLong();
     private static HardwareManagementService service;
     private static Method poll;
 
-    private static final String DCSE = "DeviceConnectionStatusEvent";
-    private static final String TIFE = "TagInFieldEvent";
     private static final Answer<Integer> GET_CARD_ID_EX_ANSWER = i -> {
         i.getArgument(0, ByteByReference.class).setValue((byte) 0xFF);
         i.getArgument(2, ByteByReference.class).setValue((byte) 0x08);
         for (int b = 0; b < 8; b++) i.getArgument(1, byte[].class)[b] = (byte) b;
         return DL_OK;
     };
+    private static final Answer<Integer> GET_READER_TYPE_ANSWER = i -> {
+        System.arraycopy(new int[]{1, 1}, 0, i.getArgument(0, int[].class), 0, 2);
+        return DL_OK;
+    };
 
     private final List<ApplicationEvent> trashEventList = new ArrayList<>();
     private final List<DeviceStatusLogWrapper> trashLogEvents = new ArrayList<>();
@@ -74,9 +93,11 @@ class HardwareManagementServiceTest {
         log = mock(UnifiedLoggingService.class);
         device = mock(UfrDevice.class);
         publisher = mock(ApplicationEventPublisher.class);
+        registry = new SimpleMeterRegistry();
 
         // setup service
-        service = new HardwareManagementService(log, device, publisher);
+        service = new HardwareManagementService(log, new UfrCallExecutor(new DefaultUfrReader(device)),
+                new ReaderMetrics(registry), publisher, replugs::get, new TagImageCache(16L), 888);
 
         // enable access
         poll = service.getClass().getDeclaredMethod("poll");
@@ -99,6 +120,9 @@ class HardwareManagementServiceTest {
 
         when(device.ReaderOpen())
                 .thenReturn(DL_OK);
+        doAnswer(GET_READER_TYPE_ANSWER)
+                .when(device)
+                .GetReaderType(any(int[].class));
         doAnswer(GET_CARD_ID_EX_ANSWER)
                 .when(device)
                 .GetCardIdEx(any(), any(), any());
@@ -112,10 +136,10 @@ class HardwareManagementServiceTest {
         var logCaptor = ArgumentCaptor.forClass(DeviceStatusLogWrapper.class);
 
         // Emulate the poll for the first time
-        poll.invoke(service);
+        assertEquals(true, poll.invoke(service));
 
         // Install the captors
-        verify(publisher, times(2))
+        verify(publisher, times(3))
                 .publishEvent(publishCaptor.capture());
         verify(log, times(1))
                 .info(logCaptor.capture());
@@ -126,25 +150,16 @@ class HardwareManagementServiceTest {
         var capturedLogEvents = logCaptor.getAllValues();
         trashLogEvents.addAll(capturedLogEvents);
 
-        DeviceConnectionStatusEvent expectedEvent0 = null;
-        TagInFieldEvent expectedEvent1 = null;
-
-        for (var event : capturedPublishEvents)
-            switch (event.getClass().getSimpleName()) {
-                case DCSE:
-                    expectedEvent0 = (DeviceConnectionStatusEvent) event;
-                    break;
-                case TIFE:
-                    expectedEvent1 = (TagInFieldEvent) event;
-            }
+        var expectedEvent0 = (ReaderConnectedEvent) capturedPublishEvents.get(0);
+        assertEquals("0x00000001", expectedEvent0.getDeviceId());
 
-        assertNotNull(expectedEvent0);
-        assertTrue(expectedEvent0.isConnected());
+        var detected = (TagDetectedEvent) capturedPublishEvents.get(1);
+        assertEquals("0001020304050607", detected.getTagId());
 
-        assertNotNull(expectedEvent1);
+        var expectedEvent1 = (TagArrivedEvent) capturedPublishEvents.get(2);
         assertEquals("TESTING", expectedEvent1.getNdef());
-        assertTrue(expectedEvent1.isDeviceInField());
         assertEquals(0x0706050403020100L, expectedEvent1.getUid());
+        assertEquals("0001020304050607", expectedEvent1.getTagId());
 
         var statusWrapper = capturedLogEvents.get(0);
         assertEquals(MARKER_CRITICAL_INFORMATION, statusWrapper.getMarker());
@@ -152,6 +167,12 @@ class HardwareManagementServiceTest {
         assertEquals("0x00000000", statusWrapper.getStatus());
         assertNull(statusWrapper.getDeviceId());
 
+        var state = service.getState();
+        assertTrue(state.isConnected());
+        assertTrue(state.isTagInField());
+        assertEquals(0x0706050403020100L, state.getUid());
+        assertEquals("TESTING", state.getNdef());
+
         verify(device, times(1))
                 .ReaderOpen();
         verify(device, times(1))
@@ -162,165 +183,168 @@ class HardwareManagementServiceTest {
 
     @Test
     @Order(2)
-    void test_connect_then_invalid_card() throws InvocationTargetException, IllegalAccessException {
+    void test_same_card_served_from_cache() throws InvocationTargetException, IllegalAccessException {
+
+        doAnswer(GET_CARD_ID_EX_ANSWER)
+                .when(device)
+                .GetCardIdEx(any(), any(), any());
+        doAnswer(GET_READER_TYPE_ANSWER)
+                .when(device)
+                .GetReaderType(any(int[].class));
+
+        assertEquals(false, poll.invoke(service));
+        assertEquals(false, poll.invoke(service));
+
+        // no transition, so nothing new is published, and the tag is not read again
+        verify(publisher, times(3))
+                .publishEvent(any());
+        verify(device, times(2))
+                .GetCardIdEx(any(), any(), any());
+        verify(device, times(0))
+                .ReadNdefRecord_Text(any());
+
+        assertEquals(2, service.getNdefCacheHits());
+        assertEquals(1, service.getNdefCacheMisses());
+    }
+
+    @Test
+    @Order(3)
+    void test_write_then_failed_read_is_silent() throws InvocationTargetException, IllegalAccessException {
 
+        when(device.WriteNdefRecord_Text(anyByte(), any()))
+                .thenReturn(DL_OK);
         when(device.ReadNdefRecord_Text(any()))
                 .thenReturn(0xFF);
         doAnswer(GET_CARD_ID_EX_ANSWER)
                 .when(device)
                 .GetCardIdEx(any(), any(), any());
-        doAnswer((Answer<Integer>) i -> {
-            System.arraycopy(new int[]{1, 1}, 0, i.getArgument(0, int[].class), 0, 2);
-            return DL_OK;
-        }).when(device).GetReaderType(any(int[].class));
+        doAnswer(GET_READER_TYPE_ANSWER)
+                .when(device)
+                .GetReaderType(any(int[].class));
 
-        var publishCaptor = ArgumentCaptor.forClass(ApplicationEvent.class);
         var logCaptor = ArgumentCaptor.forClass(DeviceStatusLogWrapper.class);
 
-        poll.invoke(service);
+        assertEquals(DL_OK, service.writeNdefText("CHANGED"));
+        assertEquals(false, poll.invoke(service));
 
-        verify(publisher, times(4))
-                .publishEvent(publishCaptor.capture());
+        // the write invalidated the cache, the read failed and the last good read is kept
+        verify(device, times(1))
+                .ReadNdefRecord_Text(any());
+        verify(publisher, times(3))
+                .publishEvent(any());
         verify(log, times(1))
                 .error(logCaptor.capture());
 
-        var capturedPublishEvents = publishCaptor.getAllValues();
-        capturedPublishEvents.removeAll(trashEventList);
-        trashEventList.addAll(capturedPublishEvents);
-
         var capturedLogEvent = logCaptor.getAllValues();
         capturedLogEvent.removeAll(trashLogEvents);
         trashLogEvents.addAll(capturedLogEvent);
 
         assertEquals(1, capturedLogEvent.size());
-        assertEquals(2, capturedPublishEvents.size());
-
-        DeviceConnectionStatusEvent expectedEvent0 = null;
-        TagInFieldEvent expectedEvent1 = null;
-
-        for (var event : capturedPublishEvents)
-            switch (event.getClass().getSimpleName()) {
-                case DCSE:
-                    expectedEvent0 = (DeviceConnectionStatusEvent) event;
-                    break;
-                case TIFE:
-                    expectedEvent1 = (TagInFieldEvent) event;
-            }
 
-        assertNotNull(expectedEvent0);
-        assertTrue(expectedEvent0.isConnected());
+        var statusWrapper = capturedLogEvent.get(0);
+        assertEquals(MARKER_UNEXPECTED_READER_STATUS, statusWrapper.getMarker());
+        assertEquals(MESSAGE_NFC_READER_READ_NDEF_FAIL, statusWrapper.getMessage());
 
-        assertNotNull(expectedEvent1);
-        assertTrue(expectedEvent1.isDeviceInField());
-        assertEquals(0x0706050403020100L, expectedEvent1.getUid());
-        assertNull(expectedEvent1.getNdef());
+        assertEquals("TESTING", service.getState().getNdef());
     }
 
     @Test
-    @Order(3)
-    void test_connect_then_no_card() throws InvocationTargetException, IllegalAccessException {
+    @Order(4)
+    void test_same_card_ndef_changed() throws InvocationTargetException, IllegalAccessException {
 
-        when(device.GetCardIdEx(any(), any(), any()))
-                .thenReturn(NO_CARD);
+        doAnswer(GET_CARD_ID_EX_ANSWER)
+                .when(device)
+                .GetCardIdEx(any(), any(), any());
+        doAnswer(GET_READER_TYPE_ANSWER)
+                .when(device)
+                .GetReaderType(any(int[].class));
         doAnswer((Answer<Integer>) i -> {
-            System.arraycopy(new int[]{1, 1}, 0, i.getArgument(0, int[].class), 0, 2);
+            System.arraycopy("CHANGED".getBytes(), 0, i.getArgument(0, byte[].class), 0, 7);
             return DL_OK;
-        }).when(device).GetReaderType(any(int[].class));
+        }).when(device).ReadNdefRecord_Text(any());
 
         var publishCaptor = ArgumentCaptor.forClass(ApplicationEvent.class);
-        var logCaptor = ArgumentCaptor.forClass(DeviceStatusLogWrapper.class);
 
-        poll.invoke(service);
+        assertEquals(true, poll.invoke(service));
+        assertEquals(false, poll.invoke(service));
 
-        verify(publisher, times(6))
+        verify(publisher, times(4))
                 .publishEvent(publishCaptor.capture());
-        verify(log, times(1))
-                .info(logCaptor.capture());
+        verify(device, times(1))
+                .ReadNdefRecord_Text(any());
 
         var capturedPublishEvents = publishCaptor.getAllValues();
         capturedPublishEvents.removeAll(trashEventList);
         trashEventList.addAll(capturedPublishEvents);
 
-        var capturedLogEvent = logCaptor.getAllValues();
-        capturedLogEvent.removeAll(trashLogEvents);
-        trashLogEvents.addAll(capturedLogEvent);
+        assertEquals(1, capturedPublishEvents.size());
 
-        assertEquals(0, capturedLogEvent.size());
-        assertEquals(2, capturedPublishEvents.size());
+        var expectedEvent0 = (NdefChangedEvent) capturedPublishEvents.get(0);
+        assertEquals("CHANGED", expectedEvent0.getNdef());
+        assertEquals(0x0706050403020100L, expectedEvent0.getUid());
+    }
 
-        DeviceConnectionStatusEvent expectedEvent0 = null;
-        TagInFieldEvent expectedEvent1 = null;
+    @Test
+    @Order(5)
+    void test_connect_then_no_card() throws InvocationTargetException, IllegalAccessException {
 
-        for (var event : capturedPublishEvents)
-            switch (event.getClass().getSimpleName()) {
-                case DCSE:
-                    expectedEvent0 = (DeviceConnectionStatusEvent) event;
-                    break;
-                case TIFE:
-                    expectedEvent1 = (TagInFieldEvent) event;
-            }
+        when(device.GetCardIdEx(any(), any(), any()))
+                .thenReturn(NO_CARD);
+        doAnswer(GET_READER_TYPE_ANSWER)
+                .when(device)
+                .GetReaderType(any(int[].class));
+
+        var publishCaptor = ArgumentCaptor.forClass(ApplicationEvent.class);
+
+        assertEquals(true, poll.invoke(service));
+        assertEquals(false, poll.invoke(service));
+
+        verify(publisher, times(5))
+                .publishEvent(publishCaptor.capture());
+        verify(log, times(1))
+                .info(any());
+
+        var capturedPublishEvents = publishCaptor.getAllValues();
+        capturedPublishEvents.removeAll(trashEventList);
+        trashEventList.addAll(capturedPublishEvents);
+
+        assertEquals(1, capturedPublishEvents.size());
 
-        assertNotNull(expectedEvent0);
-        assertTrue(expectedEvent0.isConnected());
+        var expectedEvent0 = (TagDepartedEvent) capturedPublishEvents.get(0);
+        assertEquals(0x0706050403020100L, expectedEvent0.getUid());
 
-        assertNotNull(expectedEvent1);
-        assertFalse(expectedEvent1.isDeviceInField());
-        assertNull(expectedEvent1.getUid());
-        assertNull(expectedEvent1.getNdef());
+        var state = service.getState();
+        assertTrue(state.isConnected());
+        assertFalse(state.isTagInField());
+        assertNull(state.getUid());
+        assertNull(state.getNdef());
     }
 
     @Test
-    @Order(4)
+    @Order(6)
     void test_connect_then_unknown_status() throws InvocationTargetException, IllegalAccessException {
 
         when(device.GetCardIdEx(any(), any(), any()))
                 .thenReturn(0xFF);
-        doAnswer((Answer<Integer>) i -> {
-            System.arraycopy(new int[]{1, 1}, 0, i.getArgument(0, int[].class), 0, 2);
-            return DL_OK;
-        }).when(device).GetReaderType(any(int[].class));
+        doAnswer(GET_READER_TYPE_ANSWER)
+                .when(device)
+                .GetReaderType(any(int[].class));
 
         // Setup argument captors for log and event validation
-        var publishCaptor = ArgumentCaptor.forClass(ApplicationEvent.class);
         var logCaptor = ArgumentCaptor.forClass(DeviceStatusLogWrapper.class);
 
-        poll.invoke(service);
+        assertEquals(false, poll.invoke(service));
 
-        verify(publisher, times(8))
-                .publishEvent(publishCaptor.capture());
+        verify(publisher, times(5))
+                .publishEvent(any());
         verify(log, times(2))
                 .error(logCaptor.capture());
 
-        var capturedPublishEvents = publishCaptor.getAllValues();
-        capturedPublishEvents.removeAll(trashEventList);
-        trashEventList.addAll(capturedPublishEvents);
-
         var capturedLogEvent = logCaptor.getAllValues();
         capturedLogEvent.removeAll(trashLogEvents);
         trashLogEvents.addAll(capturedLogEvent);
 
         assertEquals(1, capturedLogEvent.size());
-        assertEquals(2, capturedPublishEvents.size());
-
-        DeviceConnectionStatusEvent expectedEvent0 = null;
-        TagInFieldEvent expectedEvent1 = null;
-
-        for (var event : capturedPublishEvents)
-            switch (event.getClass().getSimpleName()) {
-                case DCSE:
-                    expectedEvent0 = (DeviceConnectionStatusEvent) event;
-                    break;
-                case TIFE:
-                    expectedEvent1 = (TagInFieldEvent) event;
-            }
-
-        assertNotNull(expectedEvent0);
-        assertTrue(expectedEvent0.isConnected());
-
-        assertNotNull(expectedEvent1);
-        assertFalse(expectedEvent1.isDeviceInField());
-        assertNull(expectedEvent1.getUid());
-        assertNull(expectedEvent1.getNdef());
 
         var statusWrapper = capturedLogEvent.get(0);
         assertEquals(MARKER_UNEXPECTED_READER_STATUS, statusWrapper.getMarker());
@@ -330,7 +354,7 @@ class HardwareManagementServiceTest {
     }
 
     @Test
-    @Order(5)
+    @Order(7)
     void test_previous_connect_success_to_no_device() throws InvocationTargetException, IllegalAccessException {
 
         when(device.GetReaderType(any(int[].class))).thenReturn(0xFF);
@@ -338,9 +362,9 @@ class HardwareManagementServiceTest {
         var publishCaptor = ArgumentCaptor.forClass(ApplicationEvent.class);
         var logCaptor = ArgumentCaptor.forClass(DeviceStatusLogWrapper.class);
 
-        poll.invoke(service);
+        assertEquals(true, poll.invoke(service));
 
-        verify(publisher, times(9))
+        verify(publisher, times(6))
                 .publishEvent(publishCaptor.capture());
         verify(log, times(3))
                 .error(logCaptor.capture());
@@ -356,9 +380,10 @@ class HardwareManagementServiceTest {
         assertEquals(1, capturedLogEvent.size());
         assertEquals(1, capturedPublishEvents.size());
 
-        var expectedEvent0 = (DeviceConnectionStatusEvent) capturedPublishEvents.get(0);
-        assertNotNull(expectedEvent0);
-        assertFalse(expectedEvent0.isConnected());
+        var expectedEvent0 = (ReaderLostEvent) capturedPublishEvents.get(0);
+        assertEquals("0x00000001", expectedEvent0.getDeviceId());
+        assertEquals("0x000000FF", expectedEvent0.getStatus());
+        assertFalse(service.getState().isConnected());
 
         var statusWrapper = capturedLogEvent.get(0);
         assertEquals(MARKER_CRITICAL_INFORMATION, statusWrapper.getMarker());
@@ -368,35 +393,38 @@ class HardwareManagementServiceTest {
     }
 
     @Test
-    @Order(6)
+    @Order(8)
     void test_connect_fail() throws InvocationTargetException, IllegalAccessException {
 
         when(device.ReaderOpen()).thenReturn(0xFF);
 
-        var publishCaptor = ArgumentCaptor.forClass(ApplicationEvent.class);
         var logCaptor = ArgumentCaptor.forClass(DeviceStatusLogWrapper.class);
 
-        poll.invoke(service);
+        // the lost reader is settling, so it is not probed until it has settled or a usb device appears
+        assertEquals(false, poll.invoke(service));
+        verify(device, times(0))
+                .ReaderOpen();
+        replugs.incrementAndGet();
+        assertEquals(false, poll.invoke(service));
+        verify(device, times(1))
+                .ReaderOpen();
+
+        // backing off, and the failure is only logged once per outage
+        assertEquals(false, poll.invoke(service));
+        verify(device, times(1))
+                .ReaderOpen();
 
-        verify(publisher, times(10))
-                .publishEvent(publishCaptor.capture());
+        // still disconnected, so nothing new is published
+        verify(publisher, times(6))
+                .publishEvent(any());
         verify(log, times(4))
                 .error(logCaptor.capture());
 
-        var capturedPublishEvents = publishCaptor.getAllValues();
-        capturedPublishEvents.removeAll(trashEventList);
-        trashEventList.addAll(capturedPublishEvents);
-
         var capturedLogEvent = logCaptor.getAllValues();
         capturedLogEvent.removeAll(trashLogEvents);
         trashLogEvents.addAll(capturedLogEvent);
 
         assertEquals(1, capturedLogEvent.size());
-        assertEquals(1, capturedPublishEvents.size());
-
-        var expectedEvent0 = (DeviceConnectionStatusEvent) capturedPublishEvents.get(0);
-        assertNotNull(expectedEvent0);
-        assertFalse(expectedEvent0.isConnected());
 
         var statusWrapper = capturedLogEvent.get(0);
         assertEquals(MARKER_CRITICAL_INFORMATION, statusWrapper.getMarker());
@@ -404,4 +432,110 @@ class HardwareManagementServiceTest {
         assertNull(statusWrapper.getDeviceId());
         assertEquals("0x000000FF", statusWrapper.getStatus());
     }
+
+    @Test
+    @Order(9)
+    void test_uid_to_long_honours_uid_size() {
+
+        var uid = new byte[]{0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A};
+
+        assertEquals(0x04030201L, HardwareManagementService.uidToLong(uid, 4));
+        assertEquals(0x07060504030201L, HardwareManagementService.uidToLong(uid, 7));
+        assertEquals(0x0807060504030201L, HardwareManagementService.uidToLong(uid, 8));
+        assertEquals(0x0807060504030201L, HardwareManagementService.uidToLong(uid, 10));
+        assertEquals(0xFFL, HardwareManagementService.uidToLong(new byte[]{(byte) 0xFF}, 1));
+    }
+
+    @Test
+    @Order(10)
+    void test_calls_are_timed_and_counted_by_status() {
+
+        // every poll above went through GetCardIdEx, with a card present or not
+        assertTrue(registry.get("ufr.call").tag("call", "GetCardIdEx").timer().count() > 0);
+        assertTrue(registry.get("ufr.call.status").tags("call", "GetCardIdEx", "status", "DL_OK")
+                .counter().count() > 0);
+        assertTrue(registry.get("ufr.call.status").tags("call", "GetCardIdEx", "status", "NO_CARD")
+                .counter().count() > 0);
+        assertTrue(registry.get("ufr.call.status").tags("call", "ReaderOpen", "status", "DL_OK")
+                .counter().count() > 0);
+    }
+
+    @Test
+    @Order(11)
+    void test_type_2_tag_is_read_in_one_linear_read() {
+
+        // an NTAG213 holding an id record and a key record
+        var memory = new byte[]{
+                0x03, 0x23,
+                (byte) 0x91, 0x01, 0x0E, 'T', 0x02, 'e', 'n', 'p', 'i', 'p', 'a', 's', 's', ':', '0', '0', '0', '1',
+                0x54, 0x0A, 0x04, 'p', 'i', 'p', 'a', 's', 's', ':', 'k', 'e', 'y', 0x0A, 0x0B, 0x0C, 0x0D,
+                (byte) 0xFE};
+        var device = new SimulatedUfrDevice(UFR_NANO);
+        device.placeTag((byte) 0x44, new byte[]{1, 2, 3, 4, 5, 6, 7}, CardTypes.DL_NTAG_213, memory);
+        var events = new ArrayList<Object>();
+        var registry = new SimpleMeterRegistry();
+        var hardware = new HardwareManagementService(mock(UnifiedLoggingService.class), device,
+                new ReaderMetrics(registry), events::add);
+
+        assertTrue(hardware.poll());
+        assertFalse(hardware.poll());
+
+        // the uid is announced before the memory is read
+        assertEquals("01020304050607", ((TagDetectedEvent) events.get(1)).getTagId());
+        var arrived = (TagArrivedEvent) events.get(2);
+        var records = arrived.getNdefMessage().getRecords();
+        assertEquals("pipass:0001", arrived.getNdef());
+        assertEquals(2, records.size());
+        assertEquals("pipass:key", records.get(1).getType());
+        assertEquals(4, records.get(1).getPayloadLength());
+
+        assertEquals(1L, registry.get("ufr.call").tag("call", "LinearRead").timer().count());
+        assertEquals(0L, registry.find("ufr.call").tag("call", "ReadNdefRecord_Text").timers().stream()
+                .mapToLong(timer -> timer.count()).sum());
+    }
+
+    @Test
+    @Order(12)
+    void test_cycle_behind_a_slow_command_is_skipped_without_recycling() throws InterruptedException {
+
+        var device = new SimulatedUfrDevice(UFR_NANO);
+        device.placeTag((byte) 0x08, new byte[]{1, 2, 3, 4, 5, 6, 7}, "TESTING");
+        var events = new ArrayList<Object>();
+        var registry = new SimpleMeterRegistry();
+        var calls = new UfrCallExecutor(new DefaultUfrReader(device), 16, 50L, "test_busy");
+        var hardware = new HardwareManagementService(mock(UnifiedLoggingService.class), calls,
+                new ReaderMetrics(registry), events::add, () -> 0L, new TagImageCache(16L), 888);
+        assertTrue(hardware.poll());
+        var published = events.size();
+
+        // a command that takes longer than a poll call but stays within its own deadline
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        calls.submit(r -> {
+            started.countDown();
+            try {
+                release.await(5, SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return DL_OK;
+        }, SECONDS.toNanos(5));
+        assertTrue(started.await(1, SECONDS));
+
+        assertFalse(hardware.poll());
+        release.countDown();
+        assertFalse(hardware.poll());
+
+        // the reader was neither recycled nor taken to have lost the tag
+        assertEquals(published, events.size());
+        assertFalse(calls.isHung());
+        assertTrue(hardware.getState().isConnected());
+        assertTrue(hardware.getState().isTagInField());
+        assertTrue(registry.get("ufr.call.status").tags("call", "GetCardIdEx", "status", "CALL_BUSY")
+                .counter().count() > 0);
+
+        // the skipped call is timed from its submission, over the time it waited
+        assertTrue(registry.get("ufr.call").tag("call", "GetCardIdEx").timer().max(MILLISECONDS) >= 50.0);
+        calls.close();
+    }
 }
@@ -0,0 +1,166 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the shipper against a stub collector on a local port that records every request and can be made to fail.
+ */
+class HecShipperTest {
+
+    private static final String TOKEN = "00000000-0000-0000-0000-000000000000";
+    private static final int BATCH = 10;
+    private static final long LINGER = 50L;
+
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+
+    @TempDir
+    Path dir;
+
+    private HttpServer collector;
+    private HecShipper shipper;
+
+    @BeforeEach
+    void before_each() throws IOException {
+
+        collector = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        collector.createContext("/services/collector/raw", exchange -> {
+            var headers = exchange.getRequestHeaders();
+            var accepted = status.get() == 200
+                    && ("Splunk " + TOKEN).equals(headers.getFirst("Authorization"))
+                    && "gzip".equals(headers.getFirst("Content-Encoding"));
+            if (accepted) {
+                try (var body = new GZIPInputStream(exchange.getRequestBody())) {
+                    requests.add(List.of(new String(body.readAllBytes(), UTF_8).split("\n")));
+                }
+            }
+            exchange.sendResponseHeaders(accepted ? 200 : status.get(), -1);
+            exchange.close();
+        });
+        collector.start();
+    }
+
+    @AfterEach
+    void after_each() {
+        if (shipper != null) shipper.stop(5, SECONDS);
+        collector.stop(0);
+    }
+
+    private HecShipper shipper(long bufferBytes) {
+        var uri = URI.create("http://127.0.0.1:" + collector.getAddress().getPort() + "/services/collector/raw");
+        return new HecShipper(uri, TOKEN, BATCH, LINGER, bufferBytes, dir.resolve("spill.log"), 1024 * 1024,
+                50L, 1000L);
+    }
+
+    private static byte[] event(int i) {
+        return ("{\"n\":" + i + "}\n").getBytes(UTF_8);
+    }
+
+    private List<String> received() {
+        var events = new ArrayList<String>();
+        requests.forEach(events::addAll);
+        return events;
+    }
+
+    private static List<String> expected(int from, int to) {
+        var events = new ArrayList<String>();
+        for (int i = from; i < to; i++) events.add("{\"n\":" + i + "}");
+        return events;
+    }
+
+    private void awaitSent(long count) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5000L;
+        while (shipper.getSent() < count && System.currentTimeMillis() < deadline) Thread.sleep(10L);
+        assertEquals(count, shipper.getSent());
+    }
+
+    @Test
+    void test_batches_by_size_and_linger() throws InterruptedException {
+
+        shipper = shipper(1024 * 1024);
+        shipper.start();
+
+        for (int i = 0; i < BATCH * 2 + 3; i++) assertTrue(shipper.offer(event(i)));
+
+        // the last three only go out once they have lingered
+        awaitSent(BATCH * 2 + 3);
+        assertTrue(requests.size() >= 3);
+        requests.forEach(request -> assertTrue(request.size() <= BATCH));
+        assertEquals(expected(0, BATCH * 2 + 3), received());
+    }
+
+    @Test
+    void test_spills_while_unreachable_and_replays_in_order() throws InterruptedException, IOException {
+
+        status.set(503);
+        shipper = shipper(1024 * 1024);
+        shipper.start();
+
+        for (int i = 0; i < 25; i++) shipper.offer(event(i));
+        var deadline = System.currentTimeMillis() + 5000L;
+        while (shipper.getSpilled() < 25 && System.currentTimeMillis() < deadline) Thread.sleep(10L);
+        assertEquals(25, shipper.getSpilled());
+        assertTrue(requests.isEmpty());
+
+        // events logged during the outage queue up behind the spilled ones
+        for (int i = 25; i < 30; i++) shipper.offer(event(i));
+        status.set(200);
+        for (int i = 30; i < 35; i++) shipper.offer(event(i));
+
+        awaitSent(35);
+        assertEquals(expected(0, 35), received());
+        assertEquals(0L, Files.size(dir.resolve("spill.log")));
+        assertFalse(Files.exists(dir.resolve("spill.log.offset")));
+    }
+
+    @Test
+    void test_spilled_events_survive_a_restart() throws InterruptedException {
+
+        status.set(503);
+        shipper = shipper(1024 * 1024);
+        shipper.start();
+        for (int i = 0; i < 15; i++) shipper.offer(event(i));
+        shipper.stop(5, SECONDS);
+        assertEquals(15, shipper.getSpilled());
+
+        status.set(200);
+        shipper = shipper(1024 * 1024);
+        shipper.start();
+        shipper.offer(event(15));
+
+        awaitSent(16);
+        assertEquals(expected(0, 16), received());
+    }
+
+    @Test
+    void test_full_buffer_drops_instead_of_blocking() {
+
+        // never started, so nothing drains the buffer
+        shipper = shipper(event(0).length * 3L);
+
+        for (int i = 0; i < 3; i++) assertTrue(shipper.offer(event(i)));
+        assertFalse(shipper.offer(event(3)));
+        assertEquals(1, shipper.getDropped());
+    }
+}
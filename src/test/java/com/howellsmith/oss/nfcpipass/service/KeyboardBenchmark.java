@@ -0,0 +1,66 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.hid.KeyboardLayout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to type a 64 character password into /dev/null in place of the gadget, so 64 over the reported time is the
+ * characters per second the engine reaches at each report gap. A gap of 0 measures encoding and writing alone; 125us is
+ * one high speed USB microframe and 1000us the default, one full speed frame. The adaptive engine starts at 1000us and
+ * shrinks to the minimum as no write blocks. {@code encode} is the table lookup alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyboardBenchmark {
+
+    private static final char[] PASSWORD =
+            "Tr0ub4dor&3-correct.horse/battery:staple?aaBBcc!@#$%^&*()_+ZzYy9".toCharArray();
+
+    @Param({"0", "125", "1000"})
+    public long gapMicros;
+
+    @Param({"false", "true"})
+    public boolean adaptive;
+
+    private KeyboardService keyboard;
+
+    @Setup
+    public void setup() {
+        keyboard = new KeyboardService(new SimpleMeterRegistry(), "/dev/null", KeyboardLayout.US, 1, gapMicros,
+                Math.min(gapMicros, 125), adaptive);
+    }
+
+    @TearDown
+    public void tearDown() {
+        keyboard.close();
+    }
+
+    @Benchmark
+    public void type() throws IOException {
+        keyboard.type(PASSWORD);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return KeyboardLayout.US.reports(PASSWORD, 0, PASSWORD.length);
+    }
+}
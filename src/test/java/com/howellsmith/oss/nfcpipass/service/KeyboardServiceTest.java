@@ -0,0 +1,109 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.hid.KeyboardLayout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeyboardServiceTest {
+
+    private static final int SHIFT = 0x02;
+    private static final int A = 0x04;
+    private static final int B = 0x05;
+    private static final int SPACE = 0x2C;
+
+    @TempDir
+    Path directory;
+
+    private KeyboardService keyboard;
+
+    @AfterEach
+    void after_each() {
+        keyboard.close();
+    }
+
+    private Path device(KeyboardLayout layout, boolean adaptive) {
+        var device = directory.resolve("hidg0");
+        keyboard = new KeyboardService(new SimpleMeterRegistry(), device.toString(), layout, 1, 1000, 125, adaptive);
+        return device;
+    }
+
+    // pairs of modifiers and usage id, one per report
+    private static byte[] reports(int... pressed) {
+        var reports = new byte[pressed.length / 2 * 8];
+        for (int i = 0; i < pressed.length / 2; i++) {
+            reports[i * 8] = (byte) pressed[2 * i];
+            reports[i * 8 + 2] = (byte) pressed[2 * i + 1];
+        }
+        return reports;
+    }
+
+    @Test
+    void test_keys_are_released_only_when_the_next_key_needs_it() throws IOException {
+
+        var device = device(KeyboardLayout.US, false);
+
+        keyboard.type("abaA".toCharArray());
+        assertArrayEquals(reports(0, A, 0, B, 0, A, 0, 0, SHIFT, A, 0, 0), Files.readAllBytes(device));
+
+        // ^ is a dead key on the German layout, typed with a space after it
+        keyboard.close();
+        device = device(KeyboardLayout.DE, false);
+        keyboard.type("^a".toCharArray());
+        assertArrayEquals(reports(0, 0x35, 0, 0, 0, SPACE, 0, A, 0, 0), Files.readAllBytes(device));
+    }
+
+    @Test
+    void test_untypable_text_types_nothing() throws IOException {
+
+        var device = device(KeyboardLayout.US, false);
+
+        assertThrows(IllegalArgumentException.class, () -> keyboard.type("pässword".toCharArray()));
+        keyboard.type("a".toCharArray());
+
+        assertArrayEquals(reports(0, A, 0, 0), Files.readAllBytes(device));
+    }
+
+    @Test
+    void test_text_from_another_thread_waits_for_an_open_stream() throws Exception {
+
+        var device = device(KeyboardLayout.US, false);
+
+        var other = new Thread(() -> {
+            try {
+                keyboard.type("b".toCharArray());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        try (var stream = keyboard.typing()) {
+            stream.write('a');
+            other.start();
+            Thread.sleep(50L);
+            stream.write('a');
+        }
+        other.join(1000L);
+
+        assertArrayEquals(reports(0, A, 0, 0, 0, A, 0, 0, 0, B, 0, 0), Files.readAllBytes(device));
+    }
+
+    @Test
+    void test_adaptive_gap_shrinks_while_the_host_keeps_up() throws IOException {
+
+        device(KeyboardLayout.US, true);
+
+        keyboard.type("correct-horse-battery-staple".toCharArray());
+
+        assertEquals(125, keyboard.getReportGapMicros());
+    }
+}
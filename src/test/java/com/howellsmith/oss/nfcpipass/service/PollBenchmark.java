@@ -0,0 +1,95 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.ufr.SimulatedUfrDevice;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures poll cycles against a simulated reader with a configurable per call latency. Run with -prof gc to see the
+ * allocation rate; a cycle with a tag resting on the reader or an empty field should not allocate at all, while a tap
+ * pays for the NDEF read and the arrival and departure events.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PollBenchmark {
+
+    private static final int UFR_NANO = 0xD1380022;
+    private static final byte[] UID = {0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A};
+
+    /**
+     * Latency of every native call. 0 isolates the Java side of the loop, 250us approximates a uFR Nano over USB.
+     */
+    @Param({"0", "250"})
+    private long latencyMicros;
+
+    private SimulatedUfrDevice tapDevice;
+    private HardwareManagementService restingTag;
+    private HardwareManagementService emptyField;
+    private HardwareManagementService tapping;
+
+    @Setup
+    public void setup() throws InterruptedException {
+
+        // the registry the application exports, so the steady state includes recording into its histograms
+        var metrics = new ReaderMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+
+        var restingDevice = device();
+        restingDevice.placeTag((byte) 0x08, UID, "benchmark");
+        restingTag = new HardwareManagementService(new UnifiedLoggingService(), restingDevice, metrics, event -> { });
+
+        emptyField = new HardwareManagementService(new UnifiedLoggingService(), device(), metrics, event -> { });
+
+        tapDevice = device();
+        tapDevice.placeTag((byte) 0x08, UID, "benchmark");
+        tapping = new HardwareManagementService(new UnifiedLoggingService(), tapDevice, metrics, event -> { });
+
+        // connect and observe the tag once so the benchmark measures the steady state
+        restingTag.poll();
+        emptyField.poll();
+        tapping.poll();
+    }
+
+    private SimulatedUfrDevice device() {
+        var device = new SimulatedUfrDevice(UFR_NANO);
+        device.setLatencyNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+        return device;
+    }
+
+    @Benchmark
+    public boolean pollRestingTag() throws InterruptedException {
+        return restingTag.poll();
+    }
+
+    @Benchmark
+    public boolean pollEmptyField() throws InterruptedException {
+        return emptyField.poll();
+    }
+
+    /**
+     * One operation is a departure followed by an arrival of the same tag, including the NDEF read.
+     */
+    @Benchmark
+    public boolean pollTap() throws InterruptedException {
+        tapDevice.removeTag();
+        tapping.poll();
+        tapDevice.returnTag();
+        return tapping.poll();
+    }
+}
@@ -0,0 +1,202 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.domain.User;
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import com.howellsmith.oss.nfcpipass.model.provisioning.ProvisioningJob;
+import com.howellsmith.oss.nfcpipass.ufr.DefaultUfrReader;
+import com.howellsmith.oss.nfcpipass.ufr.SimulatedUfrDevice;
+import com.howellsmith.oss.nfcpipass.ufr.UfrCallExecutor;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static com.howellsmith.oss.nfcpipass.service.ProvisioningService.LIGHT_FAILURE;
+import static com.howellsmith.oss.nfcpipass.service.ProvisioningService.LIGHT_SUCCESS;
+import static com.howellsmith.oss.nfcpipass.service.ReaderConnection.UFR_NANO;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.WRITING_ERROR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProvisioningServiceTest {
+
+    private static final byte[] FIRST = {0x04, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06};
+    private static final byte[] SECOND = {0x04, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16};
+
+    private SimulatedUfrDevice device;
+    private HardwareManagementService hardware;
+    private MongoTemplate mongo;
+    private BulkOperations bulk;
+    private TagLookupService tags;
+    private ProvisioningService provisioning;
+
+    @BeforeEach
+    void before_each() {
+        device = new SimulatedUfrDevice(UFR_NANO);
+        var metrics = new ReaderMetrics(new SimpleMeterRegistry());
+        hardware = new HardwareManagementService(mock(UnifiedLoggingService.class),
+                new UfrCallExecutor(new DefaultUfrReader(device)), metrics, mock(ApplicationEventPublisher.class),
+                () -> 0L, new TagImageCache(16L), 888);
+        mongo = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongo.bulkOps(BulkMode.UNORDERED, User.class)).thenReturn(bulk);
+        when(mongo.getConverter())
+                .thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        tags = mock(TagLookupService.class);
+        when(tags.findUser(anyString())).thenReturn(Optional.empty());
+        provisioning = new ProvisioningService(mongo, tags, mock(UnifiedLoggingService.class),
+                new SimpleMeterRegistry(), 2, 60_000L);
+    }
+
+    @AfterEach
+    void after_each() {
+        hardware.close();
+    }
+
+    @Test
+    void test_verified_tags_are_registered_in_one_batch() {
+
+        provisioning.enqueue(List.of(job("first@example.com"), job("second@example.com")));
+
+        // a blank tag is formatted before it is written
+        device.placeBlankTag((byte) 0x44, FIRST);
+        provisioning.onTagArrived(arrived("04010203040506", null));
+        waitForSignals(1);
+        assertEquals(LIGHT_SUCCESS, device.getLastLightMode());
+        verify(bulk, never()).execute();
+
+        device.placeTag((byte) 0x44, SECOND, "old");
+        provisioning.onTagArrived(arrived("04111213141516", NdefMessage.ofText("old", "en")));
+        waitForSignals(2);
+        assertEquals(LIGHT_SUCCESS, device.getLastLightMode());
+
+        var upserts = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, timeout(1000)).execute();
+        verify(bulk, times(2)).upsert(any(Query.class), upserts.capture());
+        assertEquals("04010203040506", tag(upserts.getAllValues().get(0)));
+        assertEquals("04111213141516", tag(upserts.getAllValues().get(1)));
+        assertEquals("first@example.com", inserted(upserts.getAllValues().get(0)).get("email"));
+        verify(tags, timeout(1000).times(2)).evict(any(User.class));
+
+        var status = provisioning.getStatus();
+        assertEquals(0, status.getQueued());
+        assertEquals(2L, status.getEnrolled());
+        assertEquals(2, status.getTagsPerMinute());
+    }
+
+    @Test
+    void test_failed_tag_requeues_its_job() {
+
+        provisioning.enqueue(List.of(job("first@example.com")));
+        device.placeTag((byte) 0x44, FIRST, "");
+        device.setWriteStatus(WRITING_ERROR);
+
+        provisioning.onTagArrived(arrived("04010203040506", NdefMessage.EMPTY));
+        waitForSignals(1);
+        assertEquals(LIGHT_FAILURE, device.getLastLightMode());
+        await(() -> provisioning.getStatus().getFailed() == 1L);
+
+        var status = provisioning.getStatus();
+        assertEquals(1, status.getQueued());
+        assertEquals(1L, status.getFailed());
+        provisioning.flush();
+        verify(mongo, never()).bulkOps(eq(BulkMode.UNORDERED), eq(User.class));
+    }
+
+    @Test
+    void test_only_failed_registrations_are_retried_and_a_new_user_is_created_once() {
+
+        var duplicate = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1);
+        when(bulk.execute()).thenThrow(new BulkOperationException("partial", new MongoBulkWriteException(
+                BulkWriteResult.unacknowledged(), List.of(duplicate), null, new ServerAddress(), Set.of())))
+                .thenReturn(BulkWriteResult.unacknowledged());
+        provisioning.enqueue(List.of(job("same@example.com"), job("same@example.com")));
+
+        device.placeTag((byte) 0x44, FIRST, "");
+        provisioning.onTagArrived(arrived("04010203040506", NdefMessage.EMPTY));
+        waitForSignals(1);
+        device.placeTag((byte) 0x44, SECOND, "");
+        provisioning.onTagArrived(arrived("04111213141516", NdefMessage.EMPTY));
+        waitForSignals(2);
+
+        // both tags register to one user, whose id was given up front
+        var queries = ArgumentCaptor.forClass(Query.class);
+        var upserts = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, timeout(1000)).execute();
+        verify(bulk, times(2)).upsert(queries.capture(), upserts.capture());
+        var id = queries.getAllValues().get(0).getQueryObject().get("_id");
+        assertNotNull(id);
+        assertEquals(id, queries.getAllValues().get(1).getQueryObject().get("_id"));
+        verify(tags, timeout(1000)).evict(any(User.class));
+        assertEquals(1, provisioning.getStatus().getPendingRegistrations());
+
+        // only the registration that failed is written again, to the user the other one created
+        var retries = ArgumentCaptor.forClass(Query.class);
+        var updates = ArgumentCaptor.forClass(Update.class);
+        provisioning.flush();
+        verify(bulk, times(2)).execute();
+        verify(bulk, times(2)).upsert(any(Query.class), any(Update.class));
+        verify(bulk).updateOne(retries.capture(), updates.capture());
+        assertEquals(id, retries.getValue().getQueryObject().get("_id"));
+        assertEquals("04111213141516", tag(updates.getValue()));
+        assertEquals(0, provisioning.getStatus().getPendingRegistrations());
+    }
+
+    private static String tag(Update update) {
+        return update.getUpdateObject().get("$addToSet", Document.class).getString("registeredTag");
+    }
+
+    private static Document inserted(Update update) {
+        return update.getUpdateObject().get("$setOnInsert", Document.class);
+    }
+
+    private ProvisioningJob job(String email) {
+        return ProvisioningJob.builder().user(User.builder().email(email).build()).ndefText(email).build();
+    }
+
+    private TagArrivedEvent arrived(String tagId, NdefMessage message) {
+        return new TagArrivedEvent(hardware, "simulated", 0L, tagId, message);
+    }
+
+    private void waitForSignals(int signals) {
+        await(() -> device.getSignals() >= signals);
+        assertEquals(signals, device.getSignals());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        var deadline = System.currentTimeMillis() + 1000L;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) Thread.onSpinWait();
+    }
+}
@@ -0,0 +1,126 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.service.ReaderConnection.State;
+import com.howellsmith.oss.nfcpipass.ufr.DefaultUfrReader;
+import com.howellsmith.oss.nfcpipass.ufr.SimulatedUfrDevice;
+import com.howellsmith.oss.nfcpipass.ufr.UfrCallExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.howellsmith.oss.nfcpipass.service.ReaderConnection.UFR_NANO;
+import static com.howellsmith.oss.nfcpipass.service.ReaderConnection.UFR_NANO_ONLINE;
+import static com.howellsmith.oss.nfcpipass.ufr.CardTypes.MAX_USER_MEMORY;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ReaderConnectionTest {
+
+    private static long millis(long millis) {
+        return MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    void test_settles_then_backs_off_with_jitter_per_model() {
+
+        var connection = new ReaderConnection(() -> 0L);
+        var now = System.nanoTime();
+        assertTrue(connection.isProbeDue(now));
+        connection.connected(now);
+
+        // a uFR Nano settles for 500ms after the reset
+        connection.lost(now, UFR_NANO);
+        assertEquals(State.LOST, connection.getState());
+        assertFalse(connection.isProbeDue(now));
+        connection.resetIssued(now);
+        assertEquals(State.RESETTING, connection.getState());
+        assertFalse(connection.isProbeDue(now + millis(499)));
+        assertTrue(connection.isProbeDue(now + millis(500)));
+        assertEquals(State.PROBING, connection.getState());
+
+        // the first retry comes after half to all of the settle time, the next after half to all of twice that
+        connection.probeFailed(now);
+        assertFalse(connection.isProbeDue(now + millis(249)));
+        assertTrue(connection.isProbeDue(now + millis(500)));
+        connection.probeFailed(now);
+        assertFalse(connection.isProbeDue(now + millis(499)));
+        assertTrue(connection.isProbeDue(now + millis(1000)));
+
+        // and never later than the reset time of the model
+        for (int i = 0; i < 64; i++) {
+            var backoff = connection.backoff(i);
+            assertTrue(backoff >= millis(250) && backoff <= millis(5000), "backoff " + backoff);
+        }
+
+        var recovery = connection.connected(now + millis(1200));
+        assertEquals(millis(1200), recovery);
+
+        // a uFR Nano Online takes longer to come back
+        connection.lost(now, UFR_NANO_ONLINE);
+        connection.resetIssued(now);
+        assertFalse(connection.isProbeDue(now + millis(1999)));
+        assertTrue(connection.isProbeDue(now + millis(2000)));
+    }
+
+    @Test
+    void test_replug_makes_the_probe_due_at_once() {
+
+        var replugs = new AtomicLong();
+        var connection = new ReaderConnection(replugs::get);
+        var now = System.nanoTime();
+        connection.connected(now);
+
+        connection.lost(now, UFR_NANO);
+        connection.resetIssued(now);
+        assertFalse(connection.isProbeDue(now + millis(10)));
+
+        replugs.incrementAndGet();
+        assertTrue(connection.isProbeDue(now + millis(10)));
+        assertFalse(connection.isProbeDue(now + millis(10)), "a replug is only acted on once");
+    }
+
+    @Test
+    void test_recovers_from_a_hub_power_glitch_without_parking() {
+
+        var clock = new AtomicLong();
+        var device = new SimulatedUfrDevice(UFR_NANO);
+        device.setClock(clock::get);
+        var registry = new SimpleMeterRegistry();
+        var hardware = new HardwareManagementService(mock(UnifiedLoggingService.class),
+                new UfrCallExecutor(new DefaultUfrReader(device)), new ReaderMetrics(registry), event -> { },
+                () -> 0L, new TagImageCache(TagImageCache.DEFAULT_MAX_SIZE), MAX_USER_MEMORY, clock::get);
+
+        assertTrue(hardware.poll());
+        assertTrue(hardware.getState().isConnected());
+
+        // the glitch loses the reader, which is reset and left to settle for 500ms while the cycles go on without it
+        device.powerGlitch(300L);
+        assertTrue(hardware.poll());
+        assertFalse(hardware.getState().isConnected());
+        for (int i = 0; i < 49; i++) {
+            clock.addAndGet(millis(10));
+            assertFalse(hardware.poll());
+        }
+        assertEquals(1L, opens(registry), "the reader is not probed while it settles");
+
+        // the power came back at 300ms, the first probe once it has settled opens it
+        clock.addAndGet(millis(10));
+        assertTrue(hardware.poll());
+        assertTrue(hardware.getState().isConnected());
+        assertEquals(2L, opens(registry));
+
+        var recovery = registry.get("ufr.reader.recovery").timer();
+        assertEquals(1L, recovery.count());
+        assertEquals(500.0, recovery.totalTime(MILLISECONDS));
+        assertEquals(1.0, registry.get("ufr.reader.reconnects").counter().count());
+        hardware.close();
+    }
+
+    private static long opens(SimpleMeterRegistry registry) {
+        return registry.get("ufr.call").tag("call", "ReaderOpen").timer().count();
+    }
+}
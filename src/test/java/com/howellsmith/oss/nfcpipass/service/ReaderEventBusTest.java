@@ -0,0 +1,201 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.event.NdefChangedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.ReaderEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagDepartedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagDetectedEvent;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReaderEventBusTest {
+
+    private final ReaderEventBus bus = new ReaderEventBus(4, null);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void after_each() {
+        bus.close();
+    }
+
+    @Test
+    void test_taps_are_not_held_up_by_telemetry() throws InterruptedException {
+
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var logged = new CopyOnWriteArrayList<ReaderEvent>();
+        var arrived = new CopyOnWriteArrayList<String>();
+        bus.addApplicationListener((TelemetryListener<ReaderEvent>) e -> {
+            started.countDown();
+            await(release);
+            logged.add(e);
+        });
+        bus.addApplicationListener((ApplicationListener<TagArrivedEvent>) e -> arrived.add(e.getTagId()));
+        bus.bindTo(registry);
+
+        bus.multicastEvent(arrived("tag0"));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        for (int i = 1; i < 8; i++) bus.multicastEvent(arrived("tag" + i));
+
+        // every tap is delivered while the logger is stuck on the first one
+        var deadline = System.currentTimeMillis() + 1000L;
+        while (arrived.size() < 8 && System.currentTimeMillis() < deadline) Thread.onSpinWait();
+        assertEquals(8, arrived.size());
+        assertEquals("tag7", arrived.get(7));
+
+        // the logger's ring holds 4, so the oldest of the 7 queued behind the first were dropped
+        assertEquals(3.0, registry.get("events.ring.dropped").tag("policy", "telemetry").functionCounter().count());
+        release.countDown();
+        bus.close();
+        assertEquals(List.of("tag0", "tag4", "tag5", "tag6", "tag7"), ids(logged));
+    }
+
+    @Test
+    void test_pending_ndef_changes_are_coalesced() throws InterruptedException {
+
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var changes = new CopyOnWriteArrayList<String>();
+        bus.addApplicationListener((ApplicationListener<NdefChangedEvent>) e -> {
+            started.countDown();
+            await(release);
+            changes.add(e.getNdef());
+        });
+
+        bus.multicastEvent(changed("a", "first"));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        bus.multicastEvent(changed("a", "second"));
+        bus.multicastEvent(changed("b", "other"));
+        bus.multicastEvent(changed("a", "third"));
+        release.countDown();
+        bus.close();
+
+        assertEquals(List.of("first", "third", "other"), changes);
+    }
+
+    @Test
+    void test_events_of_a_reader_are_delivered_in_order_one_at_a_time() throws InterruptedException {
+
+        var executor = Executors.newCachedThreadPool();
+        var pooled = new ReaderEventBus(16, executor);
+        var release = new CountDownLatch(1);
+        var other = new CountDownLatch(1);
+        var inside = new AtomicInteger();
+        var overlaps = new AtomicInteger();
+        var delivered = new CopyOnWriteArrayList<String>();
+        pooled.addApplicationListener((ApplicationListener<TagArrivedEvent>) e -> {
+            if ("other".equals(e.getReaderSerial())) {
+                other.countDown();
+                return;
+            }
+            if (inside.incrementAndGet() > 1) overlaps.incrementAndGet();
+            if ("tag0".equals(e.getTagId())) await(release);
+            delivered.add(e.getTagId());
+            inside.decrementAndGet();
+        });
+
+        for (int i = 0; i < 10; i++) pooled.multicastEvent(arrived("tag" + i));
+        pooled.multicastEvent(new TagArrivedEvent(new Object(), "other", 0L, "tag", NdefMessage.EMPTY));
+
+        // another reader is not held up by the listener blocked on the first tap
+        assertTrue(other.await(1, TimeUnit.SECONDS));
+        assertTrue(delivered.isEmpty());
+
+        release.countDown();
+        var deadline = System.currentTimeMillis() + 1000L;
+        while (delivered.size() < 10 && System.currentTimeMillis() < deadline) Thread.onSpinWait();
+        pooled.close();
+        executor.shutdown();
+        assertEquals(List.of("tag0", "tag1", "tag2", "tag3", "tag4", "tag5", "tag6", "tag7", "tag8", "tag9"),
+                delivered);
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    void test_events_of_a_tag_are_delivered_in_order_whatever_their_type() throws InterruptedException {
+
+        var release = new CountDownLatch(1);
+        var delivered = new CopyOnWriteArrayList<String>();
+        bus.addApplicationListener((ApplicationListener<TagDetectedEvent>) e -> {
+            await(release);
+            delivered.add("detected");
+        });
+        bus.addApplicationListener((ApplicationListener<TagArrivedEvent>) e -> delivered.add("arrived"));
+        bus.addApplicationListener((ApplicationListener<TagDepartedEvent>) e -> delivered.add("departed"));
+
+        bus.multicastEvent(new TagDetectedEvent(new Object(), "reader", 0L, "tag"));
+        bus.multicastEvent(arrived("tag"));
+        bus.multicastEvent(new TagDepartedEvent(new Object(), "reader", 0L, "tag"));
+
+        // the departure is not delivered while the detection is still being handled
+        Thread.sleep(100L);
+        assertTrue(delivered.isEmpty());
+
+        release.countDown();
+        var deadline = System.currentTimeMillis() + 1000L;
+        while (delivered.size() < 3 && System.currentTimeMillis() < deadline) Thread.onSpinWait();
+        assertEquals(List.of("detected", "arrived", "departed"), delivered);
+    }
+
+    @Test
+    void test_events_beyond_a_full_ring_and_overflow_queue_are_counted() throws InterruptedException {
+
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var arrived = new CopyOnWriteArrayList<String>();
+        bus.addApplicationListener((ApplicationListener<TagArrivedEvent>) e -> {
+            started.countDown();
+            await(release);
+            arrived.add(e.getTagId());
+        });
+        bus.bindTo(registry);
+
+        bus.multicastEvent(arrived("tag0"));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        for (int i = 1; i < 12; i++) bus.multicastEvent(arrived("tag" + i));
+        release.countDown();
+        bus.close();
+
+        // the ring and its overflow queue hold 4 each behind the first
+        assertEquals(9, arrived.size());
+        assertEquals("tag8", arrived.get(8));
+        assertEquals(4.0, registry.get("events.ring.spilled").tag("reader", "reader").functionCounter().count());
+        assertEquals(3.0, registry.get("events.ring.overflow").tag("reader", "reader").functionCounter().count());
+    }
+
+    private static TagArrivedEvent arrived(String tagId) {
+        return new TagArrivedEvent(new Object(), "reader", 0L, tagId, NdefMessage.EMPTY);
+    }
+
+    private static NdefChangedEvent changed(String tagId, String text) {
+        return new NdefChangedEvent(new Object(), "reader", 0L, tagId, NdefMessage.ofText(text, "en"));
+    }
+
+    private static List<String> ids(List<ReaderEvent> events) {
+        var ids = new ArrayList<String>();
+        for (var event : events) ids.add(((TagArrivedEvent) event).getTagId());
+        return ids;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
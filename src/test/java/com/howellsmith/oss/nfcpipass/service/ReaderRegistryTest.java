@@ -0,0 +1,175 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.ufr.NativeLibrary;
+import com.howellsmith.oss.nfcpipass.ufr.UfrDevice;
+import com.howellsmith.oss.nfcpipass.ufr.UfrDirect;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.ByteByReference;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static com.howellsmith.oss.nfcpipass.service.ReaderRegistry.DEFAULT_READER;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.COMMAND_NOT_SUPPORTED;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.NO_CARD;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the registry against a mocked library with two readers on the reader list, the first of which stalls on every
+ * uid read.
+ */
+class ReaderRegistryTest {
+
+    private static final String STALLED_READER = "0x00000064";
+    private static final String RESPONSIVE_READER = "0x00000065";
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Map<String, TagArrivedEvent> arrivals = new ConcurrentHashMap<>();
+    private final CountDownLatch arrived = new CountDownLatch(1);
+
+    private UfrDevice device;
+    private ApplicationEventPublisher publisher;
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private ReaderRegistry registry;
+
+    private static final Answer<Integer> CARD_IN_FIELD = i -> {
+        var offset = i.getArguments().length == 4 ? 1 : 0;
+        i.getArgument(offset, ByteByReference.class).setValue((byte) 0x08);
+        i.getArgument(offset + 2, ByteByReference.class).setValue((byte) 4);
+        System.arraycopy(new byte[]{1, 2, 3, 4}, 0, i.getArgument(offset + 1, byte[].class), 0, 4);
+        return DL_OK;
+    };
+
+    @BeforeEach
+    void before_each() {
+
+        device = mock(UfrDevice.class);
+        publisher = mock(ApplicationEventPublisher.class);
+        doAnswer(i -> {
+            if (i.getArgument(0) instanceof TagArrivedEvent) {
+                var event = i.getArgument(0, TagArrivedEvent.class);
+                arrivals.put(event.getReaderSerial(), event);
+                arrived.countDown();
+            }
+            return null;
+        }).when(publisher).publishEvent(any());
+
+        registry = registry(NativeLibrary.loaded(device, UfrDirect.UNAVAILABLE));
+    }
+
+    private ReaderRegistry registry(NativeLibrary library) {
+        return new ReaderRegistry(mock(UnifiedLoggingService.class), library,
+                new ReaderMetrics(meters), publisher, mock(UsbHotplugMonitor.class),
+                new TagImageCache(16L), true, 50L, 16, 100L, 888, 5L, 10L, 100L, 1.5, "test_poll");
+    }
+
+    @AfterEach
+    void after_each() {
+        release.countDown();
+        registry.stop();
+    }
+
+    @Test
+    void test_stalled_reader_does_not_hold_up_the_others() throws InterruptedException {
+
+        doAnswer(i -> {
+            i.getArgument(0, IntByReference.class).setValue(2);
+            return DL_OK;
+        }).when(device).ReaderList_UpdateAndGetCount(any());
+        doAnswer(i -> {
+            i.getArgument(1, IntByReference.class).setValue(100 + i.getArgument(0, Integer.class));
+            return DL_OK;
+        }).when(device).ReaderList_GetSerialByIndex(anyInt(), any());
+        doAnswer(i -> {
+            i.getArgument(1, PointerByReference.class).setValue(new Pointer(1L + i.getArgument(0, Integer.class)));
+            return DL_OK;
+        }).when(device).ReaderList_OpenByIndex(anyInt(), any());
+        when(device.GetReaderTypeM(any(), any(int[].class))).thenReturn(DL_OK);
+        when(device.ReadNdefRecord_TextM(any(), any())).thenReturn(DL_OK);
+        doAnswer(i -> {
+            if (Pointer.nativeValue(i.getArgument(0)) == 2L) return CARD_IN_FIELD.answer(i);
+            release.await(5, SECONDS);
+            return NO_CARD;
+        }).when(device).GetCardIdExM(any(), any(), any(), any());
+
+        registry.start();
+
+        assertTrue(arrived.await(2, SECONDS));
+        assertEquals("01020304", arrivals.get(RESPONSIVE_READER).getTagId());
+        assertEquals(List.of(STALLED_READER, RESPONSIVE_READER), List.copyOf(registry.getStates().keySet()));
+        assertTrue(registry.getStates().get(RESPONSIVE_READER).isTagInField());
+        assertEquals(RESPONSIVE_READER, registry.getStates().get(RESPONSIVE_READER).getReaderSerial());
+
+        // the hung call is given up on, and the stalled reader recycled once the call has returned
+        verify(device, after(500).never()).ReaderResetM(new Pointer(1L));
+        release.countDown();
+        verify(device, timeout(2000).atLeastOnce()).ReaderResetM(new Pointer(1L));
+
+        // each reader records its calls under its own serial
+        var uidReads = meters.get("ufr.call").tag("call", "GetCardIdEx");
+        assertTrue(uidReads.tag("reader", RESPONSIVE_READER).timer().count() > 0);
+        assertTrue(meters.get("ufr.call.status").tag("call", "GetCardIdEx").tag("reader", STALLED_READER)
+                .counters().stream().anyMatch(c -> c.count() > 0));
+    }
+
+    @Test
+    void test_falls_back_to_the_default_reader_without_a_reader_list() throws InterruptedException {
+
+        when(device.ReaderList_UpdateAndGetCount(any())).thenReturn(COMMAND_NOT_SUPPORTED);
+        when(device.ReaderOpen()).thenReturn(DL_OK);
+        doAnswer(i -> {
+            i.getArgument(0, int[].class)[0] = 0x00000065;
+            return DL_OK;
+        }).when(device).GetReaderSerialNumber(any(int[].class));
+        when(device.GetReaderType(any(int[].class))).thenReturn(DL_OK);
+        when(device.ReadNdefRecord_Text(any())).thenReturn(DL_OK);
+        doAnswer(CARD_IN_FIELD).when(device).GetCardIdEx(any(), any(), any());
+
+        registry.start();
+
+        assertTrue(arrived.await(2, SECONDS));
+        assertEquals("01020304", arrivals.get(RESPONSIVE_READER).getTagId());
+        assertEquals(List.of(DEFAULT_READER), List.copyOf(registry.getStates().keySet()));
+    }
+
+    @Test
+    void test_reports_initializing_until_the_library_loads_and_survives_a_missing_library() {
+
+        var library = new NativeLibrary("libmissing.so");
+        registry = registry(library);
+        registry.start();
+
+        assertTrue(registry.getState().isInitializing());
+        assertTrue(registry.getStates().isEmpty());
+
+        library.load(false);
+
+        assertEquals(NativeLibrary.Status.FAILED, library.getStatus());
+        assertFalse(registry.getState().isInitializing());
+        assertFalse(registry.getState().isConnected());
+        assertTrue(registry.getStates().isEmpty());
+    }
+}
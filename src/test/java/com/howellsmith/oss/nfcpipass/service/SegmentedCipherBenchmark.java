@@ -0,0 +1,99 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Time to seal and to unlock an 8 MiB payload a segment at a time, against one AES-GCM operation over the whole
+ * payload, which needs the plaintext and ciphertext in memory whole. Throughput is 8 MiB over the reported time. The
+ * JCA provider of AES/GCM/NoPadding is part of the result, as {@code provider}, since it decides whether the AES and
+ * GHASH intrinsics are used (AES-NI and CLMUL on x86, the ARMv8 crypto extensions on the Pi). Setup fails if the JVM
+ * picks another provider than the parameter names, e.g. run with {@code -p provider=SunPKCS11-NSS} where it does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentedCipherBenchmark {
+
+    private static final int PAYLOAD = 8 * 1024 * 1024;
+    private static final byte[] AAD = "0001020304050607".getBytes(UTF_8);
+
+    @Param({"16384", "65536", "262144"})
+    public int segmentSize;
+
+    @Param({"SunJCE"})
+    public String provider;
+
+    private final SecureRandom random = new SecureRandom();
+    private final byte[] sink = new byte[8192];
+    private SecretKey key;
+    private byte[] plaintext;
+    private byte[] sealed;
+
+    @Setup
+    public void setup() throws Exception {
+        var generator = KeyGenerator.getInstance("AES");
+        generator.init(256, random);
+        key = generator.generateKey();
+        plaintext = new byte[PAYLOAD];
+        random.nextBytes(plaintext);
+        try (var stream = SegmentedCipher.sealing(key, AAD, segmentSize, random, new ByteArrayInputStream(plaintext))) {
+            sealed = stream.readAllBytes();
+        }
+        var actual = Cipher.getInstance("AES/GCM/NoPadding").getProvider().getName();
+        if (!actual.equals(provider)) {
+            throw new IllegalStateException("AES/GCM/NoPadding is provided by " + actual + ", not " + provider);
+        }
+    }
+
+    private long drain(InputStream stream) throws Exception {
+        try (stream) {
+            long total = 0;
+            for (int n; (n = stream.read(sink)) >= 0; ) total += n;
+            return total;
+        }
+    }
+
+    @Benchmark
+    public long seal() throws Exception {
+        return drain(SegmentedCipher.sealing(key, AAD, segmentSize, random, new ByteArrayInputStream(plaintext)));
+    }
+
+    @Benchmark
+    public long unlock() throws Exception {
+        return drain(SegmentedCipher.unlocking(key, AAD, new ByteArrayInputStream(sealed)));
+    }
+
+    @Benchmark
+    public byte[] sealWhole() throws Exception {
+        var nonce = new byte[12];
+        random.nextBytes(nonce);
+        var cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, nonce));
+        cipher.updateAAD(AAD);
+        return cipher.doFinal(plaintext);
+    }
+}
@@ -0,0 +1,84 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SegmentedCipherTest {
+
+    private static final int SEGMENT = 64;
+    private static final byte[] AAD = "0001020304050607".getBytes(UTF_8);
+
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKey key = key();
+
+    private SecretKey key() {
+        try {
+            var generator = KeyGenerator.getInstance("AES");
+            generator.init(256, random);
+            return generator.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] seal(byte[] plaintext) throws Exception {
+        try (var sealed = SegmentedCipher.sealing(key, AAD, SEGMENT, random, new ByteArrayInputStream(plaintext))) {
+            return sealed.readAllBytes();
+        }
+    }
+
+    private byte[] unlock(byte[] sealed, byte[] aad) throws Exception {
+        try (var plaintext = SegmentedCipher.unlocking(key, aad, new ByteArrayInputStream(sealed))) {
+            return plaintext.readAllBytes();
+        }
+    }
+
+    @Test
+    void test_round_trips_any_length() throws Exception {
+
+        for (var length : new int[]{0, 1, SEGMENT - 1, SEGMENT, SEGMENT + 1, 3 * SEGMENT, 3 * SEGMENT + 17}) {
+            var plaintext = new byte[length];
+            random.nextBytes(plaintext);
+
+            var sealed = seal(plaintext);
+            var segments = Math.max(1, (length + SEGMENT - 1) / SEGMENT);
+            assertEquals(16 + length + 16 * segments, sealed.length, "length " + length);
+            assertArrayEquals(plaintext, unlock(sealed, AAD), "length " + length);
+        }
+    }
+
+    @Test
+    void test_altered_reordered_or_truncated_content_fails() throws Exception {
+
+        var plaintext = new byte[3 * SEGMENT];
+        random.nextBytes(plaintext);
+        var sealed = seal(plaintext);
+        var segment = SEGMENT + 16;
+
+        var altered = sealed.clone();
+        altered[16 + segment + 5] ^= 1;
+        assertThrows(IOException.class, () -> unlock(altered, AAD));
+
+        var reordered = sealed.clone();
+        System.arraycopy(sealed, 16, reordered, 16 + segment, segment);
+        System.arraycopy(sealed, 16 + segment, reordered, 16, segment);
+        assertThrows(IOException.class, () -> unlock(reordered, AAD));
+
+        // cut at a segment boundary, the last segment left was not sealed as the last one
+        assertThrows(IOException.class, () -> unlock(Arrays.copyOf(sealed, 16 + 2 * segment), AAD));
+        assertThrows(IOException.class, () -> unlock(Arrays.copyOf(sealed, sealed.length - 1), AAD));
+        assertThrows(IOException.class, () -> unlock(sealed, "0706050403020100".getBytes(UTF_8)));
+    }
+}
@@ -0,0 +1,170 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.howellsmith.oss.nfcpipass.config.AsyncConfig;
+import com.howellsmith.oss.nfcpipass.config.EventConfig;
+import com.howellsmith.oss.nfcpipass.ufr.SimulatedUfrDevice;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tap to UI latency, from the poll cycle that sees a tag to every connected dashboard having received a frame with the
+ * tag in the field, through the reader event bus and the WebSocket of an embedded Tomcat on the loopback interface.
+ * The reader is simulated without latency, so the figure is what the feed adds to the reads of a tap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateFeedBenchmark {
+
+    private static final int UFR_NANO = 0xD1380022;
+    private static final byte[] UID = {0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A};
+
+    @Param({"1", "48"})
+    public int clients;
+
+    private static StateFeed feed;
+
+    private ConfigurableApplicationContext server;
+    private SimulatedUfrDevice device;
+    private HardwareManagementService hardware;
+    private final List<WebSocketSession> sessions = new ArrayList<>();
+    private volatile CountDownLatch arrived;
+    private volatile CountDownLatch departed;
+
+    @Setup
+    public void setup() throws Exception {
+
+        var registry = new SimpleMeterRegistry();
+        var config = new AsyncConfig("platform", 10, 10, "feed_");
+        var readers = mock(ReaderRegistry.class);
+        when(readers.getStates()).thenReturn(Map.of());
+        feed = new StateFeed(readers, new ObjectMapper(), config.taskExecutor(), mock(UnifiedLoggingService.class),
+                registry, 1000);
+
+        server = new SpringApplicationBuilder(Server.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=0")
+                .logStartupInfo(false)
+                .run();
+        var port = ((ServletWebServerApplicationContext) server).getWebServer().getPort();
+
+        var bus = new EventConfig(1024, config.taskExecutor()).multicaster();
+        bus.addApplicationListener(feed);
+        device = new SimulatedUfrDevice(UFR_NANO);
+        hardware = new HardwareManagementService(new UnifiedLoggingService(), device, new ReaderMetrics(registry),
+                event -> bus.multicastEvent((ApplicationEvent) event));
+        while (!hardware.getState().isConnected()) hardware.poll();
+
+        arrived = new CountDownLatch(clients);
+        departed = new CountDownLatch(clients);
+        var client = new StandardWebSocketClient();
+        for (int i = 0; i < clients; i++) {
+            sessions.add(client.doHandshake(new Dashboard(), "ws://localhost:" + port + "/ws/state").get());
+        }
+        while (feed.getClientCount() < clients) Thread.sleep(1);
+        device.placeTag((byte) 0x08, UID, "correct horse battery staple");
+        hardware.poll();
+        arrived.await();
+    }
+
+    @Setup(Level.Invocation)
+    public void removeTag() throws InterruptedException {
+        departed = new CountDownLatch(clients);
+        device.removeTag();
+        hardware.poll();
+        departed.await();
+        arrived = new CountDownLatch(clients);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (var session : sessions) session.close();
+        hardware.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void tapToUi() throws InterruptedException {
+        device.returnTag();
+        hardware.poll();
+        arrived.await();
+    }
+
+    /**
+     * A dashboard, counting down once per tap on the first frame with the tag in the field and once per removal on the
+     * first frame without it.
+     */
+    private class Dashboard extends TextWebSocketHandler {
+
+        private boolean inField;
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+            var tagInField = message.getPayload().contains("\"tagInField\":true");
+            if (tagInField == inField) return;
+            inField = tagInField;
+            (tagInField ? arrived : departed).countDown();
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+            inField = false;
+        }
+    }
+
+    @Configuration
+    @EnableWebSocket
+    @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class, WebSocketServletAutoConfiguration.class})
+    static class Server implements WebSocketConfigurer {
+
+        @Override
+        public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+            registry.addHandler(feed, "/ws/state");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import com.howellsmith.oss.nfcpipass.model.state.ReaderState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StateFeedTest {
+
+    private static final String READER = "00000001";
+    private static final String TAG = "0001020304050607";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private HardwareManagementService hardware;
+    private ReaderRegistry readers;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void before_each() {
+        hardware = mock(HardwareManagementService.class);
+        readers = mock(ReaderRegistry.class);
+        registry = new SimpleMeterRegistry();
+        when(readers.getStates()).thenReturn(Map.of(ReaderRegistry.DEFAULT_READER, state(false, 1)));
+    }
+
+    private StateFeed feed(Executor executor, long sendTimeLimitMillis) {
+        return new StateFeed(readers, new ObjectMapper(), executor, mock(UnifiedLoggingService.class), registry,
+                sendTimeLimitMillis);
+    }
+
+    private static ReaderState state(boolean tagInField, long changedAt) {
+        return ReaderState.builder()
+                .readerSerial(READER)
+                .connected(true)
+                .tagInField(tagInField)
+                .tagId(tagInField ? TAG : null)
+                .ndef(tagInField ? PASSWORD : null)
+                .changedAt(changedAt)
+                .build();
+    }
+
+    private static WebSocketSession session(String id) {
+        var session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    private void tap(StateFeed feed, long changedAt) {
+        when(hardware.getState()).thenReturn(state(true, changedAt));
+        feed.onApplicationEvent(new TagArrivedEvent(hardware, READER, 0L, TAG, NdefMessage.ofText(PASSWORD, "en")));
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) tasks.remove(0).run();
+    }
+
+    @Test
+    void test_each_state_is_serialized_once_for_every_client() throws Exception {
+
+        var feed = feed(Runnable::run, 1000);
+        var first = session("1");
+        var second = session("2");
+        feed.afterConnectionEstablished(first);
+        feed.afterConnectionEstablished(second);
+
+        tap(feed, 2);
+
+        var firstFrames = ArgumentCaptor.forClass(TextMessage.class);
+        var secondFrames = ArgumentCaptor.forClass(TextMessage.class);
+        verify(first, times(2)).sendMessage(firstFrames.capture());
+        verify(second, times(2)).sendMessage(secondFrames.capture());
+
+        // a snapshot each on connect, then the one frame of the tap
+        assertTrue(firstFrames.getAllValues().get(0).getPayload().startsWith("{\"type\":\"snapshot\""));
+        var frame = firstFrames.getAllValues().get(1);
+        assertSame(frame, secondFrames.getAllValues().get(1));
+        assertTrue(frame.getPayload().contains("\"" + READER + "\":{"));
+        assertTrue(frame.getPayload().contains("\"tagId\":\"" + TAG + "\""));
+        assertFalse(frame.getPayload().contains(PASSWORD));
+
+        feed.afterConnectionClosed(first, CloseStatus.NORMAL);
+        tap(feed, 3);
+        verify(first, times(2)).sendMessage(any());
+        verify(second, times(3)).sendMessage(any());
+    }
+
+    @Test
+    void test_slow_client_skips_intermediate_states() throws Exception {
+
+        var feed = feed(tasks::add, 1000);
+        var session = session("1");
+        feed.afterConnectionEstablished(session);
+
+        // the client is behind, only the latest state of the reader is still pending when it catches up
+        tap(feed, 2);
+        tap(feed, 3);
+        tap(feed, 4);
+        runTasks();
+
+        var frames = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, times(2)).sendMessage(frames.capture());
+        assertTrue(frames.getAllValues().get(0).getPayload().contains("\"snapshot\""));
+        assertTrue(frames.getAllValues().get(1).getPayload().contains("\"changedAt\":4"));
+        assertEquals(2, registry.counter("state_feed.coalesced").count());
+    }
+
+    @Test
+    void test_client_stuck_on_a_send_is_disconnected() throws Exception {
+
+        var feed = feed(tasks::add, 0);
+        var session = session("1");
+        feed.afterConnectionEstablished(session);
+
+        Thread.sleep(2);
+        tap(feed, 2);
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, feed.getClientCount());
+        runTasks();
+        verify(session, never()).sendMessage(any());
+    }
+}
@@ -0,0 +1,101 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.dao.SensitiveDataRepository;
+import com.howellsmith.oss.nfcpipass.dao.UserRepository;
+import com.howellsmith.oss.nfcpipass.model.domain.SensitiveData;
+import com.howellsmith.oss.nfcpipass.model.domain.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TagLookupServiceTest {
+
+    private static final String TAG = "0001020304050607";
+
+    private UserRepository users;
+    private SensitiveDataRepository sensitiveData;
+    private SimpleMeterRegistry registry;
+    private TagLookupService tags;
+
+    @BeforeEach
+    void before_each() {
+        users = mock(UserRepository.class);
+        sensitiveData = mock(SensitiveDataRepository.class);
+        registry = new SimpleMeterRegistry();
+        tags = new TagLookupService(users, sensitiveData, mock(UnifiedLoggingService.class), registry, Runnable::run, 100, 60);
+    }
+
+    private double gets(String cache, String result) {
+        return registry.get("cache.gets").tag("cache", cache).tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    void test_reads_through_once_and_serves_copies_oldest_first() {
+
+        when(sensitiveData.findAllByTagId(TAG)).thenReturn(List.of(
+                SensitiveData.builder().id("2").tagId(TAG).data("newer").build(),
+                SensitiveData.builder().id("1").tagId(TAG).data("ciphertext").build()));
+
+        tags.findSensitiveData(TAG).get(0).setData("plaintext");
+        var records = tags.findSensitiveData(TAG);
+        assertEquals("ciphertext", records.get(0).getData());
+        assertEquals("newer", records.get(1).getData());
+
+        verify(sensitiveData, times(1)).findAllByTagId(TAG);
+        assertEquals(1.0, gets("tag_sensitive_data", "hit"));
+        assertEquals(1.0, gets("tag_sensitive_data", "miss"));
+    }
+
+    @Test
+    void test_unknown_tag_is_cached_until_evicted() {
+
+        assertTrue(tags.findUser(TAG).isEmpty());
+        assertTrue(tags.findUser(TAG).isEmpty());
+        verify(users, times(1)).findByRegisteredTagContaining(TAG);
+
+        var user = User.builder().id("u").registeredTag(List.of(TAG)).build();
+        when(users.findByRegisteredTagContaining(TAG)).thenReturn(user);
+        tags.evict(user);
+
+        assertEquals("u", tags.findUser(TAG).orElseThrow().getId());
+    }
+
+    @Test
+    void test_evicting_a_user_drops_tags_it_no_longer_has() {
+
+        when(users.findAll()).thenReturn(List.of(User.builder().id("u").registeredTag(List.of(TAG, "FF")).build()));
+        tags.warmUp();
+        assertEquals("u", tags.findUser("FF").orElseThrow().getId());
+
+        tags.evict(User.builder().id("u").registeredTag(List.of(TAG)).build());
+
+        assertTrue(tags.findUser("FF").isEmpty());
+        verify(users).findByRegisteredTagContaining("FF");
+    }
+
+    @Test
+    void test_warm_up_preloads_registered_tags() {
+
+        when(users.findAll()).thenReturn(List.of(User.builder().id("u").registeredTag(List.of(TAG)).build()));
+        when(sensitiveData.findAll())
+                .thenReturn(List.of(SensitiveData.builder().id("1").tagId(TAG).data("ciphertext").build()));
+
+        tags.warmUp();
+
+        assertEquals("u", tags.findUser(TAG).orElseThrow().getId());
+        assertEquals("ciphertext", tags.findSensitiveData(TAG).get(0).getData());
+        verify(users, never()).findByRegisteredTagContaining(anyString());
+        verify(sensitiveData, never()).findAllByTagId(anyString());
+    }
+}
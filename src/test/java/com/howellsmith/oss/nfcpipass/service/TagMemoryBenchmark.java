@@ -0,0 +1,89 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.ufr.CardTypes;
+import com.howellsmith.oss.nfcpipass.ufr.DefaultUfrReader;
+import com.howellsmith.oss.nfcpipass.ufr.SimulatedUfrDevice;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.howellsmith.oss.nfcpipass.model.ndef.TagImage.PAGE_SIZE;
+import static com.howellsmith.oss.nfcpipass.ufr.CardTypes.MAX_USER_MEMORY;
+import static com.howellsmith.oss.nfcpipass.ufr.CardTypes.T2T_NO_PWD_AUTH;
+import static com.howellsmith.oss.nfcpipass.ufr.CardTypes.userMemorySize;
+
+/**
+ * Measures reading the whole user memory of each supported Type 2 card type from a simulated reader, through the
+ * {@link TagMemoryReader} against page by page BlockRead calls. With a per call latency the time is dominated by the
+ * number of round trips: one for LinearRead, one per 4 byte page for BlockRead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class TagMemoryBenchmark {
+
+    private static final int UFR_NANO = 0xD1380022;
+    private static final int FIRST_USER_PAGE = 4;
+    private static final byte[] UID = {0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A};
+
+    @Param({"DL_MIFARE_ULTRALIGHT", "DL_MIFARE_ULTRALIGHT_EV1_21", "DL_MIFARE_ULTRALIGHT_C", "DL_NTAG_213",
+            "DL_NTAG_215", "DL_NTAG_216"})
+    private String cardType;
+
+    /**
+     * Latency of every native call. 0 isolates the Java side, 250us approximates a uFR Nano over USB.
+     */
+    @Param({"0", "250"})
+    private long latencyMicros;
+
+    private SimulatedUfrDevice device;
+    private DefaultUfrReader reader;
+    private TagMemoryReader tagMemory;
+    private int pages;
+    private final byte[] page = new byte[16];
+    private final byte[] memory = new byte[MAX_USER_MEMORY];
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+
+        var dlogicCardType = CardTypes.class.getField(cardType).getByte(null);
+        var size = userMemorySize(dlogicCardType);
+        pages = size / PAGE_SIZE;
+
+        device = new SimulatedUfrDevice(UFR_NANO);
+        device.setLatencyNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+        device.placeTag((byte) 0x44, UID, dlogicCardType, new byte[size]);
+        reader = new DefaultUfrReader(device);
+        tagMemory = new TagMemoryReader(new ReaderMetrics(new SimpleMeterRegistry()),
+                new TagImageCache(TagImageCache.DEFAULT_MAX_SIZE), MAX_USER_MEMORY);
+    }
+
+    @Benchmark
+    public int linearRead() {
+        return tagMemory.read(reader);
+    }
+
+    @Benchmark
+    public int blockRead() {
+        var status = 0;
+        for (int i = 0; i < pages && status == 0; i++) {
+            status = device.BlockRead(page, (byte) (FIRST_USER_PAGE + i), T2T_NO_PWD_AUTH, (byte) 0);
+            System.arraycopy(page, 0, memory, i * PAGE_SIZE, PAGE_SIZE);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,100 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.ufr.DefaultUfrReader;
+import com.howellsmith.oss.nfcpipass.ufr.SimulatedUfrDevice;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static com.howellsmith.oss.nfcpipass.service.ReaderConnection.UFR_NANO;
+import static com.howellsmith.oss.nfcpipass.ufr.CardTypes.DL_NTAG_213;
+import static com.howellsmith.oss.nfcpipass.ufr.CardTypes.DL_NTAG_215;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagMemoryReaderTest {
+
+    private static final byte[] UID = {0x04, 0x2A, 0x6B, 0x12, (byte) 0xC3, 0x5D, (byte) 0x80};
+    private static final String TAG_ID = "042A6B12C35D80";
+
+    private final SimulatedUfrDevice device = new SimulatedUfrDevice(UFR_NANO);
+    private final DefaultUfrReader reader = new DefaultUfrReader(device);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TagImageCache images = new TagImageCache(16L);
+
+    @Test
+    void test_memory_is_read_in_maximal_chunks() {
+
+        var memory = memory(504, "chunked");
+        device.placeTag((byte) 0x44, UID, DL_NTAG_215, memory);
+        var tagMemory = new TagMemoryReader(new ReaderMetrics(registry), images, 250);
+
+        assertEquals(DL_OK, tagMemory.read(reader));
+        assertTrue(tagMemory.isType2());
+
+        // 504 bytes in chunks of 248, the largest whole number of pages within the limit
+        assertEquals(3L, registry.get("ufr.call").tag("call", "LinearRead").timer().count());
+        var image = tagMemory.image(TAG_ID);
+        var read = new byte[504];
+        image.memory().get(read);
+        assertEquals(new String(memory), new String(read));
+        assertEquals("chunked", image.getNdefMessage().getText());
+    }
+
+    @Test
+    void test_next_tap_is_diffed_against_the_last_image() {
+
+        var memory = memory(144, "first");
+        device.placeTag((byte) 0x44, UID, DL_NTAG_213, memory);
+        var tagMemory = new TagMemoryReader(new ReaderMetrics(registry), images, 888);
+
+        assertEquals(DL_OK, tagMemory.read(reader));
+        var first = tagMemory.image(TAG_ID);
+        assertEquals(36, first.getChangedPages().cardinality());
+
+        // the same memory on the next tap reuses the parsed message
+        assertEquals(DL_OK, tagMemory.read(reader));
+        var unchanged = tagMemory.image(TAG_ID);
+        assertTrue(unchanged.isUnchanged());
+        assertSame(first.getNdefMessage(), unchanged.getNdefMessage());
+
+        // rewriting the text only changes the pages it spans
+        device.placeTag((byte) 0x44, UID, DL_NTAG_213, memory(144, "fir5t"));
+        assertEquals(DL_OK, tagMemory.read(reader));
+        var rewritten = tagMemory.image(TAG_ID);
+        var changed = new BitSet();
+        changed.set(3);
+        assertEquals(changed, rewritten.getChangedPages());
+        assertEquals("fir5t", rewritten.getNdefMessage().getText());
+        assertSame(rewritten, images.get(TAG_ID));
+    }
+
+    @Test
+    void test_other_cards_are_not_read() {
+
+        device.placeTag((byte) 0x08, UID, "text only");
+        var tagMemory = new TagMemoryReader(new ReaderMetrics(registry), images, 888);
+
+        tagMemory.read(reader);
+        assertFalse(tagMemory.isType2());
+        assertEquals(0L, registry.get("ufr.call").tag("call", "LinearRead").timer().count());
+    }
+
+    /**
+     * User memory holding a single Text record, padded to the size of the card.
+     */
+    private static byte[] memory(int size, String text) {
+        var memory = new byte[size];
+        var body = text.getBytes();
+        var header = new byte[]{0x03, (byte) (7 + body.length), (byte) 0xD1, 0x01, (byte) (3 + body.length), 'T', 0x02,
+                'e', 'n'};
+        System.arraycopy(header, 0, memory, 0, header.length);
+        System.arraycopy(body, 0, memory, header.length, body.length);
+        memory[header.length + body.length] = (byte) 0xFE;
+        return memory;
+    }
+}
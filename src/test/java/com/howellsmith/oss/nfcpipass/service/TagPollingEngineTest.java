@@ -0,0 +1,130 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.ufr.UfrDevice;
+import com.sun.jna.ptr.ByteByReference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.NO_CARD;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the polling engine against a mocked reader. The tap to event latency follows from the cadence, which is tested
+ * through {@code nextDelay} rather than against the wall clock.
+ */
+class TagPollingEngineTest {
+
+    private static final long FAST = 20L;
+    private static final long IDLE = 80L;
+    private static final long WINDOW = 200L;
+
+    private final AtomicBoolean tagPresent = new AtomicBoolean(false);
+    private final AtomicReference<CountDownLatch> arrived = new AtomicReference<>(new CountDownLatch(1));
+
+    private UfrDevice device;
+    private ApplicationEventPublisher publisher;
+    private TagPollingEngine engine;
+
+    @BeforeEach
+    void before_each() {
+
+        device = mock(UfrDevice.class);
+        publisher = mock(ApplicationEventPublisher.class);
+
+        when(device.ReaderOpen()).thenReturn(DL_OK);
+        when(device.GetReaderType(any(int[].class))).thenReturn(DL_OK);
+        when(device.ReadNdefRecord_Text(any())).thenReturn(DL_OK);
+        doAnswer((Answer<Integer>) i -> {
+            if (!tagPresent.get()) return NO_CARD;
+            i.getArgument(2, ByteByReference.class).setValue((byte) 0x08);
+            return DL_OK;
+        }).when(device).GetCardIdEx(any(), any(), any());
+        doAnswer(i -> {
+            if (i.getArgument(0) instanceof TagArrivedEvent) arrived.get().countDown();
+            return null;
+        }).when(publisher).publishEvent(any());
+
+        var metrics = new ReaderMetrics(new SimpleMeterRegistry());
+        var service = new HardwareManagementService(mock(UnifiedLoggingService.class), device, metrics, publisher);
+        engine = new TagPollingEngine(service, mock(UnifiedLoggingService.class), metrics, FAST, IDLE, WINDOW, 1.5,
+                "test_poll");
+    }
+
+    @AfterEach
+    void after_each() {
+        engine.stop();
+    }
+
+    @Test
+    void test_tap_is_published_by_the_running_engine() throws InterruptedException {
+
+        engine.start();
+        tagPresent.set(true);
+        assertTrue(arrived.get().await(5, SECONDS));
+    }
+
+    @Test
+    void test_polling_carries_on_after_an_error() throws InterruptedException {
+
+        var hardware = mock(HardwareManagementService.class);
+        var polled = new CountDownLatch(2);
+        when(hardware.poll()).thenAnswer(i -> {
+            polled.countDown();
+            if (polled.getCount() == 1) throw new UnsatisfiedLinkError("uFCoder");
+            return false;
+        });
+        var failing = new TagPollingEngine(hardware, mock(UnifiedLoggingService.class),
+                new ReaderMetrics(new SimpleMeterRegistry()), FAST, IDLE, WINDOW, 1.5, "test_poll_failing");
+
+        failing.start();
+        try {
+            assertTrue(polled.await(5, SECONDS));
+        } finally {
+            failing.stop();
+        }
+    }
+
+    @Test
+    void test_idle_delay_bounds_tap_to_event_latency() {
+
+        // however long the field stays empty, the next poll is at most the idle interval away
+        var now = System.nanoTime();
+        for (long elapsed = 0; elapsed < 10_000; elapsed += 7) {
+            var delay = engine.nextDelay(false, now + MILLISECONDS.toNanos(elapsed));
+            assertTrue(delay >= FAST && delay <= IDLE, "delay after " + elapsed + "ms was " + delay + "ms");
+        }
+        assertEquals(FAST, engine.nextDelay(true, now + SECONDS.toNanos(10)));
+    }
+
+    @Test
+    void test_cadence_backs_off_and_resets_on_change() {
+
+        var now = System.nanoTime();
+
+        assertEquals(FAST, engine.nextDelay(true, now));
+        assertEquals(FAST, engine.nextDelay(false, now + MILLISECONDS.toNanos(WINDOW - 1)));
+        assertEquals(30L, engine.nextDelay(false, now + MILLISECONDS.toNanos(WINDOW + 1)));
+        assertEquals(45L, engine.nextDelay(false, now + MILLISECONDS.toNanos(WINDOW + 30)));
+        assertEquals(68L, engine.nextDelay(false, now + MILLISECONDS.toNanos(WINDOW + 75)));
+        assertEquals(IDLE, engine.nextDelay(false, now + MILLISECONDS.toNanos(WINDOW + 143)));
+        assertEquals(IDLE, engine.nextDelay(false, now + MILLISECONDS.toNanos(WINDOW + 223)));
+        assertEquals(FAST, engine.nextDelay(true, now + MILLISECONDS.toNanos(WINDOW + 303)));
+    }
+}
@@ -0,0 +1,232 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.config.AsyncConfig;
+import com.howellsmith.oss.nfcpipass.config.EventConfig;
+import com.howellsmith.oss.nfcpipass.dao.SensitiveDataRepository;
+import com.howellsmith.oss.nfcpipass.hid.KeyboardLayout;
+import com.howellsmith.oss.nfcpipass.model.domain.SensitiveData;
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagDetectedEvent;
+import com.howellsmith.oss.nfcpipass.ufr.SimulatedUfrDevice;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * End to end latency of a tap, from the poll cycle that sees the tag to the first and to the last key typed. The reader
+ * is simulated with {@code readerMillis} per call, so the uid read, the card type and the NDEF read each take that long,
+ * and the repository is a stand-in that answers after {@code mongoMillis}; every tap misses the tag cache. Events go
+ * through the reader event bus as in the application.
+ * <p>
+ * Sequential runs start the lookup on the arrival event, after the NDEF read, as a read, query, decrypt, type chain
+ * would; pipelined runs start it on the {@link TagDetectedEvent}. Inline payloads are a 64 character password; segmented
+ * payloads are 1 KiB of text in 256 byte segments from a GridFS stand-in that takes {@code mongoMillis / 4} per chunk.
+ * The tag key stays cached, as for a tag tapped again within its lifetime; a first tap adds one derivation, see
+ * {@link CryptoBenchmark}. The keyboard writes to /dev/null without a gap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TapToTypeBenchmark {
+
+    private static final int UFR_NANO = 0xD1380022;
+    private static final byte[] UID = {0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A};
+    private static final String TAG = "0405060708090A";
+    private static final String PASSWORD = "correct horse battery staple";
+    private static final String SECRET = "Tr0ub4dor&3-correct.horse/battery:staple?aaBBcc!@#$%^&*()_+ZzYy9";
+    private static final int SEGMENT = 256;
+
+    @Param({"false", "true"})
+    public boolean pipelined;
+
+    @Param({"inline", "segmented"})
+    public String payload;
+
+    @Param({"10"})
+    public long readerMillis;
+
+    @Param({"20"})
+    public long mongoMillis;
+
+    private SimulatedUfrDevice device;
+    private HardwareManagementService hardware;
+    private TagLookupService tags;
+    private CryptoService crypto;
+    private KeyboardService keyboard;
+    private byte[] sealed;
+    private volatile CountDownLatch firstKey;
+    private volatile CountDownLatch typed;
+
+    @Setup
+    public void setup() throws Exception {
+
+        var registry = new SimpleMeterRegistry();
+        crypto = new CryptoService(registry, 310_000, 3600, SEGMENT);
+        var record = record();
+
+        var repository = mock(SensitiveDataRepository.class);
+        when(repository.findAllByTagId(anyString())).thenAnswer(i -> {
+            Thread.sleep(mongoMillis);
+            return List.of(record);
+        });
+        var config = new AsyncConfig("platform", 10, 10, "tap_");
+        tags = new TagLookupService(null, repository, mock(UnifiedLoggingService.class), registry,
+                config.lookupExecutor(), 1000, 60);
+
+        keyboard = new KeyboardService(registry, "/dev/null", KeyboardLayout.US, 1, 0, 0, false) {
+            @Override
+            public void type(char[] text, int offset, int length) throws IOException {
+                super.type(text, offset, length);
+                firstKey.countDown();
+            }
+        };
+        var provisioning = mock(ProvisioningService.class);
+        var tapToType = new TapToTypeService(tags, crypto, new SlowContent(crypto), keyboard, provisioning,
+                mock(UnifiedLoggingService.class), registry, true);
+
+        var bus = new EventConfig(1024, config.taskExecutor()).multicaster();
+        if (pipelined) bus.addApplicationListener((ApplicationListener<TagDetectedEvent>) tapToType::onTagDetected);
+        bus.addApplicationListener((ApplicationListener<TagArrivedEvent>) e -> {
+            tapToType.onTagArrived(e);
+            firstKey.countDown();
+            typed.countDown();
+        });
+
+        device = new SimulatedUfrDevice(UFR_NANO);
+        device.placeTag((byte) 0x08, UID, PASSWORD);
+        hardware = new HardwareManagementService(new UnifiedLoggingService(), device, new ReaderMetrics(registry),
+                event -> bus.multicastEvent((ApplicationEvent) event));
+
+        // connect, and unlock once so the tag key is cached
+        firstKey = new CountDownLatch(1);
+        typed = new CountDownLatch(1);
+        while (typed.getCount() > 0) hardware.poll();
+        typed.await();
+        device.setLatencyNanos(TimeUnit.MILLISECONDS.toNanos(readerMillis));
+    }
+
+    private SensitiveData record() throws GeneralSecurityException, IOException {
+
+        if (payload.equals("inline")) return crypto.seal(TAG, PASSWORD.toCharArray(), SECRET.getBytes(UTF_8), List.of());
+
+        var text = SECRET.repeat(1024 / SECRET.length()).getBytes(UTF_8);
+        var sealed = crypto.sealStream(TAG, PASSWORD.toCharArray(), new ByteArrayInputStream(text), List.of());
+        this.sealed = sealed.getContent().readAllBytes();
+        return sealed.getRecord().toBuilder().contentId("content").build();
+    }
+
+    @Setup(Level.Invocation)
+    public void removeTag() throws InterruptedException {
+        typed.await();
+        device.removeTag();
+        hardware.poll();
+        tags.invalidateSensitiveData();
+        firstKey = new CountDownLatch(1);
+        typed = new CountDownLatch(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        hardware.close();
+        keyboard.close();
+        crypto.close();
+    }
+
+    @Benchmark
+    public void tapToFirstKey() throws InterruptedException {
+        device.returnTag();
+        hardware.poll();
+        firstKey.await();
+    }
+
+    @Benchmark
+    public void tapToLastKey() throws InterruptedException {
+        device.returnTag();
+        hardware.poll();
+        typed.await();
+    }
+
+    /**
+     * GridFS stand-in serving the sealed content in chunks of one segment, each taking a quarter of the query time.
+     */
+    private class SlowContent extends SensitiveContentService {
+
+        SlowContent(CryptoService crypto) {
+            super(null, crypto, null);
+        }
+
+        @Override
+        public long unlockTo(String tagId, char[] password, SensitiveData record, OutputStream sink)
+                throws GeneralSecurityException, IOException {
+            try (var plaintext = crypto.unlockStream(tagId, password, record, new SlowStream(sealed))) {
+                return plaintext.transferTo(sink);
+            }
+        }
+    }
+
+    private class SlowStream extends InputStream {
+
+        private final byte[] content;
+        private int position;
+
+        SlowStream(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position == content.length) return -1;
+            var chunk = SEGMENT + 16;
+            if (position % chunk == 0) fetch();
+            var n = Math.min(len, Math.min(content.length - position, chunk - position % chunk));
+            System.arraycopy(content, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private void fetch() throws IOException {
+            try {
+                Thread.sleep(mongoMillis / 4);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.hid.KeyboardLayout;
+import com.howellsmith.oss.nfcpipass.model.domain.SensitiveData;
+import com.howellsmith.oss.nfcpipass.model.event.NdefChangedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagDepartedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagDetectedEvent;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TapToTypeServiceTest {
+
+    private static final String READER = "00000001";
+    private static final String TAG = "0001020304050607";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @TempDir
+    Path directory;
+
+    private TagLookupService tags;
+    private SensitiveContentService content;
+    private ProvisioningService provisioning;
+    private CryptoService crypto;
+    private KeyboardService keyboard;
+    private TapToTypeService tapToType;
+    private Path device;
+
+    @BeforeEach
+    void before_each() {
+        tags = mock(TagLookupService.class);
+        content = mock(SensitiveContentService.class);
+        provisioning = mock(ProvisioningService.class);
+        crypto = new CryptoService(new SimpleMeterRegistry(), 1000, 30, 64);
+        device = directory.resolve("hidg0");
+        keyboard = new KeyboardService(new SimpleMeterRegistry(), device.toString(), KeyboardLayout.UK, 1, 0, 0, false);
+        tapToType = new TapToTypeService(tags, crypto, content, keyboard, provisioning,
+                mock(UnifiedLoggingService.class), new SimpleMeterRegistry(), true);
+    }
+
+    @AfterEach
+    void after_each() {
+        keyboard.close();
+        crypto.close();
+    }
+
+    private void tap() {
+        tapToType.onTagDetected(new TagDetectedEvent(this, READER, 0L, TAG));
+        tapToType.onTagArrived(new TagArrivedEvent(this, READER, 0L, TAG, NdefMessage.ofText(PASSWORD, "en")));
+    }
+
+    @Test
+    void test_lookup_started_on_detection_is_typed_on_arrival() throws Exception {
+
+        var record = crypto.seal(TAG, PASSWORD.toCharArray(), "s3cret!".getBytes(UTF_8), List.of());
+        when(tags.lookupSensitiveData(TAG)).thenReturn(CompletableFuture.completedFuture(List.of(record)));
+
+        tap();
+
+        var typed = KeyboardLayout.UK.reports("s3cret!".toCharArray(), 0, 7);
+        verify(tags, times(1)).lookupSensitiveData(TAG);
+        assertArrayEquals(typed, Files.readAllBytes(device));
+
+        // nothing is typed while tags are being provisioned
+        when(provisioning.isProvisioning()).thenReturn(true);
+        tap();
+        assertEquals(typed.length, Files.size(device));
+    }
+
+    @Test
+    void test_ndef_read_after_arrival_is_typed_while_the_tag_is_present() throws Exception {
+
+        var record = crypto.seal(TAG, PASSWORD.toCharArray(), "s3cret!".getBytes(UTF_8), List.of());
+        when(tags.lookupSensitiveData(TAG)).thenReturn(CompletableFuture.completedFuture(List.of(record)));
+        var ndef = NdefMessage.ofText(PASSWORD, "en");
+
+        tapToType.onTagDetected(new TagDetectedEvent(this, READER, 0L, TAG));
+        tapToType.onTagArrived(new TagArrivedEvent(this, READER, 0L, TAG, null));
+        assertFalse(Files.exists(device));
+        tapToType.onNdefChanged(new NdefChangedEvent(this, READER, 0L, TAG, ndef));
+
+        var typed = KeyboardLayout.UK.reports("s3cret!".toCharArray(), 0, 7);
+        verify(tags, times(1)).lookupSensitiveData(TAG);
+        assertArrayEquals(typed, Files.readAllBytes(device));
+
+        // a later change to the NDEF message of the same tap is not typed again
+        tapToType.onNdefChanged(new NdefChangedEvent(this, READER, 0L, TAG, ndef));
+        assertEquals(typed.length, Files.size(device));
+
+        // nor is the NDEF message of a tag that left before it was read
+        tapToType.onTagDetected(new TagDetectedEvent(this, READER, 0L, TAG));
+        tapToType.onTagArrived(new TagArrivedEvent(this, READER, 0L, TAG, null));
+        tapToType.onTagDeparted(new TagDepartedEvent(this, READER, 0L, TAG));
+        tapToType.onNdefChanged(new NdefChangedEvent(this, READER, 0L, TAG, ndef));
+        assertEquals(typed.length, Files.size(device));
+    }
+
+    @Test
+    void test_content_is_typed_as_it_is_unlocked() throws Exception {
+
+        var record = SensitiveData.builder().tagId(TAG).contentId("content").build();
+        when(tags.lookupSensitiveData(anyString())).thenReturn(CompletableFuture.completedFuture(List.of(record)));
+
+        // the first £ is split across two segments, each segment is typed as it is written
+        var text = "£1£".getBytes(UTF_8);
+        doAnswer(invocation -> {
+            var sink = invocation.getArgument(3, OutputStream.class);
+            sink.write(text, 0, 1);
+            sink.write(text, 1, 4);
+            sink.write(text, 5, 0);
+            return (long) text.length;
+        }).when(content).unlockTo(eq(TAG), any(), eq(record), any());
+
+        tap();
+
+        var expected = new ByteArrayOutputStream();
+        expected.write(KeyboardLayout.UK.reports("£".toCharArray(), 0, 1));
+        expected.write(KeyboardLayout.UK.reports("1£".toCharArray(), 0, 2));
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(device));
+        verify(tags, never()).findSensitiveData(anyString());
+    }
+
+    @Test
+    void test_every_record_is_typed_in_order() throws Exception {
+
+        var user = crypto.seal(TAG, PASSWORD.toCharArray(), "user\t".getBytes(UTF_8), List.of());
+        var file = SensitiveData.builder().tagId(TAG).contentId("content").build();
+        var password = crypto.seal(TAG, PASSWORD.toCharArray(), "s3cret!".getBytes(UTF_8), List.of(user));
+        when(tags.lookupSensitiveData(TAG))
+                .thenReturn(CompletableFuture.completedFuture(List.of(user, file, password)));
+        doAnswer(invocation -> {
+            invocation.getArgument(3, OutputStream.class).write("file\n".getBytes(UTF_8));
+            return 5L;
+        }).when(content).unlockTo(eq(TAG), any(), eq(file), any());
+
+        tap();
+
+        var expected = new ByteArrayOutputStream();
+        expected.write(KeyboardLayout.UK.reports("user\t".toCharArray(), 0, 5));
+        expected.write(KeyboardLayout.UK.reports("file\n".toCharArray(), 0, 5));
+        expected.write(KeyboardLayout.UK.reports("s3cret!".toCharArray(), 0, 7));
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(device));
+    }
+}
@@ -0,0 +1,62 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.howellsmith.oss.nfcpipass.ufr.Utilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the uid conversions done when a tag is read, against the BigInteger conversion they replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UidConversionBenchmark {
+
+    @Param({"4", "7", "10"})
+    private int uidLength;
+
+    private byte[] uid;
+    private byte[] legacyUid;
+
+    @Setup
+    public void setup() {
+        uid = new byte[uidLength];
+        for (int i = 0; i < uidLength; i++) uid[i] = (byte) (0x04 + i);
+        legacyUid = Arrays.copyOf(uid, 8);
+    }
+
+    @Benchmark
+    public long uidToLong() {
+        return HardwareManagementService.uidToLong(uid, uidLength);
+    }
+
+    /**
+     * The BigInteger conversion the poll loop used before, for comparison. It always read an 8 byte buffer.
+     */
+    @Benchmark
+    public long uidToLongBigInteger() {
+        return new BigInteger(new byte[]{legacyUid[7], legacyUid[6], legacyUid[5], legacyUid[4], legacyUid[3],
+                legacyUid[2], legacyUid[1], legacyUid[0]}).longValue();
+    }
+
+    @Benchmark
+    public String uidToHex() {
+        return Utilities.toHex(uid, uidLength);
+    }
+}
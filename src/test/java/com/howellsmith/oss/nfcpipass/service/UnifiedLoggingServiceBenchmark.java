@@ -0,0 +1,107 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MARKER_UNEXPECTED_READER_STATUS;
+import static com.howellsmith.oss.nfcpipass.config.StringConstants.MESSAGE_UNEXPECTED_READER_STATUS;
+
+/**
+ * Measures the unified logging path used for every event and reader status log: the complete write through the
+ * JSON layout to a file with and without the caller location, the caller lookup against the previous stack trace based
+ * lookup, and the exception stack map. Logging is asynchronous, so the throughput of a full write is bound by the
+ * appender thread; writeLogLatency paces the calls to measure what a caller sees at the application's real log rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class UnifiedLoggingServiceBenchmark {
+
+    private UnifiedLoggingService log;
+    private UnifiedLoggingService withoutLocation;
+    private HardwareManagementService.DeviceStatusLogWrapper status;
+    private Throwable throwable;
+
+    @Setup
+    public void setup() {
+        log = new UnifiedLoggingService();
+        withoutLocation = new UnifiedLoggingService(new String[0], new String[0]);
+        status = HardwareManagementService.DeviceStatusLogWrapper.builder()
+                .marker(MARKER_UNEXPECTED_READER_STATUS)
+                .message(MESSAGE_UNEXPECTED_READER_STATUS)
+                .deviceId("0xD1380022")
+                .status("0x000000FF")
+                .build();
+        throwable = nest(20);
+    }
+
+    private static Throwable nest(int depth) {
+        return depth == 0 ? new IllegalStateException("benchmark") : nest(depth - 1);
+    }
+
+    @Benchmark
+    public void writeLog() {
+        log.info(status);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void writeLogLatency(Pacing pacing) {
+        log.info(status);
+    }
+
+    @Benchmark
+    public void writeLogWithoutLocation() {
+        withoutLocation.info(status);
+    }
+
+    @Benchmark
+    public Map<String, Object> getSource() {
+        return log.getSource();
+    }
+
+    /**
+     * The previous lookup, which materialized the whole stack three times per message.
+     */
+    @Benchmark
+    public Map<String, Object> getSourceStackTrace() {
+        var clazz = Thread.currentThread().getStackTrace()[1].getClassName();
+        var lineNumber = Thread.currentThread().getStackTrace()[1].getLineNumber();
+        var method = Thread.currentThread().getStackTrace()[1].getMethodName();
+        return Map.of("_class", clazz, "_lineNumber", lineNumber, "_method", method);
+    }
+
+    @Benchmark
+    public Map<Integer, String> getStackMap() {
+        return UnifiedLoggingService.getStackMap(throwable);
+    }
+
+    /**
+     * Leaves a gap between calls so the appender thread keeps up, as it does in the running application.
+     */
+    @State(Scope.Thread)
+    public static class Pacing {
+
+        @Setup(Level.Invocation)
+        public void pause() {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+}
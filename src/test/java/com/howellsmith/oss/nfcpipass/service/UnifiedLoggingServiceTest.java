@@ -0,0 +1,71 @@
+package com.howellsmith.oss.nfcpipass.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.howellsmith.oss.nfcpipass.model.event.NdefChangedEvent;
+import com.howellsmith.oss.nfcpipass.model.event.TagArrivedEvent;
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import com.howellsmith.oss.nfcpipass.model.state.ReaderState;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UnifiedLoggingServiceTest {
+
+    private final UnifiedLoggingService log = new UnifiedLoggingService();
+
+    @Test
+    void test_source_is_the_caller_and_cached_per_call_site() {
+
+        Map<String, Object> first = null;
+        for (int i = 0; i < 2; i++) {
+            var source = log.getSource();
+            assertEquals(UnifiedLoggingServiceTest.class.getName(), source.get("_class"));
+            assertEquals("test_source_is_the_caller_and_cached_per_call_site", source.get("_method"));
+            if (first == null) first = source;
+            else assertSame(first, source);
+        }
+
+        var other = log.getSource();
+        assertEquals(first.get("_class"), other.get("_class"));
+        assertNotSame(first, other);
+    }
+
+    @Test
+    void test_message_renders_source_and_data() throws Exception {
+
+        var source = log.getSource();
+        var message = new UnifiedLogMessage().set(source, ReaderState.builder().deviceId("0xD1380022").build());
+        var json = new ObjectMapper().readTree(message.getFormattedMessage());
+
+        assertEquals(source.get("_class"), json.get("_source").get("_class").asText());
+        assertEquals(source.get("_lineNumber"), json.get("_source").get("_lineNumber").asInt());
+        assertEquals(source.get("_method"), json.get("_source").get("_method").asText());
+        assertEquals("0xD1380022", json.get("_data").get("deviceId").asText());
+        assertFalse(json.get("_data").has("uid"));
+
+        var withoutSource = new ObjectMapper().readTree(new UnifiedLogMessage().set(null, "text").getFormattedMessage());
+        assertFalse(withoutSource.has("_source"));
+        assertEquals("text", withoutSource.get("_data").asText());
+    }
+
+    @Test
+    void test_tag_password_is_never_logged() {
+
+        var password = "correct horse battery staple";
+        var ndef = NdefMessage.ofText(password, "en");
+        for (var data : new Object[]{
+                new TagArrivedEvent("reader", "00000001", 1L, "01020304", ndef),
+                new NdefChangedEvent("reader", "00000001", 1L, "01020304", ndef),
+                ReaderState.builder().tagInField(true).tagId("01020304").ndef(password).build()}) {
+            var message = new UnifiedLogMessage().set(null, data).getFormattedMessage();
+            assertTrue(message.contains("01020304"), message);
+            assertFalse(message.contains(password), message);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.ByteByReference;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.READER_PORT_NOT_OPENED;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the direct binding and the proxy binding against the stub library and expects the same results from both.
+ */
+class DirectUfrReaderTest {
+
+    private static UfrDevice device;
+    private static UfrDirect direct;
+
+    @BeforeAll
+    static void before_all() throws Exception {
+        var library = NativeStub.build();
+        assumeTrue(library != null, "no C compiler to build the stub library");
+        device = Native.load(library, UfrDevice.class);
+        direct = UfrDirect.register(library);
+    }
+
+    @Test
+    void test_direct_binding_reads_what_the_proxy_reads() {
+
+        assertTrue(direct.isAvailable());
+        assertTrue(direct.defaultReader(device) instanceof DirectUfrReader);
+
+        assertReadsAlike(new DefaultUfrReader(device), direct.defaultReader(device));
+    }
+
+    @Test
+    void test_direct_handle_binding_reads_what_the_proxy_reads() {
+
+        assertTrue(direct.isHandlesAvailable());
+        var proxy = new HandleUfrReader(device, "0x00000064");
+        var reader = direct.handleReader(device, "0x00000064");
+        assertTrue(reader instanceof DirectHandleUfrReader);
+
+        assertEquals(READER_PORT_NOT_OPENED, reader.getCardIdEx(new ByteByReference(), new byte[10],
+                new ByteByReference()));
+
+        proxy.attach(new Pointer(1L));
+        reader.attach(new Pointer(1L));
+        assertReadsAlike(proxy, reader);
+    }
+
+    private static void assertReadsAlike(UfrReader proxy, UfrReader reader) {
+
+        int[] expectedType = new int[1], actualType = new int[1];
+        assertEquals(proxy.getReaderType(expectedType), reader.getReaderType(actualType));
+        assertArrayEquals(expectedType, actualType);
+
+        ByteByReference expectedCard = new ByteByReference(), actualCard = new ByteByReference();
+        ByteByReference expectedSize = new ByteByReference(), actualSize = new ByteByReference();
+        byte[] expectedUid = new byte[10], actualUid = new byte[10];
+        assertEquals(DL_OK, proxy.getCardIdEx(expectedCard, expectedUid, expectedSize));
+        assertEquals(DL_OK, reader.getCardIdEx(actualCard, actualUid, actualSize));
+        assertEquals(expectedCard.getValue(), actualCard.getValue());
+        assertEquals(7, actualSize.getValue());
+        assertArrayEquals(expectedUid, actualUid);
+
+        byte[] expectedText = new byte[1000], actualText = new byte[1000];
+        Arrays.fill(actualText, (byte) 'x');
+        assertEquals(DL_OK, proxy.readNdefText(expectedText));
+        assertEquals(DL_OK, reader.readNdefText(actualText));
+        assertEquals("pipass:0001", new String(actualText, 0, 11));
+        assertEquals(0, actualText[11]);
+    }
+}
@@ -0,0 +1,76 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.sun.jna.Native;
+import com.sun.jna.ptr.ByteByReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per call overhead of the proxy binding against the direct binding of the poll path, both calling the
+ * stub library built by {@link NativeStub}, which does next to nothing, so the difference is the binding alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeBindingBenchmark {
+
+    private final int[] readerType = new int[1];
+    private final ByteByReference cardType = new ByteByReference();
+    private final ByteByReference uidSize = new ByteByReference();
+    private final byte[] uid = new byte[PollMemory.MAX_UID_LENGTH];
+    private final byte[] text = new byte[1000];
+
+    private UfrReader proxy;
+    private UfrReader direct;
+
+    @Setup
+    public void setup() throws Exception {
+        var library = NativeStub.build();
+        if (library == null) throw new IllegalStateException("a C compiler is needed to build the stub library");
+        proxy = new DefaultUfrReader(Native.load(library, UfrDevice.class));
+        direct = UfrDirect.register(library).defaultReader(null);
+    }
+
+    @Benchmark
+    public int proxyGetReaderType() {
+        return proxy.getReaderType(readerType);
+    }
+
+    @Benchmark
+    public int directGetReaderType() {
+        return direct.getReaderType(readerType);
+    }
+
+    @Benchmark
+    public int proxyGetCardIdEx() {
+        return proxy.getCardIdEx(cardType, uid, uidSize);
+    }
+
+    @Benchmark
+    public int directGetCardIdEx() {
+        return direct.getCardIdEx(cardType, uid, uidSize);
+    }
+
+    @Benchmark
+    public int proxyReadNdefText() {
+        return proxy.readNdefText(text);
+    }
+
+    @Benchmark
+    public int directReadNdefText() {
+        return direct.readNdefText(text);
+    }
+}
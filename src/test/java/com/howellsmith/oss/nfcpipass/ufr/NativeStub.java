@@ -0,0 +1,44 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Builds the stub uFR library in native/ufr_stub.c with the system C compiler, so the bindings can be exercised without
+ * a reader or the vendor library.
+ */
+final class NativeStub {
+
+    private static final Path DIRECTORY = Paths.get("target", "native");
+
+    private NativeStub() {}
+
+    /**
+     * @return Returns the absolute path of the built library, or null when there is no C compiler.
+     */
+    static synchronized String build() throws IOException, InterruptedException {
+
+        var library = DIRECTORY.resolve("libufr_stub.so").toAbsolutePath();
+        if (Files.exists(library)) return library.toString();
+
+        Files.createDirectories(DIRECTORY);
+        var source = DIRECTORY.resolve("ufr_stub.c");
+        try (InputStream in = NativeStub.class.getResourceAsStream("/native/ufr_stub.c")) {
+            Files.copy(in, source, REPLACE_EXISTING);
+        }
+
+        try {
+            var gcc = new ProcessBuilder("cc", "-O2", "-shared", "-fPIC", "-o", library.toString(), source.toString())
+                    .inheritIO()
+                    .start();
+            return gcc.waitFor() == 0 ? library.toString() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
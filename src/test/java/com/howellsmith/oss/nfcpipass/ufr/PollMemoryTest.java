@@ -0,0 +1,42 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static com.howellsmith.oss.nfcpipass.ufr.PollMemory.TEXT_SIZE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PollMemoryTest {
+
+    private final PollMemory memory = new PollMemory();
+
+    @Test
+    void test_text_is_copied_up_to_its_terminator() {
+
+        memory.text.write(0, "password\0left over".getBytes(UTF_8), 0, 18);
+        var text = new byte[32];
+        Arrays.fill(text, (byte) 'x');
+
+        assertEquals(DL_OK, memory.copyText(DL_OK, text));
+        assertArrayEquals(Arrays.copyOf("password".getBytes(UTF_8), 32), text);
+    }
+
+    @Test
+    void test_unterminated_text_is_copied_no_further_than_the_text_area() {
+
+        var full = new byte[TEXT_SIZE];
+        Arrays.fill(full, (byte) 'a');
+        memory.text.write(0, full, 0, TEXT_SIZE);
+        var text = new byte[TEXT_SIZE + 16];
+        Arrays.fill(text, (byte) 'x');
+
+        assertEquals(DL_OK, memory.copyText(DL_OK, text));
+        assertArrayEquals(full, Arrays.copyOf(text, TEXT_SIZE));
+        assertEquals(0, text[TEXT_SIZE]);
+        assertEquals('x', text[TEXT_SIZE + 1]);
+    }
+}
@@ -0,0 +1,1028 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.howellsmith.oss.nfcpipass.model.ndef.NdefMessage;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.ByteByReference;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+import com.sun.jna.ptr.ShortByReference;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.CAN_NOT_OPEN_READER;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.COMMAND_NOT_SUPPORTED;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.COMMUNICATION_BREAK;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.MAX_ADDRESS_EXCEEDED;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.NO_CARD;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.READING_ERROR;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.WRITING_ERROR;
+
+/**
+ * An allocation free, in memory stand-in for a uFR reader with a single tag that can be placed on and removed from the
+ * field. Only the calls used by the application are simulated, everything else reports {@link
+ * ErrorCodes#COMMAND_NOT_SUPPORTED}. A per call latency can be configured to approximate the USB round trip of a real
+ * reader; it is spun rather than slept so sub-millisecond values are honoured.
+ */
+public class SimulatedUfrDevice implements UfrDevice {
+
+    private static final int FIRST_USER_PAGE = 4;
+    private static final int PAGE_SIZE = 4;
+
+    private final int readerType;
+
+    private volatile boolean tagPresent;
+    private volatile byte cardType;
+    private volatile byte[] uid = new byte[0];
+    private volatile byte[] ndef = new byte[0];
+    private volatile byte dlogicCardType;
+    private volatile byte[] memory = new byte[0];
+    private volatile boolean formatted;
+    private volatile int writeStatus = DL_OK;
+    private volatile int lastLightMode;
+    private final AtomicInteger signals = new AtomicInteger();
+    private volatile long latencyNanos;
+    private volatile LongSupplier clock = System::nanoTime;
+    private volatile long poweredOffUntilNanos = System.nanoTime();
+
+    public SimulatedUfrDevice(int readerType) {
+        this.readerType = readerType;
+    }
+
+    /**
+     * Place a tag in the field.
+     *
+     * @param cardType The card type reported by GetCardIdEx.
+     * @param uid      The uid of the tag, 4, 7, 8 or 10 bytes.
+     * @param ndef     The NDEF Text record content.
+     */
+    public void placeTag(byte cardType, byte[] uid, String ndef) {
+        this.cardType = cardType;
+        this.uid = uid.clone();
+        this.ndef = ndef.getBytes(StandardCharsets.UTF_8);
+        this.dlogicCardType = 0;
+        this.memory = new byte[0];
+        this.formatted = true;
+        this.tagPresent = true;
+    }
+
+    /**
+     * Place a tag that is not formatted for NDEF in the field, as it comes out of the box.
+     */
+    public void placeBlankTag(byte cardType, byte[] uid) {
+        placeTag(cardType, uid, "");
+        this.formatted = false;
+    }
+
+    /**
+     * Place a Type 2 tag in the field, whose user memory can be read with LinearRead.
+     *
+     * @param cardType       The card type reported by GetCardIdEx.
+     * @param uid            The uid of the tag, 4, 7, 8 or 10 bytes.
+     * @param dlogicCardType The card type reported by GetDlogicCardType, see {@link CardTypes}.
+     * @param memory         The user memory, padded to the size of the card type.
+     */
+    public void placeTag(byte cardType, byte[] uid, byte dlogicCardType, byte[] memory) {
+        var message = NdefMessage.fromType2Memory(memory, memory.length);
+        var text = message == null ? null : message.getText();
+        this.cardType = cardType;
+        this.uid = uid.clone();
+        this.ndef = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        this.dlogicCardType = dlogicCardType;
+        this.memory = Arrays.copyOf(memory, CardTypes.userMemorySize(dlogicCardType));
+        this.formatted = true;
+        this.tagPresent = true;
+    }
+
+    /**
+     * Remove the tag from the field.
+     */
+    public void removeTag() {
+        this.tagPresent = false;
+    }
+
+    /**
+     * Put the previously placed tag back in the field.
+     */
+    public void returnTag() {
+        this.tagPresent = true;
+    }
+
+    /**
+     * @param writeStatus The status WriteNdefRecord_Text returns, anything but DL_OK leaves the tag unchanged.
+     */
+    public void setWriteStatus(int writeStatus) {
+        this.writeStatus = writeStatus;
+    }
+
+    /**
+     * @return Returns the light mode of the last ReaderUISignal.
+     */
+    public int getLastLightMode() {
+        return lastLightMode;
+    }
+
+    /**
+     * @return Returns the number of ReaderUISignal calls.
+     */
+    public int getSignals() {
+        return signals.get();
+    }
+
+    /**
+     * @param latencyNanos The time every simulated call takes before returning.
+     */
+    public void setLatencyNanos(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     * Cut the power of the reader, as a glitch of its hub would, so it neither responds nor opens for a while.
+     *
+     * @param millis How long the reader stays unpowered.
+     */
+    public void powerGlitch(long millis) {
+        this.poweredOffUntilNanos = clock.getAsLong() + millis * 1_000_000L;
+    }
+
+    /**
+     * Time power glitches by the given clock instead of {@link System#nanoTime()}, e.g. the clock a test drives.
+     */
+    public void setClock(LongSupplier clock) {
+        this.clock = clock;
+        this.poweredOffUntilNanos = clock.getAsLong();
+    }
+
+    private boolean isPoweredOff() {
+        return clock.getAsLong() - poweredOffUntilNanos < 0;
+    }
+
+    private void simulateLatency() {
+        var latency = latencyNanos;
+        if (latency <= 0) return;
+        var deadline = System.nanoTime() + latency;
+        while (System.nanoTime() < deadline) Thread.onSpinWait();
+    }
+
+    @Override
+    public int ReaderOpen() {
+        simulateLatency();
+        return isPoweredOff() ? CAN_NOT_OPEN_READER : DL_OK;
+    }
+
+    @Override
+    public int ReaderClose() {
+        simulateLatency();
+        return DL_OK;
+    }
+
+    @Override
+    public int ReaderReset() {
+        simulateLatency();
+        return DL_OK;
+    }
+
+    @Override
+    public int GetReaderType(int[] iaReaderType) {
+        simulateLatency();
+        if (isPoweredOff()) return COMMUNICATION_BREAK;
+        iaReaderType[0] = readerType;
+        return DL_OK;
+    }
+
+    @Override
+    public int GetReaderType(IntByReference reader_type) {
+        simulateLatency();
+        reader_type.setValue(readerType);
+        return DL_OK;
+    }
+
+    @Override
+    public int GetCardIdEx(ByteByReference bCardType, byte[] baCardUID, ByteByReference bUidSize) {
+        simulateLatency();
+        if (!tagPresent) return NO_CARD;
+        var current = uid;
+        bCardType.setValue(cardType);
+        bUidSize.setValue((byte) current.length);
+        System.arraycopy(current, 0, baCardUID, 0, current.length);
+        return DL_OK;
+    }
+
+    @Override
+    public int ReadNdefRecord_Text(byte[] text) {
+        simulateLatency();
+        if (!tagPresent) return NO_CARD;
+        if (!formatted) return READING_ERROR;
+        var current = ndef;
+        System.arraycopy(current, 0, text, 0, current.length);
+        text[current.length] = 0;
+        return DL_OK;
+    }
+
+    @Override
+    public String UFR_Status2String(int status) {
+        return String.format("0x%02X", status);
+    }
+
+    @Override
+    public String GetDllVersionStr() {
+        return "simulated";
+    }
+
+    @Override
+    public int GetDlogicCardType(ByteByReference card_type) {
+        simulateLatency();
+        if (!tagPresent) return NO_CARD;
+        if (dlogicCardType == 0) return COMMAND_NOT_SUPPORTED;
+        card_type.setValue(dlogicCardType);
+        return DL_OK;
+    }
+
+    @Override
+    public int TagEmulationStart() {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int TagEmulationStop() {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int TagEmulationStartRam() {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int TagEmulationStopRam() {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int erase_last_ndef_record(byte message_nr) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int erase_all_ndef_records(byte message_nr) {
+        simulateLatency();
+        if (!tagPresent) return NO_CARD;
+        if (!formatted) return WRITING_ERROR;
+        ndef = new byte[0];
+        return DL_OK;
+    }
+
+    @Override
+    public int ndef_card_initialization() {
+        simulateLatency();
+        if (!tagPresent) return NO_CARD;
+        ndef = new byte[0];
+        formatted = true;
+        return DL_OK;
+    }
+
+    @Override
+    public int write_ndef_record_mirroring(byte message_nr, ByteByReference tnf, byte[] type_record,
+                                           ByteByReference type_length, byte[] id, ByteByReference id_length,
+                                           byte[] payload, IntByReference payload_length, ByteByReference card_formated,
+                                           int use_uid_ascii_mirror, int use_counter_ascii_mirror,
+                                           int payload_mirroring_pos) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int write_ndef_record(byte message_nr, ByteByReference tnf, byte[] type_record, ByteByReference type_length,
+                                 byte[] id, ByteByReference id_length, byte[] payload, IntByReference payload_length,
+                                 ByteByReference card_formated) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteEmulationNdef(byte tnf, byte[] type_record, byte type_length, byte[] id, byte id_length,
+                                  byte[] payload, byte payload_length) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteEmulationNdefRam(byte tnf, byte[] type_record, byte type_length, byte[] id, byte id_length,
+                                     byte[] payload, int payload_length) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int read_ndef_record(byte message_nr, byte record_nr, ByteByReference tnf, byte[] type_record,
+                                ByteByReference type_length, byte[] id, ByteByReference id_length, byte[] payload,
+                                IntByReference payload_length) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_WiFi(byte ndef_storage, String ssid, byte auth_type, byte encryption_type,
+                                    String password) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_WiFi(byte[] ssid, byte[] auth_type, byte[] encryption_type, byte[] password) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_Bluetooth(byte ndef_storage, String bt_mac_address) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_Bluetooth(byte[] bt_mac_address) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_SMS(byte ndef_storage, String phone_number, String message) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_SMS(byte[] phone_number, byte[] message) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_GeoLocation(byte ndef_storage, String latitude, String longitude) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_GeoLocation(byte[] latitude, byte[] longitude) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_NaviDestination(byte ndef_storage, String destination) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_NaviDestination(byte[] destination) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_Email(byte ndef_storage, String email_address, String subject, String message) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_Address(byte ndef_storage, String address) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_Address(byte[] address) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_Email(byte[] email_address, byte[] subject, byte[] message) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_AndroidApp(byte ndef_storage, String package_name) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_AndroidApp(byte[] package_name) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_Text(byte ndef_storage, String text) {
+        simulateLatency();
+        if (!tagPresent) return NO_CARD;
+        if (!formatted) return WRITING_ERROR;
+        var status = writeStatus;
+        if (status == DL_OK) ndef = text.getBytes(StandardCharsets.UTF_8);
+        return status;
+    }
+
+    @Override
+    public int WriteNdefRecord_StreetView(byte ndef_storage, String latitude, String longitude) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_StreetView(byte[] latitude, byte[] longitude) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_Phone(byte ndef_storage, String phone_number) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_Phone(byte[] phone_number) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_Contact(byte ndef_storage, String name, String company, String address, String phone,
+                                       String email, String website) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_Contact(byte[] vCard) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_Bitcoin(byte ndef_storage, String bitcoin_address, String amount, String message) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_Bitcoin(byte[] bitcoin_address, byte[] amount, byte[] message) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_Skype(byte ndef_storage, String user_name, byte action) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_Skype(byte[] user_name, byte[] action) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_Whatsapp(byte ndef_storage, String message) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_Viber(byte ndef_storage, String message) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_Whatsapp(byte[] message) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_Viber(byte[] message) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReaderOpenEx(int reader_type, byte[] port_name, int port_interface, byte[] arg) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int GetReaderSerialNumber(IntByReference reader_serial) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearFormatCard(byte[] key_a, byte block_access_bits, byte sector_access_bits,
+                                byte sector_trailers_byte9, byte[] key_b, ShortByReference sector_formatted,
+                                byte auth_mode, byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int GetCardId(ByteByReference bCardType, IntByReference iCardSerial) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReaderUISignal(int iLightMode, int iSoundMode) {
+        simulateLatency();
+        lastLightMode = iLightMode;
+        signals.incrementAndGet();
+        return DL_OK;
+    }
+
+    @Override
+    public int LinearRead(byte[] baReadData, int iLinearAddress, int iDataLength, ShortByReference shBytesRet,
+                          byte bAuthMode, byte bKeyIndex) {
+        simulateLatency();
+        if (!tagPresent) return NO_CARD;
+        var current = memory;
+        if (current.length == 0) return COMMAND_NOT_SUPPORTED;
+        if (iLinearAddress < 0 || iLinearAddress + iDataLength > current.length) return MAX_ADDRESS_EXCEEDED;
+        System.arraycopy(current, iLinearAddress, baReadData, 0, iDataLength);
+        shBytesRet.setValue((short) iDataLength);
+        return DL_OK;
+    }
+
+    @Override
+    public int LinearWrite(byte[] baWriteData, int iLinearAddress, int iDataLength, ShortByReference shBytesWritten,
+                           byte bAuthMode, byte bKeyIndex) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockWrite(byte[] saBlockWrite, int iBlockAddress, byte bAuthMode, byte bKeyIndex) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int GetReaderSerialNumber(int[] reader_serial) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int GetCardId(byte[] card_id, int[] card_serial) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReaderSoftRestart() {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadUserData(byte[] read_user_data) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteUserData(byte[] write_user_data) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReaderKeyWrite(byte[] reader_key, byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearRead(byte[] aucdata, int linear_address, int data_length, ShortByReference bytes_ret,
+                          byte auth_mode, int key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearRead_AKM1(byte[] aucdata, int linear_address, int data_length, ShortByReference bytes_ret,
+                               byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearRead_AKM2(byte[] aucdata, int linear_address, int data_length, ShortByReference bytes_ret,
+                               byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearRead_PK(byte[] aucdata, int linear_address, int data_length, ShortByReference bytes_ret,
+                             byte auth_mode, byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearWrite(byte[] aucdata, int linear_address, int data_length, ShortByReference bytes_written,
+                           byte auth_mode, int key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearWrite_AKM1(byte[] aucdata, int linear_address, int data_length, ShortByReference bytes_written,
+                                byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearWrite_AKM2(byte[] aucdata, int linear_address, int data_length, ShortByReference bytes_written,
+                                byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearWrite_PK(byte[] aucdata, int linear_address, int data_length, ShortByReference bytes_written,
+                              byte auth_mode, byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockRead(byte[] block_data, byte block_address, byte auth_mode, byte key_index) {
+        simulateLatency();
+        if (!tagPresent) return NO_CARD;
+        var current = memory;
+        if (current.length == 0) return COMMAND_NOT_SUPPORTED;
+        // a block of a Type 2 tag is a 4 byte page, and its user memory starts at page 4
+        var offset = ((block_address & 0xFF) - FIRST_USER_PAGE) * PAGE_SIZE;
+        if (offset < 0 || offset + PAGE_SIZE > current.length) return MAX_ADDRESS_EXCEEDED;
+        System.arraycopy(current, offset, block_data, 0, PAGE_SIZE);
+        return DL_OK;
+    }
+
+    @Override
+    public int BlockRead_AKM1(byte[] block_data, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockRead_AKM2(byte[] block_data, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockRead_PK(byte[] block_data, byte block_address, byte auth_mode, byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockWrite(byte[] block_data, byte block_address, byte auth_mode, byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockWrite_AKM1(byte[] block_data, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockWrite_AKM2(byte[] block_data, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockWrite_PK(byte[] block_data, byte block_address, byte auth_mode, byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockInSectorRead(byte[] block_data, byte sector_address, byte block_address, byte auth_mode,
+                                 byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockInSectorRead_AKM1(byte[] block_data, byte sector_address, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockInSectorRead_AKM2(byte[] block_data, byte sector_address, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockInSectorRead_PK(byte[] block_data, byte sector_address, byte block_address, byte auth_mode,
+                                    byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockInSectorWrite(byte[] block_data, byte sector_address, byte block_address, byte auth_mode,
+                                  byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockInSectorWrite_AKM1(byte[] block_data, byte sector_address, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockInSectorWrite_AKM2(byte[] block_data, byte sector_address, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int BlockInSectorWrite_PK(byte[] block_data, byte sector_address, byte block_address, byte auth_mode,
+                                     byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockRead(IntByReference value_read, ShortByReference value_address, byte block_address,
+                              byte auth_mode, byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockRead_AKM1(IntByReference value_read, ShortByReference value_address, byte block_address,
+                                   byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockRead_AKM2(IntByReference value_read, ShortByReference value_address, byte block_address,
+                                   byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockRead_PK(IntByReference value_read, ShortByReference value_address, byte block_address,
+                                 byte auth_mode, byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockWrite(int value_read, short value_address, byte block_address, byte auth_mode,
+                               byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockWrite_AKM1(int value_read, short value_address, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockWrite_AKM2(int value_read, short value_address, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockWrite_PK(int value_read, short value_address, byte block_address, byte auth_mode,
+                                  byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockIncrement(int incr_value, byte block_address, byte auth_mode, byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockIncrement_AKM1(int incr_value, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockIncrement_AKM2(int incr_value, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockIncrement_PK(int incr_value, byte block_address, byte auth_mode, byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockDecrement(int incr_value, byte block_address, byte auth_mode, byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockDecrement_AKM1(int incr_value, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockDecrement_AKM2(int incr_value, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockDecrement_PK(int incr_value, byte block_address, byte auth_mode, byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorRead(IntByReference read_data, ShortByReference value_address, byte sector_address,
+                                      byte block_address, byte auth_mode, byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorRead_AKM1(IntByReference read_data, ShortByReference value_address,
+                                           byte sector_address, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorRead_AKM2(IntByReference read_data, ShortByReference value_address,
+                                           byte sector_address, byte block_address, byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorRead_PK(IntByReference read_data, ShortByReference value_address, byte sector_address,
+                                         byte block_address, byte auth_mode, byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorWrite(int read_data, short value_address, byte sector_address, byte block_address,
+                                       byte auth_mode, byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorWrite_AKM1(int read_data, short value_address, byte sector_address, byte block_address,
+                                            byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorWrite_AKM2(int read_data, short value_address, byte sector_address, byte block_address,
+                                            byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorWrite_PK(int read_data, short value_address, byte sector_address, byte block_address,
+                                          byte auth_mode, byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorIncrement(int read_data, byte sector_address, byte block_address, byte auth_mode,
+                                           byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorIncrement_AKM1(int read_data, byte sector_address, byte block_address,
+                                                byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorIncrement_AKM2(int read_data, byte sector_address, byte block_address,
+                                                byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorIncrement_PK(int read_data, byte sector_address, byte block_address, byte auth_mode,
+                                              byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorDecrement(int read_data, byte sector_address, byte block_address, byte auth_mode,
+                                           byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorDecrement_AKM1(int read_data, byte sector_address, byte block_address,
+                                                byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorDecrement_AKM2(int read_data, byte sector_address, byte block_address,
+                                                byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ValueBlockInSectorDecrement_PK(int read_data, byte sector_address, byte block_address, byte auth_mode,
+                                              byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearFormatCard(byte[] key_a, byte block_access_bits, byte sector_access_bits,
+                                byte sector_trailers_byte9, byte[] key_b, ByteByReference sector_formatted,
+                                byte auth_mode, byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearFormatCard_AKM1(byte[] key_a, byte block_access_bits, byte sector_access_bits,
+                                     byte sector_trailers_byte9, byte[] key_b, ByteByReference sector_formatted,
+                                     byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearFormatCard_AKM2(byte[] key_a, byte block_access_bits, byte sector_access_bits,
+                                     byte sector_trailers_byte9, byte[] key_b, ByteByReference sector_formatted,
+                                     byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearFormatCard_PK(byte[] key_a, byte block_access_bits, byte sector_access_bits,
+                                   byte sector_trailers_byte9, byte[] key_b, ByteByReference sector_formatted,
+                                   byte auth_mode, byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int SectorTrailerWrite(byte addressing_mode, byte address, byte[] key_a, byte block_access_bits0,
+                                  byte block_access_bits1, byte block_access_bits2, byte sector_trailer_access_bits,
+                                  byte sector_trailer_byte9, byte[] key_b, byte auth_mode, byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int SectorTrailerWrite_AKM1(byte addressing_mode, byte address, byte[] key_a, byte block_access_bits0,
+                                       byte block_access_bits1, byte block_access_bits2,
+                                       byte sector_trailer_access_bits, byte sector_trailer_byte9, byte[] key_b,
+                                       byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int SectorTrailerWrite_AKM2(byte addressing_mode, byte address, byte[] key_a, byte block_access_bits0,
+                                       byte block_access_bits1, byte block_access_bits2,
+                                       byte sector_trailer_access_bits, byte sector_trailer_byte9, byte[] key_b,
+                                       byte auth_mode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int SectorTrailerWrite_PK(byte addressing_mode, byte address, byte[] key_a, byte block_access_bits0,
+                                     byte block_access_bits1, byte block_access_bits2, byte sector_trailer_access_bits,
+                                     byte sector_trailer_byte9, byte[] key_b, byte auth_mode, byte[] pk_key) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReaderList_UpdateAndGetCount(IntByReference number_of_devices) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReaderList_GetSerialByIndex(int device_index, IntByReference reader_serial) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReaderList_GetTypeByIndex(int device_index, IntByReference reader_type) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReaderList_OpenByIndex(int device_index, PointerByReference handle) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReaderCloseM(Pointer handle) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReaderResetM(Pointer handle) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int GetReaderTypeM(Pointer handle, int[] iaReaderType) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int GetReaderSerialNumberM(Pointer handle, int[] reader_serial) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int GetCardIdExM(Pointer handle, ByteByReference bCardType, byte[] baCardUID, ByteByReference bUidSize) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReadNdefRecord_TextM(Pointer handle, byte[] text) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int GetDlogicCardTypeM(Pointer handle, ByteByReference card_type) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int LinearReadM(Pointer handle, byte[] aucdata, int linear_address, int data_length,
+                           ShortByReference bytes_ret, byte auth_mode, byte key_index) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ndef_card_initializationM(Pointer handle) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int erase_all_ndef_recordsM(Pointer handle, byte message_nr) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int WriteNdefRecord_TextM(Pointer handle, byte ndef_storage, String text) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+
+    @Override
+    public int ReaderUISignalM(Pointer handle, int iLightMode, int iSoundMode) {
+        return COMMAND_NOT_SUPPORTED;
+    }
+}
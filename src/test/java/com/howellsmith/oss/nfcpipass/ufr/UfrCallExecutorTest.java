@@ -0,0 +1,200 @@
+package com.howellsmith.oss.nfcpipass.ufr;
+
+import com.sun.jna.ptr.ByteByReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.CALL_BUSY;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.CALL_REJECTED;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.CALL_TIMEOUT;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.DL_OK;
+import static com.howellsmith.oss.nfcpipass.ufr.ErrorCodes.NO_CARD;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UfrCallExecutorTest {
+
+    private final UfrReader reader = mock(UfrReader.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private UfrCallExecutor calls;
+
+    @AfterEach
+    void after_each() {
+        release.countDown();
+        calls.close();
+    }
+
+    @Test
+    void test_calls_from_many_threads_never_overlap() throws InterruptedException {
+
+        var inside = new AtomicInteger();
+        var overlaps = new AtomicInteger();
+        doAnswer(i -> {
+            if (inside.incrementAndGet() > 1) overlaps.incrementAndGet();
+            Thread.sleep(1L);
+            inside.decrementAndGet();
+            return NO_CARD;
+        }).when(reader).getCardIdEx(any(), any(), any());
+        calls = new UfrCallExecutor(reader, 64, 5000L, "test_calls");
+
+        var callers = Executors.newFixedThreadPool(4);
+        var statuses = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int i = 0; i < 40; i++) {
+            callers.execute(() -> statuses.add(calls.call(r ->
+                    r.getCardIdEx(new ByteByReference(), new byte[10], new ByteByReference()))));
+        }
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(10, SECONDS));
+
+        assertEquals(40, statuses.size());
+        assertTrue(statuses.stream().allMatch(status -> status == NO_CARD));
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    void test_batch_runs_as_one_unit() throws Exception {
+
+        var order = Collections.synchronizedList(new ArrayList<String>());
+        var started = new CountDownLatch(1);
+        when(reader.getCardIdEx(any(), any(), any())).thenAnswer(i -> {
+            order.add("uid");
+            started.countDown();
+            Thread.sleep(20L);
+            return DL_OK;
+        });
+        when(reader.readNdefText(any())).thenAnswer(i -> {
+            order.add("ndef");
+            return DL_OK;
+        });
+        when(reader.uiSignal(anyInt(), anyInt())).thenAnswer(i -> {
+            order.add("signal");
+            return DL_OK;
+        });
+        when(reader.writeNdefText(Byte.valueOf((byte) 1), "written")).thenAnswer(i -> {
+            order.add("write");
+            return DL_OK;
+        });
+        calls = new UfrCallExecutor(reader);
+
+        var batch = calls.submit(r -> {
+            var status = r.getCardIdEx(new ByteByReference(), new byte[10], new ByteByReference());
+            if (status == DL_OK) status = r.readNdefText(new byte[100]);
+            if (status == DL_OK) status = r.uiSignal(1, 1);
+            return status;
+        });
+        assertTrue(started.await(1, SECONDS));
+
+        // a write submitted while the batch runs waits for all of it
+        assertEquals(DL_OK, calls.call(r -> r.writeNdefText((byte) 1, "written")));
+        assertEquals(DL_OK, batch.get(1, SECONDS));
+        assertEquals(List.of("uid", "ndef", "signal", "write"), order);
+    }
+
+    @Test
+    void test_hung_call_times_out_and_no_call_is_made_until_it_returns() throws Exception {
+
+        var started = new CountDownLatch(1);
+        var returned = new CountDownLatch(1);
+        when(reader.getCardIdEx(any(), any(), any())).thenAnswer(i -> {
+            started.countDown();
+            release.await(5, SECONDS);
+            returned.countDown();
+            return DL_OK;
+        });
+        when(reader.reset()).thenReturn(DL_OK);
+        calls = new UfrCallExecutor(reader, 2, 100L, "test_calls");
+
+        var hung = calls.submit(r -> r.getCardIdEx(null, null, null));
+        assertTrue(started.await(1, SECONDS));
+        var queued = calls.submit(UfrReader::close, SECONDS.toNanos(5L));
+        var start = System.nanoTime();
+        assertEquals(CALL_TIMEOUT, calls.call(r -> r.getCardIdEx(null, null, null)));
+        var waited = System.nanoTime() - start;
+        assertTrue(waited < MILLISECONDS.toNanos(1000L), "waited " + waited + "ns");
+        assertTrue(calls.isHung());
+        assertEquals(1, calls.getHungCalls());
+
+        // the commands behind the hung call are failed and new ones rejected while it is inside the library
+        assertTrue(hung.isCompletedExceptionally());
+        var e = assertThrows(ExecutionException.class, () -> queued.get(1, SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertEquals(CALL_REJECTED, calls.call(UfrReader::reset));
+        verify(reader, never()).reset();
+        verify(reader, never()).close();
+
+        // once it returns the reader takes commands again, e.g. the reset that recycles it
+        release.countDown();
+        assertTrue(returned.await(1, SECONDS));
+        while (calls.isHung()) Thread.sleep(1L);
+        assertEquals(DL_OK, calls.call(UfrReader::reset));
+        assertEquals(1, calls.getHungCalls());
+    }
+
+    @Test
+    void test_call_behind_a_slow_command_is_busy_not_hung() throws Exception {
+
+        var started = new CountDownLatch(1);
+        when(reader.getCardIdEx(any(), any(), any())).thenAnswer(i -> {
+            started.countDown();
+            release.await(5, SECONDS);
+            return DL_OK;
+        });
+        when(reader.reset()).thenReturn(DL_OK);
+        calls = new UfrCallExecutor(reader, 2, 100L, "test_calls");
+
+        // the slow command is within its own deadline when the call behind it gives up
+        var slow = calls.submit(r -> r.getCardIdEx(null, null, null), SECONDS.toNanos(5L));
+        assertTrue(started.await(1, SECONDS));
+        assertEquals(CALL_BUSY, calls.call(UfrReader::reset));
+        assertFalse(calls.isHung());
+        assertEquals(0, calls.getHungCalls());
+
+        release.countDown();
+        assertEquals(DL_OK, slow.get(1, SECONDS));
+        assertEquals(DL_OK, calls.call(UfrReader::reset));
+        verify(reader, times(1)).reset();
+    }
+
+    @Test
+    void test_full_queue_rejects_instead_of_blocking() throws InterruptedException {
+
+        var started = new CountDownLatch(1);
+        when(reader.getCardIdEx(any(), any(), any())).thenAnswer(i -> {
+            started.countDown();
+            release.await(5, SECONDS);
+            return DL_OK;
+        });
+        calls = new UfrCallExecutor(reader, 1, 5000L, "test_calls");
+
+        calls.submit(r -> r.getCardIdEx(null, null, null));
+        assertTrue(started.await(1, SECONDS));
+        calls.submit(UfrReader::reset);
+
+        var rejected = calls.submit(UfrReader::close);
+        var e = assertThrows(ExecutionException.class, () -> rejected.get(1, SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertEquals(CALL_REJECTED, calls.call(UfrReader::open));
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Stand-in for the poll path of the uFR library, built by NativeStub for the binding test and benchmark. Every call
+ * succeeds with a 7 byte uid and a short NDEF Text record.
+ */
+#include <stdint.h>
+#include <string.h>
+
+static const uint8_t UID[] = {0x04, 0x2A, 0x6B, 0x12, 0xC3, 0x5D, 0x80};
+static const char TEXT[] = "pipass:0001";
+
+int GetReaderType(uint32_t *reader_type) {
+    *reader_type = 0xD1380022;
+    return 0;
+}
+
+int GetCardIdEx(uint8_t *card_type, uint8_t *uid, uint8_t *uid_size) {
+    *card_type = 0x08;
+    memcpy(uid, UID, sizeof(UID));
+    *uid_size = sizeof(UID);
+    return 0;
+}
+
+int ReadNdefRecord_Text(char *text) {
+    memcpy(text, TEXT, sizeof(TEXT));
+    return 0;
+}
+
+int GetReaderTypeM(void *handle, uint32_t *reader_type) {
+    return handle ? GetReaderType(reader_type) : 0x55;
+}
+
+int GetCardIdExM(void *handle, uint8_t *card_type, uint8_t *uid, uint8_t *uid_size) {
+    return handle ? GetCardIdEx(card_type, uid, uid_size) : 0x55;
+}
+
+int ReadNdefRecord_TextM(void *handle, char *text) {
+    return handle ? ReadNdefRecord_Text(text) : 0x55;
+}